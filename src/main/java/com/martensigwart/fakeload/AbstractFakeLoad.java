@@ -34,9 +34,19 @@ abstract class AbstractFakeLoad implements FakeLoad {
         private final TimeUnit unit;
         private final int repetitions;
         private final int cpu;
+        private final double cpuCores;
+        private final CpuKernel cpuKernel;
+        private final CpuDistribution cpuDistribution;
+        private final CpuTargetMode cpuTargetMode;
+        private final HeadroomPolicy headroomPolicy;
         private final long memory;
+        private final long offHeapMemory;
+        private final long memoryGrowthRate;
+        private final long allocationRate;
+        private final long memoryBandwidth;
         private final long diskInput;
         private final long diskOutput;
+        private final long diskIops;
         private final Collection<FakeLoad> loads;
 
         SerializationProxy(FakeLoad fakeLoad) {
@@ -44,9 +54,19 @@ abstract class AbstractFakeLoad implements FakeLoad {
             unit = fakeLoad.getTimeUnit();
             repetitions = fakeLoad.getRepetitions();
             cpu = fakeLoad.getCpu();
+            cpuCores = fakeLoad.getCpuCores();
+            cpuKernel = fakeLoad.getCpuKernel();
+            cpuDistribution = fakeLoad.getCpuDistribution();
+            cpuTargetMode = fakeLoad.getCpuTargetMode();
+            headroomPolicy = fakeLoad.getHeadroomPolicy();
             memory = fakeLoad.getMemory();
+            offHeapMemory = fakeLoad.getOffHeapMemory();
+            memoryGrowthRate = fakeLoad.getMemoryGrowthRate();
+            allocationRate = fakeLoad.getAllocationRate();
+            memoryBandwidth = fakeLoad.getMemoryBandwidth();
             diskInput = fakeLoad.getDiskInput();
             diskOutput = fakeLoad.getDiskInput();
+            diskIops = fakeLoad.getDiskIops();
             loads = fakeLoad.getInnerLoads();
 
         }
@@ -55,9 +75,19 @@ abstract class AbstractFakeLoad implements FakeLoad {
             return  new FakeLoadBuilder(duration, unit)
                     .repeat(repetitions)
                     .withCpu(cpu)
+                    .withCpuCores(cpuCores)
+                    .withCpuKernel(cpuKernel)
+                    .withCpuDistribution(cpuDistribution)
+                    .withCpuTargetMode(cpuTargetMode)
+                    .withHeadroomPolicy(headroomPolicy)
                     .withMemory(memory, MemoryUnit.BYTES)
+                    .withMemory(offHeapMemory, MemoryUnit.BYTES, MemoryKind.OFF_HEAP)
+                    .withMemoryGrowth(memoryGrowthRate, MemoryUnit.BYTES, TimeUnit.SECONDS)
+                    .withAllocationRate(allocationRate, MemoryUnit.BYTES)
+                    .withMemoryBandwidth(memoryBandwidth, MemoryUnit.BYTES)
                     .withDiskInput(diskInput, MemoryUnit.BYTES)
                     .withDiskOutput(diskOutput, MemoryUnit.BYTES)
+                    .withDiskIops(diskIops)
                     .addLoads(loads)
                     .build();
         }
@@ -4,6 +4,12 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import javax.annotation.concurrent.GuardedBy;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static com.martensigwart.fakeload.Preconditions.checkArgument;
+import static com.martensigwart.fakeload.Preconditions.checkNotNull;
 
 /**
  * Skeleton {@code LoadSimulator} implementation.
@@ -16,6 +22,12 @@ import javax.annotation.concurrent.GuardedBy;
  * method which has to be implemented by subclasses.
  *
  * <p>
+ * A simulator can either be run permanently by a thread, or on demand (see {@link #runOnDemand(Executor, long)}).
+ * When run on demand, the simulator is submitted to an {@link Executor} as soon as there is something to
+ * simulate and leaves its {@link #run()} method again after having had nothing to do for an idle timeout.
+ * This way, no thread is occupied by a simulator which is not used.
+ *
+ * <p>
  * Note: When calling the constructor of this class from a subclass,
  * passing a value smaller or equal zero as {@code maximumLoad} will cause the
  * max value to be {@link java.lang.Long#MAX_VALUE}
@@ -33,6 +45,10 @@ public abstract class AbstractLoadSimulator implements LoadSimulator {
     private final String name;
     private final Object lock = new Object();
 
+    @GuardedBy("lock") private Executor executor;
+    @GuardedBy("lock") private long idleTimeout;
+    @GuardedBy("lock") private boolean active;
+
 
     public AbstractLoadSimulator(long maximumLoad, String name) {
         this.load = 0L;
@@ -73,11 +89,21 @@ public abstract class AbstractLoadSimulator implements LoadSimulator {
 
     /**
      * Clean up method which is called if the thread executing this {@code AbstractLoadSimulator}
-     * encounters an exception, e.g. InterruptedException. This method should be used to clean up
+     * encounters an exception, e.g. InterruptedException, or leaves the {@link #run()} method
+     * after having been idle when run on demand. This method should be used to clean up
      * any resources that are used by the simulator for load simulation purposes.
      */
     protected abstract void cleanUp();
 
+    /**
+     * Called by the thread executing this {@code AbstractLoadSimulator} whenever it has nothing left to do,
+     * before it waits for new simulation instructions. Unlike {@link #cleanUp()}, the simulator keeps running
+     * afterwards, so this method should only release resources that are needed while simulating a load
+     * and can be acquired again by {@link #simulateLoad(long)}. Does nothing by default.
+     */
+    protected void pause() {
+    }
+
     /**
      * Generates a pretty string representation of the specified load
      * @param load load to be formatted
@@ -88,28 +114,120 @@ public abstract class AbstractLoadSimulator implements LoadSimulator {
     @Override
     public void run() {
         log.debug("{} - Started", name);
+        synchronized (lock) {
+            active = true;
+        }
         boolean running = true;
-        while (running) {
-            try {
-                synchronized (lock) {
-                    while (waitConditionFulfilled()) {
-                        log.debug("{} - Waiting for something to do...", name);
-                        lock.wait();
-                        log.debug("{} - Woke up.", name);
+        boolean idle = false;
+        boolean paused = false;
+        try {
+            while (running) {
+                try {
+                    boolean pause = false;
+                    synchronized (lock) {
+                        while (waitConditionFulfilled()) {
+                            if (!paused) {
+                                // pauses outside the lock, so that setting the load is not blocked
+                                pause = true;
+                                break;
+                            } else if (executor == null) {
+                                log.debug("{} - Waiting for something to do...", name);
+                                lock.wait();
+                                log.debug("{} - Woke up.", name);
+                            } else if (!awaitWork()) {
+                                log.debug("{} - Idle for {} ms, exiting", name, idleTimeout);
+                                active = false;
+                                idle = true;
+                                cleanUp();
+                                return;
+                            }
+                        }
+                    }
+                    if (pause) {
+                        pause();
+                        paused = true;
+                        continue;
                     }
-                }
 
-                simulateLoad(getLoad());
+                    paused = false;
+                    simulateLoad(getLoad());
 
-            } catch (InterruptedException e) {
-                log.debug("{} - Interrupted", name);
-                cleanUp();
-                running = false;
+                } catch (InterruptedException e) {
+                    log.debug("{} - Interrupted", name);
+                    cleanUp();
+                    running = false;
+                }
+            }
+        } catch (RuntimeException | Error e) {
+            cleanUp();
+            throw e;
+        } finally {
+            // unless already reset while idle, so that the simulator is started again on demand
+            if (!idle) {
+                synchronized (lock) {
+                    active = false;
+                }
             }
         }
         log.debug("{} - Exited", name);
     }
 
+    /**
+     * Waits until there is something to do, but at most for the idle timeout.
+     * @return true if there is something to do, false if the idle timeout elapsed
+     */
+    @GuardedBy("lock")
+    private boolean awaitWork() throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(idleTimeout);
+        long remaining;
+        while (waitConditionFulfilled() && (remaining = deadline - System.nanoTime()) > 0) {
+            TimeUnit.NANOSECONDS.timedWait(lock, remaining);
+        }
+        return !waitConditionFulfilled();
+    }
+
+    /**
+     * Runs this simulator on demand using the specified executor.
+     *
+     * <p>
+     * Whenever there is something to simulate and the simulator is not running,
+     * it is submitted to the executor. After having had nothing to do for the specified
+     * idle timeout, the simulator leaves its {@link #run()} method, freeing the thread.
+     *
+     * @param executor the executor used for running the simulator
+     * @param idleTimeout the idle timeout in milliseconds
+     */
+    public void runOnDemand(Executor executor, long idleTimeout) {
+        checkArgument(idleTimeout >= 0, "Idle timeout must be nonnegative but was %s", idleTimeout);
+        synchronized (lock) {
+            this.executor = checkNotNull(executor);
+            this.idleTimeout = idleTimeout;
+            startIfNecessary();
+        }
+    }
+
+    /**
+     * @return true if a thread is currently executing this simulator
+     */
+    public boolean isActive() {
+        synchronized (lock) {
+            return active;
+        }
+    }
+
+    @GuardedBy("lock")
+    private void startIfNecessary() {
+        if (executor != null && !active && !waitConditionFulfilled()) {
+            try {
+                active = true;
+                executor.execute(this);
+            } catch (RejectedExecutionException e) {
+                log.debug("{} - Could not be started: {}", name, e.getMessage());
+                active = false;
+            }
+        }
+    }
+
     @Override
     public synchronized long getLoad() {
         return load;
@@ -125,11 +243,14 @@ public abstract class AbstractLoadSimulator implements LoadSimulator {
          */
         synchronized (this) {
             this.load = (desiredLoad < 0) ? 0L : (desiredLoad > maximumLoad) ? maximumLoad : desiredLoad;
-            log.trace("{} - Set load to {}", name, prettyFormat(this.load));
+            if (log.isTraceEnabled()) {
+                log.trace("{} - Set load to {}", name, prettyFormat(this.load));
+            }
         }
 
         synchronized (lock) {
             lock.notify();
+            startIfNecessary();
         }
     }
 
@@ -0,0 +1,24 @@
+package com.martensigwart.fakeload;
+
+/**
+ * The order in which a {@link MemoryAccessSimulator} accesses its working set.
+ *
+ * @since 1.8
+ * @see MemoryAccessSimulator
+ * @author Marten Sigwart
+ */
+public enum AccessPattern {
+
+    /**
+     * Accesses one cache line after another, wrapping around at the end of the working set.
+     * Hardware prefetching makes sequential access cheap in latency, it mainly consumes memory bandwidth.
+     */
+    SEQUENTIAL,
+
+    /**
+     * Accesses cache lines chosen uniformly at random. With a working set larger than the caches,
+     * almost every access is a cache miss, which defeats prefetching and evicts the cache lines of
+     * neighbouring workloads. This is the default.
+     */
+    RANDOM
+}
@@ -0,0 +1,122 @@
+package com.martensigwart.fakeload;
+
+import javax.annotation.concurrent.Immutable;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+
+import static com.martensigwart.fakeload.Preconditions.checkArgument;
+import static com.martensigwart.fakeload.Preconditions.checkNotNull;
+
+/**
+ * Describes the objects allocated by an {@link AllocationSimulator}.
+ *
+ * <p>
+ * Object sizes are distributed uniformly between a minimum and a maximum size. A fraction of the objects,
+ * the survival ratio, survives for a while, all other objects become garbage immediately. The lifetimes of
+ * surviving objects are distributed exponentially with the configured mean lifetime, so that most survivors
+ * die young while some live long enough to be promoted to the old generation.
+ *
+ * <p>
+ * Instances of this class are immutable.
+ *
+ * @since 1.8
+ * @see AllocationSimulator
+ * @author Marten Sigwart
+ */
+@Immutable
+public final class AllocationProfile {
+
+    /**
+     * Objects between 16 bytes and 4 KB, 5% of which survive for one second on average
+     */
+    public static final AllocationProfile DEFAULT = new AllocationProfile(16, 4096, 0.05, 1000L);
+
+    private final int minimumObjectSize;
+    private final int maximumObjectSize;
+    private final double survivalRatio;
+    private final long meanLifetime;
+
+    private AllocationProfile(int minimumObjectSize, int maximumObjectSize, double survivalRatio, long meanLifetime) {
+        this.minimumObjectSize = minimumObjectSize;
+        this.maximumObjectSize = maximumObjectSize;
+        this.survivalRatio = survivalRatio;
+        this.meanLifetime = meanLifetime;
+    }
+
+    /**
+     * Creates a new {@code AllocationProfile}.
+     * @param minimumObjectSize the minimum size of an object in bytes
+     * @param maximumObjectSize the maximum size of an object in bytes
+     * @param survivalRatio the fraction of objects surviving (0-1)
+     * @param meanLifetime the mean lifetime of surviving objects
+     * @param unit the time unit of the mean lifetime
+     * @return the profile
+     */
+    public static AllocationProfile of(int minimumObjectSize, int maximumObjectSize,
+                                       double survivalRatio, long meanLifetime, TimeUnit unit) {
+        checkArgument(minimumObjectSize > 0, "Minimum object size must be positive but was %s", minimumObjectSize);
+        checkArgument(maximumObjectSize >= minimumObjectSize,
+                "Maximum object size must not be smaller than minimum object size but was %s", maximumObjectSize);
+        checkArgument(survivalRatio >= 0 && survivalRatio <= 1,
+                "Survival ratio must be between 0 and 1 but was %s", survivalRatio);
+        checkArgument(meanLifetime >= 0, "Mean lifetime must be nonnegative but was %s", meanLifetime);
+        return new AllocationProfile(minimumObjectSize, maximumObjectSize, survivalRatio,
+                checkNotNull(unit).toMillis(meanLifetime));
+    }
+
+    /**
+     * @return the minimum size of an object in bytes
+     */
+    public int getMinimumObjectSize() {
+        return minimumObjectSize;
+    }
+
+    /**
+     * @return the maximum size of an object in bytes
+     */
+    public int getMaximumObjectSize() {
+        return maximumObjectSize;
+    }
+
+    /**
+     * @return the fraction of objects surviving
+     */
+    public double getSurvivalRatio() {
+        return survivalRatio;
+    }
+
+    /**
+     * @return the mean lifetime of surviving objects in milliseconds
+     */
+    public long getMeanLifetime() {
+        return meanLifetime;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof AllocationProfile)) return false;
+
+        AllocationProfile that = (AllocationProfile) o;
+
+        if (minimumObjectSize != that.minimumObjectSize) return false;
+        if (maximumObjectSize != that.maximumObjectSize) return false;
+        if (Double.compare(survivalRatio, that.survivalRatio) != 0) return false;
+        return meanLifetime == that.meanLifetime;
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(minimumObjectSize, maximumObjectSize, survivalRatio, meanLifetime);
+    }
+
+    @Override
+    public String toString() {
+        return "AllocationProfile{" +
+                "minimumObjectSize=" + minimumObjectSize +
+                ", maximumObjectSize=" + maximumObjectSize +
+                ", survivalRatio=" + survivalRatio +
+                ", meanLifetime=" + meanLifetime +
+                '}';
+    }
+}
@@ -0,0 +1,200 @@
+package com.martensigwart.fakeload;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.PriorityQueue;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+import static com.martensigwart.fakeload.Preconditions.checkNotNull;
+
+/**
+ * Simulates garbage collection pressure by allocating objects at a steady rate.
+ *
+ * <p>
+ * The load of an {@code AllocationSimulator} is the allocation rate in bytes per second.
+ * Every {@value #TICK} ms the simulator allocates byte arrays worth the bytes due since the last tick,
+ * with sizes and lifetimes according to its {@link AllocationProfile}. Objects that do not survive are
+ * dropped right away, surviving objects are kept until their lifetime has expired. This way, the simulator
+ * drives young collections and, depending on the lifetimes, promotion to the old generation.
+ * When the allocation rate drops to zero, the simulator keeps running until all survivors have expired.
+ *
+ * <p>
+ * If supported by the JVM, the rate actually achieved is measured via
+ * {@code com.sun.management.ThreadMXBean#getThreadAllocatedBytes(long)} (see {@link #getAchievedRate()}).
+ *
+ * @since 1.8
+ * @see FakeLoad#withAllocationRate(long, MemoryUnit)
+ * @author Marten Sigwart
+ */
+public final class AllocationSimulator extends AbstractLoadSimulator {
+
+    private static final Logger log = LoggerFactory.getLogger(AllocationSimulator.class);
+    private static final ThreadMXBean threadMXBean = ManagementFactory.getThreadMXBean();
+
+    static final long TICK = 10L;
+    private static final long MEASUREMENT_INTERVAL = TimeUnit.SECONDS.toNanos(1);
+    private static final int RECENT_OBJECTS = 16;
+
+    private final AllocationProfile profile;
+    private final PriorityQueue<Survivor> survivors = new PriorityQueue<>();
+    private volatile int noOfSurvivors;
+    // keeps the most recent objects reachable, so that allocations cannot be eliminated
+    private final byte[][] recentObjects = new byte[RECENT_OBJECTS][];
+    private int recentIndex;
+
+    private long lastTick;
+    private double pendingBytes;
+
+    private long measurementStart;
+    private long measurementBytes = -1L;
+    private volatile double achievedRate;
+
+
+    public AllocationSimulator() {
+        this(AllocationProfile.DEFAULT);
+    }
+
+    /**
+     * @param profile the sizes and lifetimes of the allocated objects
+     */
+    public AllocationSimulator(AllocationProfile profile) {
+        super(-1L, "AllocationSim");
+        this.profile = checkNotNull(profile);
+    }
+
+
+    @Override
+    protected void simulateLoad(long rate) throws InterruptedException {
+        long now = System.nanoTime();
+        long tickNanos = TimeUnit.MILLISECONDS.toNanos(TICK);
+        if (now - lastTick > 2 * tickNanos) {
+            // first tick or simulator was idle: do not catch up
+            lastTick = now - tickNanos;
+            measurementBytes = -1L;
+        }
+        pendingBytes += rate * (double) (now - lastTick) / TimeUnit.SECONDS.toNanos(1);
+        lastTick = now;
+
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        while (pendingBytes >= profile.getMinimumObjectSize()) {
+            int size = random.nextInt(profile.getMinimumObjectSize(), profile.getMaximumObjectSize() + 1);
+            byte[] object = new byte[size];
+            recentObjects[recentIndex++ & (RECENT_OBJECTS - 1)] = object;
+            if (random.nextDouble() < profile.getSurvivalRatio()) {
+                double lifetime = -Math.log(1.0 - random.nextDouble()) * profile.getMeanLifetime();
+                survivors.add(new Survivor(now + TimeUnit.MILLISECONDS.toNanos((long) lifetime), object));
+            }
+            pendingBytes -= size;
+        }
+
+        releaseSurvivors(now);
+        noOfSurvivors = survivors.size();
+        measureRate(now);
+
+        long remaining;
+        while ((remaining = lastTick + tickNanos - System.nanoTime()) > 0 && !Thread.currentThread().isInterrupted()) {
+            LockSupport.parkNanos(this, remaining);
+        }
+        if (Thread.interrupted()) {
+            throw new InterruptedException();
+        }
+    }
+
+    private void releaseSurvivors(long now) {
+        while (!survivors.isEmpty() && survivors.peek().expiry - now <= 0) {
+            survivors.poll();
+        }
+    }
+
+    private void measureRate(long now) {
+        long allocatedBytes = allocatedBytes();
+        if (allocatedBytes < 0) {
+            return;
+        }
+        if (measurementBytes < 0) {
+            measurementStart = now;
+            measurementBytes = allocatedBytes;
+        } else if (now - measurementStart >= MEASUREMENT_INTERVAL) {
+            achievedRate = (allocatedBytes - measurementBytes) * (double) TimeUnit.SECONDS.toNanos(1)
+                    / (now - measurementStart);
+            if (log.isTraceEnabled()) {
+                log.trace("Achieved allocation rate: {}/s", MemoryUnit.mbString((long) achievedRate));
+            }
+            measurementStart = now;
+            measurementBytes = allocatedBytes;
+        }
+    }
+
+    /**
+     * @return the bytes allocated by the current thread, or -1 if not supported
+     */
+    private static long allocatedBytes() {
+        if (threadMXBean instanceof com.sun.management.ThreadMXBean) {
+            com.sun.management.ThreadMXBean bean = (com.sun.management.ThreadMXBean) threadMXBean;
+            if (bean.isThreadAllocatedMemorySupported() && bean.isThreadAllocatedMemoryEnabled()) {
+                return bean.getThreadAllocatedBytes(Thread.currentThread().getId());
+            }
+        }
+        return -1L;
+    }
+
+    @Override
+    protected boolean waitConditionFulfilled() {
+        return (getLoad() == 0 && noOfSurvivors == 0);
+    }
+
+    /**
+     * Returns the allocation rate achieved by this simulator as measured by the JVM,
+     * updated about once per second.
+     * @return the achieved rate in bytes per second, zero if not measured
+     */
+    public double getAchievedRate() {
+        return achievedRate;
+    }
+
+    /**
+     * @return the sizes and lifetimes of the allocated objects
+     */
+    public AllocationProfile getProfile() {
+        return profile;
+    }
+
+    @Override
+    protected String prettyFormat(long load) {
+        return MemoryUnit.mbString(load) + "/s";
+    }
+
+    @Override
+    protected void cleanUp() {
+        survivors.clear();
+        noOfSurvivors = 0;
+        for (int i = 0; i < RECENT_OBJECTS; i++) {
+            recentObjects[i] = null;
+        }
+        measurementBytes = -1L;
+        achievedRate = 0.0;
+    }
+
+    /**
+     * An object kept alive until its expiry
+     */
+    private static final class Survivor implements Comparable<Survivor> {
+        private final long expiry;
+        private final byte[] object;
+
+        private Survivor(long expiry, byte[] object) {
+            this.expiry = expiry;
+            this.object = object;
+        }
+
+        @Override
+        public int compareTo(Survivor other) {
+            return Long.compare(expiry - other.expiry, 0L);
+        }
+    }
+}
@@ -0,0 +1,47 @@
+package com.martensigwart.fakeload;
+
+import javax.annotation.concurrent.NotThreadSafe;
+
+/**
+ * Sink for the results of CPU simulation.
+ *
+ * <p>
+ * If the results of the simulated work are never used, the JIT compiler is free to shrink or
+ * eliminate the work as dead code, which results in far less CPU load than requested.
+ * Similar to JMH's {@code Blackhole}, results are therefore accumulated and published to
+ * a volatile field, which the JIT compiler has to assume is read by other threads.
+ * To keep the overhead low, the volatile write is done only once per {@link #flush()},
+ * i.e. once per duty cycle period of a {@link CpuSimulator}.
+ *
+ * @since 1.8
+ * @see CpuSimulator
+ * @author Marten Sigwart
+ */
+@NotThreadSafe
+final class Blackhole {
+
+    private long accumulator;
+    private volatile long sink;
+
+    /**
+     * Consumes a result.
+     * @param result the result
+     */
+    void consume(long result) {
+        accumulator += result;
+    }
+
+    /**
+     * Publishes all results consumed so far.
+     */
+    void flush() {
+        sink = accumulator;
+    }
+
+    /**
+     * @return the published results
+     */
+    long getSink() {
+        return sink;
+    }
+}
@@ -0,0 +1,43 @@
+package com.martensigwart.fakeload;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Kernel executing data-dependent, unpredictable branches, see {@link CpuKernel#BRANCH}.
+ *
+ * <p>
+ * A xorshift generator produces pseudo-random numbers which select one of eight cases
+ * of a switch statement. As every case does different work, the JIT compiler cannot
+ * replace the switch by conditional moves, so most iterations cause a branch misprediction.
+ */
+final class BranchKernel implements Kernel {
+
+    private static final int ITERATIONS = 256;
+
+    private long state = ThreadLocalRandom.current().nextLong() | 1L;
+    private long accumulator;
+
+    @Override
+    public long execute() {
+        long x = state;
+        long acc = accumulator;
+        for (int i = 0; i < ITERATIONS; i++) {
+            x ^= x << 13;
+            x ^= x >>> 7;
+            x ^= x << 17;
+            switch ((int) (x >>> 61)) {
+                case 0: acc += x; break;
+                case 1: acc ^= x; break;
+                case 2: acc -= x >>> 3; break;
+                case 3: acc = Long.rotateLeft(acc, 7); break;
+                case 4: acc *= 31; break;
+                case 5: acc += Long.bitCount(x); break;
+                case 6: acc ^= acc >>> 11; break;
+                default: acc--; break;
+            }
+        }
+        state = x;
+        accumulator = acc;
+        return acc;
+    }
+}
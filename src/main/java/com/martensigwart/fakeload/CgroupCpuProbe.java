@@ -0,0 +1,198 @@
+package com.martensigwart.fakeload;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.GuardedBy;
+import javax.annotation.concurrent.ThreadSafe;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.function.IntSupplier;
+import java.util.function.LongSupplier;
+
+import static com.martensigwart.fakeload.Preconditions.checkArgument;
+import static com.martensigwart.fakeload.Preconditions.checkNotNull;
+
+/**
+ * A {@link CpuProbe} reading CPU quota and usage from the cgroup filesystem.
+ *
+ * <p>
+ * Inside containers, e.g. Kubernetes pods, the CPU time available to a process is usually limited by
+ * a CPU quota of its cgroup. Older JVMs do not take the quota into account in
+ * {@link Runtime#availableProcessors()} and report the CPU load of the host instead of the container.
+ * This probe therefore reads the quota and usage of the cgroup directly:
+ *
+ * <ul>
+ *     <li>cgroup v2: {@code cpu.max} and {@code usage_usec} of {@code cpu.stat}</li>
+ *     <li>cgroup v1: {@code cpu.cfs_quota_us}, {@code cpu.cfs_period_us} of the {@code cpu} controller
+ *     and {@code cpuacct.usage} of the {@code cpuacct} controller</li>
+ * </ul>
+ *
+ * The available cores are the quota divided by the period, but at most the number of available
+ * processors. Without a quota, the number of available processors is used. The CPU load is the
+ * CPU time used by the cgroup between two calls of {@link #getCpuLoad()}, relative to the available cores.
+ *
+ * <p>
+ * By default the cgroup filesystem is expected at {@code /sys/fs/cgroup}, which inside a container
+ * is the cgroup of the container. A different root directory can be passed to the constructor.
+ *
+ * @since 1.8
+ * @see CpuProbe
+ * @author Marten Sigwart
+ */
+@ThreadSafe
+public final class CgroupCpuProbe implements CpuProbe {
+
+    private static final Logger log = LoggerFactory.getLogger(CgroupCpuProbe.class);
+    static final Path DEFAULT_ROOT = Paths.get("/sys/fs/cgroup");
+
+    private static final String[] CPU_CONTROLLERS = {"cpu", "cpu,cpuacct", "cpuacct,cpu"};
+    private static final String[] CPUACCT_CONTROLLERS = {"cpuacct", "cpu,cpuacct", "cpuacct,cpu"};
+
+    private final Path root;
+    private final LongSupplier nanoClock;
+    private final IntSupplier availableProcessors;
+
+    @GuardedBy("this") private long lastUsage = -1L;
+    @GuardedBy("this") private long lastTime;
+
+
+    /**
+     * Creates a new {@code CgroupCpuProbe} for the cgroup filesystem mounted at {@code /sys/fs/cgroup}.
+     */
+    public CgroupCpuProbe() {
+        this(DEFAULT_ROOT);
+    }
+
+    /**
+     * Creates a new {@code CgroupCpuProbe}.
+     * @param root the root directory of the cgroup filesystem
+     * @throws IllegalArgumentException if no CPU usage can be found in the specified directory
+     */
+    public CgroupCpuProbe(Path root) {
+        this(root, System::nanoTime, () -> Runtime.getRuntime().availableProcessors());
+    }
+
+    CgroupCpuProbe(Path root, LongSupplier nanoClock, IntSupplier availableProcessors) {
+        this.root = checkNotNull(root);
+        this.nanoClock = checkNotNull(nanoClock);
+        this.availableProcessors = checkNotNull(availableProcessors);
+        checkArgument(isAvailable(root), "No cgroup CPU usage found in %s", root);
+    }
+
+    /**
+     * Checks whether the specified directory contains a cgroup filesystem providing CPU usage.
+     * @param root the root directory of the cgroup filesystem
+     * @return true if a {@code CgroupCpuProbe} can be used for the specified directory
+     */
+    public static boolean isAvailable(Path root) {
+        if (Files.isRegularFile(root.resolve("cpu.stat")) && Files.isRegularFile(root.resolve("cgroup.controllers"))) {
+            return true;
+        }
+        return find(root, CPUACCT_CONTROLLERS, "cpuacct.usage") != null;
+    }
+
+    @Override
+    public double getAvailableCores() {
+        int processors = availableProcessors.getAsInt();
+        try {
+            double quota = readQuota();
+            return (quota > 0) ? Math.min(quota, processors) : processors;
+        } catch (IOException | RuntimeException e) {
+            log.warn("Failed to read CPU quota from {}: {}", root, e.getMessage());
+            return processors;
+        }
+    }
+
+    @Override
+    public synchronized double getCpuLoad() {
+        long usage;
+        try {
+            usage = readUsage();
+        } catch (IOException | RuntimeException e) {
+            log.warn("Failed to read CPU usage from {}: {}", root, e.getMessage());
+            return 0.0;
+        }
+        long now = nanoClock.getAsLong();
+
+        double load = 0.0;
+        if (lastUsage >= 0 && now > lastTime) {
+            load = 100.0 * (usage - lastUsage) / ((now - lastTime) * getAvailableCores());
+        }
+        lastUsage = usage;
+        lastTime = now;
+        return Math.max(0.0, Math.min(100.0, load));
+    }
+
+    /**
+     * @return the quota in cores, or a negative value if there is no quota
+     */
+    private double readQuota() throws IOException {
+        Path cpuMax = root.resolve("cpu.max");
+        if (Files.isRegularFile(cpuMax)) {
+            // cgroup v2: "$MAX $PERIOD", $MAX may be "max"
+            String[] values = readFirstLine(cpuMax).split("\\s+");
+            if ("max".equals(values[0])) {
+                return -1.0;
+            }
+            return Double.parseDouble(values[0]) / Double.parseDouble(values[1]);
+        }
+
+        Path quota = find(root, CPU_CONTROLLERS, "cpu.cfs_quota_us");
+        Path period = find(root, CPU_CONTROLLERS, "cpu.cfs_period_us");
+        if (quota != null && period != null) {
+            // cgroup v1: quota of -1 means no quota
+            long quotaMicros = Long.parseLong(readFirstLine(quota));
+            long periodMicros = Long.parseLong(readFirstLine(period));
+            return (quotaMicros > 0 && periodMicros > 0) ? (double) quotaMicros / periodMicros : -1.0;
+        }
+        return -1.0;
+    }
+
+    /**
+     * @return the CPU time used by the cgroup in nanoseconds
+     */
+    private long readUsage() throws IOException {
+        Path cpuStat = root.resolve("cpu.stat");
+        if (Files.isRegularFile(cpuStat)) {
+            // cgroup v2: "usage_usec $USAGE" line
+            for (String line : Files.readAllLines(cpuStat, StandardCharsets.UTF_8)) {
+                String[] values = line.trim().split("\\s+");
+                if (values.length == 2 && "usage_usec".equals(values[0])) {
+                    return Long.parseLong(values[1]) * 1000L;
+                }
+            }
+        }
+
+        Path usage = find(root, CPUACCT_CONTROLLERS, "cpuacct.usage");
+        if (usage != null) {
+            // cgroup v1: usage in nanoseconds
+            return Long.parseLong(readFirstLine(usage));
+        }
+        throw new IOException("No CPU usage found");
+    }
+
+    @Nullable
+    private static Path find(Path root, String[] controllers, String file) {
+        for (String controller : controllers) {
+            Path path = root.resolve(controller).resolve(file);
+            if (Files.isRegularFile(path)) {
+                return path;
+            }
+        }
+        return null;
+    }
+
+    private static String readFirstLine(Path file) throws IOException {
+        List<String> lines = Files.readAllLines(file, StandardCharsets.UTF_8);
+        if (lines.isEmpty()) {
+            throw new IOException("Empty file " + file);
+        }
+        return lines.get(0).trim();
+    }
+}
@@ -78,6 +78,36 @@ final class CompositeFakeLoad extends AbstractFakeLoad {
         return new CompositeFakeLoad(newOwnLoad, innerLoads, getRepetitions());
     }
 
+    @Override
+    public FakeLoad withMemory(long amount, MemoryUnit unit, MemoryKind kind) {
+        SimpleFakeLoad newOwnLoad = (SimpleFakeLoad) ownLoad.withMemory(amount, unit, kind);
+        return new CompositeFakeLoad(newOwnLoad, innerLoads, getRepetitions());
+    }
+
+    @Override
+    public FakeLoad withMemoryGrowth(long amount, MemoryUnit unit, TimeUnit per) {
+        SimpleFakeLoad newOwnLoad = (SimpleFakeLoad) ownLoad.withMemoryGrowth(amount, unit, per);
+        return new CompositeFakeLoad(newOwnLoad, innerLoads, getRepetitions());
+    }
+
+    @Override
+    public FakeLoad withAllocationRate(long amount, MemoryUnit unit) {
+        SimpleFakeLoad newOwnLoad = (SimpleFakeLoad) ownLoad.withAllocationRate(amount, unit);
+        return new CompositeFakeLoad(newOwnLoad, innerLoads, getRepetitions());
+    }
+
+    @Override
+    public FakeLoad withMemoryBandwidth(long amount, MemoryUnit unit) {
+        SimpleFakeLoad newOwnLoad = (SimpleFakeLoad) ownLoad.withMemoryBandwidth(amount, unit);
+        return new CompositeFakeLoad(newOwnLoad, innerLoads, getRepetitions());
+    }
+
+    @Override
+    public FakeLoad withHeadroomPolicy(HeadroomPolicy policy) {
+        SimpleFakeLoad newOwnLoad = (SimpleFakeLoad) ownLoad.withHeadroomPolicy(policy);
+        return new CompositeFakeLoad(newOwnLoad, innerLoads, getRepetitions());
+    }
+
     @Override
     public FakeLoad withDiskInput(long load, MemoryUnit unit) {
         SimpleFakeLoad newOwnLoad = (SimpleFakeLoad) ownLoad.withDiskInput(load, unit);
@@ -90,6 +120,36 @@ final class CompositeFakeLoad extends AbstractFakeLoad {
         return new CompositeFakeLoad(newOwnLoad, innerLoads, getRepetitions());
     }
 
+    @Override
+    public FakeLoad withDiskIops(long iops) {
+        SimpleFakeLoad newOwnLoad = (SimpleFakeLoad) ownLoad.withDiskIops(iops);
+        return new CompositeFakeLoad(newOwnLoad, innerLoads, getRepetitions());
+    }
+
+    @Override
+    public FakeLoad withCpuCores(double cores) {
+        SimpleFakeLoad newOwnLoad = (SimpleFakeLoad) ownLoad.withCpuCores(cores);
+        return new CompositeFakeLoad(newOwnLoad, innerLoads, getRepetitions());
+    }
+
+    @Override
+    public FakeLoad withCpuKernel(CpuKernel kernel) {
+        SimpleFakeLoad newOwnLoad = (SimpleFakeLoad) ownLoad.withCpuKernel(kernel);
+        return new CompositeFakeLoad(newOwnLoad, innerLoads, getRepetitions());
+    }
+
+
+    @Override
+    public FakeLoad withCpuDistribution(CpuDistribution distribution) {
+        SimpleFakeLoad newOwnLoad = (SimpleFakeLoad) ownLoad.withCpuDistribution(distribution);
+        return new CompositeFakeLoad(newOwnLoad, innerLoads, getRepetitions());
+    }
+
+    @Override
+    public FakeLoad withCpuTargetMode(CpuTargetMode mode) {
+        SimpleFakeLoad newOwnLoad = (SimpleFakeLoad) ownLoad.withCpuTargetMode(mode);
+        return new CompositeFakeLoad(newOwnLoad, innerLoads, getRepetitions());
+    }
 
     @Override
     public FakeLoad addLoad(FakeLoad load) {
@@ -148,11 +208,56 @@ final class CompositeFakeLoad extends AbstractFakeLoad {
         return ownLoad.getCpu();
     }
 
+    @Override
+    public double getCpuCores() {
+        return ownLoad.getCpuCores();
+    }
+
+    @Override
+    public CpuKernel getCpuKernel() {
+        return ownLoad.getCpuKernel();
+    }
+
+    @Override
+    public CpuDistribution getCpuDistribution() {
+        return ownLoad.getCpuDistribution();
+    }
+
+    @Override
+    public CpuTargetMode getCpuTargetMode() {
+        return ownLoad.getCpuTargetMode();
+    }
+
+    @Override
+    public HeadroomPolicy getHeadroomPolicy() {
+        return ownLoad.getHeadroomPolicy();
+    }
+
     @Override
     public long getMemory() {
         return ownLoad.getMemory();
     }
 
+    @Override
+    public long getOffHeapMemory() {
+        return ownLoad.getOffHeapMemory();
+    }
+
+    @Override
+    public long getMemoryGrowthRate() {
+        return ownLoad.getMemoryGrowthRate();
+    }
+
+    @Override
+    public long getAllocationRate() {
+        return ownLoad.getAllocationRate();
+    }
+
+    @Override
+    public long getMemoryBandwidth() {
+        return ownLoad.getMemoryBandwidth();
+    }
+
     @Override
     public long getDiskInput() {
         return ownLoad.getDiskInput();
@@ -163,6 +268,11 @@ final class CompositeFakeLoad extends AbstractFakeLoad {
         return ownLoad.getDiskOutput();
     }
 
+    @Override
+    public long getDiskIops() {
+        return ownLoad.getDiskIops();
+    }
+
     @Override
     public long getDuration() {
         return ownLoad.getDuration();
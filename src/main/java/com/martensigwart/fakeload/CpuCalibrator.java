@@ -0,0 +1,232 @@
+package com.martensigwart.fakeload;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import static com.martensigwart.fakeload.Preconditions.checkArgument;
+import static com.martensigwart.fakeload.Preconditions.checkNotNull;
+
+/**
+ * Measures how many {@link CpuSimulator#simulateCpu()} iterations fit into one microsecond.
+ *
+ * <p>
+ * The measurement is done by running one simulator per thread concurrently on all
+ * threads, so that the result reflects the speed of a core while the whole machine is busy.
+ * After a warm up phase, which gives the JIT compiler the chance to compile the simulation
+ * code, the iterations are counted for the configured duration. The result is the average
+ * number of iterations per microsecond of a single thread.
+ *
+ * <p>
+ * As a measurement takes a while, results are cached in a properties file. The cache key consists of
+ * the simulator class (and kernel, if any), the number of threads, the JVM and the CPU architecture, so that a cached result
+ * is only reused in the same environment. By default the cache file is located in the temporary directory
+ * as indicated by system property "java.io.tmpdir".
+ *
+ * <p>
+ * The result can be passed to {@link CpuSimulator#setIterationsPerMicrosecond(double)}
+ * to make a simulator produce its load in open-loop mode.
+ *
+ * @since 1.8
+ * @see CpuSimulator
+ * @author Marten Sigwart
+ */
+public final class CpuCalibrator {
+
+    private static final Logger log = LoggerFactory.getLogger(CpuCalibrator.class);
+    private static final String CACHE_FILE = "fakeload-cpu-calibration.properties";
+    static final String DEFAULT_CACHE_PATH = System.getProperty("java.io.tmpdir") + "/" + CACHE_FILE;
+    private static final long DEFAULT_DURATION = 1000L;
+
+    private final Path cacheFile;
+    private final int noOfThreads;
+    private final long duration;
+
+
+    /**
+     * Creates a new {@code CpuCalibrator} measuring on all available processors
+     * and using the default cache file.
+     */
+    public CpuCalibrator() {
+        this(Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Creates a new {@code CpuCalibrator} measuring on the specified number of threads
+     * and using the default cache file.
+     * @param noOfThreads the number of threads measuring concurrently, e.g. the number of CPU simulators
+     */
+    public CpuCalibrator(int noOfThreads) {
+        this(Paths.get(DEFAULT_CACHE_PATH), noOfThreads, DEFAULT_DURATION);
+    }
+
+    /**
+     * Creates a new {@code CpuCalibrator}.
+     * @param cacheFile the file used to cache calibration results
+     * @param noOfThreads the number of threads measuring concurrently
+     * @param duration the duration of the measurement in milliseconds (excluding warm up)
+     */
+    public CpuCalibrator(Path cacheFile, int noOfThreads, long duration) {
+        checkArgument(noOfThreads > 0, "Number of threads must be positive but was %s", noOfThreads);
+        checkArgument(duration > 0, "Duration must be positive but was %s", duration);
+
+        this.cacheFile = checkNotNull(cacheFile);
+        this.noOfThreads = noOfThreads;
+        this.duration = duration;
+    }
+
+
+    /**
+     * Returns the number of iterations per microsecond of the simulators created by the specified factory.
+     * The result is read from the cache file if available, otherwise it is measured and written to the cache file.
+     *
+     * @param simulatorFactory creates the simulators to be measured
+     * @return the number of iterations per microsecond of a single thread
+     * @throws InterruptedException if interrupted while measuring
+     */
+    public double calibrate(Supplier<? extends CpuSimulator> simulatorFactory) throws InterruptedException {
+        String key = cacheKey(simulatorFactory.get());
+
+        Properties cache = loadCache();
+        Double cached = cachedIterations(cache, key);
+        if (cached != null) {
+            log.debug("Using cached CPU calibration for {}: {} iterations/µs", key, cached);
+            return cached;
+        }
+
+        double iterations = measure(simulatorFactory);
+        cache.setProperty(key, Double.toString(iterations));
+        storeCache(cache);
+        return iterations;
+    }
+
+    /**
+     * Returns how long {@link #calibrate(Supplier)} takes for the simulators created by the specified factory,
+     * i.e. zero if the result is cached, otherwise the duration of the warm up and the measurement.
+     *
+     * @param simulatorFactory creates the simulators to be measured
+     * @return the expected duration of the calibration in milliseconds
+     */
+    public long expectedDuration(Supplier<? extends CpuSimulator> simulatorFactory) {
+        String key = cacheKey(simulatorFactory.get());
+        return (cachedIterations(loadCache(), key) != null) ? 0L : 2 * duration;
+    }
+
+    private static Double cachedIterations(Properties cache, String key) {
+        String cached = cache.getProperty(key);
+        if (cached != null) {
+            try {
+                return Double.parseDouble(cached);
+            } catch (NumberFormatException e) {
+                log.warn("Ignoring invalid CPU calibration {}={}", key, cached);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Measures the number of iterations per microsecond without using the cache.
+     *
+     * @param simulatorFactory creates the simulators to be measured
+     * @return the number of iterations per microsecond of a single thread
+     * @throws InterruptedException if interrupted while measuring
+     */
+    double measure(Supplier<? extends CpuSimulator> simulatorFactory) throws InterruptedException {
+        log.info("Calibrating CPU simulation on {} threads, this takes about {} ms...", noOfThreads, 2 * duration);
+
+        CountDownLatch start = new CountDownLatch(1);
+        long[] iterations = new long[noOfThreads];
+        long[] nanos = new long[noOfThreads];
+        List<Thread> threads = new ArrayList<>();
+
+        for (int i = 0; i < noOfThreads; i++) {
+            final int index = i;
+            final CpuSimulator simulator = simulatorFactory.get();
+            Thread thread = new Thread(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                // warm up
+                count(simulator, TimeUnit.MILLISECONDS.toNanos(duration));
+
+                long begin = System.nanoTime();
+                iterations[index] = count(simulator, TimeUnit.MILLISECONDS.toNanos(duration));
+                nanos[index] = System.nanoTime() - begin;
+            }, "CpuCalibrator " + i);
+            thread.setDaemon(true);
+            threads.add(thread);
+            thread.start();
+        }
+
+        start.countDown();
+        try {
+            for (Thread thread : threads) {
+                thread.join();
+            }
+        } catch (InterruptedException e) {
+            threads.forEach(Thread::interrupt);
+            throw e;
+        }
+
+        double sum = 0.0;
+        for (int i = 0; i < noOfThreads; i++) {
+            sum += (double) iterations[i] / TimeUnit.NANOSECONDS.toMicros(nanos[i]);
+        }
+        double result = sum / noOfThreads;
+        log.info("CPU calibration finished: {} iterations/µs", result);
+        return result;
+    }
+
+    private static long count(CpuSimulator simulator, long nanos) {
+        long end = System.nanoTime() + nanos;
+        long count = 0;
+        do {
+            simulator.simulateCpu(CpuSimulator.CHECK_INTERVAL);
+            count += CpuSimulator.CHECK_INTERVAL;
+        } while (System.nanoTime() - end < 0);
+        simulator.getBlackhole().flush();
+        return count;
+    }
+
+    private String cacheKey(CpuSimulator simulator) {
+        return String.format("%s.%d.%s-%s.%s",
+                simulator.getCalibrationKey(), noOfThreads,
+                System.getProperty("java.vm.name"), System.getProperty("java.vm.version"),
+                System.getProperty("os.arch")).replace(' ', '_');
+    }
+
+    private Properties loadCache() {
+        Properties cache = new Properties();
+        if (Files.exists(cacheFile)) {
+            try (InputStream in = Files.newInputStream(cacheFile)) {
+                cache.load(in);
+            } catch (IOException e) {
+                log.warn("Failed to read CPU calibration cache {}: {}", cacheFile, e.getMessage());
+            }
+        }
+        return cache;
+    }
+
+    private void storeCache(Properties cache) {
+        try (OutputStream out = Files.newOutputStream(cacheFile)) {
+            cache.store(out, "FakeLoad CPU calibration (iterations per microsecond)");
+            log.debug("Stored CPU calibration in {}", cacheFile);
+        } catch (IOException e) {
+            log.warn("Failed to write CPU calibration cache {}: {}", cacheFile, e.getMessage());
+        }
+    }
+}
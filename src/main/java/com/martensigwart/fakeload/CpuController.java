@@ -0,0 +1,55 @@
+package com.martensigwart.fakeload;
+
+/**
+ * A feedback controller used by the {@link LoadController} to steer the CPU load
+ * produced by the {@link CpuSimulator} threads towards the desired CPU load.
+ *
+ * <p>
+ * The {@code LoadController} samples the actual CPU load once every sampling period
+ * and passes desired and actual load to {@link #control(double, double, long)}.
+ * The returned value is the CPU load the simulator threads are commanded to produce
+ * until the next sample is taken.
+ *
+ * <p>
+ * Implementations also keep track of how well they are doing, i.e. how long it took
+ * to reach the current desired load and how big the remaining error is once reached.
+ *
+ * <p>
+ * Class {@link PidCpuController} provides the default implementation.
+ *
+ * @since 1.8
+ * @see LoadController
+ * @see PidCpuController
+ * @author Marten Sigwart
+ */
+public interface CpuController {
+
+    /**
+     * Computes the CPU load the simulator threads should produce next.
+     *
+     * @param desiredLoad the desired CPU load in percent
+     * @param actualLoad the actual CPU load in percent as measured during the last sampling period
+     * @param timestamp the time of the sample in nanoseconds, as returned by {@link System#nanoTime()}
+     * @return the CPU load in percent to be produced by the simulator threads
+     */
+    double control(double desiredLoad, double actualLoad, long timestamp);
+
+    /**
+     * Resets the internal state of the controller, e.g. when there is no more CPU load to control.
+     */
+    void reset();
+
+    /**
+     * Returns the time it took to reach the current desired CPU load, measured from the
+     * first sample taken at that desired load.
+     * @return the convergence time in milliseconds, or -1 if the desired load has not been reached yet
+     */
+    long getConvergenceTime();
+
+    /**
+     * Returns the mean absolute deviation between desired and actual CPU load
+     * of all samples taken since the current desired load was reached.
+     * @return the steady-state error in percent, or {@link Double#NaN} if the desired load has not been reached yet
+     */
+    double getSteadyStateError();
+}
@@ -0,0 +1,160 @@
+package com.martensigwart.fakeload;
+
+import javax.annotation.concurrent.Immutable;
+import java.io.Serializable;
+import java.util.Arrays;
+
+import static com.martensigwart.fakeload.Preconditions.checkArgument;
+import static com.martensigwart.fakeload.Preconditions.checkNotNull;
+
+/**
+ * Describes how the CPU load of a {@link FakeLoad} is distributed among the CPU simulator threads.
+ *
+ * <p>
+ * The same amount of CPU load can have quite different shapes. A load of 25% on a machine with
+ * four cores can mean every core running at 25% ({@link #SPREAD}) or a single core running at 100%
+ * while the others are idle ({@link #PACK}), e.g. a single-threaded bottleneck. Arbitrary shapes can
+ * be created with {@link #weighted(double...)}:
+ *
+ * <pre>
+ * {@code FakeLoad fakeload = FakeLoads.create()
+ *      .withCpuCores(1.5)
+ *      .withCpuDistribution(CpuDistribution.weighted(2, 1));   // 100% + 50%
+ * }</pre>
+ *
+ * No thread receives more than a fully utilized core. When a thread's share exceeds that,
+ * the simulator of the thread is limited to its maximum load.
+ *
+ * @since 1.8
+ * @see FakeLoad#withCpuDistribution(CpuDistribution)
+ * @author Marten Sigwart
+ */
+@Immutable
+public final class CpuDistribution implements Serializable {
+
+    private static final long serialVersionUID = -3486172893521785049L;
+
+    private enum Type { SPREAD, PACK, WEIGHTED }
+
+    /**
+     * Distributes the load evenly among all threads. This is the default.
+     * Since every thread gets a share of any load, every CPU simulator occupies a thread while there is
+     * CPU load to simulate, see {@link #PACK} for as few threads as possible.
+     */
+    public static final CpuDistribution SPREAD = new CpuDistribution(Type.SPREAD, new double[0]);
+
+    /**
+     * Packs the load into as few threads as possible, i.e. fills up one thread after
+     * another, starting with the first thread that has spare capacity.
+     */
+    public static final CpuDistribution PACK = new CpuDistribution(Type.PACK, new double[0]);
+
+    private final Type type;
+    private final double[] weights;
+
+
+    private CpuDistribution(Type type, double[] weights) {
+        this.type = type;
+        this.weights = weights;
+    }
+
+    /**
+     * Creates a distribution assigning every thread a share of the load proportional to its weight.
+     * The first weight applies to the first thread, the second to the second, and so on. Threads without
+     * a weight get no load, weights for threads that do not exist are ignored.
+     *
+     * @param weights the weights of the threads, e.g. {@code (1, 0, 0, 0)} to pin the load to the first thread
+     * @return a new distribution
+     * @throws IllegalArgumentException if a weight is negative or no weight is positive
+     */
+    public static CpuDistribution weighted(double... weights) {
+        checkNotNull(weights);
+        double sum = 0.0;
+        for (double weight : weights) {
+            checkArgument(weight >= 0, "Weights must be nonnegative but was %s", weight);
+            sum += weight;
+        }
+        checkArgument(sum > 0, "At least one weight must be positive");
+        return new CpuDistribution(Type.WEIGHTED, weights.clone());
+    }
+
+    /**
+     * Distributes the specified amount of CPU load among threads.
+     *
+     * @param load the CPU load to be distributed, in units of {@link CpuSimulator#LOAD_SCALE}
+     * @param threadLoads the current load of every thread
+     * @param maximumLoad the maximum load of a single thread
+     * @return the share of every thread
+     */
+    long[] distribute(long load, long[] threadLoads, long maximumLoad) {
+        int noOfThreads = threadLoads.length;
+        long[] shares = new long[noOfThreads];
+        if (noOfThreads == 0 || load == 0) {
+            return shares;
+        }
+
+        long remaining = load;
+        if (type == Type.PACK) {
+            for (int i = 0; i < noOfThreads && remaining > 0; i++) {
+                long share = Math.min(remaining, Math.max(0, maximumLoad - threadLoads[i]));
+                shares[i] = share;
+                remaining -= share;
+            }
+        } else if (type == Type.WEIGHTED) {
+            double sum = 0.0;
+            for (int i = 0; i < Math.min(weights.length, noOfThreads); i++) {
+                sum += weights[i];
+            }
+            int largest = 0;
+            for (int i = 0; i < Math.min(weights.length, noOfThreads) && sum > 0; i++) {
+                shares[i] = (long) (load * weights[i] / sum);
+                remaining -= shares[i];
+                if (weights[i] > weights[largest]) {
+                    largest = i;
+                }
+            }
+            if (sum > 0) {
+                // rounding error
+                shares[largest] += remaining;
+                remaining = 0;
+            }
+        }
+
+        // spread whatever is left evenly
+        long perThread = remaining / noOfThreads;
+        long rest = remaining % noOfThreads;
+        for (int i = 0; i < noOfThreads; i++) {
+            shares[i] += perThread + ((i < rest) ? 1 : 0);
+        }
+        return shares;
+    }
+
+    private Object readResolve() {
+        switch (type) {
+            case SPREAD: return SPREAD;
+            case PACK: return PACK;
+            default: return this;
+        }
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof CpuDistribution)) return false;
+
+        CpuDistribution that = (CpuDistribution) o;
+
+        if (type != that.type) return false;
+        return Arrays.equals(weights, that.weights);
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * type.hashCode() + Arrays.hashCode(weights);
+    }
+
+    @Override
+    public String toString() {
+        return (type == Type.WEIGHTED) ? "WEIGHTED" + Arrays.toString(weights) : type.toString();
+    }
+}
@@ -0,0 +1,130 @@
+package com.martensigwart.fakeload;
+
+/**
+ * Enum representing the different kinds of work CPU load can be simulated with.
+ *
+ * <p>
+ * Real applications do not only keep the CPU busy, they also put pressure on caches,
+ * memory bandwidth, floating point units, branch predictors, etc. Depending on the kernel,
+ * a CPU load of e.g. 80% therefore stresses quite different parts of the processor.
+ * The kernel can be chosen per {@link FakeLoad} via {@link FakeLoad#withCpuKernel(CpuKernel)}.
+ *
+ * <p>
+ * The characteristics of the kernels can be verified with the JMH benchmark
+ * {@code CpuKernelBenchmark} located in the test sources, e.g. using JMH's
+ * {@code perfnorm} profiler to show cache misses and branch mispredictions per operation.
+ *
+ * @since 1.8
+ * @see FakeLoad
+ * @see KernelCpuSimulator
+ * @author Marten Sigwart
+ */
+public enum CpuKernel {
+
+    /**
+     * Calculates Fibonacci numbers. Register-only integer additions with
+     * no memory accesses, no branches and no floating point operations.
+     * This is the default kernel.
+     */
+    FIBONACCI {
+        @Override
+        Kernel newInstance() {
+            return new FibonacciKernel();
+        }
+    },
+
+    /**
+     * Walks a 16 KB working set per thread, which fits into the L1 data cache.
+     * Produces a high rate of load instructions which all hit the L1 cache.
+     */
+    L1_CACHE {
+        @Override
+        Kernel newInstance() {
+            return new WorkingSetKernel(16 * 1024, false);
+        }
+    },
+
+    /**
+     * Walks a 256 KB working set per thread, which exceeds the L1 data cache but fits into the L2 cache.
+     * Produces L1 misses which are served by the L2 cache.
+     */
+    L2_CACHE {
+        @Override
+        Kernel newInstance() {
+            return new WorkingSetKernel(256 * 1024, false);
+        }
+    },
+
+    /**
+     * Walks a 4 MB working set shared by all threads, which exceeds the L2 cache but fits into the
+     * last level cache (LLC) of most processors. Produces L2 misses which are served by the LLC.
+     */
+    LLC {
+        @Override
+        Kernel newInstance() {
+            return new WorkingSetKernel(4 * 1024 * 1024, true);
+        }
+    },
+
+    /**
+     * Chases pointers through a 128 MB region shared by all threads, randomly linked per cache line.
+     * Almost every load misses all caches and has to wait for main memory, so the thread is mostly
+     * stalled on memory latency. The region is allocated on first use.
+     */
+    DRAM {
+        @Override
+        Kernel newInstance() {
+            return new PointerChaseKernel(128 * 1024 * 1024);
+        }
+    },
+
+    /**
+     * Performs double precision multiply-add operations on small arrays.
+     * The loop is vectorizable and keeps the floating point / SIMD units busy.
+     */
+    FLOATING_POINT {
+        @Override
+        Kernel newInstance() {
+            return new FloatingPointKernel();
+        }
+    },
+
+    /**
+     * Executes pseudo-randomly selected cases of a switch statement.
+     * Stresses the branch predictor, as most branches are mispredicted.
+     */
+    BRANCH {
+        @Override
+        Kernel newInstance() {
+            return new BranchKernel();
+        }
+    },
+
+    /**
+     * Hashes a 1 KB buffer with SHA-256 using {@link java.security.MessageDigest}.
+     * Integer and bit manipulation heavy, representative of e.g. checksumming or TLS.
+     */
+    HASHING {
+        @Override
+        Kernel newInstance() {
+            return new DigestKernel();
+        }
+    },
+
+    /**
+     * Compresses a 1 KB buffer of text-like data with {@link java.util.zip.Deflater}.
+     * A mix of table lookups, branches and memory accesses, representative of e.g. HTTP compression.
+     */
+    COMPRESSION {
+        @Override
+        Kernel newInstance() {
+            return new DeflateKernel();
+        }
+    };
+
+    /**
+     * Creates a new kernel instance. Kernel instances are not thread-safe and must not be shared.
+     * @return a new kernel instance
+     */
+    abstract Kernel newInstance();
+}
@@ -0,0 +1,23 @@
+package com.martensigwart.fakeload;
+
+/**
+ * Determines what the actual CPU load compared against the desired CPU load of the {@link FakeLoad}s refers to.
+ *
+ * @since 1.8
+ * @see SimulationInfrastructureBuilder#withCpuMeasurement(CpuMeasurement)
+ * @author Marten Sigwart
+ */
+public enum CpuMeasurement {
+
+    /**
+     * The CPU load of the whole machine (or container), as measured by the infrastructure's {@link CpuProbe}.
+     * Load produced by other processes counts towards the desired load.
+     */
+    SYSTEM,
+
+    /**
+     * Only the CPU time consumed by the CPU simulator threads, see {@link SimulatorCpuProbe}.
+     * The desired load is reached independently of other processes.
+     */
+    SIMULATOR_THREADS
+}
@@ -0,0 +1,32 @@
+package com.martensigwart.fakeload;
+
+/**
+ * Provides information about the CPU resources available to the JVM and their usage.
+ *
+ * <p>
+ * The {@link LoadController} uses a {@code CpuProbe} for measuring the actual CPU load, and
+ * {@link SimulationInfrastructureBuilder} uses it for sizing the CPU simulators. By default
+ * the {@link OperatingSystemCpuProbe} is used. Inside containers, where the CPU resources
+ * are limited by a cgroup, the {@link CgroupCpuProbe} provides more accurate information.
+ *
+ * @since 1.8
+ * @see OperatingSystemCpuProbe
+ * @see CgroupCpuProbe
+ * @author Marten Sigwart
+ */
+public interface CpuProbe {
+
+    /**
+     * Returns the number of cores available, which might be fractional,
+     * e.g. 1.5 for a container limited to one and a half cores.
+     * @return the number of available cores
+     */
+    double getAvailableCores();
+
+    /**
+     * Returns the CPU load since the last call of this method, in percent of the available cores.
+     * The first call returns 0.
+     * @return the CPU load in percent (0-100%)
+     */
+    double getCpuLoad();
+}
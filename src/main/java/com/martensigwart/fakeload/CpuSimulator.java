@@ -3,36 +3,184 @@ package com.martensigwart.fakeload;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import javax.annotation.concurrent.GuardedBy;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+import static com.martensigwart.fakeload.Preconditions.checkArgument;
+import static com.martensigwart.fakeload.Preconditions.checkNotNull;
 
 /**
  * Skeleton implementation of a CPU Simulator
+ *
+ * <p>
+ * CPU load is produced using a duty cycle: Within every period of a configurable length
+ * (between {@value #MINIMUM_PERIOD} ns and {@value #MAXIMUM_PERIOD} ns) the simulator keeps
+ * the CPU busy for a fraction of the period corresponding to its load and parks for the
+ * rest of the period. Periods are scheduled back-to-back based on {@link System#nanoTime()},
+ * so that time lost to oversleeping is not accumulated over time.
+ *
+ * <p>
+ * By default, the busy part of a period is measured in time (closed-loop mode). After a calibration
+ * (see {@link CpuCalibrator}) has been set via {@link #setIterationsPerMicrosecond(double)}, the
+ * simulator instead performs a fixed number of {@link #simulateCpu()} iterations per period, which
+ * corresponds to the desired load (open-loop mode). In open-loop mode the produced load does not
+ * depend on CPU time lost to other threads, the busy part is nonetheless never extended beyond the
+ * end of the period.
+ *
+ * <p>
+ * The results of {@link #simulateCpu()} are consumed by a {@link Blackhole}, which is flushed
+ * once per period, so that the JIT compiler cannot eliminate the simulated work.
+ *
+ * <p>
+ * The load of a {@code CpuSimulator} is expressed in hundredths of a percent, i.e.
+ * a load of {@value #LOAD_SCALE} corresponds to one percent and a load of {@code 100 * LOAD_SCALE}
+ * corresponds to a fully utilized core.
  */
 public abstract class CpuSimulator extends AbstractLoadSimulator {
 
     private static final Logger log = LoggerFactory.getLogger(CpuSimulator.class);
     private static final AtomicInteger cpuIDs = new AtomicInteger(0);
+    private static final ThreadMXBean threadMXBean = ManagementFactory.getThreadMXBean();
+
+    /**
+     * The number of load units per percent
+     */
+    public static final long LOAD_SCALE = 100L;
+    public static final long MINIMUM_PERIOD = 1_000_000L;
+    public static final long MAXIMUM_PERIOD = 1_000_000_000L;
+    static final long DEFAULT_PERIOD = TimeUnit.MILLISECONDS.toNanos(100);
+    static final int CHECK_INTERVAL = 1024;
+
+    private final long period;
+    private final Blackhole blackhole = new Blackhole();
+    private long periodStart;
+    private volatile double iterationsPerMicrosecond;
+
+    // CPU time accounting of the threads running the simulator
+    private final Object cpuTimeLock = new Object();
+    @GuardedBy("cpuTimeLock") private long finishedCpuTime;
+    @GuardedBy("cpuTimeLock") private Thread measuredThread;
+    @GuardedBy("cpuTimeLock") private long startCpuTime;
 
 
     CpuSimulator() {
-        super(100L, "CpuSim " + cpuIDs.getAndIncrement());
+        this(DEFAULT_PERIOD, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * @param period the length of one duty cycle
+     * @param unit the time unit of the period
+     */
+    CpuSimulator(long period, TimeUnit unit) {
+        super(100L * LOAD_SCALE, "CpuSim " + cpuIDs.getAndIncrement());
+        long periodNanos = checkNotNull(unit).toNanos(period);
+        checkArgument(periodNanos >= MINIMUM_PERIOD && periodNanos <= MAXIMUM_PERIOD,
+                "Period must be between 1 ms and 1 s but was %s ns", periodNanos);
+        this.period = periodNanos;
     }
 
     /**
-     * Performs some calculation/operation to keep the CPU busy
+     * Performs some calculation/operation to keep the CPU busy.
+     * The result has to depend on the calculation performed, otherwise
+     * the JIT compiler might eliminate the calculation.
+     * @return the result of the calculation
      */
-    protected abstract void simulateCpu();
+    protected abstract long simulateCpu();
 
 
+    /**
+     * Runs the simulator, measuring the CPU time of the executing thread while it runs the simulator.
+     */
+    @Override
+    public void run() {
+        startCpuTime();
+        try {
+            super.run();
+        } finally {
+            stopCpuTime();
+        }
+    }
 
     @Override
     protected void simulateLoad(long load) throws InterruptedException {
+        long now = System.nanoTime();
+        if (now - periodStart > period) {
+            // first period or simulator was idle: restart schedule
+            periodStart = now;
+        }
 
-        long time = System.currentTimeMillis() + load;
-        while (System.currentTimeMillis() < time) {
-            simulateCpu();
+        double calibration = iterationsPerMicrosecond;
+        if (calibration > 0) {
+            simulateIterations((long) (calibration * period / 1000 * load / getMaximumLoad()), periodStart + period);
+        } else {
+            long busyEnd = periodStart + period * load / getMaximumLoad();
+            while (System.nanoTime() - busyEnd < 0) {
+                blackhole.consume(simulateCpu());
+            }
+        }
+        blackhole.flush();
+
+        periodStart += period;
+        long remaining;
+        while ((remaining = periodStart - System.nanoTime()) > 0 && !Thread.currentThread().isInterrupted()) {
+            LockSupport.parkNanos(this, remaining);
+        }
+
+        if (Thread.interrupted()) {
+            throw new InterruptedException();
+        }
+    }
+
+    /**
+     * Starts measuring the CPU time of the current thread, which runs the simulator from now on.
+     */
+    private void startCpuTime() {
+        if (!threadMXBean.isCurrentThreadCpuTimeSupported()) {
+            return;
+        }
+        synchronized (cpuTimeLock) {
+            measuredThread = Thread.currentThread();
+            startCpuTime = threadMXBean.getCurrentThreadCpuTime();
+        }
+    }
+
+    /**
+     * Stops measuring the CPU time of the current thread, e.g. before an on-demand thread
+     * goes on to run other tasks, so that CPU time not used for simulation is not counted.
+     */
+    private void stopCpuTime() {
+        synchronized (cpuTimeLock) {
+            if (measuredThread == Thread.currentThread()) {
+                finishedCpuTime += Math.max(0L, threadMXBean.getCurrentThreadCpuTime() - startCpuTime);
+                measuredThread = null;
+            }
         }
-        Thread.sleep(100 - load);
+    }
+
+    private void simulateIterations(long iterations, long deadline) {
+        long remaining = iterations;
+        while (remaining > 0 && System.nanoTime() - deadline < 0) {
+            int batch = (int) Math.min(remaining, CHECK_INTERVAL);
+            simulateCpu(batch);
+            remaining -= batch;
+        }
+    }
+
+    /**
+     * Calls {@link #simulateCpu()} the specified number of times.
+     * Used for work-based simulation, so that calibration and simulation execute the same code.
+     * @param iterations the number of iterations
+     */
+    final void simulateCpu(int iterations) {
+        long result = 0L;
+        for (int i = 0; i < iterations; i++) {
+            result += simulateCpu();
+        }
+        blackhole.consume(result);
     }
 
     @Override
@@ -40,10 +188,62 @@ public abstract class CpuSimulator extends AbstractLoadSimulator {
         return (getLoad() == 0);
     }
 
+    Blackhole getBlackhole() {
+        return blackhole;
+    }
+
+    /**
+     * Returns the CPU time consumed by the threads running this simulator so far. The CPU time of the thread
+     * currently running the simulator is read via {@link ThreadMXBean#getThreadCpuTime(long)} on every call,
+     * so the value is up to date at any time rather than only at the end of a duty cycle.
+     * @return the CPU time in nanoseconds
+     */
+    public long getCpuTime() {
+        synchronized (cpuTimeLock) {
+            if (measuredThread == null) {
+                return finishedCpuTime;
+            }
+            long threadCpuTime = threadMXBean.getThreadCpuTime(measuredThread.getId());
+            return finishedCpuTime + Math.max(0L, threadCpuTime - startCpuTime);
+        }
+    }
+
+    /**
+     * @return the length of one duty cycle in nanoseconds
+     */
+    public long getPeriod() {
+        return period;
+    }
+
+    /**
+     * Switches the simulator to open-loop mode using the specified calibration.
+     * Passing zero switches the simulator back to closed-loop mode.
+     * @param iterationsPerMicrosecond the number of {@link #simulateCpu()} iterations fitting into one microsecond
+     */
+    public void setIterationsPerMicrosecond(double iterationsPerMicrosecond) {
+        checkArgument(iterationsPerMicrosecond >= 0,
+                "Iterations per microsecond must be nonnegative but was %s", iterationsPerMicrosecond);
+        this.iterationsPerMicrosecond = iterationsPerMicrosecond;
+    }
+
+    /**
+     * @return the number of iterations per microsecond used in open-loop mode, zero in closed-loop mode
+     */
+    public double getIterationsPerMicrosecond() {
+        return iterationsPerMicrosecond;
+    }
+
+    /**
+     * @return the key under which calibrations of this simulator are cached
+     * @see CpuCalibrator
+     */
+    String getCalibrationKey() {
+        return getClass().getName();
+    }
 
     @Override
     protected String prettyFormat(long load) {
-        return String.format("%d%%", load);
+        return String.format("%.2f%%", (double) load / LOAD_SCALE);
     }
 
     @Override
@@ -0,0 +1,26 @@
+package com.martensigwart.fakeload;
+
+/**
+ * Determines how the CPU load of a {@link FakeLoad} relates to CPU load produced by other
+ * threads and processes running on the same machine.
+ *
+ * @since 1.8
+ * @see FakeLoad#withCpuTargetMode(CpuTargetMode)
+ * @author Marten Sigwart
+ */
+public enum CpuTargetMode {
+
+    /**
+     * The CPU load is the desired total CPU load of the machine. The {@link LoadController} estimates
+     * the baseline load of everything but the CPU simulators once every sampling period and only
+     * fills the gap between baseline and desired load, e.g. a {@code FakeLoad} with 70% CPU load
+     * adds 50% when other processes already use 20%, and nothing when they use 70% or more.
+     */
+    TOTAL,
+
+    /**
+     * The CPU load is added on top of the CPU load of other threads and processes, e.g. a {@code FakeLoad}
+     * with 20% CPU load adds 20% regardless of how much CPU other processes use.
+     */
+    ADDITIONAL
+}
@@ -68,6 +68,7 @@ public final class DefaultFakeLoadExecutor implements FakeLoadExecutor {
         ExecutorService executor = Executors.newSingleThreadExecutor();
         return executor.submit(() -> {
             FakeLoad lastStartedLoad = null;
+            MemoryLoadClampedException clamped = null;
             try {
                 for (FakeLoad load: fakeLoad) {
                     log.trace("Increasing system load by {}", load);
@@ -75,10 +76,19 @@ public final class DefaultFakeLoadExecutor implements FakeLoadExecutor {
                     infrastructure.increaseSystemLoadBy(load);
                     Thread.sleep(load.getTimeUnit().toMillis(load.getDuration()));
                     log.trace("Decreasing system load by {}", load);
-                    infrastructure.decreaseSystemLoadBy(load);
+                    try {
+                        infrastructure.decreaseSystemLoadBy(load);
+                    } catch (MemoryLoadClampedException e) {
+                        // the remaining loads are still simulated, the execution fails once they are done
+                        log.warn(e.getMessage());
+                        clamped = (clamped == null) ? e : clamped;
+                    }
                 }
                 lastStartedLoad = null;
                 log.info("FakeLoad execution finished");
+                if (clamped != null) {
+                    throw clamped;
+                }
                 return null;
             } catch (MaximumLoadExceededException e) {
                 log.warn(e.getMessage());
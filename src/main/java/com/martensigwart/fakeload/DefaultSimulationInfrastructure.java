@@ -11,6 +11,16 @@ import java.util.concurrent.*;
 /**
  * Default implementation class of {@code SimulationInfrastructure}.
  *
+ * <p>
+ * CPU simulators are run on demand (see {@link AbstractLoadSimulator#runOnDemand(Executor, long)}),
+ * i.e. they only occupy a thread of the {@link ExecutorService} while they have CPU load to simulate
+ * and release it again after being idle for the CPU idle timeout. Combined with an {@code ExecutorService}
+ * that creates threads on demand and reclaims idle ones, e.g. the one created by
+ * {@link SimulationInfrastructureBuilder}, no threads are kept around for unused CPU simulators.
+ * How many threads are occupied depends on the {@link CpuDistribution} of the CPU load: with the default
+ * {@link CpuDistribution#SPREAD}, any CPU load, however small, occupies a thread per CPU simulator, so
+ * the number of threads only grows with the requested load with {@link CpuDistribution#PACK}.
+ *
  * @since 1.8
  * @see SimulationInfrastructure
  * @see FakeLoad
@@ -23,6 +33,7 @@ import java.util.concurrent.*;
 public final class DefaultSimulationInfrastructure implements SimulationInfrastructure {
 
     private static final Logger log = LoggerFactory.getLogger(SimulationInfrastructure.class);
+    static final long DEFAULT_CPU_IDLE_TIMEOUT = TimeUnit.SECONDS.toMillis(10);
 
     /**
      * Thread pool which is used for executing the different simulator threads
@@ -36,6 +47,10 @@ public final class DefaultSimulationInfrastructure implements SimulationInfrastr
      */
     private final LoadController controller;
 
+    /**
+     * Time in milliseconds after which an idle CPU simulator releases its thread
+     */
+    private final long cpuIdleTimeout;
 
     @GuardedBy("this") private boolean started;
 
@@ -48,9 +63,23 @@ public final class DefaultSimulationInfrastructure implements SimulationInfrastr
      */
     public DefaultSimulationInfrastructure(ExecutorService executorService,
                                            LoadController controller) {
+        this(executorService, controller, DEFAULT_CPU_IDLE_TIMEOUT);
+    }
+
+    /**
+     * Creates a new {@code DefaultSimulationInfrastructure} instance using the
+     * provided {@link ExecutorService} and {@link LoadController}.
+     * @param executorService the thread pool used for executing simulator threads
+     * @param controller the controller used for controlling simulator threads and
+     *                   overall system load in concurrent scenarios
+     * @param cpuIdleTimeout the time in milliseconds after which an idle CPU simulator releases its thread
+     */
+    public DefaultSimulationInfrastructure(ExecutorService executorService,
+                                           LoadController controller, long cpuIdleTimeout) {
 
         this.executorService = executorService;
         this.controller = controller;
+        this.cpuIdleTimeout = cpuIdleTimeout;
         this.started = false;
 
         Runtime.getRuntime().addShutdownHook(new Thread(this::shutdown));
@@ -82,9 +111,13 @@ public final class DefaultSimulationInfrastructure implements SimulationInfrastr
 
             startLoadController();
             startCpuSimulators();
-            startMemorySimulator();
+            startMemorySimulator(controller.getMemorySimulator());
+            startMemorySimulator(controller.getOffHeapMemorySimulator());
+            startAllocationSimulator();
+            startMemoryAccessSimulator();
             startDiskInputSimulator();
             startDiskOutputSimulator();
+            startDiskIopsSimulator();
 
             started = true;
 
@@ -103,39 +136,70 @@ public final class DefaultSimulationInfrastructure implements SimulationInfrastr
     private void startCpuSimulators() {
         List<CpuSimulator> cpuSimulators = controller.getCpuSimulators();
 
-        for (Runnable thread: cpuSimulators) {
-            CompletableFuture<Void> future = CompletableFuture.runAsync(thread, executorService);
+        Executor executor = simulator -> {
+            CompletableFuture<Void> future = CompletableFuture.runAsync(simulator, executorService);
             future.exceptionally(e -> {
                 log.error("Cpu Simulator died: {}", e.getMessage());
                 e.printStackTrace();
                 return null;
             });
+        };
+        for (CpuSimulator cpuSimulator: cpuSimulators) {
+            cpuSimulator.runOnDemand(executor, cpuIdleTimeout);
         }
-        log.debug("Started {} CPU Simulators", cpuSimulators.size());
+        log.debug("Started {} CPU Simulators on demand", cpuSimulators.size());
     }
 
 
-    private void startMemorySimulator() {
+    private void startMemorySimulator(MemorySimulator memorySimulator) {
 
-        MemorySimulator memorySimulator = controller.getMemorySimulator();
         if (memorySimulator == null) {
             return;
         }
 
-        memorySimulator.setLoad(0);
         CompletableFuture<Void> future = CompletableFuture.runAsync(memorySimulator, executorService);
 
-        // In case of MemorySimulator thread dies because OutOfMemoryError,
-        // it is restarted immediately using CompletableFuture.exceptionally.
+        // Allocation failures are handled by the simulator itself and reported by the LoadController,
+        // restarting the simulator would only fail again.
         future.exceptionally(e -> {
-            log.warn("Memory Simulator died: {}, starting new one...", e.getMessage());
-            startMemorySimulator();
+            log.error("Memory Simulator died: {}", e.getMessage());
+            e.printStackTrace();
             return null;
         });
-        log.debug("Started Memory Simulator");
+        log.debug("Started {} Memory Simulator", memorySimulator.getKind());
 
     }
 
+    private void startAllocationSimulator() {
+        AllocationSimulator allocationSimulator = controller.getAllocationSimulator();
+        if (allocationSimulator == null) {
+            return;
+        }
+
+        CompletableFuture<Void> future = CompletableFuture.runAsync(allocationSimulator, executorService);
+        future.exceptionally(e -> {
+            log.error("Allocation Simulator died: {}", e.getMessage());
+            e.printStackTrace();
+            return null;
+        });
+        log.debug("Started Allocation Simulator");
+    }
+
+    private void startMemoryAccessSimulator() {
+        MemoryAccessSimulator memoryAccessSimulator = controller.getMemoryAccessSimulator();
+        if (memoryAccessSimulator == null) {
+            return;
+        }
+
+        CompletableFuture<Void> future = CompletableFuture.runAsync(memoryAccessSimulator, executorService);
+        future.exceptionally(e -> {
+            log.error("Memory Access Simulator died: {}", e.getMessage());
+            e.printStackTrace();
+            return null;
+        });
+        log.debug("Started Memory Access Simulator");
+    }
+
     private void startDiskInputSimulator() {
         DiskInputSimulator diskInputSimulator = controller.getDiskInputSimulator();
         if (diskInputSimulator == null) {
@@ -166,6 +230,21 @@ public final class DefaultSimulationInfrastructure implements SimulationInfrastr
         log.debug("Started Disk Output Simulator");
     }
 
+    private void startDiskIopsSimulator() {
+        DiskIopsSimulator diskIopsSimulator = controller.getDiskIopsSimulator();
+        if (diskIopsSimulator == null) {
+            return;
+        }
+
+        CompletableFuture<Void> future = CompletableFuture.runAsync(diskIopsSimulator, executorService);
+        future.exceptionally(e -> {
+            log.error("Disk IOPS Simulator died: {}", e.getMessage());
+            e.printStackTrace();
+            return null;
+        });
+        log.debug("Started Disk IOPS Simulator");
+    }
+
     /**
      * Gracefully shuts down the simulation infrastructure.
      * <p>
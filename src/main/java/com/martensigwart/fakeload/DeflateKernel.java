@@ -0,0 +1,45 @@
+package com.martensigwart.fakeload;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.zip.Deflater;
+
+/**
+ * Kernel compressing a buffer with {@link Deflater}, see {@link CpuKernel#COMPRESSION}.
+ *
+ * <p>
+ * The input consists of random words from a small alphabet, so it is compressible
+ * to roughly the same degree as typical text or log data.
+ */
+final class DeflateKernel implements Kernel {
+
+    private static final int BUFFER_SIZE = 1024;
+    private static final String ALPHABET = "etaoin shrdlu";
+
+    private final Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION);
+    private final byte[] input = new byte[BUFFER_SIZE];
+    private final byte[] output = new byte[2 * BUFFER_SIZE];
+
+    DeflateKernel() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        for (int i = 0; i < BUFFER_SIZE; i++) {
+            input[i] = (byte) ALPHABET.charAt(random.nextInt(ALPHABET.length()));
+        }
+    }
+
+    @Override
+    public long execute() {
+        deflater.reset();
+        deflater.setInput(input);
+        deflater.finish();
+        long compressed = 0;
+        while (!deflater.finished()) {
+            compressed += deflater.deflate(output);
+        }
+        return compressed;
+    }
+
+    @Override
+    public void close() {
+        deflater.end();
+    }
+}
@@ -0,0 +1,43 @@
+package com.martensigwart.fakeload;
+
+import java.security.DigestException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Kernel hashing a buffer with SHA-256, see {@link CpuKernel#HASHING}.
+ */
+final class DigestKernel implements Kernel {
+
+    private static final String ALGORITHM = "SHA-256";
+    private static final int BUFFER_SIZE = 1024;
+
+    private final MessageDigest digest;
+    private final byte[] input = new byte[BUFFER_SIZE];
+    private final byte[] output;
+
+    DigestKernel() {
+        try {
+            this.digest = MessageDigest.getInstance(ALGORITHM);
+        } catch (NoSuchAlgorithmException e) {
+            // every Java platform is required to support SHA-256
+            throw new IllegalStateException(e);
+        }
+        this.output = new byte[digest.getDigestLength()];
+        ThreadLocalRandom.current().nextBytes(input);
+    }
+
+    @Override
+    public long execute() {
+        try {
+            digest.update(input);
+            digest.digest(output, 0, output.length);
+        } catch (DigestException e) {
+            throw new IllegalStateException(e);
+        }
+        // feed the hash back into the input, so that every call hashes different data
+        System.arraycopy(output, 0, input, 0, output.length);
+        return output[0];
+    }
+}
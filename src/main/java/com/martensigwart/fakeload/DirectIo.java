@@ -0,0 +1,144 @@
+package com.martensigwart.fakeload;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.annotation.Nullable;
+import java.io.IOException;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.FileStore;
+import java.nio.file.Files;
+import java.nio.file.OpenOption;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Opens files for direct I/O, which bypasses the page cache of the operating system.
+ *
+ * <p>
+ * Direct I/O uses {@code com.sun.nio.file.ExtendedOpenOption.DIRECT}, which is available on Java 10 and later.
+ * With direct I/O, file positions, the number of bytes read or written, and buffer addresses must be multiples
+ * of the block size of the file store (see {@link #blockSize(Path)}), so buffers have to be allocated
+ * aligned (see {@link DirectMemory#allocateAligned(int, int)}). Some file systems, e.g. tmpfs, do not support
+ * direct I/O, in which case the caller has to fall back to buffered I/O.
+ *
+ * @since 1.8
+ * @author Marten Sigwart
+ */
+final class DirectIo {
+
+    private static final Logger log = LoggerFactory.getLogger(DirectIo.class);
+
+    /**
+     * The block size assumed if the block size of a file store cannot be determined
+     */
+    static final int DEFAULT_BLOCK_SIZE = 4096;
+
+    @Nullable private static final OpenOption direct = findDirectOption();
+    @Nullable private static final Method getBlockSize = findGetBlockSize();
+
+    private DirectIo() {}
+
+    /**
+     * Opens a file channel for direct I/O. The file is opened for reading as well, so that direct I/O
+     * can be probed by reading the first block, as some file systems only reject it when reading or writing.
+     * @param path the path of the file
+     * @param options the options to open the file with, in addition to reading and direct I/O
+     * @return the file channel, or null if direct I/O is not supported, in which case a warning is logged
+     * @throws IOException if the file cannot be opened for any other reason than lack of support for direct I/O
+     */
+    @Nullable
+    static FileChannel open(Path path, OpenOption... options) throws IOException {
+        if (direct == null) {
+            log.warn("Direct I/O requires Java 10 or later, falling back to buffered I/O for {}", path);
+            return null;
+        }
+        Set<OpenOption> directOptions = new HashSet<>(Arrays.asList(options));
+        directOptions.add(StandardOpenOption.READ);
+        directOptions.add(direct);
+        try {
+            FileChannel channel = FileChannel.open(path, directOptions);
+            try {
+                probe(channel, blockSize(path));
+                return channel;
+            } catch (IOException | RuntimeException e) {
+                channel.close();
+                throw e;
+            }
+        } catch (UnsupportedOperationException | IllegalArgumentException e) {
+            log.warn("Direct I/O not supported for {}, falling back to buffered I/O: {}", path, e.getMessage());
+        } catch (IOException e) {
+            if (!Files.exists(path)) {
+                throw e;
+            }
+            // e.g. EINVAL on file systems rejecting O_DIRECT
+            log.warn("Could not open {} for direct I/O, falling back to buffered I/O: {}", path, e.getMessage());
+        }
+        return null;
+    }
+
+    private static void probe(FileChannel channel, int blockSize) throws IOException {
+        ByteBuffer[] buffers = DirectMemory.allocateAligned(blockSize, blockSize);
+        try {
+            channel.read(buffers[1], 0);
+        } finally {
+            DirectMemory.free(buffers[0]);
+        }
+    }
+
+    /**
+     * Returns the block size of the file store of the specified file, to which direct I/O has to be aligned.
+     * @param path the path of the file
+     * @return the block size, or {@value #DEFAULT_BLOCK_SIZE} if it cannot be determined (Java 9 and earlier)
+     */
+    static int blockSize(Path path) {
+        if (getBlockSize != null) {
+            try {
+                FileStore store = Files.getFileStore(path);
+                long blockSize = (Long) getBlockSize.invoke(store);
+                if (blockSize > 0 && blockSize <= DEFAULT_BLOCK_SIZE * 16 && Long.bitCount(blockSize) == 1) {
+                    return (int) blockSize;
+                }
+            } catch (IOException | ReflectiveOperationException | RuntimeException e) {
+                log.debug("Could not determine block size of {}: {}", path, e.getMessage());
+            }
+        }
+        return DEFAULT_BLOCK_SIZE;
+    }
+
+    /**
+     * @return true if the running JVM supports direct I/O
+     */
+    static boolean isSupported() {
+        return direct != null;
+    }
+
+    @Nullable
+    private static OpenOption findDirectOption() {
+        try {
+            Class<?> extendedOpenOption = Class.forName("com.sun.nio.file.ExtendedOpenOption");
+            for (Object constant : extendedOpenOption.getEnumConstants()) {
+                if (((Enum<?>) constant).name().equals("DIRECT")) {
+                    return (OpenOption) constant;
+                }
+            }
+        } catch (ClassNotFoundException | RuntimeException e) {
+            log.debug("Direct I/O not available: {}", e.getMessage());
+        }
+        return null;
+    }
+
+    @Nullable
+    private static Method findGetBlockSize() {
+        try {
+            return FileStore.class.getMethod("getBlockSize");
+        } catch (NoSuchMethodException e) {
+            return null;
+        }
+    }
+}
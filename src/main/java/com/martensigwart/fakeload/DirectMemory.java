@@ -0,0 +1,128 @@
+package com.martensigwart.fakeload;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.annotation.Nullable;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+
+import static com.martensigwart.fakeload.Preconditions.checkArgument;
+
+/**
+ * Releases the memory of direct {@link ByteBuffer}s and aligns them.
+ *
+ * <p>
+ * The memory of a direct buffer is normally only released after the buffer has been garbage collected,
+ * which might take arbitrarily long when there is little activity on the heap. This class therefore
+ * invokes the cleaner of a buffer directly: via {@code sun.misc.Unsafe.invokeCleaner} on Java 9 and later
+ * and via {@code sun.nio.ch.DirectBuffer.cleaner()} on Java 8. If neither is accessible, releasing the memory
+ * is left to the garbage collector.
+ *
+ * <p>
+ * Direct buffers are aligned using {@code ByteBuffer.alignedSlice}, which is available on Java 9 and later.
+ *
+ * @since 1.8
+ * @author Marten Sigwart
+ */
+final class DirectMemory {
+
+    private static final Logger log = LoggerFactory.getLogger(DirectMemory.class);
+
+    @Nullable private static final Deallocator deallocator = findDeallocator();
+    @Nullable private static final Method alignedSlice = findAlignedSlice();
+
+    private DirectMemory() {}
+
+    /**
+     * Releases the memory of the specified buffer. The buffer must not be used afterwards.
+     * @param buffer the buffer, heap buffers are ignored
+     */
+    static void free(ByteBuffer buffer) {
+        if (!buffer.isDirect() || deallocator == null) {
+            return;
+        }
+        try {
+            deallocator.free(buffer);
+        } catch (Exception e) {
+            log.debug("Failed to release direct buffer: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Allocates a direct buffer whose address is a multiple of the specified alignment.
+     * The returned buffer is a slice of the allocated buffer, which has to be released instead
+     * (see {@link #free(ByteBuffer)}) and is therefore returned as well.
+     * @param capacity the capacity of the aligned buffer
+     * @param alignment the alignment in bytes, a power of two
+     * @return the allocated buffer at index 0 and the aligned buffer of the specified capacity at index 1,
+     * which is not aligned if alignment is not supported (Java 8)
+     */
+    static ByteBuffer[] allocateAligned(int capacity, int alignment) {
+        checkArgument(alignment > 0 && Integer.bitCount(alignment) == 1,
+                "Alignment must be a power of two but was %s", alignment);
+        ByteBuffer buffer = ByteBuffer.allocateDirect(capacity + alignment);
+        ByteBuffer aligned = buffer;
+        if (alignedSlice != null) {
+            try {
+                aligned = (ByteBuffer) alignedSlice.invoke(buffer, alignment);
+            } catch (ReflectiveOperationException | RuntimeException e) {
+                log.debug("Failed to align direct buffer: {}", e.getMessage());
+            }
+        }
+        aligned.limit(capacity);
+        return new ByteBuffer[] {buffer, aligned.slice()};
+    }
+
+    /**
+     * @return true if direct buffers can be aligned
+     */
+    static boolean isAlignmentSupported() {
+        return alignedSlice != null;
+    }
+
+    @Nullable
+    private static Method findAlignedSlice() {
+        try {
+            return ByteBuffer.class.getMethod("alignedSlice", int.class);
+        } catch (NoSuchMethodException e) {
+            log.debug("Direct buffers cannot be aligned: {}", e.getMessage());
+            return null;
+        }
+    }
+
+    @Nullable
+    private static Deallocator findDeallocator() {
+        try {
+            // Java 9+
+            Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+            Method invokeCleaner = unsafeClass.getMethod("invokeCleaner", ByteBuffer.class);
+            Field theUnsafe = unsafeClass.getDeclaredField("theUnsafe");
+            theUnsafe.setAccessible(true);
+            Object unsafe = theUnsafe.get(null);
+            return buffer -> invokeCleaner.invoke(unsafe, buffer);
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            log.trace("Unsafe.invokeCleaner not available: {}", e.getMessage());
+        }
+        try {
+            // Java 8
+            Method cleaner = Class.forName("sun.nio.ch.DirectBuffer").getMethod("cleaner");
+            Method clean = Class.forName("sun.misc.Cleaner").getMethod("clean");
+            return buffer -> {
+                Object bufferCleaner = cleaner.invoke(buffer);
+                if (bufferCleaner != null) {
+                    clean.invoke(bufferCleaner);
+                }
+            };
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            log.debug("Direct buffers are released by the garbage collector: {}", e.getMessage());
+        }
+        return null;
+    }
+
+    @FunctionalInterface
+    private interface Deallocator {
+        void free(ByteBuffer buffer) throws Exception;
+    }
+}
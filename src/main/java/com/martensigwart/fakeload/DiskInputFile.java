@@ -0,0 +1,158 @@
+package com.martensigwart.fakeload;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.annotation.concurrent.ThreadSafe;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.IntStream;
+
+import static com.martensigwart.fakeload.Preconditions.checkArgument;
+import static com.martensigwart.fakeload.Preconditions.checkNotNull;
+
+/**
+ * The file read by a {@link DiskInputSimulator}, which is created on first use if it does not exist.
+ *
+ * <p>
+ * When provisioned (see {@link #provision()}), an existing file of at least the configured size is reused.
+ * Otherwise, a temporary file next to it is extended to its full size up front and filled in parallel with
+ * random data, so that file systems compressing or deduplicating data cannot serve reads without reading
+ * from the device. Only once filled, the temporary file is atomically moved into place, so a fill which is
+ * interrupted or fails never leaves a file of full size behind which would be reused.
+ * The progress of filling the file is logged every 10% and can be queried (see {@link #getProgress()}).
+ *
+ * @since 1.8
+ * @see FileChannelDiskInputSimulator
+ * @see RandomAccessDiskInputSimulator
+ * @author Marten Sigwart
+ */
+@ThreadSafe
+public final class DiskInputFile {
+
+    private static final Logger log = LoggerFactory.getLogger(DiskInputFile.class);
+
+    /**
+     * The default size of 1 GB
+     */
+    public static final long DEFAULT_SIZE = 1024L * 1024 * 1024;
+
+    static final int FILL_CHUNK_SIZE = 4 * 1024 * 1024;
+
+    static final String TEMP_SUFFIX = ".part";
+
+    private final Path path;
+    private final long size;
+    private final AtomicLong filledBytes = new AtomicLong();
+
+
+    /**
+     * @param filePath the path of the file
+     * @param size the size of the file in bytes
+     */
+    public DiskInputFile(String filePath, long size) {
+        checkArgument(size > 0, "Size must be positive but was %s", size);
+        this.path = Paths.get(checkNotNull(filePath));
+        this.size = size;
+    }
+
+
+    /**
+     * Creates and fills the file, unless a file of at least the configured size already exists.
+     * Blocks until the file is filled.
+     * @throws IOException if the file cannot be created or written
+     */
+    public synchronized void provision() throws IOException {
+        if (Files.isRegularFile(path) && Files.size(path) >= size) {
+            log.debug("Reusing disk input file {} of {}", path, MemoryUnit.mbString(Files.size(path)));
+            filledBytes.set(size);
+            return;
+        }
+
+        log.info("Creating disk input file {} of {}", path, MemoryUnit.mbString(size));
+        if (path.getParent() != null) {
+            Files.createDirectories(path.getParent());
+        }
+        filledBytes.set(0L);
+        Path temp = path.resolveSibling(path.getFileName() + TEMP_SUFFIX);
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            // the full length is set up front, so that the file can be filled in any order
+            channel.write(ByteBuffer.allocate(1), size - 1);
+            int segments = (int) Math.min(Runtime.getRuntime().availableProcessors(),
+                    (size + FILL_CHUNK_SIZE - 1) / FILL_CHUNK_SIZE);
+            IntStream.range(0, segments).parallel().forEach(segment ->
+                    fill(channel, size * segment / segments, size * (segment + 1) / segments));
+            channel.force(false);
+        } catch (UncheckedIOException e) {
+            Files.deleteIfExists(temp);
+            throw e.getCause();
+        } catch (IOException e) {
+            Files.deleteIfExists(temp);
+            throw e;
+        }
+        Files.move(temp, path, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        log.info("Created disk input file {}", path);
+    }
+
+    /**
+     * Fills the specified range of the file with random data, chunk by chunk.
+     */
+    private void fill(FileChannel channel, long from, long to) {
+        byte[] chunk = new byte[(int) Math.min(FILL_CHUNK_SIZE, to - from)];
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        try {
+            for (long position = from; position < to; ) {
+                int length = (int) Math.min(chunk.length, to - position);
+                random.nextBytes(chunk);
+                ByteBuffer buffer = ByteBuffer.wrap(chunk, 0, length);
+                while (buffer.hasRemaining()) {
+                    position += channel.write(buffer, position);
+                }
+                reportProgress(length);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private void reportProgress(int length) {
+        long before = filledBytes.getAndAdd(length);
+        long after = before + length;
+        if (before * 10 / size != after * 10 / size) {
+            log.info("Filled {} of {} of disk input file ({}%)",
+                    MemoryUnit.mbString(after), MemoryUnit.mbString(size), after * 100 / size);
+        }
+    }
+
+    /**
+     * Returns the progress of filling the file.
+     * @return the fraction of the file filled, between 0 and 1
+     */
+    public double getProgress() {
+        return Math.min(1.0, (double) filledBytes.get() / size);
+    }
+
+    /**
+     * @return the path of the file
+     */
+    public String getPath() {
+        return path.toString();
+    }
+
+    /**
+     * @return the size of the file in bytes
+     */
+    public long getSize() {
+        return size;
+    }
+}
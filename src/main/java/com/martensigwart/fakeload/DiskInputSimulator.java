@@ -5,17 +5,29 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
-import java.util.concurrent.TimeUnit;
+import java.nio.channels.ClosedByInterruptException;
 
 /**
  * Skeleton implementation of a {@link LoadSimulator} that simulates disk input.
  *
  * Disk input is simulated by reading an amount of bytes from a file.
+ *
+ * The bytes due per second are read in chunks of a configurable size, spread evenly over the second
+ * by a token bucket (see {@link IoPacer}), rather than all at once followed by a pause for the rest of the second.
+ *
+ * Subclasses either implement {@link #read(byte[])}, in which case the buffer read into
+ * is reused as long as the load stays the same, so that simulating a steady load does not allocate
+ * any memory, or override {@link #read(long)} to read into buffers of their own.
  */
 public abstract class DiskInputSimulator extends AbstractLoadSimulator {
 
     private static final Logger log = LoggerFactory.getLogger(DiskInputSimulator.class);
 
+    private final IoPacer pacer = new IoPacer();
+
+    // only accessed by the simulator thread
+    private byte[] buffer;
+
 
     protected DiskInputSimulator() {
         this("DiskInputSim");
@@ -32,26 +44,32 @@ public abstract class DiskInputSimulator extends AbstractLoadSimulator {
      */
     protected abstract int read(byte[] bytes) throws IOException;
 
+    /**
+     * Reads the specified number of bytes from file, by default into a reused array via {@link #read(byte[])}.
+     * @param bytes the number of bytes to read
+     * @return the number of bytes read
+     * @throws IOException if an IOException occurs while reading
+     */
+    protected long read(long bytes) throws IOException {
+        int length = (bytes > Integer.MAX_VALUE) ? Integer.MAX_VALUE : (int) bytes;
+        if (buffer == null || buffer.length != length) {
+            buffer = new byte[length];
+        }
+        return read(buffer);
+    }
+
     @Override
     public void simulateLoad(long load) throws InterruptedException {
-        byte bytes[] = new byte[(load > Integer.MAX_VALUE) ? Integer.MAX_VALUE : (int)load];
-
+        if (load <= 0) {
+            return;     // load was reset after the wait condition was checked
+        }
         try {
-            long startRead = System.nanoTime();
-            int bytesRead = read(bytes);
-            long endRead = System.nanoTime();
-            long duration = endRead - startRead;
-
-            log.trace("Read {} in {} ms",
-                    MemoryUnit.mbString(bytesRead), TimeUnit.NANOSECONDS.toMillis(duration));
-
-            long toSleep = TimeUnit.SECONDS.toMillis(1) - TimeUnit.NANOSECONDS.toMillis(duration);
-
-            if (toSleep > 0) {
-                log.trace("Sleeping {} ms", toSleep);
-                Thread.sleep(toSleep);
-            }
-
+            long chunk = pacer.acquire(load);
+            long bytesRead = read(chunk);
+            pacer.complete(bytesRead);
+        } catch (ClosedByInterruptException e) {
+            // the thread was interrupted while reading, which closed the file
+            throw new InterruptedException(e.getMessage());
         } catch (IOException e) {
             log.error(e.getMessage());
             e.printStackTrace();
@@ -59,6 +77,38 @@ public abstract class DiskInputSimulator extends AbstractLoadSimulator {
         }
     }
 
+    /**
+     * Sets the size of the chunks in which the bytes per second are read, spread evenly over the second.
+     * @param chunkSize the chunk size in bytes
+     */
+    public void setChunkSize(int chunkSize) {
+        pacer.setChunkSize(chunkSize);
+    }
+
+    /**
+     * @return the size of the chunks in which the bytes per second are read
+     */
+    public int getChunkSize() {
+        return pacer.getChunkSize();
+    }
+
+    /**
+     * Returns the accuracy with which the bytes read are spread over time, i.e. the mean deviation
+     * of the bytes read per {@value IoPacer#SLOT} ms from the desired amount, relative to that amount,
+     * measured over the last second.
+     * @return the pacing error, e.g. 0.1 for a deviation of 10%
+     */
+    public double getPacingError() {
+        return pacer.getPacingError();
+    }
+
+    /**
+     * Releases the buffer read into, to be called by subclasses when cleaning up.
+     */
+    protected void releaseBuffer() {
+        buffer = null;
+    }
+
     @Override
     public boolean waitConditionFulfilled() {
         return isZeroLoad();
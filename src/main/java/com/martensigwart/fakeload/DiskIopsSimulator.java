@@ -0,0 +1,430 @@
+package com.martensigwart.fakeload;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.FileChannel;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+import static com.martensigwart.fakeload.Preconditions.checkArgument;
+import static com.martensigwart.fakeload.Preconditions.checkNotNull;
+
+/**
+ * A {@code LoadSimulator} that simulates disk load in I/O operations per second (IOPS).
+ *
+ * <p>
+ * Other than the {@link DiskInputSimulator} and {@link DiskOutputSimulator}, which transfer a number of bytes
+ * per second sequentially, this simulator reads or writes single blocks of a configurable size at random
+ * block-aligned offsets of a {@link DiskInputFile}, which is how storage performance is usually specified,
+ * e.g. 4 KB random reads at a queue depth of 32.
+ *
+ * <p>
+ * The simulator thread issues one operation every 1/load seconds to long-lived worker threads, one per
+ * operation that may be outstanding, i.e. the queue depth. Operations are handed over to their worker
+ * and back by a volatile flag and {@link LockSupport#unpark(Thread)}, since a contended lock, e.g. of a
+ * blocking queue, allocates a wait node. If all operations are outstanding, e.g. because the device cannot
+ * keep up, the simulator waits for one of them to complete, so the achieved IOPS fall below the desired ones
+ * instead of operations queueing up without bound. Each worker performs its operation with a positional read
+ * or write from a direct buffer of its own, written blocks are made durable before the operation completes.
+ * Operations and their buffers are reused, so simulating a steady load does not allocate any memory.
+ * The workers, their buffers and the file are released as soon as the load drops to zero, and acquired
+ * again with the next operation, so no threads are left behind once an IOPS load has ended.
+ *
+ * <p>
+ * The achieved IOPS as well as the mean and maximum latency of the operations, i.e. the time from starting
+ * to completing a read or write, are measured per second (see {@link #getAchievedIops()},
+ * {@link #getMeanLatency()} and {@link #getMaxLatency()}), and logged at trace level.
+ *
+ * <p>
+ * With direct I/O enabled, the file is opened with {@code O_DIRECT} (see {@link DirectIo}), so every operation
+ * is served by the device rather than the page cache. Blocks are then rounded up to a multiple of the block
+ * size of the file system. If the file system does not support direct I/O, a warning is logged and
+ * the file is accessed through the page cache.
+ *
+ * @since 1.8
+ * @see FakeLoad#withDiskIops(long)
+ * @author Marten Sigwart
+ */
+public final class DiskIopsSimulator extends AbstractLoadSimulator {
+
+    private static final Logger log = LoggerFactory.getLogger(DiskIopsSimulator.class);
+
+    /**
+     * The default block size of 4 KB
+     */
+    public static final int DEFAULT_BLOCK_SIZE = 4096;
+
+    /**
+     * The default queue depth of 1, i.e. one operation at a time
+     */
+    public static final int DEFAULT_QUEUE_DEPTH = 1;
+
+    private static final long NANOS_PER_SECOND = TimeUnit.SECONDS.toNanos(1);
+    private static final long IDLE_THRESHOLD = 2 * NANOS_PER_SECOND;
+
+    private final DiskInputFile file;
+    private final int blockSize;
+    private final int queueDepth;
+    private final boolean writes;
+    private final boolean directIo;
+
+    // updated by the worker threads, published by the simulator thread once per second
+    private final LongAdder operations = new LongAdder();
+    private final LongAdder latencies = new LongAdder();
+    private final LongAccumulator maxLatency = new LongAccumulator(Math::max, 0L);
+    private volatile double achievedIops;
+    private volatile long meanLatency;
+    private volatile long publishedMaxLatency;
+
+    // only accessed by the simulator thread
+    private FileChannel channel;
+    private Thread[] workers;
+    private Operation[] pool;
+    private long blocks;
+    private long nextDue;
+    private long lastIssued;
+    private long windowStart;
+
+    /**
+     * Creates a simulator reading 4 KB blocks at a queue depth of 1 from the default disk input file
+     * in the temporary directory.
+     */
+    public DiskIopsSimulator() {
+        this(new DiskInputFile(SimulationInfrastructureBuilder.DEFAULT_DISK_INPUT_PATH, DiskInputFile.DEFAULT_SIZE),
+                DEFAULT_BLOCK_SIZE, DEFAULT_QUEUE_DEPTH, false, false);
+    }
+
+    /**
+     * @param file the file accessed, provisioned on first use
+     * @param blockSize the number of bytes read or written per operation
+     * @param queueDepth the maximum number of outstanding operations
+     * @param writes whether blocks are written instead of read
+     * @param directIo whether the file is accessed with direct I/O, bypassing the page cache
+     */
+    public DiskIopsSimulator(DiskInputFile file, int blockSize, int queueDepth, boolean writes, boolean directIo) {
+        super(-1, "DiskIopsSim");
+        checkArgument(blockSize > 0, "Block size must be positive but was %s", blockSize);
+        checkArgument(queueDepth > 0, "Queue depth must be positive but was %s", queueDepth);
+        this.file = checkNotNull(file);
+        this.blockSize = blockSize;
+        this.queueDepth = queueDepth;
+        this.writes = writes;
+        this.directIo = directIo;
+    }
+
+    @Override
+    protected void simulateLoad(long load) throws InterruptedException {
+        if (load <= 0) {
+            return;     // load was reset after the wait condition was checked
+        }
+        try {
+            open();
+        } catch (IOException e) {
+            log.error(e.getMessage());
+            e.printStackTrace();
+            setLoad(0);
+            return;
+        }
+
+        long now = System.nanoTime();
+        if (lastIssued == 0L || now - lastIssued > IDLE_THRESHOLD) {
+            // first operation or simulator was idle: start over
+            nextDue = now;
+            startWindow(now);
+        } else if (nextDue - now > 0) {
+            // waits at most a second, so that changes of the load take effect within a second
+            TimeUnit.NANOSECONDS.sleep(Math.min(nextDue - now, NANOS_PER_SECOND));
+            return;
+        } else if (now - nextDue > NANOS_PER_SECOND) {
+            // more than a second behind, e.g. because the device cannot keep up: do not catch up
+            nextDue = now;
+        }
+
+        Operation operation = idleOperation();
+        operation.offset = ThreadLocalRandom.current().nextLong(blocks) * operation.buffer.capacity();
+        operation.outstanding = true;
+        LockSupport.unpark(operation.worker);
+        lastIssued = System.nanoTime();
+        nextDue += NANOS_PER_SECOND / load;
+
+        if (lastIssued - windowStart >= NANOS_PER_SECOND) {
+            publish(lastIssued);
+        }
+    }
+
+    private void open() throws IOException {
+        if (channel != null) {
+            return;
+        }
+        file.provision();
+        Path path = Paths.get(file.getPath());
+        int alignment = 1;
+        try {
+            if (directIo) {
+                channel = writes ? DirectIo.open(path, StandardOpenOption.WRITE, StandardOpenOption.DSYNC)
+                        : DirectIo.open(path);
+            }
+            if (channel != null) {
+                alignment = Math.max(FileChannelDiskInputSimulator.BUFFER_ALIGNMENT, DirectIo.blockSize(path));
+            } else {
+                channel = writes ? FileChannel.open(path, StandardOpenOption.WRITE, StandardOpenOption.DSYNC)
+                        : FileChannel.open(path, StandardOpenOption.READ);
+            }
+        } catch (NoSuchFileException e) {
+            throw new FileNotFoundException(String.format("File %s used for simulating disk IOPS does not exist",
+                    file.getPath()));
+        }
+
+        int length = (blockSize + alignment - 1) / alignment * alignment;
+        blocks = channel.size() / length;
+        if (blocks == 0) {
+            channel.close();
+            channel = null;
+            throw new IOException(String.format("File %s used for simulating disk IOPS is smaller than %s bytes",
+                    file.getPath(), length));
+        }
+
+        Thread simulator = Thread.currentThread();
+        ThreadFactory threadFactory = new ThreadFactoryBuilder()
+                .setDaemon(true).setNameFormat("DiskIopsSim-worker-%d").build();
+        pool = new Operation[queueDepth];
+        workers = new Thread[queueDepth];
+        for (int i = 0; i < queueDepth; i++) {
+            ByteBuffer[] buffers = DirectMemory.allocateAligned(length,
+                    Math.max(FileChannelDiskInputSimulator.BUFFER_ALIGNMENT, alignment));
+            if (writes) {
+                // random data, so that the file stays incompressible
+                byte[] bytes = new byte[length];
+                ThreadLocalRandom.current().nextBytes(bytes);
+                buffers[1].put(bytes);
+            }
+            pool[i] = new Operation(buffers[0], buffers[1], simulator);
+            workers[i] = threadFactory.newThread(pool[i]);
+            pool[i].worker = workers[i];
+        }
+        for (Thread worker : workers) {
+            worker.start();
+        }
+        log.trace("Opened file {} for {} byte {} at a queue depth of {}", file.getPath(), length,
+                writes ? "writes" : "reads", queueDepth);
+    }
+
+    /**
+     * Returns an operation which is not outstanding, waiting for one to complete if necessary.
+     */
+    private Operation idleOperation() throws InterruptedException {
+        while (true) {
+            for (Operation operation : pool) {
+                if (!operation.outstanding) {
+                    return operation;
+                }
+            }
+            // unparked by the next operation completing
+            LockSupport.park(this);
+            if (Thread.interrupted()) {
+                throw new InterruptedException();
+            }
+        }
+    }
+
+    private void startWindow(long now) {
+        operations.reset();
+        latencies.reset();
+        maxLatency.reset();
+        windowStart = now;
+    }
+
+    /**
+     * Publishes the statistics of the operations completed since the start of the current window.
+     */
+    private void publish(long now) {
+        long count = operations.sumThenReset();
+        long latency = latencies.sumThenReset();
+        long max = maxLatency.getThenReset();
+        achievedIops = count * (double) NANOS_PER_SECOND / (now - windowStart);
+        meanLatency = (count > 0) ? latency / count : 0L;
+        publishedMaxLatency = max;
+        windowStart = now;
+        if (log.isTraceEnabled()) {
+            log.trace("Achieved {} of {} IOPS, latency mean {} us, max {} us", Math.round(achievedIops), getLoad(),
+                    TimeUnit.NANOSECONDS.toMicros(meanLatency), TimeUnit.NANOSECONDS.toMicros(max));
+        }
+    }
+
+    /**
+     * @return the number of operations completed per second, measured over the last second
+     */
+    public double getAchievedIops() {
+        return achievedIops;
+    }
+
+    /**
+     * @return the mean latency of the operations completed in the last second in nanoseconds
+     */
+    public long getMeanLatency() {
+        return meanLatency;
+    }
+
+    /**
+     * @return the maximum latency of the operations completed in the last second in nanoseconds
+     */
+    public long getMaxLatency() {
+        return publishedMaxLatency;
+    }
+
+    /**
+     * @return the number of bytes read or written per operation
+     */
+    public int getBlockSize() {
+        return blockSize;
+    }
+
+    /**
+     * @return the maximum number of outstanding operations
+     */
+    public int getQueueDepth() {
+        return queueDepth;
+    }
+
+    /**
+     * @return true if blocks are written, false if they are read
+     */
+    public boolean isWrites() {
+        return writes;
+    }
+
+    /**
+     * @return true if direct I/O is requested, it is only used if supported by the file system
+     */
+    public boolean isDirectIo() {
+        return directIo;
+    }
+
+    @Override
+    protected void cleanUp() {
+        if (workers != null) {
+            for (Thread worker : workers) {
+                worker.interrupt();
+            }
+            try {
+                for (Thread worker : workers) {
+                    worker.join(TimeUnit.SECONDS.toMillis(1));
+                    if (worker.isAlive()) {
+                        log.warn("{} did not terminate in time", worker.getName());
+                    }
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            workers = null;
+        }
+        if (pool != null) {
+            for (Operation operation : pool) {
+                DirectMemory.free(operation.allocatedBuffer);
+            }
+            pool = null;
+        }
+        try {
+            if (channel != null) {
+                channel.close();
+                channel = null;
+            }
+        } catch (IOException e) {
+            log.error("Failed to close file: {}", e.getMessage());
+            e.printStackTrace();
+        }
+        lastIssued = 0L;
+    }
+
+    /**
+     * Stops the workers and closes the file once the load has dropped to zero.
+     */
+    @Override
+    protected void pause() {
+        cleanUp();
+    }
+
+    @Override
+    protected boolean waitConditionFulfilled() {
+        return isZeroLoad();
+    }
+
+    @Override
+    protected String prettyFormat(long load) {
+        return load + " IOPS";
+    }
+
+
+    /**
+     * A read or write of one block, performed by its own worker thread whenever issued.
+     * Becomes idle again when completed, so that operations and their buffers are reused.
+     */
+    private final class Operation implements Runnable {
+        private final ByteBuffer allocatedBuffer;
+        private final ByteBuffer buffer;
+        private final Thread simulator;
+        private Thread worker;
+        private long offset;
+        private volatile boolean outstanding;
+
+        private Operation(ByteBuffer allocatedBuffer, ByteBuffer buffer, Thread simulator) {
+            this.allocatedBuffer = allocatedBuffer;
+            this.buffer = buffer;
+            this.simulator = simulator;
+        }
+
+        /**
+         * Performs the operation whenever issued, until interrupted.
+         */
+        @Override
+        public void run() {
+            FileChannel channel = DiskIopsSimulator.this.channel;
+            while (!Thread.currentThread().isInterrupted()) {
+                if (outstanding) {
+                    perform(channel);
+                    outstanding = false;
+                    LockSupport.unpark(simulator);
+                } else {
+                    LockSupport.park(this);
+                }
+            }
+            log.trace("{} - Interrupted", Thread.currentThread().getName());
+        }
+
+        private void perform(FileChannel channel) {
+            long start = System.nanoTime();
+            try {
+                buffer.clear();
+                while (buffer.hasRemaining()) {
+                    long position = offset + buffer.position();
+                    if ((writes ? channel.write(buffer, position) : channel.read(buffer, position)) < 0) {
+                        throw new IOException(String.format("End of file %s reached", file.getPath()));
+                    }
+                }
+                long latency = System.nanoTime() - start;
+                operations.increment();
+                latencies.add(latency);
+                maxLatency.accumulate(latency);
+            } catch (ClosedChannelException e) {
+                log.debug("File closed while {} block", writes ? "writing" : "reading");
+            } catch (IOException e) {
+                log.error(e.getMessage());
+                e.printStackTrace();
+                setLoad(0);
+            }
+        }
+    }
+}
@@ -5,18 +5,29 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
-import java.util.concurrent.TimeUnit;
+import java.nio.channels.ClosedByInterruptException;
 
 /**
  * Skeleton implementation of a {@link LoadSimulator} that simulates disk output
  *
  * Disk output is simulated by writing an amount of bytes to a file.
  *
+ * The bytes due per second are written in chunks of a configurable size, spread evenly over the second
+ * by a token bucket (see {@link IoPacer}), rather than all at once followed by a pause for the rest of the second.
+ *
+ * Subclasses either implement {@link #write(byte[])}, in which case the buffer written
+ * is reused as long as the load stays the same, so that simulating a steady load does not allocate
+ * any memory, or override {@link #write(long)} to write buffers of their own.
  */
 public abstract class DiskOutputSimulator extends AbstractLoadSimulator {
 
     private static final Logger log = LoggerFactory.getLogger(DiskOutputSimulator.class);
 
+    private final IoPacer pacer = new IoPacer();
+
+    // only accessed by the simulator thread
+    private byte[] buffer;
+
     protected DiskOutputSimulator() {
         this("DiskOutputSim");
     }
@@ -32,35 +43,71 @@ public abstract class DiskOutputSimulator extends AbstractLoadSimulator {
      */
     protected abstract void write(byte[] bytes) throws IOException;
 
+    /**
+     * Writes the specified number of bytes to a file, by default from a reused array via {@link #write(byte[])}.
+     * @param bytes the number of bytes to write
+     * @return the number of bytes written
+     * @throws IOException when an IOException occurs while writing the bytes
+     */
+    protected long write(long bytes) throws IOException {
+        int length = (bytes > Integer.MAX_VALUE) ? Integer.MAX_VALUE : (int) bytes;
+        if (buffer == null || buffer.length != length) {
+            buffer = new byte[length];
+        }
+        write(buffer);
+        return buffer.length;
+    }
+
     @Override
     protected void simulateLoad(long load) throws InterruptedException {
-
+        if (load <= 0) {
+            return;     // load was reset after the wait condition was checked
+        }
         try {
-            long startWrite = System.nanoTime();
-            int bytesPerSeconds = (load > Integer.MAX_VALUE) ? Integer.MAX_VALUE : (int) load;
-            byte bytes[] = new byte[bytesPerSeconds];
-
-            write(bytes);
-            long endWrite = System.nanoTime();
-
-            long duration = endWrite - startWrite;
-            log.trace("Wrote {} bytes in {} ms",
-                    bytes.length, TimeUnit.NANOSECONDS.toMillis(duration));
-
-
-            long toSleep = TimeUnit.SECONDS.toMillis(1) - TimeUnit.NANOSECONDS.toMillis(duration);
-
-            if (toSleep > 0) {
-                log.trace("Sleeping " + toSleep + "ms");
-                Thread.sleep(toSleep);
-            }
-
+            long chunk = pacer.acquire(load);
+            long bytesWritten = write(chunk);
+            pacer.complete(bytesWritten);
+        } catch (ClosedByInterruptException e) {
+            // the thread was interrupted while writing, which closed the file
+            throw new InterruptedException(e.getMessage());
         } catch (IOException e) {
             log.error(e.getMessage());
             e.printStackTrace();
         }
     }
 
+    /**
+     * Sets the size of the chunks in which the bytes per second are written, spread evenly over the second.
+     * @param chunkSize the chunk size in bytes
+     */
+    public void setChunkSize(int chunkSize) {
+        pacer.setChunkSize(chunkSize);
+    }
+
+    /**
+     * @return the size of the chunks in which the bytes per second are written
+     */
+    public int getChunkSize() {
+        return pacer.getChunkSize();
+    }
+
+    /**
+     * Returns the accuracy with which the bytes written are spread over time, i.e. the mean deviation
+     * of the bytes written per {@value IoPacer#SLOT} ms from the desired amount, relative to that amount,
+     * measured over the last second.
+     * @return the pacing error, e.g. 0.1 for a deviation of 10%
+     */
+    public double getPacingError() {
+        return pacer.getPacingError();
+    }
+
+    /**
+     * Releases the buffer written, to be called by subclasses when cleaning up.
+     */
+    protected void releaseBuffer() {
+        buffer = null;
+    }
+
     @Override
     protected boolean waitConditionFulfilled() {
         return isZeroLoad();
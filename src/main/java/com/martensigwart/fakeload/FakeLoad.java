@@ -96,6 +96,76 @@ public interface FakeLoad extends Iterable<FakeLoad>, Serializable {
      */
     FakeLoad withMemory(long amount, MemoryUnit unit);
 
+    /**
+     * Returns a {@code FakeLoad} instance with the specified memory load of the specified kind.
+     * Memory load on the heap and off the heap are kept separately, i.e. a {@code FakeLoad}
+     * may specify both.
+     *
+     * @param amount the amount of memory to be simulated
+     * @param unit the memory unit for the specified amount
+     * @param kind the kind of memory to be simulated
+     * @return returns the FakeLoad object containing the provided parameters.
+     */
+    FakeLoad withMemory(long amount, MemoryUnit unit, MemoryKind kind);
+
+    /**
+     * Returns a {@code FakeLoad} instance whose memory load, on and off the heap, grows continuously at
+     * the specified rate instead of being allocated at once, e.g. to simulate a memory leak. Once the memory
+     * load is reached, it stays at that level until the {@code FakeLoad} ends. A growth of zero, the default,
+     * allocates the memory load at once.
+     *
+     * <pre>
+     * {@code FakeLoad leak = FakeLoads.create()
+     *      .lasting(2, TimeUnit.HOURS)
+     *      .withMemory(1, MemoryUnit.GB)
+     *      .withMemoryGrowth(10, MemoryUnit.MB, TimeUnit.MINUTES);  // plateaus after about 100 minutes
+     * }</pre>
+     *
+     * @param amount the amount of memory by which the memory load grows per time unit
+     * @param unit the memory unit for the specified amount
+     * @param per the time unit of the growth rate
+     * @return returns the FakeLoad object containing the provided parameters.
+     */
+    FakeLoad withMemoryGrowth(long amount, MemoryUnit unit, TimeUnit per);
+
+    /**
+     * Returns a {@code FakeLoad} instance with the specified allocation rate per second.
+     * Other than memory load, which keeps a fixed amount of memory allocated, the allocation rate
+     * produces a steady stream of short-lived objects and thereby garbage collection pressure.
+     *
+     * @param amount the amount of memory to be allocated per second
+     * @param unit the memory unit for the specified amount
+     * @return returns the FakeLoad object containing the provided parameters.
+     * @see AllocationSimulator
+     */
+    FakeLoad withAllocationRate(long amount, MemoryUnit unit);
+
+    /**
+     * Returns a {@code FakeLoad} instance with the specified headroom policy, which determines
+     * what happens when the memory load does not fit into the available memory.
+     * Defaults to {@link HeadroomPolicy#REJECT}.
+     *
+     * @param policy the headroom policy
+     * @return returns the FakeLoad object containing the provided parameters.
+     * @see MemoryHeadroom
+     */
+    FakeLoad withHeadroomPolicy(HeadroomPolicy policy);
+
+    /**
+     * Returns a {@code FakeLoad} instance with the specified memory bandwidth per second.
+     * The bandwidth is produced by reading, and optionally writing, a working set of memory
+     * one cache line after another, which causes cache misses and memory bandwidth contention.
+     * The accesses are spread over several threads, by default one per available processor.
+     * The working set is admitted against the memory headroom like a memory load (see
+     * {@link #withHeadroomPolicy(HeadroomPolicy)}), and released once no memory bandwidth is simulated.
+     *
+     * @param amount the amount of memory to be accessed per second
+     * @param unit the memory unit for the specified amount
+     * @return returns the FakeLoad object containing the provided parameters.
+     * @see MemoryAccessSimulator
+     */
+    FakeLoad withMemoryBandwidth(long amount, MemoryUnit unit);
+
     /**
      * Returns a {@code FakeLoad} instance with the specified disk input load as bytes/seconds.
      *
@@ -114,6 +184,73 @@ public interface FakeLoad extends Iterable<FakeLoad>, Serializable {
      */
     FakeLoad withDiskOutput(long load, MemoryUnit unit);
 
+    /**
+     * Returns a {@code FakeLoad} instance with the specified disk load in I/O operations per second (IOPS).
+     *
+     * <p>
+     * Other than disk input and output, which are sequential, the operations are reads or writes of
+     * single blocks at random offsets, keeping a number of operations outstanding. Block size, queue depth,
+     * and whether blocks are read or written are configured with the simulation infrastructure
+     * (see {@link SimulationInfrastructureBuilder#withDiskIops(long, MemoryUnit, int, boolean)}).
+     *
+     * @param iops the number of I/O operations per second to be simulated
+     * @return returns the FakeLoad object containing the provided parameters.
+     * @see DiskIopsSimulator
+     */
+    FakeLoad withDiskIops(long iops);
+
+    /**
+     * Returns a {@code FakeLoad} instance with the specified CPU load in cores.
+     *
+     * <p>
+     * Other than {@link #withCpu(int)}, which is relative to the size of the machine,
+     * the load specified in cores is independent of the number of available processors,
+     * e.g. 1.5 cores correspond to 25% on a machine with 6 processors and to 12.5% on a machine
+     * with 12 processors. CPU load in percent and in cores is added up when both are specified.
+     *
+     * @param cores the fake CPU load in cores, e.g. 1.5 for one and a half fully utilized cores
+     * @return returns the FakeLoad object containing the provided parameters.
+     * @throws IllegalArgumentException if cores is negative, not a number or above 65536
+     */
+    FakeLoad withCpuCores(double cores);
+
+    /**
+     * Returns a {@code FakeLoad} instance with the specified CPU kernel.
+     * The kernel determines what kind of work is used to produce the CPU load.
+     *
+     * <p>
+     * The kernel is applied to the CPU simulator threads the CPU load of this {@code FakeLoad} is distributed
+     * among (see {@link #withCpuDistribution(CpuDistribution)}). A thread runs only one kernel at a time,
+     * so when concurrent {@code FakeLoad}s with different kernels share a thread, as with the default
+     * {@link CpuDistribution#SPREAD}, the kernel of the most recently started one is used on that thread.
+     * {@link CpuDistribution#PACK} or {@link CpuDistribution#weighted(double...)} keep their threads apart.
+     *
+     * @param kernel the CPU kernel to be used for CPU load simulation
+     * @return returns the FakeLoad object containing the provided parameters.
+     */
+    FakeLoad withCpuKernel(CpuKernel kernel);
+
+    /**
+     * Returns a {@code FakeLoad} instance with the specified CPU distribution.
+     * The distribution determines how the CPU load is distributed among the
+     * CPU simulator threads, e.g. evenly or packed into as few threads as possible.
+     *
+     * @param distribution the CPU distribution
+     * @return returns the FakeLoad object containing the provided parameters.
+     */
+    FakeLoad withCpuDistribution(CpuDistribution distribution);
+
+    /**
+     * Returns a {@code FakeLoad} instance with the specified CPU target mode.
+     * The mode determines whether the CPU load is the desired total CPU load of the machine,
+     * including the load of other processes, or CPU load added on top of it.
+     * Defaults to {@link CpuTargetMode#TOTAL}.
+     *
+     * @param mode the CPU target mode
+     * @return returns the FakeLoad object containing the provided parameters.
+     */
+    FakeLoad withCpuTargetMode(CpuTargetMode mode);
+
     /**
      * Adds the specified {@code FakeLoad} object to this {@code FakeLoad}'s inner loads.
      * @param load the {@code FakeLoad} to be added to the inner loads
@@ -148,12 +285,66 @@ public interface FakeLoad extends Iterable<FakeLoad>, Serializable {
      */
     int getCpu();
 
+    /**
+     * Returns the CPU load in cores
+     * @return a {@code double} containing the CPU load in cores
+     */
+    double getCpuCores();
+
+    /**
+     * Returns the CPU kernel used to produce the CPU load
+     * @return the CPU kernel
+     */
+    CpuKernel getCpuKernel();
+
+    /**
+     * Returns the distribution of the CPU load among the CPU simulator threads
+     * @return the CPU distribution
+     */
+    CpuDistribution getCpuDistribution();
+
+    /**
+     * Returns whether the CPU load is a total or an additional CPU load
+     * @return the CPU target mode
+     */
+    CpuTargetMode getCpuTargetMode();
+
+    /**
+     * Returns the headroom policy applied to the memory load
+     * @return the headroom policy
+     */
+    HeadroomPolicy getHeadroomPolicy();
+
     /**
      * Returns the memory load in bytes
      * @return a {@code long} containing the memory load in bytes
      */
     long getMemory();
 
+    /**
+     * Returns the memory load off the heap in bytes
+     * @return a {@code long} containing the off-heap memory load in bytes
+     */
+    long getOffHeapMemory();
+
+    /**
+     * Returns the rate at which the memory load grows in bytes per second, zero if it is allocated at once
+     * @return a {@code long} containing the memory growth rate in bytes per second
+     */
+    long getMemoryGrowthRate();
+
+    /**
+     * Returns the allocation rate in bytes per second
+     * @return a {@code long} containing the allocation rate in bytes per second
+     */
+    long getAllocationRate();
+
+    /**
+     * Returns the memory bandwidth in bytes per second
+     * @return a {@code long} containing the memory bandwidth in bytes per second
+     */
+    long getMemoryBandwidth();
+
     /**
      * Returns the disk input load in bytes per second
      * @return a {@code long} containing the disk input load in bytes per second
@@ -166,6 +357,12 @@ public interface FakeLoad extends Iterable<FakeLoad>, Serializable {
      */
     long getDiskOutput();
 
+    /**
+     * Returns the disk load in I/O operations per second
+     * @return a {@code long} containing the disk load in I/O operations per second
+     */
+    long getDiskIops();
+
     /**
      * Returns the duration of this {@code FakeLoad} system load configuration.
      * The unit of the duration is determined by {@link #getTimeUnit()}.
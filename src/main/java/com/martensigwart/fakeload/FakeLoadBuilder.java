@@ -23,9 +23,19 @@ public final class FakeLoadBuilder {
     private TimeUnit unit       = TimeUnit.MILLISECONDS;
     private int repetitions     = 1;
     private int cpuLoad         = 0;
+    private double cpuCores     = 0.0;
     private long memoryLoad     = 0L;
+    private long offHeapMemoryLoad = 0L;
+    private long memoryGrowthRate = 0L;
+    private long allocationRate = 0L;
+    private long memoryBandwidth = 0L;
     private long diskInputLoad  = 0L;
     private long diskOutputLoad = 0L;
+    private long diskIops       = 0L;
+    private CpuKernel cpuKernel = CpuKernel.FIBONACCI;
+    private CpuDistribution cpuDistribution = CpuDistribution.SPREAD;
+    private CpuTargetMode cpuTargetMode = CpuTargetMode.TOTAL;
+    private HeadroomPolicy headroomPolicy = HeadroomPolicy.REJECT;
 
     // inner loads
     private List<FakeLoad> innerLoads = new ArrayList<>();
@@ -56,11 +66,39 @@ public final class FakeLoadBuilder {
         return this;
     }
 
+    public FakeLoadBuilder withCpuCores(double cpuCores) {
+        this.cpuCores = cpuCores;
+        return this;
+    }
+
     public FakeLoadBuilder withMemory(long memoryLoad, MemoryUnit unit) {
         this.memoryLoad = unit.toBytes(memoryLoad);
         return this;
     }
 
+    public FakeLoadBuilder withMemory(long memoryLoad, MemoryUnit unit, MemoryKind kind) {
+        if (kind == MemoryKind.HEAP) {
+            return withMemory(memoryLoad, unit);
+        }
+        this.offHeapMemoryLoad = unit.toBytes(memoryLoad);
+        return this;
+    }
+
+    public FakeLoadBuilder withMemoryGrowth(long memoryGrowth, MemoryUnit unit, TimeUnit per) {
+        this.memoryGrowthRate = new SimpleFakeLoad().withMemoryGrowth(memoryGrowth, unit, per).getMemoryGrowthRate();
+        return this;
+    }
+
+    public FakeLoadBuilder withAllocationRate(long allocationRate, MemoryUnit unit) {
+        this.allocationRate = unit.toBytes(allocationRate);
+        return this;
+    }
+
+    public FakeLoadBuilder withMemoryBandwidth(long memoryBandwidth, MemoryUnit unit) {
+        this.memoryBandwidth = unit.toBytes(memoryBandwidth);
+        return this;
+    }
+
     public FakeLoadBuilder withDiskInput(long diskInput, MemoryUnit unit) {
         this.diskInputLoad = unit.toBytes(diskInput);
         return this;
@@ -71,6 +109,31 @@ public final class FakeLoadBuilder {
         return this;
     }
 
+    public FakeLoadBuilder withDiskIops(long diskIops) {
+        this.diskIops = diskIops;
+        return this;
+    }
+
+    public FakeLoadBuilder withCpuKernel(CpuKernel cpuKernel) {
+        this.cpuKernel = cpuKernel;
+        return this;
+    }
+
+    public FakeLoadBuilder withCpuDistribution(CpuDistribution cpuDistribution) {
+        this.cpuDistribution = cpuDistribution;
+        return this;
+    }
+
+    public FakeLoadBuilder withCpuTargetMode(CpuTargetMode cpuTargetMode) {
+        this.cpuTargetMode = cpuTargetMode;
+        return this;
+    }
+
+    public FakeLoadBuilder withHeadroomPolicy(HeadroomPolicy headroomPolicy) {
+        this.headroomPolicy = headroomPolicy;
+        return this;
+    }
+
 
     public FakeLoadBuilder addLoad(FakeLoad load) {
         innerLoads.add(load);
@@ -85,12 +148,29 @@ public final class FakeLoadBuilder {
 
     public FakeLoad build() {
         if (innerLoads.isEmpty()) {
-            return new SimpleFakeLoad(duration, unit, repetitions, cpuLoad, memoryLoad, diskInputLoad, diskOutputLoad);
+            return simpleLoad().repeat(repetitions);
         } else {
-            return new CompositeFakeLoad(
-                    new SimpleFakeLoad(duration, unit, 1, cpuLoad, memoryLoad, diskInputLoad, diskOutputLoad),
-                    innerLoads, repetitions);
+            return new CompositeFakeLoad(simpleLoad(), innerLoads, repetitions);
         }
     }
 
+    private SimpleFakeLoad simpleLoad() {
+        // the setters of a SimpleFakeLoad always return a SimpleFakeLoad
+        return (SimpleFakeLoad) new SimpleFakeLoad(duration, unit)
+                .withCpu(cpuLoad)
+                .withCpuCores(cpuCores)
+                .withCpuKernel(cpuKernel)
+                .withCpuDistribution(cpuDistribution)
+                .withCpuTargetMode(cpuTargetMode)
+                .withHeadroomPolicy(headroomPolicy)
+                .withMemory(memoryLoad, MemoryUnit.BYTES)
+                .withMemory(offHeapMemoryLoad, MemoryUnit.BYTES, MemoryKind.OFF_HEAP)
+                .withMemoryGrowth(memoryGrowthRate, MemoryUnit.BYTES, TimeUnit.SECONDS)
+                .withAllocationRate(allocationRate, MemoryUnit.BYTES)
+                .withMemoryBandwidth(memoryBandwidth, MemoryUnit.BYTES)
+                .withDiskInput(diskInputLoad, MemoryUnit.BYTES)
+                .withDiskOutput(diskOutputLoad, MemoryUnit.BYTES)
+                .withDiskIops(diskIops);
+    }
+
 }
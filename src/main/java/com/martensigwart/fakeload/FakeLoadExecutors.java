@@ -1,14 +1,5 @@
 package com.martensigwart.fakeload;
 
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
-
-import java.io.IOException;
-import java.util.ArrayList;
-import java.util.List;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
-
 /**
  * Factory methods that create {@link FakeLoadExecutor} instances.
  *
@@ -17,11 +8,6 @@ import java.util.concurrent.Executors;
  */
 public final class FakeLoadExecutors {
 
-    private static final Logger log = LoggerFactory.getLogger(FakeLoadExecutors.class);
-    private static final String DISK_INPUT_FILE = "input.tmp";
-    private static final String DISK_OUTPUT_FILE = "output.tmp";
-    private static final String DEFAULT_DISK_INPUT_PATH = System.getProperty("java.io.tmpdir") + "/" + DISK_INPUT_FILE;
-    private static final String DEFAULT_DISK_OUTPUT_PATH = System.getProperty("java.io.tmpdir") + "/" + DISK_OUTPUT_FILE;
     private static SimulationInfrastructure defaultInfrastructure;
 
     /**
@@ -44,56 +30,23 @@ public final class FakeLoadExecutors {
      * This directory is typically "/tmp", or "/var/tmp" on Unix-like platforms.
      * On Microsoft Windows systems the java.io.tmpdir property is typically "C:\WINNT\TEMP".
      * You can set the property with <i>-Djava.io.tmpdir=/your-tmpdirectory</i>.
-     * The file needs to be created prior to disk input simulation.
+     * If the file does not exist or is smaller than 1 GB, it is created and filled with random data
+     * on first use (see {@link SimulationInfrastructureBuilder#withDiskInputFileSize(long, MemoryUnit)}).
      * To prevent caching of the file system, the file should be at least twice as big as the
-     * available RAM.
+     * available RAM, unless direct I/O is used (see {@link SimulationInfrastructureBuilder#withDirectDiskIo(boolean)}).
+     * The same file is used for simulating disk IOPS, i.e. reads or writes of blocks at random offsets
+     * (see {@link SimulationInfrastructureBuilder#withDiskIops(long, MemoryUnit, int, boolean)}).
+     *
+     * <p>
+     * Use {@link SimulationInfrastructureBuilder} to create executors with a differently
+     * configured infrastructure.
      *
      * @return a {@code DefaultFakeLoadExecutor} instance
      */
     public static synchronized FakeLoadExecutor newDefaultExecutor() {
         // create infrastructure if it hasn't been created yet
         if (defaultInfrastructure == null) {
-
-            try {
-                int noOfCores = Runtime.getRuntime().availableProcessors();
-
-                // Create DiskInput Simulator
-                DiskInputSimulator diskInputSimulator;
-                diskInputSimulator = new RandomAccessDiskInputSimulator(DEFAULT_DISK_INPUT_PATH);
-
-                // Create DiskOutput Simulator
-                DiskOutputSimulator diskOutputSimulator;
-                diskOutputSimulator = new RandomAccessDiskOutputSimulator(DEFAULT_DISK_OUTPUT_PATH);
-
-                // Create Memory Simulator
-                MemorySimulator memorySimulator = new MemorySimulator();
-
-                // Create CPU Simulators
-                List<CpuSimulator> cpuSimulators = new ArrayList<>();
-                for (int i = 0; i < noOfCores; i++) {
-                    cpuSimulators.add(new FibonacciCpuSimulator());
-                }
-
-                // Inject dependencies for LoadController
-                LoadController controller;
-                controller = new LoadController(new SystemLoad(),
-                        cpuSimulators, memorySimulator, diskInputSimulator, diskOutputSimulator);
-
-                // Create thread pool
-                ExecutorService executorService = Executors.newFixedThreadPool(
-                        noOfCores + 4,
-                        new ThreadFactoryBuilder().setDaemon(true).build());
-
-                defaultInfrastructure = new DefaultSimulationInfrastructure(executorService, controller);
-
-
-            /*
-             * Catch blocks in case paths can be passed as parameters.
-             */
-            } catch (IOException e) {
-                log.error("File {} used for simulating disk output could not be created.", DEFAULT_DISK_OUTPUT_PATH);
-                throw new IllegalArgumentException(e);
-            }
+            defaultInfrastructure = new SimulationInfrastructureBuilder().build();
         }
 
         return new DefaultFakeLoadExecutor(defaultInfrastructure);
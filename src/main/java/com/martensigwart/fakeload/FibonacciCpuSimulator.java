@@ -1,5 +1,7 @@
 package com.martensigwart.fakeload;
 
+import java.util.concurrent.TimeUnit;
+
 /**
  * A {@link CpuSimulator} that simulates CPU by calculating Fibonacci sequences.
  *
@@ -11,11 +13,24 @@ public final class FibonacciCpuSimulator extends CpuSimulator {
     private long fib0 = 0;
     private long fib1 = 1;
 
+    public FibonacciCpuSimulator() {
+        super();
+    }
+
+    /**
+     * @param period the length of one duty cycle
+     * @param unit the time unit of the period
+     */
+    public FibonacciCpuSimulator(long period, TimeUnit unit) {
+        super(period, unit);
+    }
+
     @Override
-    public void simulateCpu() {
+    public long simulateCpu() {
         long fib2 = fib0 + fib1;
         fib0 = fib1;
         fib1 = fib2;
+        return fib2;
     }
 
 }
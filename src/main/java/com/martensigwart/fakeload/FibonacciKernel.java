@@ -0,0 +1,18 @@
+package com.martensigwart.fakeload;
+
+/**
+ * Kernel calculating Fibonacci numbers, see {@link CpuKernel#FIBONACCI}.
+ */
+final class FibonacciKernel implements Kernel {
+
+    private long fib0 = 0;
+    private long fib1 = 1;
+
+    @Override
+    public long execute() {
+        long fib2 = fib0 + fib1;
+        fib0 = fib1;
+        fib1 = fib2;
+        return fib2;
+    }
+}
@@ -0,0 +1,241 @@
+package com.martensigwart.fakeload;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.annotation.Nullable;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+import static com.martensigwart.fakeload.Preconditions.checkArgument;
+import static com.martensigwart.fakeload.Preconditions.checkNotNull;
+
+/**
+ * A {@code DiskInputSimulator} that simulates disk input using an underlying {@link FileChannel}.
+ *
+ * <p>
+ * The file is read sequentially using positional reads into a direct {@link ByteBuffer} aligned to
+ * {@value #BUFFER_ALIGNMENT} bytes, starting over at the beginning when the end of the file is reached.
+ * As the operating system copies the data directly into the direct buffer, no copy into a heap array
+ * is needed, and the buffer is reused for every read, so reading at high rates neither costs much CPU
+ * time nor memory on the heap.
+ *
+ * <p>
+ * A single buffer is used rather than a pool of buffers: reads are issued one after the other by the
+ * simulator thread, so there are never two reads in flight that could use a second buffer. The throughput
+ * of a single outstanding read is controlled by the buffer size, e.g. larger buffers for direct I/O.
+ *
+ * <p>
+ * With direct I/O enabled, the file is opened with {@code O_DIRECT} (see {@link DirectIo}), so every read
+ * is served by the device rather than the page cache, and the file does not need to be bigger than the
+ * available RAM. Reads are then aligned to the block size of the file system, i.e. the number of bytes read
+ * per chunk is rounded up to a multiple of the block size. If the file system does not support direct I/O,
+ * a warning is logged and the file is read through the page cache.
+ *
+ * <p>
+ * If created for a {@link DiskInputFile}, the file is provisioned on first use.
+ *
+ * @since 1.8
+ * @see RandomAccessDiskInputSimulator
+ * @author Marten Sigwart
+ */
+public final class FileChannelDiskInputSimulator extends DiskInputSimulator {
+
+    private static final Logger log = LoggerFactory.getLogger(FileChannelDiskInputSimulator.class);
+
+    /**
+     * The default size of the buffer read into, 1 MB
+     */
+    public static final int DEFAULT_BUFFER_SIZE = 1024 * 1024;
+
+    /**
+     * The alignment of the buffer read into, which is the page size of most systems
+     */
+    public static final int BUFFER_ALIGNMENT = 4096;
+
+    private final String filePath;
+    @Nullable private final DiskInputFile inputFile;
+    private final int bufferSize;
+    private final boolean directIo;
+
+    // only accessed by the simulator thread
+    private FileChannel channel;
+    private ByteBuffer allocatedBuffer;
+    private ByteBuffer buffer;
+    private int alignment = 1;
+    private long position;
+
+    /**
+     * @param filePath path to the file for simulating disk input (should be bigger than amount of available RAM)
+     */
+    public FileChannelDiskInputSimulator(String filePath) {
+        this(filePath, DEFAULT_BUFFER_SIZE);
+    }
+
+    /**
+     * @param filePath path to the file for simulating disk input (should be bigger than amount of available RAM)
+     * @param bufferSize the size of the buffer read into, a multiple of {@value #BUFFER_ALIGNMENT} bytes
+     */
+    public FileChannelDiskInputSimulator(String filePath, int bufferSize) {
+        this(filePath, bufferSize, false);
+    }
+
+    /**
+     * @param filePath path to the file for simulating disk input
+     * @param bufferSize the size of the buffer read into, a multiple of {@value #BUFFER_ALIGNMENT} bytes
+     * @param directIo whether the file is read with direct I/O, bypassing the page cache
+     */
+    public FileChannelDiskInputSimulator(String filePath, int bufferSize, boolean directIo) {
+        this(checkNotNull(filePath), null, bufferSize, directIo);
+    }
+
+    /**
+     * @param inputFile the file for simulating disk input, provisioned on first use
+     * @param bufferSize the size of the buffer read into, a multiple of {@value #BUFFER_ALIGNMENT} bytes
+     * @param directIo whether the file is read with direct I/O, bypassing the page cache
+     */
+    public FileChannelDiskInputSimulator(DiskInputFile inputFile, int bufferSize, boolean directIo) {
+        this(inputFile.getPath(), inputFile, bufferSize, directIo);
+    }
+
+    private FileChannelDiskInputSimulator(String filePath, @Nullable DiskInputFile inputFile, int bufferSize,
+                                          boolean directIo) {
+        super();
+        checkArgument(bufferSize > 0 && bufferSize % BUFFER_ALIGNMENT == 0,
+                "Buffer size must be a positive multiple of %s but was %s", BUFFER_ALIGNMENT, bufferSize);
+        this.filePath = filePath;
+        this.inputFile = inputFile;
+        this.bufferSize = bufferSize;
+        this.directIo = directIo;
+    }
+
+    @Override
+    protected long read(long bytes) throws IOException {
+        open();
+        long bytesRead = 0L;
+        while (bytesRead < bytes) {
+            long length = Math.min(bufferSize, bytes - bytesRead);
+            bytesRead += readBlock((int) ((length + alignment - 1) / alignment * alignment));
+        }
+        return bytesRead;
+    }
+
+    @Override
+    protected int read(byte[] bytes) throws IOException {
+        open();
+        int bytesRead = 0;
+        while (bytesRead < bytes.length) {
+            int length = Math.min(bufferSize, bytes.length - bytesRead);
+            int n = Math.min(readBlock((length + alignment - 1) / alignment * alignment), length);
+            buffer.flip();
+            buffer.get(bytes, bytesRead, n);
+            bytesRead += n;
+        }
+        return bytesRead;
+    }
+
+    /**
+     * Fills the buffer with the specified number of bytes, starting over at the beginning of the file
+     * when its end is reached. A short read before the end of the file is continued where it stopped.
+     * With direct I/O, data read after the last full block at the end of the file is overwritten,
+     * so that the buffer is only filled at aligned offsets.
+     */
+    private int readBlock(int length) throws IOException {
+        buffer.clear();
+        buffer.limit(length);
+        while (buffer.hasRemaining()) {
+            long start = position;
+            int offset = buffer.position();
+            int n = channel.read(buffer, position);
+            if (n > 0) {
+                position += n;
+            }
+            if (n < 0 || (buffer.hasRemaining() && position >= channel.size())) {
+                log.debug("End of file reached: Resetting position");
+                position = 0;
+                buffer.position(buffer.position() / alignment * alignment);
+                if (start == 0 && buffer.position() == offset) {
+                    throw new IOException(String.format(
+                            "File %s used for simulating disk input is empty or smaller than %s bytes",
+                            filePath, alignment));
+                }
+            }
+        }
+        return length;
+    }
+
+    private void open() throws IOException {
+        if (channel != null) {
+            return;
+        }
+        if (inputFile != null) {
+            inputFile.provision();
+        }
+        Path path = Paths.get(filePath);
+        try {
+            channel = directIo ? DirectIo.open(path, StandardOpenOption.READ) : null;
+            if (channel != null) {
+                alignment = Math.max(BUFFER_ALIGNMENT, DirectIo.blockSize(path));
+            } else {
+                channel = FileChannel.open(path, StandardOpenOption.READ);
+                alignment = 1;
+            }
+        } catch (NoSuchFileException e) {
+            throw new FileNotFoundException(String.format("File %s used for simulating disk input does not " +
+                    "exist. (The file should be at least twice as big as available RAM to prevent caching)",
+                    filePath));
+        }
+        ByteBuffer[] buffers = DirectMemory.allocateAligned(
+                (bufferSize + alignment - 1) / alignment * alignment, Math.max(BUFFER_ALIGNMENT, alignment));
+        allocatedBuffer = buffers[0];
+        buffer = buffers[1];
+        position = 0;
+        log.trace("Opened file {}", filePath);
+    }
+
+    /**
+     * @return true if direct I/O is requested, it is only used if supported by the file system
+     */
+    public boolean isDirectIo() {
+        return directIo;
+    }
+
+    /**
+     * @return the size of the buffer read into in bytes
+     */
+    public int getBufferSize() {
+        return bufferSize;
+    }
+
+    /**
+     * @return the buffer read into, null if not allocated
+     */
+    ByteBuffer getBuffer() {
+        return buffer;
+    }
+
+    @Override
+    protected void cleanUp() {
+        releaseBuffer();
+        if (allocatedBuffer != null) {
+            DirectMemory.free(allocatedBuffer);
+            allocatedBuffer = null;
+            buffer = null;
+        }
+        try {
+            if (channel != null) {
+                channel.close();
+                channel = null;
+            }
+        } catch (IOException e) {
+            log.error("Failed to close file: {}", e.getMessage());
+            e.printStackTrace();
+        }
+    }
+}
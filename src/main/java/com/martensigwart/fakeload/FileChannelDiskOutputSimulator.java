@@ -0,0 +1,176 @@
+package com.martensigwart.fakeload;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+import static com.martensigwart.fakeload.Preconditions.checkArgument;
+import static com.martensigwart.fakeload.Preconditions.checkNotNull;
+
+/**
+ * A {@code DiskOutputSimulator} that simulates disk output using an underlying {@link FileChannel}.
+ *
+ * <p>
+ * Like the {@link RandomAccessDiskOutputSimulator}, the simulator writes every chunk of bytes
+ * synchronously to the beginning of the file, so the file does not grow beyond the chunk size. The bytes are
+ * written using positional writes from a reused direct {@link ByteBuffer}, so writing at high rates neither
+ * costs much CPU time nor memory on the heap.
+ *
+ * <p>
+ * With direct I/O enabled, the file is opened with {@code O_DIRECT} (see {@link DirectIo}), so every write
+ * goes to the device rather than the page cache. Writes are then aligned to the block size of the file system,
+ * i.e. the number of bytes written per chunk is rounded up to a multiple of the block size. If the file
+ * system does not support direct I/O, a warning is logged and the file is written through the page cache.
+ *
+ * @since 1.8
+ * @see FileChannelDiskInputSimulator
+ * @author Marten Sigwart
+ */
+public final class FileChannelDiskOutputSimulator extends DiskOutputSimulator {
+
+    private static final Logger log = LoggerFactory.getLogger(FileChannelDiskOutputSimulator.class);
+
+    /**
+     * The default size of the buffer written, 1 MB
+     */
+    public static final int DEFAULT_BUFFER_SIZE = 1024 * 1024;
+
+    /**
+     * The alignment of the buffer written, which is the page size of most systems
+     */
+    public static final int BUFFER_ALIGNMENT = 4096;
+
+    private final String filePath;
+    private final int bufferSize;
+    private final boolean directIo;
+
+    // only accessed by the simulator thread
+    private FileChannel channel;
+    private ByteBuffer allocatedBuffer;
+    private ByteBuffer buffer;
+    private int alignment = 1;
+
+    /**
+     * @param filePath path to the file for simulating disk output, created if it does not exist
+     */
+    public FileChannelDiskOutputSimulator(String filePath) {
+        this(filePath, DEFAULT_BUFFER_SIZE, false);
+    }
+
+    /**
+     * @param filePath path to the file for simulating disk output, created if it does not exist
+     * @param bufferSize the size of the buffer written, a multiple of
+     * {@value #BUFFER_ALIGNMENT} bytes
+     * @param directIo whether the file is written with direct I/O, bypassing the page cache
+     */
+    public FileChannelDiskOutputSimulator(String filePath, int bufferSize, boolean directIo) {
+        super();
+        checkArgument(bufferSize > 0 && bufferSize % BUFFER_ALIGNMENT == 0,
+                "Buffer size must be a positive multiple of %s but was %s",
+                BUFFER_ALIGNMENT, bufferSize);
+        this.filePath = checkNotNull(filePath);
+        this.bufferSize = bufferSize;
+        this.directIo = directIo;
+    }
+
+    @Override
+    protected long write(long bytes) throws IOException {
+        open();
+        long position = 0L;
+        while (position < bytes) {
+            long length = Math.min(buffer.capacity(), bytes - position);
+            buffer.clear();
+            buffer.limit((int) ((length + alignment - 1) / alignment * alignment));
+            while (buffer.hasRemaining()) {
+                position += channel.write(buffer, position);
+            }
+        }
+        return position;
+    }
+
+    @Override
+    protected void write(byte[] bytes) throws IOException {
+        open();
+        ByteBuffer src = ByteBuffer.wrap(bytes);
+        long position = 0L;
+        while (src.hasRemaining()) {
+            int length = Math.min(buffer.capacity(), src.remaining());
+            buffer.clear();
+            src.limit(src.position() + length);
+            buffer.put(src);
+            buffer.limit((length + alignment - 1) / alignment * alignment);
+            buffer.position(0);
+            while (buffer.hasRemaining()) {
+                position += channel.write(buffer, position);
+            }
+            src.limit(bytes.length);
+        }
+    }
+
+    private void open() throws IOException {
+        if (channel != null) {
+            return;
+        }
+        Path path = Paths.get(filePath);
+        if (path.getParent() != null) {
+            Files.createDirectories(path.getParent());
+        }
+        channel = directIo ? DirectIo.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.DSYNC) : null;
+        if (channel != null) {
+            alignment = Math.max(BUFFER_ALIGNMENT, DirectIo.blockSize(path));
+        } else {
+            channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                    StandardOpenOption.SYNC);
+            alignment = 1;
+        }
+        ByteBuffer[] buffers = DirectMemory.allocateAligned((bufferSize + alignment - 1) / alignment * alignment,
+                Math.max(BUFFER_ALIGNMENT, alignment));
+        allocatedBuffer = buffers[0];
+        buffer = buffers[1];
+        log.trace("Opened file {}", filePath);
+    }
+
+    /**
+     * @return true if direct I/O is requested, it is only used if supported by the file system
+     */
+    public boolean isDirectIo() {
+        return directIo;
+    }
+
+    /**
+     * @return the size of the buffer written in bytes
+     */
+    public int getBufferSize() {
+        return bufferSize;
+    }
+
+    @Override
+    protected void cleanUp() {
+        releaseBuffer();
+        if (allocatedBuffer != null) {
+            DirectMemory.free(allocatedBuffer);
+            allocatedBuffer = null;
+            buffer = null;
+        }
+        if (channel != null) {
+            try {
+                channel.close();
+                channel = null;
+                if (Files.deleteIfExists(Paths.get(filePath))) {
+                    log.trace("File {} successfully deleted", filePath);
+                }
+            } catch (IOException e) {
+                log.error("Failed to close file: {}", e.getMessage());
+                e.printStackTrace();
+            }
+        }
+    }
+}
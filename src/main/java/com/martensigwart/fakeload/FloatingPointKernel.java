@@ -0,0 +1,37 @@
+package com.martensigwart.fakeload;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Kernel performing floating point multiply-add operations on small arrays,
+ * see {@link CpuKernel#FLOATING_POINT}.
+ *
+ * <p>
+ * The loop has no dependencies between iterations, so it can be vectorized by the JIT compiler.
+ * The accumulator decays on every call, so values stay bounded.
+ */
+final class FloatingPointKernel implements Kernel {
+
+    private static final int LENGTH = 256;
+    private static final double DECAY = 0.999;
+
+    private final double[] a = new double[LENGTH];
+    private final double[] b = new double[LENGTH];
+    private final double[] c = new double[LENGTH];
+
+    FloatingPointKernel() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        for (int i = 0; i < LENGTH; i++) {
+            a[i] = random.nextDouble();
+            b[i] = random.nextDouble();
+        }
+    }
+
+    @Override
+    public long execute() {
+        for (int i = 0; i < LENGTH; i++) {
+            c[i] = a[i] * b[i] + c[i] * DECAY;
+        }
+        return Double.doubleToRawLongBits(c[LENGTH - 1]);
+    }
+}
@@ -0,0 +1,34 @@
+package com.martensigwart.fakeload;
+
+/**
+ * Determines what happens when the memory load of a {@link FakeLoad} does not fit into the
+ * memory headroom left by the application, i.e. when simulating it would likely cause an
+ * {@link OutOfMemoryError}.
+ *
+ * @since 1.8
+ * @see FakeLoad#withHeadroomPolicy(HeadroomPolicy)
+ * @see MemoryHeadroom
+ * @author Marten Sigwart
+ */
+public enum HeadroomPolicy {
+
+    /**
+     * The {@code FakeLoad} is rejected with a {@link MaximumLoadExceededException}, which fails its
+     * execution. This is the default.
+     */
+    REJECT,
+
+    /**
+     * The memory load of the {@code FakeLoad} is reduced to the available headroom. Its memory bandwidth
+     * is dropped if the working set accessed does not fit, all other loads are simulated as specified. Once simulated, the execution of the
+     * {@code FakeLoad} fails with a {@link MemoryLoadClampedException}.
+     */
+    CLAMP,
+
+    /**
+     * The execution of the {@code FakeLoad} is delayed until enough headroom is available,
+     * e.g. because other {@code FakeLoad}s have finished. A load which would not fit even
+     * without other loads is rejected like with {@link #REJECT}.
+     */
+    WAIT
+}
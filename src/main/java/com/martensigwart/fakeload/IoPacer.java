@@ -0,0 +1,160 @@
+package com.martensigwart.fakeload;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.annotation.concurrent.NotThreadSafe;
+import java.util.concurrent.TimeUnit;
+
+import static com.martensigwart.fakeload.Preconditions.checkArgument;
+
+/**
+ * Paces disk I/O using a token bucket, so that a rate of bytes per second is spread evenly over time
+ * in chunks of a configurable size, instead of transferring a whole second's worth of bytes at once.
+ *
+ * <p>
+ * Tokens, i.e. bytes, accrue at the desired rate. Before every chunk, the pacer waits until there are
+ * enough tokens for the chunk (see {@link #acquire(long)}), the bytes actually transferred are then
+ * taken from the bucket (see {@link #complete(long)}). The bucket holds at most one chunk, so a
+ * transfer taking longer than its share of time is not followed by a burst of chunks.
+ * At rates below the chunk size, one chunk of the size of the rate is transferred per second. The pacer
+ * never waits longer than a second for a chunk, so that changes of the rate take effect within a second.
+ *
+ * <p>
+ * The pacing accuracy is measured in slots of {@value #SLOT} ms: the pacing error is the mean deviation
+ * of the bytes transferred per slot from the desired amount, relative to the desired amount, over the
+ * last second (see {@link #getPacingError()}).
+ *
+ * <p>
+ * A pacer is used by the simulator thread only, except for the getters and the chunk size setter.
+ *
+ * @since 1.8
+ * @see DiskInputSimulator
+ * @see DiskOutputSimulator
+ * @author Marten Sigwart
+ */
+@NotThreadSafe
+final class IoPacer {
+
+    private static final Logger log = LoggerFactory.getLogger(IoPacer.class);
+
+    /**
+     * The default chunk size of 1 MB
+     */
+    static final int DEFAULT_CHUNK_SIZE = 1024 * 1024;
+
+    static final long SLOT = 100L;
+    private static final int SLOTS_PER_MEASUREMENT = 10;
+    private static final long NANOS_PER_SECOND = TimeUnit.SECONDS.toNanos(1);
+
+    private volatile int chunkSize;
+
+    private double tokens;
+    private long lastRefill;
+    private long rate;
+
+    private long slotStart;
+    private long slotBytes;
+    private int slots;
+    private double deviations;
+    private volatile double pacingError;
+
+    IoPacer() {
+        this(DEFAULT_CHUNK_SIZE);
+    }
+
+    IoPacer(int chunkSize) {
+        setChunkSize(chunkSize);
+    }
+
+    /**
+     * Waits until the next chunk is due at the specified rate.
+     * @param rate the rate in bytes per second
+     * @return the number of bytes to be transferred now
+     * @throws InterruptedException if interrupted while waiting
+     */
+    long acquire(long rate) throws InterruptedException {
+        checkArgument(rate > 0, "Rate must be positive but was %s", rate);
+        long chunk = Math.min(chunkSize, rate);
+        long now = System.nanoTime();
+        if (now - lastRefill > NANOS_PER_SECOND || this.rate == 0) {
+            // first chunk or pacer was idle: start with a full bucket
+            tokens = chunk;
+            slotStart = now;
+            slotBytes = 0L;
+            slots = 0;
+            deviations = 0.0;
+        } else {
+            tokens = Math.min(chunk, tokens + rate * (double) (now - lastRefill) / NANOS_PER_SECOND);
+        }
+        lastRefill = now;
+        this.rate = rate;
+
+        if (tokens < chunk) {
+            // waits at most a second, so that chunks rounded up beyond a small rate are transferred once per second
+            long wait = (long) Math.min(NANOS_PER_SECOND, (chunk - tokens) * NANOS_PER_SECOND / rate);
+            TimeUnit.NANOSECONDS.sleep(wait);
+            now = System.nanoTime();
+            tokens = Math.min(chunk, tokens + rate * (double) (now - lastRefill) / NANOS_PER_SECOND);
+            lastRefill = now;
+        }
+        measure(now);
+        return chunk;
+    }
+
+    /**
+     * Takes the bytes transferred from the bucket.
+     * @param bytes the number of bytes actually transferred
+     */
+    void complete(long bytes) {
+        tokens -= bytes;
+        slotBytes += bytes;
+    }
+
+    /**
+     * Closes the measurement slots which have ended by now, and publishes the pacing error
+     * once a measurement is complete.
+     */
+    private void measure(long now) {
+        long slotNanos = TimeUnit.MILLISECONDS.toNanos(SLOT);
+        double expected = rate * (double) slotNanos / NANOS_PER_SECOND;
+        while (now - slotStart >= slotNanos) {
+            deviations += Math.abs(slotBytes - expected) / expected;
+            slotBytes = 0L;
+            slotStart += slotNanos;
+            if (++slots == SLOTS_PER_MEASUREMENT) {
+                pacingError = deviations / slots;
+                if (log.isTraceEnabled()) {
+                    log.trace("Pacing error at {}/s: {}%", MemoryUnit.mbString(rate), Math.round(pacingError * 100));
+                }
+                slots = 0;
+                deviations = 0.0;
+            }
+        }
+    }
+
+    /**
+     * Sets the size of the chunks in which I/O is performed.
+     * @param chunkSize the chunk size in bytes
+     */
+    void setChunkSize(int chunkSize) {
+        checkArgument(chunkSize > 0, "Chunk size must be positive but was %s", chunkSize);
+        this.chunkSize = chunkSize;
+    }
+
+    /**
+     * @return the size of the chunks in which I/O is performed in bytes
+     */
+    int getChunkSize() {
+        return chunkSize;
+    }
+
+    /**
+     * Returns the mean deviation of the bytes transferred per {@value #SLOT} ms slot from the desired amount,
+     * relative to the desired amount, measured over the last second of I/O.
+     * @return the pacing error, e.g. 0.1 for a deviation of 10%, zero if not measured yet
+     */
+    double getPacingError() {
+        return pacingError;
+    }
+}
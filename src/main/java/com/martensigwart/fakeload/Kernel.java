@@ -0,0 +1,29 @@
+package com.martensigwart.fakeload;
+
+/**
+ * A unit of work executed by a {@link KernelCpuSimulator} to keep the CPU busy.
+ *
+ * <p>
+ * Instances are created per simulator thread via {@link CpuKernel#newInstance()} and
+ * are not thread-safe. A single call to {@link #execute()} should only take a few
+ * microseconds, so that the simulator can keep track of its duty cycle.
+ *
+ * @since 1.8
+ * @see CpuKernel
+ * @author Marten Sigwart
+ */
+interface Kernel {
+
+    /**
+     * Executes one unit of work.
+     * @return the result of the work
+     */
+    long execute();
+
+    /**
+     * Releases any resources held by this kernel.
+     */
+    default void close() {
+        // nothing to release by default
+    }
+}
@@ -0,0 +1,123 @@
+package com.martensigwart.fakeload;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static com.martensigwart.fakeload.Preconditions.checkNotNull;
+
+/**
+ * A {@link CpuSimulator} that simulates CPU by executing a {@link CpuKernel}.
+ *
+ * <p>
+ * The kernel can be switched at any time via {@link #setKernel(CpuKernel)}. Kernel instances
+ * are created lazily by the simulator thread itself, so that thread-local state like
+ * working sets is allocated by the thread using it.
+ *
+ * <p>
+ * As kernels differ in the amount of work done per iteration, calibrations for open-loop mode
+ * are kept per kernel, see {@link #setCalibration(CpuKernel, double)}.
+ *
+ * @since 1.8
+ * @see CpuKernel
+ * @author Marten Sigwart
+ */
+public final class KernelCpuSimulator extends CpuSimulator {
+
+    private final Map<CpuKernel, Double> calibrations = new EnumMap<>(CpuKernel.class);
+    private volatile CpuKernel kernel;
+
+    // only accessed by the simulator thread
+    private CpuKernel instanceKernel;
+    private Kernel instance;
+
+    public KernelCpuSimulator() {
+        this(CpuKernel.FIBONACCI);
+    }
+
+    /**
+     * @param kernel the kernel to be executed initially
+     */
+    public KernelCpuSimulator(CpuKernel kernel) {
+        super();
+        this.kernel = checkNotNull(kernel);
+    }
+
+    /**
+     * @param kernel the kernel to be executed initially
+     * @param period the length of one duty cycle
+     * @param unit the time unit of the period
+     */
+    public KernelCpuSimulator(CpuKernel kernel, long period, TimeUnit unit) {
+        super(period, unit);
+        this.kernel = checkNotNull(kernel);
+    }
+
+    @Override
+    protected long simulateCpu() {
+        CpuKernel k = kernel;
+        if (k != instanceKernel) {
+            switchInstance(k);
+        }
+        return instance.execute();
+    }
+
+    private void switchInstance(CpuKernel k) {
+        if (instance != null) {
+            instance.close();
+        }
+        instance = k.newInstance();
+        instanceKernel = k;
+    }
+
+    /**
+     * Sets the kernel to be executed. Switches to the calibration of the kernel,
+     * or to closed-loop mode if the kernel has not been calibrated.
+     * @param kernel the kernel
+     */
+    public synchronized void setKernel(CpuKernel kernel) {
+        this.kernel = checkNotNull(kernel);
+        Double calibration = calibrations.get(kernel);
+        super.setIterationsPerMicrosecond((calibration != null) ? calibration : 0.0);
+    }
+
+    public CpuKernel getKernel() {
+        return kernel;
+    }
+
+    /**
+     * Sets the open-loop calibration of the specified kernel.
+     * @param kernel the kernel
+     * @param iterationsPerMicrosecond the number of kernel iterations fitting into one microsecond
+     * @see CpuCalibrator
+     */
+    public synchronized void setCalibration(CpuKernel kernel, double iterationsPerMicrosecond) {
+        calibrations.put(checkNotNull(kernel), iterationsPerMicrosecond);
+        if (kernel == this.kernel) {
+            super.setIterationsPerMicrosecond(iterationsPerMicrosecond);
+        }
+    }
+
+    /**
+     * Sets the open-loop calibration of the current kernel.
+     * @param iterationsPerMicrosecond the number of kernel iterations fitting into one microsecond
+     */
+    @Override
+    public synchronized void setIterationsPerMicrosecond(double iterationsPerMicrosecond) {
+        setCalibration(kernel, iterationsPerMicrosecond);
+    }
+
+    @Override
+    String getCalibrationKey() {
+        return super.getCalibrationKey() + "." + kernel;
+    }
+
+    @Override
+    protected void cleanUp() {
+        if (instance != null) {
+            instance.close();
+            instance = null;
+            instanceKernel = null;
+        }
+    }
+}
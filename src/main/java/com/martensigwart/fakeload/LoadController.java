@@ -1,13 +1,17 @@
 package com.martensigwart.fakeload;
 
-import com.sun.management.OperatingSystemMXBean;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import javax.annotation.concurrent.GuardedBy;
 import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 
+import static com.martensigwart.fakeload.Preconditions.checkArgument;
+import static com.martensigwart.fakeload.Preconditions.checkNotNull;
+
 /**
  * This class acts as the controlling entity of the {@link DefaultSimulationInfrastructure}.
  *
@@ -29,49 +33,108 @@ import java.util.List;
  *
  * <p>
  * The {@code LoadController} is also responsible for adjusting the actual system load produced by
- * the simulator threads. Whenever a significant deviation between desired target load and actual system load is
- * detected, the class adjusts the load slightly in the direction of target. This way the load generated by the
- * simulator threads actually reaches the desired level.
+ * the simulator threads. Once every sampling period the actual CPU load is measured and passed,
+ * together with the desired CPU load, to a {@link CpuController}. The load commanded by the
+ * {@code CpuController} is then propagated to the CPU simulator threads. This way the load generated by the
+ * simulator threads actually reaches the desired level. By default a {@link PidCpuController} is used.
+ * The actual CPU load is measured by a {@link CpuProbe}, by default the {@link OperatingSystemCpuProbe}.
+ * Using a {@link SimulatorCpuProbe}, only the CPU load produced by the simulator threads is controlled.
+ *
+ * <p>
+ * For CPU load in {@link CpuTargetMode#TOTAL} mode, the baseline load of everything but the simulator threads
+ * is estimated once every sampling period as the difference between the load measured by the {@code CpuProbe}
+ * and the load of the simulator threads. Only the gap between baseline and desired total load is then
+ * produced by the simulator threads.
+ *
+ * <p>
+ * Before the memory load of a {@code FakeLoad} is admitted, it is checked against the {@link MemoryHeadroom},
+ * together with the working set of the {@link MemoryAccessSimulator} if the {@code FakeLoad} is the first one
+ * with a memory bandwidth.
+ * Loads exceeding the headroom are rejected, clamped or delayed according to their {@link HeadroomPolicy}.
+ * If a memory simulator fails to allocate memory while a {@code FakeLoad} is being simulated nonetheless,
+ * the failure is reported when the system load is decreased by that {@code FakeLoad} again.
  *
  *
  * @author Marten Sigwart
  * @since 1.8
  * @see DefaultSimulationInfrastructure
  * @see SystemLoad
+ * @see CpuController
  */
 public final class LoadController implements Runnable {
 
     private static final Logger log = LoggerFactory.getLogger(LoadController.class);
-    private static final OperatingSystemMXBean operatingSystem = ManagementFactory.getPlatformMXBean(OperatingSystemMXBean.class);
-    private static final int SLEEP_PERIOD = 2000;
-    private static final int CPU_CONTROL_THRESHOLD = 1;
+    static final long DEFAULT_SAMPLING_PERIOD = 500;
+    static final long HEADROOM_POLL_INTERVAL = 100;
+    private static final boolean threadCpuTimeSupported =
+            ManagementFactory.getThreadMXBean().isCurrentThreadCpuTimeSupported();
 
 
     private final SystemLoad systemLoad;
     private final List<CpuSimulator> cpuSimulators;
     private final MemorySimulator memorySimulator;
+    private final MemorySimulator offHeapMemorySimulator;
+    private final AllocationSimulator allocationSimulator;
+    private final MemoryAccessSimulator memoryAccessSimulator;
     private final DiskInputSimulator diskInputSimulator;
     private final DiskOutputSimulator diskOutputSimulator;
-    private final double stepSize;
+    private final DiskIopsSimulator diskIopsSimulator;
+    private final CpuController cpuController;
+    private final CpuProbe cpuProbe;
+    private final SimulatorCpuProbe simulatorCpuProbe;
+    private final MemoryHeadroom memoryHeadroom;
+    @GuardedBy("admissions") private final List<Admission> admissions;
+    private final long samplingPeriod;
     private final Object lock;
 
-    // Set to lower then CPU_CONTROL_THRESHOLD
-    private double lastCpu = -CPU_CONTROL_THRESHOLD-1;
-    private long oldDesiredCpu = 0L;
-    private int increaseCpuIndex;
-    private int decreaseCpuIndex;
+    private double oldDesiredCpu = 0.0;
+
+    /**
+     * Creates a new {@code LoadController}, only to be called by {@link SimulationInfrastructureBuilder},
+     * which provides the defaults of all simulators and collaborators.
+     * @param systemLoad the instance used to aggregate the desired system load
+     * @param cpuSimulators the simulators producing CPU load
+     * @param memorySimulator the simulator producing memory load on the heap
+     * @param offHeapMemorySimulator the simulator producing memory load off the heap
+     * @param allocationSimulator the simulator producing allocation load
+     * @param memoryAccessSimulator the simulator producing memory bandwidth load
+     * @param diskInputSimulator the simulator producing disk input load
+     * @param diskOutputSimulator the simulator producing disk output load
+     * @param diskIopsSimulator the simulator producing disk load in I/O operations per second
+     * @param cpuController the controller used to steer the actual CPU load towards the desired CPU load
+     * @param samplingPeriod the period in milliseconds in which the actual CPU load is sampled
+     * @param cpuProbe the probe used to measure the actual CPU load
+     * @param memoryHeadroom the headroom memory load is admitted against
+     */
+    LoadController(SystemLoad systemLoad, List<CpuSimulator> cpuSimulators, MemorySimulator memorySimulator,
+                   MemorySimulator offHeapMemorySimulator, AllocationSimulator allocationSimulator,
+                   MemoryAccessSimulator memoryAccessSimulator,
+                   DiskInputSimulator diskInputSimulator, DiskOutputSimulator diskOutputSimulator,
+                   DiskIopsSimulator diskIopsSimulator,
+                   CpuController cpuController, long samplingPeriod, CpuProbe cpuProbe,
+                   MemoryHeadroom memoryHeadroom) {
+        checkArgument(samplingPeriod > 0, "Sampling period must be positive but was %s", samplingPeriod);
+        checkArgument(systemLoad.getNoOfThreads() == cpuSimulators.size(),
+                "Number of threads of system load (%s) must match number of CPU simulators", systemLoad.getNoOfThreads());
 
-    public LoadController(SystemLoad systemLoad, List<CpuSimulator> cpuSimulators, MemorySimulator memorySimulator, DiskInputSimulator diskInputSimulator, DiskOutputSimulator diskOutputSimulator) {
         this.systemLoad = systemLoad;
         this.cpuSimulators = Collections.unmodifiableList(cpuSimulators);
         this.memorySimulator = memorySimulator;
+        this.offHeapMemorySimulator = offHeapMemorySimulator;
+        this.allocationSimulator = allocationSimulator;
+        this.memoryAccessSimulator = memoryAccessSimulator;
         this.diskInputSimulator = diskInputSimulator;
         this.diskOutputSimulator = diskOutputSimulator;
-
-        int noOfCores = Runtime.getRuntime().availableProcessors();
-        this.stepSize = 1.0 / noOfCores;
-        this.increaseCpuIndex = 0;
-        this.decreaseCpuIndex = noOfCores-1;
+        this.diskIopsSimulator = diskIopsSimulator;
+        this.cpuController = checkNotNull(cpuController);
+        this.samplingPeriod = samplingPeriod;
+        this.cpuProbe = checkNotNull(cpuProbe);
+        this.memoryHeadroom = checkNotNull(memoryHeadroom);
+        this.admissions = new ArrayList<>();
+        systemLoad.setWorkingSet(memoryAccessSimulator.getWorkingSetSize(), memoryAccessSimulator.getKind());
+        this.simulatorCpuProbe = (cpuProbe instanceof SimulatorCpuProbe)
+                ? (SimulatorCpuProbe) cpuProbe
+                : new SimulatorCpuProbe(cpuSimulators, cpuProbe);
         this.lock = new Object();
     }
 
@@ -81,20 +144,19 @@ public final class LoadController implements Runnable {
         log.debug("LoadController - Started");
 
         boolean running = true;
-        // Note: we use getSystemCpuLoad instead of getCpuLoad to allow
-        // backwards compatibility with LTS Java version 8/11.
         // The first value reported is always zero
-        operatingSystem.getSystemCpuLoad();
+        measureCpuLoad();
         while(running) {
             try {
                 synchronized (lock) {
-                    while (systemLoad.getCpu() == 0) {
+                    while (systemLoad.getTotalCpu() == 0) {
                         log.debug("LoadController - Nothing to control, waiting...");
+                        cpuController.reset();
                         lock.wait();
                         log.debug("LoadController - Woke Up");
                     }
                 }
-                Thread.sleep(SLEEP_PERIOD);
+                Thread.sleep(samplingPeriod);
                 controlCpuLoad();
 
 
@@ -108,30 +170,163 @@ public final class LoadController implements Runnable {
 
 
     public void increaseSystemLoadBy(FakeLoad load) throws MaximumLoadExceededException {
-        systemLoad.increaseBy(load);
-
-        for (CpuSimulator cpuSim: cpuSimulators) {
-            cpuSim.setLoad(systemLoad.getCpu());
+        synchronized (admissions) {
+            FakeLoad admitted = admit(load);
+            systemLoad.increaseBy(admitted);
+            Admission admission = new Admission(load, admitted,
+                    memorySimulator.getFailureCount(), offHeapMemorySimulator.getFailureCount());
+            admission.addRamps(memorySimulator, offHeapMemorySimulator);
+            admissions.add(admission);
         }
 
+        setCpuSimulatorKernels(systemLoad.getCpuThreadKernels());
+        setCpuSimulatorLoads(1.0);
+
         synchronized (lock) {
             lock.notify();      // notify thread executing the run method
         }
 
         memorySimulator.setLoad(systemLoad.getMemory());
+        offHeapMemorySimulator.setLoad(systemLoad.getOffHeapMemory());
+        allocationSimulator.setLoad(systemLoad.getAllocationRate());
+        memoryAccessSimulator.setLoad(systemLoad.getMemoryBandwidth());
         diskInputSimulator.setLoad(systemLoad.getDiskInput());
         diskOutputSimulator.setLoad(systemLoad.getDiskOutput());
+        diskIopsSimulator.setLoad(systemLoad.getDiskIops());
     }
 
     public void decreaseSystemLoadBy(FakeLoad load) {
-        systemLoad.decreaseBy(load);
-
-        for (CpuSimulator cpuSim: cpuSimulators) {
-            cpuSim.setLoad(systemLoad.getCpu());
+        Admission admission;
+        synchronized (admissions) {
+            admission = removeAdmission(load);
+            systemLoad.decreaseBy(admission.admitted);
+            admission.removeRamps(memorySimulator, offHeapMemorySimulator);
+            admissions.notifyAll();     // notify threads waiting for memory headroom
         }
+
+        setCpuSimulatorKernels(systemLoad.getCpuThreadKernels());
+        setCpuSimulatorLoads(1.0);
         memorySimulator.setLoad(systemLoad.getMemory());
+        offHeapMemorySimulator.setLoad(systemLoad.getOffHeapMemory());
+        allocationSimulator.setLoad(systemLoad.getAllocationRate());
+        memoryAccessSimulator.setLoad(systemLoad.getMemoryBandwidth());
         diskInputSimulator.setLoad(systemLoad.getDiskInput());
         diskOutputSimulator.setLoad(systemLoad.getDiskOutput());
+        diskIopsSimulator.setLoad(systemLoad.getDiskIops());
+
+        if (admission.failedOnHeap(memorySimulator) || admission.failedOffHeap(offHeapMemorySimulator)) {
+            throw new RuntimeException(String.format(
+                    "Memory load of %s and off-heap memory load of %s could not be simulated, out of memory",
+                    MemoryUnit.mbString(admission.admitted.getMemory()),
+                    MemoryUnit.mbString(admission.admitted.getOffHeapMemory())));
+        }
+        if (admission.isClamped()) {
+            throw new MemoryLoadClampedException(String.format(
+                    "Memory load of %s, off-heap memory load of %s and memory bandwidth of %s/s "
+                            + "were clamped to %s, %s and %s/s",
+                    MemoryUnit.mbString(admission.requested.getMemory()),
+                    MemoryUnit.mbString(admission.requested.getOffHeapMemory()),
+                    MemoryUnit.mbString(admission.requested.getMemoryBandwidth()),
+                    MemoryUnit.mbString(admission.admitted.getMemory()),
+                    MemoryUnit.mbString(admission.admitted.getOffHeapMemory()),
+                    MemoryUnit.mbString(admission.admitted.getMemoryBandwidth())));
+        }
+    }
+
+    /**
+     * Checks the memory load of the specified {@code FakeLoad} against the memory headroom
+     * and applies the headroom policy of the load, if it does not fit.
+     * @return the load to be admitted, which has a reduced memory load if clamped
+     * @throws MaximumLoadExceededException if the load is rejected, does not fit even without other loads
+     * while waiting, or interrupted while waiting
+     */
+    @GuardedBy("admissions")
+    private FakeLoad admit(FakeLoad load) throws MaximumLoadExceededException {
+        if (load.getMemory() == 0 && load.getOffHeapMemory() == 0 && load.getMemoryBandwidth() == 0) {
+            return load;
+        }
+        boolean workingSetOnHeap = memoryAccessSimulator.getKind() == MemoryKind.HEAP;
+        boolean waiting = false;
+        while (true) {
+            // the working set is only allocated for the first memory bandwidth load
+            long workingSet = (load.getMemoryBandwidth() > 0 && systemLoad.getMemoryBandwidth() == 0)
+                    ? memoryAccessSimulator.getWorkingSetSize() : 0L;
+            long heapWorkingSet = workingSetOnHeap ? workingSet : 0L;
+            long directWorkingSet = workingSetOnHeap ? 0L : workingSet;
+            long allocatedWorkingSet = memoryAccessSimulator.getAllocatedBytes();
+            long heap = memoryHeadroom.getHeapHeadroom(memorySimulator.getActualLoad()
+                    + (workingSetOnHeap ? allocatedWorkingSet : 0L))
+                    - systemLoad.getMemory() - systemLoad.getWorkingSetMemory();
+            long direct = memoryHeadroom.getDirectHeadroom(offHeapMemorySimulator.getActualLoad()
+                    + (workingSetOnHeap ? 0L : allocatedWorkingSet))
+                    - systemLoad.getOffHeapMemory() - systemLoad.getWorkingSetOffHeapMemory();
+            long requiredHeap = load.getMemory() + heapWorkingSet;
+            long requiredDirect = load.getOffHeapMemory() + directWorkingSet;
+            if (requiredHeap <= heap && requiredDirect <= direct) {
+                return load;
+            }
+
+            switch (load.getHeadroomPolicy()) {
+                case CLAMP:
+                    // the working set cannot be reduced, the memory bandwidth is dropped if it does not fit
+                    boolean workingSetFits = workingSet == 0 || (heapWorkingSet <= heap && directWorkingSet <= direct);
+                    long bandwidth = workingSetFits ? load.getMemoryBandwidth() : 0L;
+                    long clampedHeap = Math.max(0L,
+                            Math.min(load.getMemory(), workingSetFits ? heap - heapWorkingSet : heap));
+                    long clampedDirect = Math.max(0L,
+                            Math.min(load.getOffHeapMemory(), workingSetFits ? direct - directWorkingSet : direct));
+                    log.warn("Clamping memory load from {} to {}, off-heap memory load from {} to {} "
+                                    + "and memory bandwidth from {}/s to {}/s",
+                            MemoryUnit.mbString(load.getMemory()), MemoryUnit.mbString(clampedHeap),
+                            MemoryUnit.mbString(load.getOffHeapMemory()), MemoryUnit.mbString(clampedDirect),
+                            MemoryUnit.mbString(load.getMemoryBandwidth()), MemoryUnit.mbString(bandwidth));
+                    return load.withMemory(clampedHeap, MemoryUnit.BYTES)
+                            .withMemory(clampedDirect, MemoryUnit.BYTES, MemoryKind.OFF_HEAP)
+                            .withMemoryBandwidth(bandwidth, MemoryUnit.BYTES);
+                case WAIT:
+                    // memory released by other loads can only make room for a load up to the whole headroom
+                    long maxHeap = heap + systemLoad.getMemory() + systemLoad.getWorkingSetMemory();
+                    long maxDirect = direct + systemLoad.getOffHeapMemory() + systemLoad.getWorkingSetOffHeapMemory();
+                    if (requiredHeap > maxHeap || requiredDirect > maxDirect) {
+                        throw new MaximumLoadExceededException(String.format(
+                                "Memory load of %s and off-heap memory load of %s exceed the headroom of %s and %s "
+                                        + "even without other loads",
+                                MemoryUnit.mbString(requiredHeap), MemoryUnit.mbString(requiredDirect),
+                                MemoryUnit.mbString(Math.max(0L, maxHeap)),
+                                MemoryUnit.mbString(Math.max(0L, maxDirect))));
+                    }
+                    if (!waiting) {
+                        log.info("Waiting for memory headroom...");
+                        waiting = true;
+                    }
+                    try {
+                        admissions.wait(HEADROOM_POLL_INTERVAL);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        throw new MaximumLoadExceededException("Interrupted while waiting for memory headroom", e);
+                    }
+                    break;
+                default:
+                    throw new MaximumLoadExceededException(String.format(
+                            "Memory load of %s and off-heap memory load of %s exceed the headroom of %s and %s",
+                            MemoryUnit.mbString(requiredHeap), MemoryUnit.mbString(requiredDirect),
+                            MemoryUnit.mbString(Math.max(0L, heap)), MemoryUnit.mbString(Math.max(0L, direct))));
+            }
+        }
+    }
+
+    /**
+     * Removes the most recent admission of the specified {@code FakeLoad}.
+     * A load that has not been admitted is treated as admitted unchanged.
+     */
+    @GuardedBy("admissions")
+    private Admission removeAdmission(FakeLoad load) {
+        for (int i = admissions.size() - 1; i >= 0; i--) {
+            if (admissions.get(i).requested.equals(load)) {
+                return admissions.remove(i);
+            }
+        }
+        return new Admission(load, load, memorySimulator.getFailureCount(), offHeapMemorySimulator.getFailureCount());
     }
 
 
@@ -142,92 +337,119 @@ public final class LoadController implements Runnable {
      * CPU load adjustment is done in the following way:
      *
      * <p>
-     * First, the desired CPU load is retrieved from the {@link SystemLoad} instance.
+     * First, the desired total CPU load is retrieved from the {@link SystemLoad} instance.
      * The desired load is compared to the last desired CPU load recorded by the method.
      * When the desired load has been adjusted recently and old and new desired load differ,
      * the old load is set to the new one and the method returns with no load adjustment
-     * taking place, as simulator threads might not have had the time to catch up to change
-     * in desired load yet.
+     * taking place, as the last sample does not reflect the new desired load yet.
      *
      * <p>
-     * When there is no difference between the new and old desired CPU load, the desired
-     * load is compared to the actual CPU load currently produced by the simulator threads.
-     * When desired and actual CPU load differ by more than a defined threshold, and actual
-     * CPU load is <b>not</b> currently changing, CPU load will be adjusted.
+     * Otherwise, the CPU load to be produced by the simulator threads is determined: The CPU load
+     * in {@link CpuTargetMode#ADDITIONAL} mode plus the gap between the CPU load in {@link CpuTargetMode#TOTAL}
+     * mode and the baseline load of other threads and processes. This load and the actual load of the
+     * simulator threads are passed to the {@link CpuController}.
+     * The desired load of every simulator thread is then scaled by the ratio of commanded
+     * to desired CPU load, which preserves the distribution of the load among the threads.
      *
      */
     private void controlCpuLoad() {
-        long desiredCpu = systemLoad.getCpu();
+        double desiredCpu = systemLoad.getTotalCpu();
+        double totalModeCpu = systemLoad.getTotalModeCpu();
+
+        double[] measured = measureCpuLoad();
+        double systemCpu = measured[0];
+        double actualCpu = measured[1];
+
         if (desiredCpu != oldDesiredCpu) {
             log.trace("Last desired load: {}, new desired load: {} --> Not adjusting CPU load", oldDesiredCpu, desiredCpu);
             oldDesiredCpu = desiredCpu;
             return;
         }
 
-        // Note: we use getSystemCpuLoad instead of getCpuLoad to allow
-        // backwards compatibility with LTS Java version 8/11.
-        double actualCpu = operatingSystem.getSystemCpuLoad() * 100;
-        log.trace("Desired CPU: {}, Actual CPU: {}, Last CPU: {}", desiredCpu, actualCpu, lastCpu);
+        if (desiredCpu == 0) {
+            return;
+        }
 
-        double difference = actualCpu - desiredCpu;
+        if (desiredCpu >= 100) {
+            // machine is fully utilized or over-subscribed, nothing to control
+            setCpuSimulatorLoads(1.0);
+            return;
+        }
 
-        if (    Math.abs(difference) > CPU_CONTROL_THRESHOLD &&
-                Math.abs(lastCpu - actualCpu) <= CPU_CONTROL_THRESHOLD) {
+        double baselineCpu = Math.max(0.0, systemCpu - actualCpu);
+        double simulatorCpu = (desiredCpu - totalModeCpu) + Math.max(0.0, totalModeCpu - baselineCpu);
 
-            int noOfSteps = (int)(Math.abs(difference) / stepSize);
-            log.trace("Number of adjustment steps: {}",noOfSteps);
-            if (difference < 0) {   // actual load smaller than desired load
-                log.trace("Increasing CPU load, difference {}", difference);
-                increaseCpuSimulatorLoads(1, noOfSteps);
-            } else {
-                log.trace("Decreasing CPU load, difference {}", difference);
-                decreaseCpuSimulatorLoads(1, noOfSteps);
-            }
+        double commandedCpu = cpuController.control(simulatorCpu, actualCpu, System.nanoTime());
+        log.trace("Desired CPU: {}, Baseline CPU: {}, Simulator CPU: {}, Actual CPU: {}, Commanded CPU: {}",
+                desiredCpu, baselineCpu, simulatorCpu, actualCpu, commandedCpu);
+        setCpuSimulatorLoads(commandedCpu / desiredCpu);
+    }
 
+    /**
+     * Measures the CPU load of the machine and of the simulator threads. When the CPU time
+     * of threads cannot be measured, the load of the machine is used for both.
+     * @return the CPU load of the machine and of the simulator threads in percent
+     */
+    private double[] measureCpuLoad() {
+        if (!threadCpuTimeSupported) {
+            double systemCpu = cpuProbe.getCpuLoad();
+            return new double[] {systemCpu, systemCpu};
         }
-
-        lastCpu = actualCpu;
-
+        double simulatorCpu = simulatorCpuProbe.getCpuLoad();
+        double systemCpu = (cpuProbe == simulatorCpuProbe) ? simulatorCpu : cpuProbe.getCpuLoad();
+        return new double[] {systemCpu, simulatorCpu};
     }
 
 
-    private void increaseCpuSimulatorLoads(int delta, int noOfSteps) {
-        for (int i=0; i<noOfSteps; i++) {
-            CpuSimulator cpuSimulator = cpuSimulators.get(increaseCpuIndex);
+    /**
+     * Sets the loads of the CPU simulator threads to the desired thread loads
+     * of the {@link SystemLoad} multiplied by the specified factor.
+     *
+     * @param factor the factor, 1.0 for the desired loads
+     * @see SystemLoad#getCpuThreadLoads()
+     */
+    private void setCpuSimulatorLoads(double factor) {
+        long[] threadLoads = systemLoad.getCpuThreadLoads();
+        for (int i = 0; i < cpuSimulators.size(); i++) {
+            cpuSimulators.get(i).setLoad(Math.round(threadLoads[i] * factor));
+        }
+    }
 
-            decreaseCpuIndex = increaseCpuIndex;
-            increaseCpuIndex = (increaseCpuIndex + 1) % cpuSimulators.size();
 
-            /*
-             * Only increase if load is not maxed out.
-             * Synchronization of simulator is not important here,
-             * if-statement only to prevent unnecessary calls to increase load.
-             */
-            if (!cpuSimulator.isMaximumLoad()) {
-                cpuSimulator.increaseLoad(delta);
+    /**
+     * Sets the kernel of all CPU simulators that support kernels.
+     * @param kernel the CPU kernel
+     */
+    private void setCpuSimulatorKernels(CpuKernel[] kernels) {
+        for (int i = 0; i < cpuSimulators.size(); i++) {
+            CpuSimulator cpuSimulator = cpuSimulators.get(i);
+            if (cpuSimulator instanceof KernelCpuSimulator) {
+                ((KernelCpuSimulator) cpuSimulator).setKernel(kernels[i]);
             }
         }
     }
 
 
-    private void decreaseCpuSimulatorLoads(int delta, int noOfSteps) {
-        for (int i=0; i<noOfSteps; i++) {
-            CpuSimulator cpuSimulator = cpuSimulators.get(decreaseCpuIndex);
-
-            increaseCpuIndex = decreaseCpuIndex;
-            decreaseCpuIndex = (cpuSimulators.size() - 1 + decreaseCpuIndex) % cpuSimulators.size();
+    /**
+     * @return the controller used to steer the actual CPU load
+     */
+    public CpuController getCpuController() {
+        return cpuController;
+    }
 
-            /*
-             * Only decrease if load is not zero.
-             * Synchronization of simulator is not important here,
-             * if-statement only to prevent unnecessary calls to decrease load.
-             */
-            if (!cpuSimulator.isZeroLoad()) {
-                cpuSimulator.decreaseLoad(delta);
-            }
-        }
+    /**
+     * @return the probe used to measure the actual CPU load
+     */
+    public CpuProbe getCpuProbe() {
+        return cpuProbe;
     }
 
+    /**
+     * @return the CPU sampling period in milliseconds
+     */
+    public long getSamplingPeriod() {
+        return samplingPeriod;
+    }
 
     public List<CpuSimulator> getCpuSimulators() {
         return cpuSimulators;
@@ -237,6 +459,18 @@ public final class LoadController implements Runnable {
         return memorySimulator;
     }
 
+    public MemorySimulator getOffHeapMemorySimulator() {
+        return offHeapMemorySimulator;
+    }
+
+    public AllocationSimulator getAllocationSimulator() {
+        return allocationSimulator;
+    }
+
+    public MemoryAccessSimulator getMemoryAccessSimulator() {
+        return memoryAccessSimulator;
+    }
+
     public DiskInputSimulator getDiskInputSimulator() {
         return diskInputSimulator;
     }
@@ -244,4 +478,68 @@ public final class LoadController implements Runnable {
     public DiskOutputSimulator getDiskOutputSimulator() {
         return diskOutputSimulator;
     }
+
+    public DiskIopsSimulator getDiskIopsSimulator() {
+        return diskIopsSimulator;
+    }
+
+
+    /**
+     * A {@code FakeLoad} admitted to the system load, together with the number of allocation failures
+     * of the memory simulators at the time of admission and the ramps of its memory load, if it grows
+     */
+    private static final class Admission {
+        private final FakeLoad requested;
+        private final FakeLoad admitted;
+        private final int heapFailures;
+        private final int offHeapFailures;
+        private final MemoryRamp heapRamp;
+        private final MemoryRamp offHeapRamp;
+
+        private Admission(FakeLoad requested, FakeLoad admitted, int heapFailures, int offHeapFailures) {
+            this.requested = requested;
+            this.admitted = admitted;
+            this.heapFailures = heapFailures;
+            this.offHeapFailures = offHeapFailures;
+            long start = System.nanoTime();
+            this.heapRamp = ramp(admitted.getMemory(), admitted.getMemoryGrowthRate(), start);
+            this.offHeapRamp = ramp(admitted.getOffHeapMemory(), admitted.getMemoryGrowthRate(), start);
+        }
+
+        private boolean isClamped() {
+            return admitted.getMemory() != requested.getMemory()
+                    || admitted.getOffHeapMemory() != requested.getOffHeapMemory()
+                    || admitted.getMemoryBandwidth() != requested.getMemoryBandwidth();
+        }
+
+        private static MemoryRamp ramp(long amount, long rate, long start) {
+            return (amount > 0 && rate > 0) ? new MemoryRamp(amount, rate, start) : null;
+        }
+
+        private void addRamps(MemorySimulator heapSimulator, MemorySimulator offHeapSimulator) {
+            if (heapRamp != null) {
+                heapSimulator.addRamp(heapRamp);
+            }
+            if (offHeapRamp != null) {
+                offHeapSimulator.addRamp(offHeapRamp);
+            }
+        }
+
+        private void removeRamps(MemorySimulator heapSimulator, MemorySimulator offHeapSimulator) {
+            if (heapRamp != null) {
+                heapSimulator.removeRamp(heapRamp);
+            }
+            if (offHeapRamp != null) {
+                offHeapSimulator.removeRamp(offHeapRamp);
+            }
+        }
+
+        private boolean failedOnHeap(MemorySimulator simulator) {
+            return admitted.getMemory() > 0 && simulator.getFailureCount() != heapFailures;
+        }
+
+        private boolean failedOffHeap(MemorySimulator simulator) {
+            return admitted.getOffHeapMemory() > 0 && simulator.getFailureCount() != offHeapFailures;
+        }
+    }
 }
@@ -0,0 +1,378 @@
+package com.martensigwart.fakeload;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+import static com.martensigwart.fakeload.Preconditions.checkArgument;
+import static com.martensigwart.fakeload.Preconditions.checkNotNull;
+
+/**
+ * Simulates memory bandwidth load by accessing a working set of memory at a steady rate.
+ *
+ * <p>
+ * Holding memory is not the same as using it. The load of a {@code MemoryAccessSimulator} is the memory
+ * bandwidth in bytes per second. The accesses are spread evenly over a number of worker threads.
+ * Every {@value #TICK} ms each worker accesses as many cache lines of {@value #CACHE_LINE_SIZE} bytes
+ * as its share of the bandwidth is due since its last tick, i.e. all workers together perform
+ * {@code bandwidth / }{@value #CACHE_LINE_SIZE} accesses per second. Every access reads a value from a
+ * cache line and, if writing is enabled, writes it back modified, which makes the cache line dirty
+ * and roughly doubles the traffic to memory. Depending on the {@link AccessPattern}, cache lines are
+ * accessed sequentially or at random, thereby causing cache misses and memory bandwidth contention for
+ * neighbouring workloads.
+ *
+ * <p>
+ * A random access to a working set exceeding the caches takes as long as a round trip to memory, of which
+ * a core only keeps a few in flight, so a single thread achieves at most a few hundred MB to a few GB per
+ * second. With one worker per core, by default, the bandwidth of the whole memory system can be reached.
+ * Accesses due within a tick which cannot be performed until the end of the tick are dropped, so the
+ * bandwidth actually achieved (see {@link #getAchievedBandwidth()}) may be lower than the load. A warning
+ * is logged when it falls short of the load by more than {@value #SHORTFALL_WARNING_PERCENT}%.
+ *
+ * <p>
+ * The working set is allocated, on the heap or as direct buffers (see {@link MemoryKind}), and touched,
+ * and the workers are started, when memory bandwidth is requested. Both are released again as soon as
+ * the load drops to zero. The {@link LoadController} admits the working set against the
+ * {@link MemoryHeadroom} together with the memory bandwidth load.
+ *
+ * <p>
+ * The simulator thread itself only adjusts the share of the workers to the load and measures
+ * the bandwidth achieved.
+ *
+ * @since 1.8
+ * @see FakeLoad#withMemoryBandwidth(long, MemoryUnit)
+ * @author Marten Sigwart
+ */
+public final class MemoryAccessSimulator extends AbstractLoadSimulator {
+
+    private static final Logger log = LoggerFactory.getLogger(MemoryAccessSimulator.class);
+
+    /**
+     * The number of bytes transferred by one access
+     */
+    public static final int CACHE_LINE_SIZE = 64;
+
+    /**
+     * The default working set size of 256 MB, which exceeds the caches of most machines
+     */
+    public static final long DEFAULT_WORKING_SET_SIZE = 256L * 1024 * 1024;
+
+    /**
+     * The default number of worker threads, one per available processor
+     */
+    public static final int DEFAULT_NO_OF_THREADS = Runtime.getRuntime().availableProcessors();
+
+    static final long TICK = 10L;
+    private static final int CHECK_INTERVAL = 1024;
+    private static final int SEGMENT_LINE_SHIFT = 24;       // segments of 1 GB
+    private static final long MEASUREMENT_INTERVAL = TimeUnit.SECONDS.toNanos(1);
+    static final int SHORTFALL_WARNING_PERCENT = 10;
+
+    private final MemoryKind kind;
+    private final long workingSetSize;
+    private final AccessPattern pattern;
+    private final boolean writing;
+    private final int noOfThreads;
+    private final long noOfLines;
+
+    // updated by the workers once per tick
+    private final AtomicLong accessedBytes = new AtomicLong();
+    // bandwidth of every worker in bytes per second
+    private volatile double share;
+
+    // only accessed by the simulator thread, the working set is published to the workers by starting them
+    private ByteBuffer[] segments;
+    private Thread[] workers;
+    private volatile long allocatedBytes;
+
+    private long measurementStart;
+    private long measurementBytes;
+    private long measurementLoad;
+    private volatile double achievedBandwidth;
+    private long warnedBandwidth;
+
+
+    public MemoryAccessSimulator() {
+        this(MemoryKind.HEAP, DEFAULT_WORKING_SET_SIZE, AccessPattern.RANDOM, false, DEFAULT_NO_OF_THREADS);
+    }
+
+    /**
+     * @param kind the kind of memory the working set is allocated as
+     * @param workingSetSize the size of the working set in bytes, rounded down to a multiple of the cache line size
+     * @param pattern the order in which the working set is accessed
+     * @param writing whether accessed cache lines are also written
+     * @param noOfThreads the number of worker threads the accesses are spread over
+     */
+    public MemoryAccessSimulator(MemoryKind kind, long workingSetSize, AccessPattern pattern, boolean writing,
+                                 int noOfThreads) {
+        super(-1L, "MemoryAccessSim");
+        checkArgument(workingSetSize >= CACHE_LINE_SIZE,
+                "Working set size must be at least %s bytes but was %s", CACHE_LINE_SIZE, workingSetSize);
+        checkArgument(noOfThreads > 0, "Number of threads must be positive but was %s", noOfThreads);
+        this.kind = checkNotNull(kind);
+        this.workingSetSize = workingSetSize;
+        this.pattern = checkNotNull(pattern);
+        this.writing = writing;
+        this.noOfThreads = noOfThreads;
+        this.noOfLines = workingSetSize / CACHE_LINE_SIZE;
+    }
+
+
+    @Override
+    protected void simulateLoad(long bandwidth) throws InterruptedException {
+        if (bandwidth <= 0) {
+            return;     // load was reset after the wait condition was checked
+        }
+        share = (double) bandwidth / noOfThreads;
+        if (workers == null) {
+            if (segments == null) {
+                allocateWorkingSet();
+            }
+            startWorkers();
+        }
+        measureBandwidth(System.nanoTime(), bandwidth);
+        // changes of the load take effect within a tick
+        TimeUnit.MILLISECONDS.sleep(TICK);
+    }
+
+    private void allocateWorkingSet() {
+        long segmentSize = (long) CACHE_LINE_SIZE << SEGMENT_LINE_SHIFT;
+        long size = noOfLines * CACHE_LINE_SIZE;
+        ByteBuffer[] buffers = new ByteBuffer[(int) ((size + segmentSize - 1) / segmentSize)];
+        for (int i = 0; i < buffers.length; i++) {
+            int bytes = (int) Math.min(segmentSize, size - i * segmentSize);
+            buffers[i] = (kind == MemoryKind.HEAP) ? ByteBuffer.allocate(bytes) : ByteBuffer.allocateDirect(bytes);
+            MemorySimulator.touchPages(buffers[i]);
+        }
+        segments = buffers;
+        allocatedBytes = size;
+        log.debug("Allocated working set of {}", MemoryUnit.mbString(size));
+    }
+
+    private void startWorkers() {
+        ThreadFactory threadFactory = new ThreadFactoryBuilder()
+                .setDaemon(true).setNameFormat("MemoryAccessSim-worker-%d").build();
+        Thread[] threads = new Thread[noOfThreads];
+        for (int i = 0; i < noOfThreads; i++) {
+            // sequential workers start evenly spread over the working set
+            threads[i] = threadFactory.newThread(new Worker(noOfLines * i / noOfThreads));
+        }
+        for (Thread thread : threads) {
+            thread.start();
+        }
+        workers = threads;
+        measurementLoad = 0L;     // starts a new measurement
+        log.trace("Started {} workers", noOfThreads);
+    }
+
+    private void stopWorkers() {
+        if (workers == null) {
+            return;
+        }
+        for (Thread worker : workers) {
+            worker.interrupt();
+        }
+        try {
+            for (Thread worker : workers) {
+                worker.join(TimeUnit.SECONDS.toMillis(1));
+                if (worker.isAlive()) {
+                    log.warn("{} did not terminate in time", worker.getName());
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        workers = null;
+    }
+
+    private void measureBandwidth(long now, long bandwidth) {
+        long accessed = accessedBytes.get();
+        if (bandwidth != measurementLoad) {
+            // the load changed: a measurement spanning both loads would be meaningless
+            measurementStart = now;
+            measurementBytes = accessed;
+            measurementLoad = bandwidth;
+        } else if (now - measurementStart >= MEASUREMENT_INTERVAL) {
+            achievedBandwidth = (accessed - measurementBytes) * (double) TimeUnit.SECONDS.toNanos(1)
+                    / (now - measurementStart);
+            if (log.isTraceEnabled()) {
+                log.trace("Achieved memory bandwidth: {}/s", MemoryUnit.mbString((long) achievedBandwidth));
+            }
+            // warned once per load, as the workers cannot produce arbitrary bandwidths
+            if (achievedBandwidth < bandwidth * (100 - SHORTFALL_WARNING_PERCENT) / 100.0
+                    && bandwidth != warnedBandwidth) {
+                log.warn("Achieved memory bandwidth of {}/s falls short of the requested {}/s",
+                        MemoryUnit.mbString((long) achievedBandwidth), MemoryUnit.mbString(bandwidth));
+                warnedBandwidth = bandwidth;
+            }
+            measurementStart = now;
+            measurementBytes = accessed;
+        }
+    }
+
+    @Override
+    protected boolean waitConditionFulfilled() {
+        return (getLoad() == 0);
+    }
+
+    /**
+     * Returns the memory bandwidth achieved by this simulator, updated about once per second.
+     * @return the achieved bandwidth in bytes per second, zero if not measured yet
+     */
+    public double getAchievedBandwidth() {
+        return achievedBandwidth;
+    }
+
+    /**
+     * @return the total number of bytes accessed so far
+     */
+    long getAccessedBytes() {
+        return accessedBytes.get();
+    }
+
+    /**
+     * @return the number of bytes of the working set currently allocated, zero if released
+     */
+    public long getAllocatedBytes() {
+        return allocatedBytes;
+    }
+
+    /**
+     * @return the kind of memory the working set is allocated as
+     */
+    public MemoryKind getKind() {
+        return kind;
+    }
+
+    /**
+     * @return the size of the working set in bytes
+     */
+    public long getWorkingSetSize() {
+        return workingSetSize;
+    }
+
+    /**
+     * @return the order in which the working set is accessed
+     */
+    public AccessPattern getPattern() {
+        return pattern;
+    }
+
+    /**
+     * @return true if accessed cache lines are also written
+     */
+    public boolean isWriting() {
+        return writing;
+    }
+
+    /**
+     * @return the number of worker threads the accesses are spread over
+     */
+    public int getNoOfThreads() {
+        return noOfThreads;
+    }
+
+    @Override
+    protected String prettyFormat(long load) {
+        return MemoryUnit.mbString(load) + "/s";
+    }
+
+    /**
+     * Stops the workers and releases the working set once the load has dropped to zero.
+     */
+    @Override
+    protected void pause() {
+        cleanUp();
+    }
+
+    @Override
+    protected void cleanUp() {
+        stopWorkers();
+        if (segments != null) {
+            for (ByteBuffer segment : segments) {
+                DirectMemory.free(segment);
+            }
+            segments = null;
+            allocatedBytes = 0L;
+            log.debug("Released working set");
+        }
+        achievedBandwidth = 0.0;
+    }
+
+
+    /**
+     * Accesses the working set at its share of the bandwidth, until interrupted.
+     */
+    private final class Worker implements Runnable {
+        private final Blackhole blackhole = new Blackhole();
+        private long nextLine;
+
+        private Worker(long firstLine) {
+            this.nextLine = firstLine;
+        }
+
+        @Override
+        public void run() {
+            long tickNanos = TimeUnit.MILLISECONDS.toNanos(TICK);
+            long lastTick = System.nanoTime();
+            double pendingBytes = 0.0;
+            while (!Thread.currentThread().isInterrupted()) {
+                long now = System.nanoTime();
+                pendingBytes += share * (now - lastTick) / TimeUnit.SECONDS.toNanos(1);
+                lastTick = now;
+
+                long deadline = now + tickNanos;
+                long accesses = (long) (pendingBytes / CACHE_LINE_SIZE);
+                long done = 0;
+                while (done < accesses && System.nanoTime() - deadline < 0) {
+                    int batch = (int) Math.min(accesses - done, CHECK_INTERVAL);
+                    access(batch);
+                    done += batch;
+                }
+                blackhole.flush();
+                accessedBytes.addAndGet(done * CACHE_LINE_SIZE);
+                // accesses not performed within the tick are dropped
+                pendingBytes = Math.min(pendingBytes - done * CACHE_LINE_SIZE, CACHE_LINE_SIZE);
+
+                long remaining;
+                while ((remaining = deadline - System.nanoTime()) > 0 && !Thread.currentThread().isInterrupted()) {
+                    LockSupport.parkNanos(this, remaining);
+                }
+            }
+            log.trace("{} - Interrupted", Thread.currentThread().getName());
+        }
+
+        /**
+         * Performs the specified number of accesses, each to a different cache line.
+         */
+        private void access(int accesses) {
+            ThreadLocalRandom random = ThreadLocalRandom.current();
+            ByteBuffer[] segments = MemoryAccessSimulator.this.segments;
+            long mask = (1L << SEGMENT_LINE_SHIFT) - 1;
+            long sum = 0L;
+            for (int i = 0; i < accesses; i++) {
+                long line;
+                if (pattern == AccessPattern.RANDOM) {
+                    line = random.nextLong(noOfLines);
+                } else {
+                    line = nextLine;
+                    nextLine = (line + 1 == noOfLines) ? 0 : line + 1;
+                }
+                ByteBuffer segment = segments[(int) (line >>> SEGMENT_LINE_SHIFT)];
+                int index = (int) (line & mask) * CACHE_LINE_SIZE;
+                long value = segment.getLong(index);
+                if (writing) {
+                    segment.putLong(index, value + 1);
+                }
+                sum += value;
+            }
+            blackhole.consume(sum);
+        }
+    }
+}
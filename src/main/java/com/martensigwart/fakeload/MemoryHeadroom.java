@@ -0,0 +1,135 @@
+package com.martensigwart.fakeload;
+
+import com.sun.management.HotSpotDiagnosticMXBean;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.annotation.concurrent.ThreadSafe;
+import java.lang.management.BufferPoolMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.util.function.LongSupplier;
+
+import static com.martensigwart.fakeload.Preconditions.checkArgument;
+import static com.martensigwart.fakeload.Preconditions.checkNotNull;
+
+/**
+ * Determines how much memory can be allocated for simulation without starving the application.
+ *
+ * <p>
+ * The limits are the maximum heap size as reported by the {@link MemoryMXBean} and the maximum amount of
+ * direct memory (JVM option {@code -XX:MaxDirectMemorySize}, which defaults to the maximum heap size).
+ * A safety margin, a fraction of each limit, is always kept free. The memory used by the application,
+ * i.e. used memory not allocated by the memory simulators, is subtracted from the rest. As the used heap
+ * includes garbage not yet collected, the heap headroom is a conservative estimate.
+ *
+ * <p>
+ * The headroom is checked by the {@link LoadController} before the memory load of a {@link FakeLoad}
+ * is admitted, what happens to loads exceeding it is determined by the {@link HeadroomPolicy} of the load.
+ *
+ * @since 1.8
+ * @see HeadroomPolicy
+ * @author Marten Sigwart
+ */
+@ThreadSafe
+public final class MemoryHeadroom {
+
+    private static final Logger log = LoggerFactory.getLogger(MemoryHeadroom.class);
+
+    /**
+     * The default safety margin of 10% of each limit
+     */
+    public static final double DEFAULT_SAFETY_MARGIN = 0.1;
+
+    private final double safetyMargin;
+    private final LongSupplier maxHeap;
+    private final LongSupplier usedHeap;
+    private final long maxDirect;
+    private final LongSupplier usedDirect;
+
+
+    public MemoryHeadroom() {
+        this(DEFAULT_SAFETY_MARGIN);
+    }
+
+    /**
+     * @param safetyMargin the fraction of each limit kept free, between 0 and 1
+     */
+    public MemoryHeadroom(double safetyMargin) {
+        this(safetyMargin, MemoryHeadroom::maxHeap, () -> memoryMXBean().getHeapMemoryUsage().getUsed(),
+                maxDirect(), MemoryHeadroom::usedDirect);
+    }
+
+    MemoryHeadroom(double safetyMargin, LongSupplier maxHeap, LongSupplier usedHeap,
+                   long maxDirect, LongSupplier usedDirect) {
+        checkArgument(safetyMargin >= 0 && safetyMargin < 1,
+                "Safety margin must be between 0 and 1 but was %s", safetyMargin);
+        this.safetyMargin = safetyMargin;
+        this.maxHeap = checkNotNull(maxHeap);
+        this.usedHeap = checkNotNull(usedHeap);
+        this.maxDirect = maxDirect;
+        this.usedDirect = checkNotNull(usedDirect);
+    }
+
+
+    /**
+     * Returns the total amount of heap memory the simulators may allocate.
+     * @param simulatedHeap the amount of heap memory currently allocated by the simulators
+     * @return the heap headroom in bytes
+     */
+    public long getHeapHeadroom(long simulatedHeap) {
+        return headroom(maxHeap.getAsLong(), usedHeap.getAsLong(), simulatedHeap);
+    }
+
+    /**
+     * Returns the total amount of direct memory the simulators may allocate.
+     * @param simulatedDirect the amount of direct memory currently allocated by the simulators
+     * @return the direct memory headroom in bytes
+     */
+    public long getDirectHeadroom(long simulatedDirect) {
+        return headroom(maxDirect, usedDirect.getAsLong(), simulatedDirect);
+    }
+
+    private long headroom(long limit, long used, long simulated) {
+        long applicationUsage = Math.max(0L, used - simulated);
+        return Math.max(0L, (long) (limit * (1 - safetyMargin)) - applicationUsage);
+    }
+
+    /**
+     * @return the fraction of each limit kept free
+     */
+    public double getSafetyMargin() {
+        return safetyMargin;
+    }
+
+    private static MemoryMXBean memoryMXBean() {
+        return ManagementFactory.getMemoryMXBean();
+    }
+
+    private static long maxHeap() {
+        long max = memoryMXBean().getHeapMemoryUsage().getMax();
+        return (max > 0) ? max : Runtime.getRuntime().maxMemory();
+    }
+
+    private static long maxDirect() {
+        try {
+            HotSpotDiagnosticMXBean bean = ManagementFactory.getPlatformMXBean(HotSpotDiagnosticMXBean.class);
+            long max = Long.parseLong(bean.getVMOption("MaxDirectMemorySize").getValue());
+            if (max > 0) {
+                return max;
+            }
+        } catch (RuntimeException | LinkageError e) {
+            log.debug("Could not read maximum direct memory size: {}", e.getMessage());
+        }
+        return Runtime.getRuntime().maxMemory();
+    }
+
+    private static long usedDirect() {
+        for (BufferPoolMXBean pool : ManagementFactory.getPlatformMXBeans(BufferPoolMXBean.class)) {
+            if (pool.getName().equals("direct")) {
+                return pool.getMemoryUsed();
+            }
+        }
+        return 0L;
+    }
+}
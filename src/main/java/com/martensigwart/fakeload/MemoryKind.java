@@ -0,0 +1,24 @@
+package com.martensigwart.fakeload;
+
+/**
+ * The kind of memory used for simulating memory load.
+ *
+ * @since 1.8
+ * @see FakeLoad#withMemory(long, MemoryUnit, MemoryKind)
+ * @author Marten Sigwart
+ */
+public enum MemoryKind {
+
+    /**
+     * Memory allocated on the Java heap. The heap must be large enough
+     * (see {@code -Xmx}) and the memory is subject to garbage collection.
+     */
+    HEAP,
+
+    /**
+     * Memory allocated outside the Java heap using direct byte buffers. It raises the resident set size
+     * of the process without affecting heap sizing or garbage collection. The amount of direct memory
+     * is limited by JVM option {@code -XX:MaxDirectMemorySize}, which defaults to the maximum heap size.
+     */
+    OFF_HEAP
+}
@@ -0,0 +1,21 @@
+package com.martensigwart.fakeload;
+
+/**
+ * Exception indicating that the memory load of a {@link FakeLoad} was clamped to the memory headroom
+ * (see {@link HeadroomPolicy#CLAMP}), i.e. that the load was simulated with less memory, or without
+ * the memory bandwidth, specified.
+ *
+ * It is thrown once the clamped load is removed from the system load again, so that it fails the
+ * execution of the {@code FakeLoad} after all of its loads have been simulated.
+ *
+ * @since 1.8
+ * @author Marten Sigwart
+ */
+public class MemoryLoadClampedException extends RuntimeException {
+    private static final long serialVersionUID = -3190712870463455213L;
+
+    public MemoryLoadClampedException(String message) {
+        super(message);
+    }
+
+}
@@ -0,0 +1,58 @@
+package com.martensigwart.fakeload;
+
+import javax.annotation.concurrent.Immutable;
+import java.util.concurrent.TimeUnit;
+
+import static com.martensigwart.fakeload.Preconditions.checkArgument;
+
+/**
+ * A linear growth of memory load from zero to a final amount, starting at the time of creation.
+ *
+ * <p>
+ * Ramps are added to a {@link MemorySimulator} for {@link FakeLoad}s with a memory growth rate
+ * (see {@link FakeLoad#withMemoryGrowth(long, MemoryUnit, TimeUnit)}). While a ramp has not yet
+ * reached its final amount, the simulator holds back the part of its load that has not grown yet.
+ *
+ * @since 1.8
+ * @see MemorySimulator
+ * @author Marten Sigwart
+ */
+@Immutable
+final class MemoryRamp {
+
+    private final long amount;
+    private final long rate;
+    private final long start;
+
+
+    /**
+     * @param amount the final amount of memory in bytes
+     * @param rate the growth rate in bytes per second
+     * @param start the start of the ramp as given by {@link System#nanoTime()}
+     */
+    MemoryRamp(long amount, long rate, long start) {
+        checkArgument(amount >= 0, "Amount must be nonnegative but was %s", amount);
+        checkArgument(rate > 0, "Growth rate must be positive but was %s", rate);
+        this.amount = amount;
+        this.rate = rate;
+        this.start = start;
+    }
+
+    /**
+     * Returns the amount of memory not grown yet at the specified time.
+     * @param now the current time as given by {@link System#nanoTime()}
+     * @return the remaining amount in bytes, zero once the ramp is complete
+     */
+    long remaining(long now) {
+        double grown = rate * (double) Math.max(0L, now - start) / TimeUnit.SECONDS.toNanos(1);
+        return (grown >= amount) ? 0L : amount - (long) grown;
+    }
+
+    long getAmount() {
+        return amount;
+    }
+
+    long getRate() {
+        return rate;
+    }
+}
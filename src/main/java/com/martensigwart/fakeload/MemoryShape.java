@@ -0,0 +1,227 @@
+package com.martensigwart.fakeload;
+
+import javax.annotation.concurrent.Immutable;
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Map;
+
+import static com.martensigwart.fakeload.Preconditions.checkArgument;
+
+/**
+ * Describes the shape of the objects retained for simulating heap memory load.
+ *
+ * <p>
+ * Memory retained as a few large byte arrays costs the garbage collector next to nothing,
+ * as an array of primitives contains no references to be marked. A heap of the same size filled
+ * with many small linked objects, e.g. the entries of a cache, behaves quite differently: Marking
+ * visits every object, and references between objects cause card marking and remembered set maintenance.
+ * Apart from {@link #BYTE_ARRAYS}, the default, the shapes therefore retain object graphs:
+ *
+ * <pre>
+ * {@code SimulationInfrastructure infrastructure = new SimulationInfrastructureBuilder()
+ *      .withMemoryShape(MemoryShape.tree(4))
+ *      .build();
+ * }</pre>
+ *
+ * The size of an object graph is estimated assuming a 64-bit JVM with compressed object pointers,
+ * i.e. 12 bytes of object header and 4 bytes per reference, and objects aligned to 8 bytes.
+ * Without compressed object pointers, the amount of memory actually retained is larger.
+ *
+ * @since 1.8
+ * @see MemorySimulator
+ * @author Marten Sigwart
+ */
+@Immutable
+public final class MemoryShape {
+
+    private enum Type { BYTE_ARRAYS, SMALL_OBJECTS, LINKED_LIST, HASH_MAP, TREE }
+
+    // estimated sizes in bytes
+    static final int ARRAY_HEADER_SIZE = 16;
+    static final int REFERENCE_SIZE = 4;
+    static final int NODE_SIZE = 24;                // header + reference + long
+    static final int MAP_ENTRY_SIZE = 32 + 2 * 16;  // HashMap.Node + Long key + Long value
+
+    /**
+     * The default fan-out of {@link #TREE}
+     */
+    public static final int DEFAULT_FAN_OUT = 8;
+
+    /**
+     * Retains memory as byte arrays of the chunk size. This is the default.
+     */
+    public static final MemoryShape BYTE_ARRAYS = new MemoryShape(Type.BYTE_ARRAYS, 0);
+
+    /**
+     * Retains memory as many small, unconnected objects of 24 bytes, referenced from an array.
+     */
+    public static final MemoryShape SMALL_OBJECTS = new MemoryShape(Type.SMALL_OBJECTS, 0);
+
+    /**
+     * Retains memory as linked lists of small objects, which the garbage collector can only mark
+     * one object after another.
+     */
+    public static final MemoryShape LINKED_LIST = new MemoryShape(Type.LINKED_LIST, 0);
+
+    /**
+     * Retains memory as hash maps of boxed {@code Long} keys and values, about 70 bytes per entry.
+     */
+    public static final MemoryShape HASH_MAP = new MemoryShape(Type.HASH_MAP, 0);
+
+    /**
+     * Retains memory as trees with a fan-out of {@value #DEFAULT_FAN_OUT}.
+     * @see #tree(int)
+     */
+    public static final MemoryShape TREE = new MemoryShape(Type.TREE, DEFAULT_FAN_OUT);
+
+    private final Type type;
+    private final int fanOut;
+
+
+    private MemoryShape(Type type, int fanOut) {
+        this.type = type;
+        this.fanOut = fanOut;
+    }
+
+    /**
+     * Creates a shape retaining memory as trees, in which every inner node has the specified
+     * number of children. Trees are filled level by level.
+     * @param fanOut the number of children of an inner node
+     * @return a new shape
+     * @throws IllegalArgumentException if the fan-out is smaller than one
+     */
+    public static MemoryShape tree(int fanOut) {
+        checkArgument(fanOut >= 1, "Fan-out must be at least 1 but was %s", fanOut);
+        return new MemoryShape(Type.TREE, fanOut);
+    }
+
+    /**
+     * @return true if memory is retained as byte arrays, false if it is retained as object graphs
+     */
+    public boolean isByteArrays() {
+        return type == Type.BYTE_ARRAYS;
+    }
+
+    /**
+     * @return the number of children of an inner tree node, zero for shapes other than trees
+     */
+    public int getFanOut() {
+        return fanOut;
+    }
+
+    /**
+     * Allocates an object graph of this shape with an estimated size of at most the specified
+     * number of bytes. Byte arrays are returned as a heap {@link ByteBuffer}.
+     * @param bytes the size of the graph in bytes
+     * @return the root of the graph
+     */
+    Object allocate(int bytes) {
+        switch (type) {
+            case SMALL_OBJECTS:
+                return smallObjects(bytes);
+            case LINKED_LIST:
+                return linkedList(bytes);
+            case HASH_MAP:
+                return hashMap(bytes);
+            case TREE:
+                return tree(bytes, fanOut);
+            default:
+                return ByteBuffer.allocate(bytes);
+        }
+    }
+
+    private static Node[] smallObjects(int bytes) {
+        Node[] nodes = new Node[Math.max(0, bytes - ARRAY_HEADER_SIZE) / (NODE_SIZE + REFERENCE_SIZE)];
+        for (int i = 0; i < nodes.length; i++) {
+            nodes[i] = new Node(null, i);
+        }
+        return nodes;
+    }
+
+    private static Node linkedList(int bytes) {
+        Node head = null;
+        for (int i = bytes / NODE_SIZE; i > 0; i--) {
+            head = new Node(head, i);
+        }
+        return head;
+    }
+
+    private static Map<Long, Long> hashMap(int bytes) {
+        // the table of a map sized for n entries has at most 8/3 n slots
+        int entries = bytes / (MAP_ENTRY_SIZE + 8 * REFERENCE_SIZE / 3 + 1);
+        Map<Long, Long> map = new HashMap<>(entries * 4 / 3 + 1);
+        for (long i = 0; i < entries; i++) {
+            // values beyond the Long cache, so that every key and value is a separate object
+            map.put(Long.MAX_VALUE - i, i + Byte.MAX_VALUE + 1);
+        }
+        return map;
+    }
+
+    private static TreeNode tree(int bytes, int fanOut) {
+        int childrenSize = align(ARRAY_HEADER_SIZE + fanOut * REFERENCE_SIZE);
+        long remaining = bytes - NODE_SIZE;
+        if (remaining < 0) {
+            return null;
+        }
+        TreeNode root = new TreeNode(0);
+        Deque<TreeNode> leaves = new ArrayDeque<>();
+        leaves.add(root);
+        long value = 1;
+        while (remaining >= childrenSize + NODE_SIZE) {
+            TreeNode parent = leaves.poll();
+            parent.children = new TreeNode[fanOut];
+            remaining -= childrenSize;
+            for (int i = 0; i < fanOut && remaining >= NODE_SIZE; i++) {
+                TreeNode child = new TreeNode(value++);
+                parent.children[i] = child;
+                leaves.add(child);
+                remaining -= NODE_SIZE;
+            }
+        }
+        return root;
+    }
+
+    private static int align(int size) {
+        return (size + 7) & ~7;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        MemoryShape that = (MemoryShape) o;
+        return type == that.type && fanOut == that.fanOut;
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * type.hashCode() + fanOut;
+    }
+
+    @Override
+    public String toString() {
+        return (type == Type.TREE) ? "TREE(" + fanOut + ")" : type.name();
+    }
+
+
+    static final class Node {
+        final Node next;
+        final long value;
+
+        Node(Node next, long value) {
+            this.next = next;
+            this.value = value;
+        }
+    }
+
+    static final class TreeNode {
+        TreeNode[] children;
+        final long value;
+
+        TreeNode(long value) {
+            this.value = value;
+        }
+    }
+}
@@ -3,19 +3,127 @@ package com.martensigwart.fakeload;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.TimeUnit;
 
+import static com.martensigwart.fakeload.Preconditions.checkArgument;
+import static com.martensigwart.fakeload.Preconditions.checkNotNull;
 
+/**
+ * Simulates memory load by allocating byte buffers, either on the Java heap or,
+ * outside the heap, as direct buffers (see {@link MemoryKind}).
+ *
+ * <p>
+ * Memory is allocated in chunks of a configurable size (16 MB by default). When the load changes, only
+ * the difference between the allocated and the desired amount of memory is allocated or released,
+ * chunk by chunk, so that the memory already allocated is kept. The last chunk may be smaller than the
+ * chunk size, so that exactly the desired amount of memory is allocated.
+ *
+ * <p>
+ * At most one chunk is allocated or released per call of {@link #simulateLoad(long)}, so that
+ * a load change arriving while a large amount of memory is being allocated takes effect immediately.
+ * Released direct buffers are freed immediately (see {@link DirectMemory}), heap buffers are left to
+ * the garbage collector.
+ *
+ * <p>
+ * Freshly allocated memory does not necessarily become resident, e.g. zeroed pages might only be mapped
+ * lazily by the operating system. With page touching enabled (see {@link #setPageTouching(boolean)}),
+ * a byte of every page of a chunk is written after allocation. Chunks are touched in batches: as soon as
+ * the chunks allocated since the last batch reach {@value #PARALLEL_TOUCH_THRESHOLD} bytes, they are
+ * touched in parallel on all processors, the rest once the desired amount of memory is allocated. In addition,
+ * a fraction of the pages can be rewritten continuously (see {@link #setRefreshRate(double)}), which keeps
+ * them hot and dirty. Once the desired amount of memory is allocated, the resident set size of the process
+ * is read (see {@link #getResidentSize()}).
+ *
+ * <p>
+ * On the heap, chunks can alternatively be retained as object graphs of the size of a chunk, e.g. linked lists
+ * or trees of small objects (see {@link MemoryShape}), which reproduces the marking cost of real heap content
+ * for the garbage collector. Objects are written on construction, so page touching and refreshing apply
+ * to byte arrays only.
+ *
+ * <p>
+ * Memory load can grow continuously rather than at once (see {@link MemoryRamp}). While ramps are in progress,
+ * the part of the load that has not grown yet is held back and memory is allocated in whole chunks as soon as
+ * the grown load permits, so the allocation rate is bounded by the growth rates of the ramps.
+ *
+ * <p>
+ * If an allocation fails with an {@link OutOfMemoryError}, the simulator gives its last chunk back and stops
+ * growing until the load changes (see {@link #getFailureCount()}), rather than dying and retrying.
+ *
+ * @since 1.8
+ * @author Marten Sigwart
+ */
 public final class MemorySimulator extends AbstractLoadSimulator {
 
     private static final Logger log = LoggerFactory.getLogger(MemorySimulator.class);
 
-    private long actualLoad;
-    private final List<byte[]> allocatedMemory;
+    /**
+     * The default chunk size of 16 MB
+     */
+    public static final int DEFAULT_CHUNK_SIZE = 16 * 1024 * 1024;
+
+    /**
+     * The maximum chunk size, which is the maximum array size supported by most JVMs
+     */
+    public static final int MAXIMUM_CHUNK_SIZE = Integer.MAX_VALUE - 8;
+
+    /**
+     * Batches of chunks of at least this size are touched in parallel
+     */
+    static final int PARALLEL_TOUCH_THRESHOLD = 64 * 1024 * 1024;
+    private static final int SEGMENTS_PER_PROCESSOR = 4;
+    private static final long REFRESH_INTERVAL = 100L;
+
+    private final MemoryKind kind;
+    private final MemoryShape shape;
+    private final int chunkSize;
+    private final List<Chunk> allocatedMemory;
+    private volatile MemoryRamp[] ramps = new MemoryRamp[0];     // replaced on change, iterated without allocation
+    private volatile long actualLoad;
+    private volatile boolean pageTouching;
+    private volatile double refreshRate;
+    private volatile long residentSize = -1L;
+    private volatile long failedLoad = -1L;
+    private volatile int failureCount;
+
+    // number of leading chunks not to be touched (anymore), only used by the simulator thread
+    private int touchedChunks;
+
+    // position of the next page to be refreshed, only used by the simulator thread
+    private int refreshChunk;
+    private int refreshOffset;
+    private double pendingRefreshes;
 
     public MemorySimulator() {
-        super(-1L, "MemorySim");
+        this(MemoryKind.HEAP, DEFAULT_CHUNK_SIZE);
+    }
+
+    /**
+     * @param kind the kind of memory to be allocated
+     * @param chunkSize the size of the chunks in bytes in which memory is allocated and released
+     */
+    public MemorySimulator(MemoryKind kind, int chunkSize) {
+        this(kind, MemoryShape.BYTE_ARRAYS, chunkSize);
+    }
+
+    /**
+     * @param kind the kind of memory to be allocated
+     * @param shape the shape of the chunks, off-heap memory only supports {@link MemoryShape#BYTE_ARRAYS}
+     * @param chunkSize the size of the chunks in bytes in which memory is allocated and released
+     */
+    public MemorySimulator(MemoryKind kind, MemoryShape shape, int chunkSize) {
+        super(-1L, (kind == MemoryKind.HEAP) ? "MemorySim" : "OffHeapMemorySim");
+        checkArgument(chunkSize > 0 && chunkSize <= MAXIMUM_CHUNK_SIZE,
+                "Chunk size must be between 1 and %s bytes but was %s", MAXIMUM_CHUNK_SIZE, chunkSize);
+        checkArgument(kind == MemoryKind.HEAP || checkNotNull(shape).isByteArrays(),
+                "Off-heap memory can only be allocated as byte arrays but shape was %s", shape);
+        this.kind = checkNotNull(kind);
+        this.shape = checkNotNull(shape);
+        this.chunkSize = chunkSize;
         this.actualLoad = 0L;
         this.allocatedMemory = new ArrayList<>();
     }
@@ -23,31 +131,320 @@ public final class MemorySimulator extends AbstractLoadSimulator {
 
     @Override
     protected void simulateLoad(long loadToAllocate) throws InterruptedException {
-        allocatedMemory.clear();
+        long load = actualLoad;
+        if (failedLoad != loadToAllocate) {
+            failedLoad = -1L;
+        }
+        long target = rampedTarget(loadToAllocate, load);
+        if (load == target || (loadToAllocate == failedLoad && load < target)) {
+            refreshPages();
+            return;
+        }
 
-        if (loadToAllocate < Integer.MAX_VALUE) {
-            allocatedMemory.add(new byte[(int)loadToAllocate]);
-        } else {
-            int modulo = Math.toIntExact(loadToAllocate % Integer.MAX_VALUE);
-            int times = Math.toIntExact((loadToAllocate - modulo) / Integer.MAX_VALUE);
-            log.trace("Modulo: {}, times: {}", modulo, times);
-
-            for (int i = 0; i < times; i++) {
-                log.trace("Round {} start", i);
-                allocatedMemory.add(new byte[Integer.MAX_VALUE]);
-                log.trace("Round {} end", i);
+        // a partial chunk at the end is always released first
+        Chunk last = allocatedMemory.isEmpty() ? null : allocatedMemory.get(allocatedMemory.size() - 1);
+        if (last != null && (last.size < chunkSize || load > target)) {
+            allocatedMemory.remove(allocatedMemory.size() - 1);
+            last.free();
+            load -= last.size;
+            touchedChunks = Math.min(touchedChunks, allocatedMemory.size());
+        } else if (load < target) {
+            int size = (int) Math.min(chunkSize, target - load);
+            Object data;
+            try {
+                data = (kind == MemoryKind.HEAP) ? shape.allocate(size) : ByteBuffer.allocateDirect(size);
+            } catch (OutOfMemoryError e) {
+                handleOutOfMemory(e, loadToAllocate, last);
+                return;
             }
+            allocatedMemory.add(new Chunk(data, size));
+            load += size;
+        }
+        touchBatch(load == target);
 
-            log.debug("Now adding {} bytes", modulo);
-            allocatedMemory.add(new byte[modulo]);
+        if (log.isTraceEnabled()) {
+            log.trace("Allocated {} in {} chunks", MemoryUnit.mbString(load), allocatedMemory.size());
+        }
+        if (load == loadToAllocate) {
+            residentSize = ProcessMemory.residentSize();
+            log.debug("Allocated {}, resident set size of process: {}",
+                    MemoryUnit.mbString(load), MemoryUnit.mbString(residentSize));
         }
+        // published last, so that the resident size is up to date once the load is reached
+        actualLoad = load;
+    }
 
-        actualLoad = loadToAllocate;
+    /**
+     * Returns the load to be allocated now, which is the specified load minus the part of the ramps
+     * that has not grown yet. While ramping, the load grows by whole chunks only.
+     */
+    private long rampedTarget(long loadToAllocate, long load) {
+        long now = System.nanoTime();
+        long remaining = 0L;
+        for (MemoryRamp ramp : ramps) {
+            remaining += ramp.remaining(now);
+        }
+        if (remaining == 0) {
+            return loadToAllocate;
+        }
+        long target = Math.max(0L, loadToAllocate - remaining);
+        return (target > load) ? load + (target - load) / chunkSize * chunkSize : target;
+    }
+
+    /**
+     * Stops growing towards the specified load and gives the last chunk back to the application,
+     * instead of retrying the allocation, which would cause out of memory errors in other threads as well.
+     */
+    private void handleOutOfMemory(OutOfMemoryError e, long loadToAllocate, Chunk last) {
+        long load = actualLoad;
+        if (last != null) {
+            allocatedMemory.remove(allocatedMemory.size() - 1);
+            last.free();
+            load -= last.size;
+        }
+        touchBatch(true);
+        failedLoad = loadToAllocate;
+        failureCount++;
+        log.warn("Could not allocate {}, keeping {}: {}",
+                MemoryUnit.mbString(loadToAllocate), MemoryUnit.mbString(load), e.getMessage());
+        actualLoad = load;
+    }
+
+    /**
+     * Touches the chunks allocated since the last batch, if they are large enough to be touched
+     * in parallel or if the specified batch is the last one.
+     */
+    private void touchBatch(boolean last) {
+        if (!pageTouching || !shape.isByteArrays()) {
+            touchedChunks = allocatedMemory.size();
+            return;
+        }
+        long bytes = 0L;
+        for (int i = touchedChunks; i < allocatedMemory.size(); i++) {
+            bytes += allocatedMemory.get(i).size;
+        }
+        if (bytes > 0 && (last || bytes >= PARALLEL_TOUCH_THRESHOLD)) {
+            List<ByteBuffer> batch = new ArrayList<>(allocatedMemory.size() - touchedChunks);
+            for (int i = touchedChunks; i < allocatedMemory.size(); i++) {
+                batch.add(allocatedMemory.get(i).buffer());
+            }
+            touchPages(batch);
+            touchedChunks = allocatedMemory.size();
+        }
+    }
+
+    /**
+     * Writes a byte to every page of the specified chunk, so that the chunk becomes resident.
+     * Large chunks are touched in parallel.
+     */
+    static void touchPages(ByteBuffer chunk) {
+        touchPages(Collections.singletonList(chunk));
+    }
+
+    /**
+     * Writes a byte to every page of the specified chunks. Chunks of at least
+     * {@value #PARALLEL_TOUCH_THRESHOLD} bytes in total are split into segments touched on all processors.
+     */
+    static void touchPages(List<ByteBuffer> chunks) {
+        long bytes = 0L;
+        for (ByteBuffer chunk : chunks) {
+            bytes += chunk.capacity();
+        }
+        if (bytes < PARALLEL_TOUCH_THRESHOLD) {
+            chunks.forEach(chunk -> touchPages(chunk, 0, pages(chunk)));
+            return;
+        }
+        // segments of equal size, so that a few large chunks are spread over all processors as well
+        int processors = Runtime.getRuntime().availableProcessors();
+        long segmentPages = Math.max(1L, bytes / ProcessMemory.PAGE_SIZE / (SEGMENTS_PER_PROCESSOR * processors));
+        List<Runnable> segments = new ArrayList<>();
+        for (ByteBuffer chunk : chunks) {
+            int pages = pages(chunk);
+            for (long page = 0; page < pages; page += segmentPages) {
+                ByteBuffer segment = chunk.duplicate();
+                int fromPage = (int) page;
+                int toPage = (int) Math.min(pages, page + segmentPages);
+                segments.add(() -> touchPages(segment, fromPage, toPage));
+            }
+        }
+        segments.parallelStream().forEach(Runnable::run);
+    }
+
+    private static int pages(ByteBuffer chunk) {
+        return (chunk.capacity() + ProcessMemory.PAGE_SIZE - 1) / ProcessMemory.PAGE_SIZE;
+    }
+
+    private static void touchPages(ByteBuffer chunk, int fromPage, int toPage) {
+        for (int page = fromPage; page < toPage; page++) {
+            int index = page * ProcessMemory.PAGE_SIZE;
+            chunk.put(index, (byte) (chunk.get(index) + 1));
+        }
+    }
+
+    /**
+     * Rewrites the share of pages due within one refresh interval, continuing where the last refresh
+     * stopped, and waits for the rest of the interval.
+     */
+    private void refreshPages() throws InterruptedException {
+        long start = System.nanoTime();
+        if (shape.isByteArrays()) {
+            long totalPages = (actualLoad + ProcessMemory.PAGE_SIZE - 1) / ProcessMemory.PAGE_SIZE;
+            pendingRefreshes += totalPages * refreshRate * REFRESH_INTERVAL / 1000;
+        }
+
+        while (pendingRefreshes >= 1 && !allocatedMemory.isEmpty()) {
+            if (refreshChunk >= allocatedMemory.size()) {
+                refreshChunk = 0;
+                refreshOffset = 0;
+            }
+            ByteBuffer chunk = allocatedMemory.get(refreshChunk).buffer();
+            if (refreshOffset >= chunk.capacity()) {
+                refreshChunk++;
+                refreshOffset = 0;
+                continue;
+            }
+            chunk.put(refreshOffset, (byte) (chunk.get(refreshOffset) + 1));
+            refreshOffset += ProcessMemory.PAGE_SIZE;
+            pendingRefreshes--;
+        }
+        pendingRefreshes = Math.min(pendingRefreshes, 1.0);
+
+        long remaining = TimeUnit.MILLISECONDS.toNanos(REFRESH_INTERVAL) - (System.nanoTime() - start);
+        if (remaining > 0) {
+            TimeUnit.NANOSECONDS.sleep(remaining);
+        }
     }
 
     @Override
     protected boolean waitConditionFulfilled() {
-        return (getLoad() == actualLoad);
+        long load = getLoad();
+        boolean done = (load == actualLoad) || (load == failedLoad && actualLoad < load);
+        return done && !isRamping() && (refreshRate == 0 || actualLoad == 0 || !shape.isByteArrays());
+    }
+
+    /**
+     * Adds a ramp, which holds back part of the load until it has grown. Must be added before
+     * the load including the ramp is set, so that the ramped memory is not allocated at once.
+     * @param ramp the ramp to be added
+     */
+    synchronized void addRamp(MemoryRamp ramp) {
+        MemoryRamp[] current = ramps;
+        MemoryRamp[] updated = Arrays.copyOf(current, current.length + 1);
+        updated[current.length] = checkNotNull(ramp);
+        ramps = updated;
+    }
+
+    /**
+     * Removes a ramp, so that the rest of its memory, if any, is no longer held back.
+     * @param ramp the ramp to be removed
+     */
+    synchronized void removeRamp(MemoryRamp ramp) {
+        List<MemoryRamp> updated = new ArrayList<>(Arrays.asList(ramps));
+        if (updated.remove(ramp)) {
+            ramps = updated.toArray(new MemoryRamp[0]);
+        }
+    }
+
+    /**
+     * @return true if part of the load is held back by ramps which have not fully grown yet
+     */
+    boolean isRamping() {
+        long now = System.nanoTime();
+        for (MemoryRamp ramp : ramps) {
+            if (ramp.remaining(now) > 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Enables or disables page touching. When enabled, a byte of every page of a newly allocated
+     * chunk is written, so that the chunk actually becomes resident. Disabled by default.
+     * @param pageTouching whether pages should be touched on allocation
+     */
+    public void setPageTouching(boolean pageTouching) {
+        this.pageTouching = pageTouching;
+    }
+
+    /**
+     * @return true if pages are touched on allocation
+     */
+    public boolean isPageTouching() {
+        return pageTouching;
+    }
+
+    /**
+     * Sets the fraction of the allocated pages rewritten per second once the desired amount
+     * of memory is allocated, e.g. 0.1 rewrites every page once in ten seconds. Zero, the default,
+     * disables rewriting. A changed refresh rate takes effect with the next load change.
+     * @param refreshRate the fraction of pages rewritten per second
+     */
+    public void setRefreshRate(double refreshRate) {
+        checkArgument(refreshRate >= 0, "Refresh rate must be nonnegative but was %s", refreshRate);
+        this.refreshRate = refreshRate;
+    }
+
+    /**
+     * @return the fraction of the allocated pages rewritten per second
+     */
+    public double getRefreshRate() {
+        return refreshRate;
+    }
+
+    /**
+     * Returns the resident set size of the process read after the desired amount of memory
+     * has been allocated the last time, see {@link ProcessMemory}.
+     * @return the resident set size in bytes, or -1 if unknown
+     */
+    public long getResidentSize() {
+        return residentSize;
+    }
+
+    /**
+     * Returns how often the simulator failed to allocate memory. After a failure, the simulator does not
+     * try to reach the same load again, but keeps the memory allocated so far minus one chunk.
+     * @return the number of allocation failures
+     */
+    public int getFailureCount() {
+        return failureCount;
+    }
+
+    /**
+     * @return the amount of memory currently allocated in bytes
+     */
+    public long getActualLoad() {
+        return actualLoad;
+    }
+
+    /**
+     * @return the kind of memory allocated by this simulator
+     */
+    public MemoryKind getKind() {
+        return kind;
+    }
+
+    /**
+     * @return the shape of the chunks allocated by this simulator
+     */
+    public MemoryShape getShape() {
+        return shape;
+    }
+
+    /**
+     * @return the size of the chunks in bytes in which memory is allocated
+     */
+    public int getChunkSize() {
+        return chunkSize;
+    }
+
+    /**
+     * @return the chunks currently allocated, i.e. byte buffers or the roots of object graphs
+     */
+    List<Object> getChunks() {
+        List<Object> chunks = new ArrayList<>(allocatedMemory.size());
+        allocatedMemory.forEach(chunk -> chunks.add(chunk.data));
+        return Collections.unmodifiableList(chunks);
     }
 
     @Override
@@ -57,7 +454,34 @@ public final class MemorySimulator extends AbstractLoadSimulator {
 
     @Override
     protected void cleanUp() {
+        allocatedMemory.forEach(Chunk::free);
         allocatedMemory.clear();
+        touchedChunks = 0;
+        actualLoad = 0L;
+    }
+
+
+    /**
+     * A chunk of allocated memory together with its size
+     */
+    private static final class Chunk {
+        private final Object data;
+        private final int size;
+
+        private Chunk(Object data, int size) {
+            this.data = data;
+            this.size = size;
+        }
+
+        private ByteBuffer buffer() {
+            return (ByteBuffer) data;
+        }
+
+        private void free() {
+            if (data instanceof ByteBuffer) {
+                DirectMemory.free((ByteBuffer) data);
+            }
+        }
     }
 
 }
@@ -0,0 +1,31 @@
+package com.martensigwart.fakeload;
+
+import com.sun.management.OperatingSystemMXBean;
+
+import java.lang.management.ManagementFactory;
+
+/**
+ * A {@link CpuProbe} based on the JVM's view of the machine, i.e.
+ * {@link Runtime#availableProcessors()} and {@link OperatingSystemMXBean#getSystemCpuLoad()}.
+ *
+ * @since 1.8
+ * @see CpuProbe
+ * @author Marten Sigwart
+ */
+public final class OperatingSystemCpuProbe implements CpuProbe {
+
+    private static final OperatingSystemMXBean operatingSystem = ManagementFactory.getPlatformMXBean(OperatingSystemMXBean.class);
+
+    @Override
+    public double getAvailableCores() {
+        return Runtime.getRuntime().availableProcessors();
+    }
+
+    @Override
+    public double getCpuLoad() {
+        // Note: we use getSystemCpuLoad instead of getCpuLoad to allow
+        // backwards compatibility with LTS Java version 8/11.
+        double load = operatingSystem.getSystemCpuLoad();
+        return (load < 0) ? 0.0 : load * 100;
+    }
+}
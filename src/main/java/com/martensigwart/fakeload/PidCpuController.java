@@ -0,0 +1,176 @@
+package com.martensigwart.fakeload;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.annotation.concurrent.NotThreadSafe;
+import java.util.concurrent.TimeUnit;
+
+import static com.martensigwart.fakeload.Preconditions.checkArgument;
+
+/**
+ * A {@link CpuController} implementing a PID control loop.
+ *
+ * <p>
+ * The desired load is used as feed-forward term, the proportional, integral and derivative
+ * terms only correct the deviation between desired and actual load:
+ *
+ * <pre>
+ * output = desired + kp * e + ki * &int;e dt - kd * d(actual)/dt,   e = desired - actual
+ * </pre>
+ *
+ * The derivative term is computed on the actual load instead of the error to avoid
+ * output spikes whenever the desired load changes. The output is limited to
+ * {@code [0, maximumOutput]}. To prevent integral windup, the integral is not accumulated
+ * while the output is saturated in the direction of the error.
+ *
+ * <p>
+ * The desired load is regarded as reached as soon as the absolute error falls within
+ * {@value #CONVERGENCE_THRESHOLD} percent. Convergence time and steady-state error are
+ * measured anew every time the desired load changes.
+ *
+ * @since 1.8
+ * @see CpuController
+ * @see LoadController
+ * @author Marten Sigwart
+ */
+@NotThreadSafe
+public final class PidCpuController implements CpuController {
+
+    private static final Logger log = LoggerFactory.getLogger(PidCpuController.class);
+
+    public static final double DEFAULT_KP = 0.2;
+    public static final double DEFAULT_KI = 1.2;
+    public static final double DEFAULT_KD = 0.0;
+    static final double CONVERGENCE_THRESHOLD = 1.0;
+
+    private final double kp;
+    private final double ki;
+    private final double kd;
+    private final double maximumOutput;
+
+    private double integral;
+    private double lastActual;
+    private long lastTimestamp;
+    private boolean initialized;
+
+    private double lastDesired;
+    private long desiredSince;
+    private long convergenceTime;
+    private double errorSum;
+    private long errorSamples;
+
+
+    /**
+     * Creates a new {@code PidCpuController} with default gains.
+     */
+    public PidCpuController() {
+        this(DEFAULT_KP, DEFAULT_KI, DEFAULT_KD);
+    }
+
+    /**
+     * Creates a new {@code PidCpuController} with an output limit of 100 percent.
+     * @param kp the proportional gain
+     * @param ki the integral gain (per second)
+     * @param kd the derivative gain (in seconds)
+     */
+    public PidCpuController(double kp, double ki, double kd) {
+        this(kp, ki, kd, 100.0);
+    }
+
+    /**
+     * Creates a new {@code PidCpuController}.
+     * @param kp the proportional gain
+     * @param ki the integral gain (per second)
+     * @param kd the derivative gain (in seconds)
+     * @param maximumOutput the maximum CPU load in percent the controller may command
+     */
+    public PidCpuController(double kp, double ki, double kd, double maximumOutput) {
+        checkArgument(kp >= 0, "Proportional gain must be nonnegative but was %s", kp);
+        checkArgument(ki >= 0, "Integral gain must be nonnegative but was %s", ki);
+        checkArgument(kd >= 0, "Derivative gain must be nonnegative but was %s", kd);
+        checkArgument(maximumOutput > 0, "Maximum output must be positive but was %s", maximumOutput);
+
+        this.kp = kp;
+        this.ki = ki;
+        this.kd = kd;
+        this.maximumOutput = maximumOutput;
+        reset();
+    }
+
+
+    @Override
+    public double control(double desiredLoad, double actualLoad, long timestamp) {
+        if (!initialized || desiredLoad != lastDesired) {
+            startConvergence(desiredLoad, timestamp);
+        }
+
+        double error = desiredLoad - actualLoad;
+        recordError(error, timestamp);
+
+        double dt = initialized ? (timestamp - lastTimestamp) / 1e9 : 0.0;
+        double derivative = (initialized && dt > 0) ? (actualLoad - lastActual) / dt : 0.0;
+
+        double output = desiredLoad + kp * error + ki * (integral + error * dt) - kd * derivative;
+
+        // Conditional integration: only integrate if that does not push a saturated output further out
+        boolean saturatedHigh = output > maximumOutput && error > 0;
+        boolean saturatedLow = output < 0 && error < 0;
+        if (!saturatedHigh && !saturatedLow) {
+            integral += error * dt;
+        }
+
+        output = desiredLoad + kp * error + ki * integral - kd * derivative;
+        output = Math.max(0.0, Math.min(maximumOutput, output));
+
+        log.trace("Desired: {}, actual: {}, error: {}, integral: {}, output: {}",
+                desiredLoad, actualLoad, error, integral, output);
+
+        lastActual = actualLoad;
+        lastTimestamp = timestamp;
+        initialized = true;
+        return output;
+    }
+
+    @Override
+    public void reset() {
+        integral = 0.0;
+        lastActual = 0.0;
+        lastTimestamp = 0L;
+        initialized = false;
+        lastDesired = Double.NaN;
+        convergenceTime = -1L;
+        errorSum = 0.0;
+        errorSamples = 0L;
+    }
+
+    @Override
+    public long getConvergenceTime() {
+        return convergenceTime;
+    }
+
+    @Override
+    public double getSteadyStateError() {
+        return (errorSamples == 0) ? Double.NaN : errorSum / errorSamples;
+    }
+
+    private void startConvergence(double desiredLoad, long timestamp) {
+        lastDesired = desiredLoad;
+        desiredSince = timestamp;
+        convergenceTime = -1L;
+        errorSum = 0.0;
+        errorSamples = 0L;
+    }
+
+    private void recordError(double error, long timestamp) {
+        if (convergenceTime < 0 && Math.abs(error) <= CONVERGENCE_THRESHOLD) {
+            convergenceTime = TimeUnit.NANOSECONDS.toMillis(timestamp - desiredSince);
+            log.debug("Reached desired CPU load of {}% after {} ms", lastDesired, convergenceTime);
+        }
+        if (convergenceTime >= 0) {
+            errorSum += Math.abs(error);
+            errorSamples++;
+        }
+    }
+
+}
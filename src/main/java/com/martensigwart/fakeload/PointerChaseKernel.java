@@ -0,0 +1,75 @@
+package com.martensigwart.fakeload;
+
+import java.lang.ref.WeakReference;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Kernel chasing pointers through a memory region much larger than the CPU caches,
+ * see {@link CpuKernel#DRAM}.
+ *
+ * <p>
+ * The region is divided into cache lines, which are linked into a single random cycle
+ * (Sattolo's algorithm). As the address of the next load depends on the result of the current one,
+ * loads cannot be overlapped and the hardware prefetchers cannot predict them, so almost every
+ * load has to wait for main memory. The region is shared by all instances as long as any of them is in use.
+ */
+final class PointerChaseKernel implements Kernel {
+
+    private static final int STRIDE = WorkingSetKernel.CACHE_LINE / Integer.BYTES;
+    private static final int HOPS = 16;
+
+    private static WeakReference<int[]> sharedChain = new WeakReference<>(null);
+
+    private final int[] chain;
+    private int position;
+
+    /**
+     * @param size the size of the memory region in bytes
+     */
+    PointerChaseKernel(int size) {
+        this.chain = sharedChain(size);
+        this.position = ThreadLocalRandom.current().nextInt(chain.length / STRIDE) * STRIDE;
+    }
+
+    @Override
+    public long execute() {
+        int[] next = chain;
+        int p = position;
+        for (int i = 0; i < HOPS; i++) {
+            p = next[p];
+        }
+        position = p;
+        return p;
+    }
+
+    private static synchronized int[] sharedChain(int size) {
+        int[] chain = sharedChain.get();
+        if (chain == null || chain.length != size / Integer.BYTES) {
+            chain = newChain(size);
+            sharedChain = new WeakReference<>(chain);
+        }
+        return chain;
+    }
+
+    private static int[] newChain(int size) {
+        int lines = Math.max(2, size / WorkingSetKernel.CACHE_LINE);
+        int[] order = new int[lines];
+        for (int i = 0; i < lines; i++) {
+            order[i] = i;
+        }
+        // Sattolo's algorithm creates a random permutation consisting of a single cycle
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        for (int i = lines - 1; i > 0; i--) {
+            int j = random.nextInt(i);
+            int tmp = order[i];
+            order[i] = order[j];
+            order[j] = tmp;
+        }
+
+        int[] chain = new int[lines * STRIDE];
+        for (int i = 0; i < lines; i++) {
+            chain[i * STRIDE] = order[i] * STRIDE;
+        }
+        return chain;
+    }
+}
@@ -27,6 +27,12 @@ import javax.annotation.Nullable;
 final class Preconditions {
     private Preconditions() {}
 
+    static void checkArgument(boolean expression, @Nullable Object errorMessage) {
+        if (!expression) {
+            throw new IllegalArgumentException(String.valueOf(errorMessage));
+        }
+    }
+
     static void checkArgument(boolean b, @Nullable String errorMessageTemplate, int p1) {
         if (!b) {
             throw new IllegalArgumentException(format(errorMessageTemplate, p1));
@@ -39,12 +45,31 @@ final class Preconditions {
         }
     }
 
+    static void checkArgument(boolean b, @Nullable String errorMessageTemplate, @Nullable Object p1) {
+        if (!b) {
+            throw new IllegalArgumentException(format(errorMessageTemplate, p1));
+        }
+    }
+
     static void checkArgument(boolean b, @Nullable String errorMessageTemplate, int p1, int p2) {
         if (!b) {
             throw new IllegalArgumentException(format(errorMessageTemplate, p1, p2));
         }
     }
 
+    static void checkArgument(boolean b, @Nullable String errorMessageTemplate, int p1, long p2) {
+        if (!b) {
+            throw new IllegalArgumentException(format(errorMessageTemplate, p1, p2));
+        }
+    }
+
+    static void checkArgument(
+            boolean b, @Nullable String errorMessageTemplate, @Nullable Object p1, @Nullable Object p2) {
+        if (!b) {
+            throw new IllegalArgumentException(format(errorMessageTemplate, p1, p2));
+        }
+    }
+
 
     /**
      * Ensures that an object reference passed as a parameter to the calling method is not null.
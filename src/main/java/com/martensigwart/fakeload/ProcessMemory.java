@@ -0,0 +1,78 @@
+package com.martensigwart.fakeload;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.lang.reflect.Field;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+
+/**
+ * Provides the memory usage of the current process as seen by the operating system.
+ *
+ * <p>
+ * The resident set size is read from {@code /proc/self/statm}, which is only available on Linux.
+ * It is counted in pages of the size determined by {@code sun.misc.Unsafe.pageSize()}, e.g. 16 KB or 64 KB
+ * on some ARM kernels.
+ *
+ * @since 1.8
+ * @author Marten Sigwart
+ */
+final class ProcessMemory {
+
+    private static final Logger log = LoggerFactory.getLogger(ProcessMemory.class);
+    private static final Path STATM = Paths.get("/proc/self/statm");
+
+    private static final int DEFAULT_PAGE_SIZE = 4096;
+
+    /**
+     * The size of a memory page of the operating system, used for page touching and for interpreting
+     * {@code /proc/self/statm}, or 4 KB if it cannot be determined
+     */
+    static final int PAGE_SIZE = findPageSize();
+
+    private ProcessMemory() {}
+
+    /**
+     * @return true if the resident set size can be determined on this system
+     */
+    static boolean isAvailable() {
+        return Files.isReadable(STATM);
+    }
+
+    /**
+     * Returns the resident set size of the current process, i.e. the amount of memory
+     * actually held in physical memory.
+     * @return the resident set size in bytes, or -1 if it cannot be determined
+     */
+    static long residentSize() {
+        if (!isAvailable()) {
+            return -1L;
+        }
+        try {
+            // "$SIZE $RESIDENT $SHARED ..." in pages
+            List<String> lines = Files.readAllLines(STATM, StandardCharsets.UTF_8);
+            String[] values = lines.get(0).trim().split("\\s+");
+            return Long.parseLong(values[1]) * PAGE_SIZE;
+        } catch (IOException | RuntimeException e) {
+            log.debug("Failed to read resident set size from {}: {}", STATM, e.getMessage());
+            return -1L;
+        }
+    }
+
+    private static int findPageSize() {
+        try {
+            Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+            Field theUnsafe = unsafeClass.getDeclaredField("theUnsafe");
+            theUnsafe.setAccessible(true);
+            return (int) unsafeClass.getMethod("pageSize").invoke(theUnsafe.get(null));
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            log.debug("Page size not available, assuming {} bytes: {}", DEFAULT_PAGE_SIZE, e.getMessage());
+            return DEFAULT_PAGE_SIZE;
+        }
+    }
+}
@@ -3,17 +3,20 @@ package com.martensigwart.fakeload;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import javax.annotation.Nullable;
 import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.RandomAccessFile;
 
 /**
  * A {@code DiskInputSimulator} that simulates disk input using an underlying {@link RandomAccessFile}.
+ * If created for a {@link DiskInputFile}, the file is provisioned on first use.
  */
 public final class RandomAccessDiskInputSimulator extends DiskInputSimulator {
 
     private static final Logger log = LoggerFactory.getLogger(RandomAccessDiskInputSimulator.class);
     private final String filePath;
+    @Nullable private final DiskInputFile inputFile;
     private RandomAccessFile file;
 
     /**
@@ -22,27 +25,45 @@ public final class RandomAccessDiskInputSimulator extends DiskInputSimulator {
     public RandomAccessDiskInputSimulator(String filePath) {
         super();
         this.filePath = filePath;
+        this.inputFile = null;
+    }
+
+    /**
+     * @param inputFile the file for simulating disk input, provisioned on first use
+     */
+    public RandomAccessDiskInputSimulator(DiskInputFile inputFile) {
+        super();
+        this.filePath = inputFile.getPath();
+        this.inputFile = inputFile;
     }
 
     @Override
     protected int read(byte[] bytes) throws IOException {
         try {
             if (file == null) {
+                if (inputFile != null) {
+                    inputFile.provision();
+                }
                 file = new RandomAccessFile(filePath, "r");
                 log.trace("Opened file {}", filePath);
             }
 
-            int bytesRead = file.read(bytes);
-            if (bytesRead == bytes.length) {
-                return bytesRead;
-            }
-            // Could not read fully: reset file pointer and read rest of bytes
-            if (bytesRead < bytes.length) {
-                log.debug("End of file reached: Resetting file pointer");
-                file.seek(0);
-                file.read(bytes, bytesRead, bytes.length - bytesRead);
+            int bytesRead = 0;
+            while (bytesRead < bytes.length) {
+                int n = file.read(bytes, bytesRead, bytes.length - bytesRead);
+                if (n < 0) {
+                    // End of file reached: reset file pointer and read rest of bytes
+                    if (file.length() == 0) {
+                        throw new IOException(
+                                String.format("File %s used for simulating disk input is empty", filePath));
+                    }
+                    log.debug("End of file reached: Resetting file pointer");
+                    file.seek(0);
+                } else {
+                    bytesRead += n;
+                }
             }
-            return bytes.length;
+            return bytesRead;
 
         } catch (FileNotFoundException e) {
             throw new FileNotFoundException(String.format("File %s used for simulating disk input does not exist. " +
@@ -53,6 +74,7 @@ public final class RandomAccessDiskInputSimulator extends DiskInputSimulator {
 
     @Override
     protected void cleanUp() {
+        releaseBuffer();
         try {
             if (file != null) {
                 file.close();
@@ -45,6 +45,7 @@ public final class RandomAccessDiskOutputSimulator extends DiskOutputSimulator {
 
     @Override
     protected void cleanUp() {
+        releaseBuffer();
         if (file != null) {
             try {
                 file.close();
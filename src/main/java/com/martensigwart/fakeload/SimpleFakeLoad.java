@@ -34,33 +34,74 @@ import static com.martensigwart.fakeload.Preconditions.checkNotNull;
 @Immutable
 final class SimpleFakeLoad extends AbstractFakeLoad {
 
+    /**
+     * The maximum CPU load in cores, far beyond any machine
+     */
+    static final double MAXIMUM_CPU_CORES = 65536.0;
+
     private final long duration;
     private final TimeUnit unit;
     private final int cpu;
+    private final double cpuCores;
     private final long memory;
+    private final long offHeapMemory;
+    private final long memoryGrowthRate;
+    private final long allocationRate;
+    private final long memoryBandwidth;
     private final long diskInput;
     private final long diskOutput;
+    private final long diskIops;
+    private final CpuKernel cpuKernel;
+    private final CpuDistribution cpuDistribution;
+    private final CpuTargetMode cpuTargetMode;
+    private final HeadroomPolicy headroomPolicy;
 
 
     SimpleFakeLoad(long duration, TimeUnit unit, int repetitions,
                    int cpu, long memory, long diskInput, long diskOutput) {
+        this(new Copy(duration, unit, repetitions, cpu, memory, diskInput, diskOutput));
+    }
 
-        super(repetitions);
-
-        checkArgument(duration >= 0, "Duration must be nonnegative but was %s", duration);
-        checkArgument(cpu >= 0, "CPU load must be nonnegative but was %s", cpu);
-        checkArgument(cpu <= 100, "CPU load must be less than 100 percent but was %s", cpu);
-        checkArgument(memory >= 0, "memory load must be nonnegative but was %s", memory);
-        checkArgument(diskInput >= 0, "Disk Input load must be nonnegative but was %s", diskInput);
-        checkArgument(diskOutput >= 0, "Disk Output load must be nonnegative but was %s", diskOutput);
-
-
-        this.duration = duration;
-        this.unit = checkNotNull(unit);
-        this.cpu = cpu;
-        this.memory = memory;
-        this.diskInput = diskInput;
-        this.diskOutput = diskOutput;
+    private SimpleFakeLoad(Copy copy) {
+
+        super(copy.repetitions);
+
+        checkArgument(copy.duration >= 0, "Duration must be nonnegative but was %s", copy.duration);
+        checkArgument(copy.cpu >= 0, "CPU load must be nonnegative but was %s", copy.cpu);
+        checkArgument(copy.cpu <= 100, "CPU load must be less than 100 percent but was %s", copy.cpu);
+        checkArgument(copy.cpuCores >= 0, "CPU cores must be nonnegative but was %s", copy.cpuCores);
+        checkArgument(copy.cpuCores <= MAXIMUM_CPU_CORES, "CPU cores must be at most %s but was %s",
+                MAXIMUM_CPU_CORES, copy.cpuCores);
+        checkArgument(copy.memory >= 0, "memory load must be nonnegative but was %s", copy.memory);
+        checkArgument(copy.offHeapMemory >= 0, "Off-heap memory load must be nonnegative but was %s",
+                copy.offHeapMemory);
+        checkArgument(copy.memoryGrowthRate >= 0, "Memory growth rate must be nonnegative but was %s",
+                copy.memoryGrowthRate);
+        checkArgument(copy.allocationRate >= 0, "Allocation rate must be nonnegative but was %s",
+                copy.allocationRate);
+        checkArgument(copy.memoryBandwidth >= 0, "Memory bandwidth must be nonnegative but was %s",
+                copy.memoryBandwidth);
+        checkArgument(copy.diskInput >= 0, "Disk Input load must be nonnegative but was %s", copy.diskInput);
+        checkArgument(copy.diskOutput >= 0, "Disk Output load must be nonnegative but was %s", copy.diskOutput);
+        checkArgument(copy.diskIops >= 0, "Disk IOPS must be nonnegative but was %s", copy.diskIops);
+
+
+        this.duration = copy.duration;
+        this.unit = checkNotNull(copy.unit);
+        this.cpu = copy.cpu;
+        this.cpuCores = copy.cpuCores;
+        this.memory = copy.memory;
+        this.offHeapMemory = copy.offHeapMemory;
+        this.memoryGrowthRate = copy.memoryGrowthRate;
+        this.allocationRate = copy.allocationRate;
+        this.memoryBandwidth = copy.memoryBandwidth;
+        this.diskInput = copy.diskInput;
+        this.diskOutput = copy.diskOutput;
+        this.diskIops = copy.diskIops;
+        this.cpuKernel = checkNotNull(copy.cpuKernel);
+        this.cpuDistribution = checkNotNull(copy.cpuDistribution);
+        this.cpuTargetMode = checkNotNull(copy.cpuTargetMode);
+        this.headroomPolicy = checkNotNull(copy.headroomPolicy);
 
     }
 
@@ -76,35 +117,120 @@ final class SimpleFakeLoad extends AbstractFakeLoad {
 
     @Override
     public FakeLoad lasting(long duration, TimeUnit unit) {
-        return new SimpleFakeLoad(duration, unit, getRepetitions(), cpu, memory, diskInput, diskOutput);
+        Copy copy = new Copy(this);
+        copy.duration = duration;
+        copy.unit = unit;
+        return new SimpleFakeLoad(copy);
     }
 
     @Override
     public FakeLoad repeat(int repetitions) {
-        return new SimpleFakeLoad(duration, unit, repetitions, cpu, memory, diskInput, diskOutput);
+        Copy copy = new Copy(this);
+        copy.repetitions = repetitions;
+        return new SimpleFakeLoad(copy);
     }
 
     @Override
     public FakeLoad withCpu(int cpuLoad) {
-        return new SimpleFakeLoad(duration, unit, getRepetitions(), cpuLoad, memory, diskInput, diskOutput);
+        Copy copy = new Copy(this);
+        copy.cpu = cpuLoad;
+        return new SimpleFakeLoad(copy);
     }
 
     @Override
     public FakeLoad withMemory(long amount, MemoryUnit unit) {
-        long memoryLoad = unit.toBytes(amount);
-        return new SimpleFakeLoad(duration, this.unit, getRepetitions(), cpu, memoryLoad, diskInput, diskOutput);
+        Copy copy = new Copy(this);
+        copy.memory = unit.toBytes(amount);
+        return new SimpleFakeLoad(copy);
+    }
+
+    @Override
+    public FakeLoad withMemory(long amount, MemoryUnit unit, MemoryKind kind) {
+        if (checkNotNull(kind) == MemoryKind.HEAP) {
+            return withMemory(amount, unit);
+        }
+        Copy copy = new Copy(this);
+        copy.offHeapMemory = unit.toBytes(amount);
+        return new SimpleFakeLoad(copy);
+    }
+
+    @Override
+    public FakeLoad withMemoryGrowth(long amount, MemoryUnit unit, TimeUnit per) {
+        checkArgument(amount >= 0, "Memory growth must be nonnegative but was %s", amount);
+        double rate = unit.toBytes(amount) / ((double) checkNotNull(per).toNanos(1) / TimeUnit.SECONDS.toNanos(1));
+        Copy copy = new Copy(this);
+        copy.memoryGrowthRate = (amount > 0) ? Math.max(1L, Math.round(rate)) : 0L;
+        return new SimpleFakeLoad(copy);
+    }
+
+    @Override
+    public FakeLoad withAllocationRate(long amount, MemoryUnit unit) {
+        Copy copy = new Copy(this);
+        copy.allocationRate = unit.toBytes(amount);
+        return new SimpleFakeLoad(copy);
+    }
+
+    @Override
+    public FakeLoad withMemoryBandwidth(long amount, MemoryUnit unit) {
+        Copy copy = new Copy(this);
+        copy.memoryBandwidth = unit.toBytes(amount);
+        return new SimpleFakeLoad(copy);
     }
 
     @Override
     public FakeLoad withDiskInput(long load, MemoryUnit unit) {
-        long diskInputLoad = unit.toBytes(load);
-        return new SimpleFakeLoad(duration, this.unit, getRepetitions(), cpu, memory, diskInputLoad, diskOutput);
+        Copy copy = new Copy(this);
+        copy.diskInput = unit.toBytes(load);
+        return new SimpleFakeLoad(copy);
     }
 
     @Override
     public FakeLoad withDiskOutput(long load, MemoryUnit unit) {
-        long diskOutputLoad = unit.toBytes(load);
-        return new SimpleFakeLoad(duration, this.unit, getRepetitions(), cpu, memory, diskInput, diskOutputLoad);
+        Copy copy = new Copy(this);
+        copy.diskOutput = unit.toBytes(load);
+        return new SimpleFakeLoad(copy);
+    }
+
+    @Override
+    public FakeLoad withDiskIops(long iops) {
+        Copy copy = new Copy(this);
+        copy.diskIops = iops;
+        return new SimpleFakeLoad(copy);
+    }
+
+    @Override
+    public FakeLoad withCpuCores(double cores) {
+        Copy copy = new Copy(this);
+        copy.cpuCores = cores;
+        return new SimpleFakeLoad(copy);
+    }
+
+    @Override
+    public FakeLoad withCpuKernel(CpuKernel kernel) {
+        Copy copy = new Copy(this);
+        copy.cpuKernel = kernel;
+        return new SimpleFakeLoad(copy);
+    }
+
+    @Override
+    public FakeLoad withCpuDistribution(CpuDistribution distribution) {
+        Copy copy = new Copy(this);
+        copy.cpuDistribution = distribution;
+        return new SimpleFakeLoad(copy);
+    }
+
+    @Override
+    public FakeLoad withCpuTargetMode(CpuTargetMode mode) {
+        Copy copy = new Copy(this);
+        copy.cpuTargetMode = mode;
+        return new SimpleFakeLoad(copy);
+    }
+
+    @Override
+    public FakeLoad withHeadroomPolicy(HeadroomPolicy policy) {
+        Copy copy = new Copy(this);
+        copy.headroomPolicy = policy;
+        return new SimpleFakeLoad(copy);
     }
 
     @Override
@@ -136,11 +262,56 @@ final class SimpleFakeLoad extends AbstractFakeLoad {
         return cpu;
     }
 
+    @Override
+    public double getCpuCores() {
+        return cpuCores;
+    }
+
+    @Override
+    public CpuKernel getCpuKernel() {
+        return cpuKernel;
+    }
+
+    @Override
+    public CpuDistribution getCpuDistribution() {
+        return cpuDistribution;
+    }
+
+    @Override
+    public CpuTargetMode getCpuTargetMode() {
+        return cpuTargetMode;
+    }
+
+    @Override
+    public HeadroomPolicy getHeadroomPolicy() {
+        return headroomPolicy;
+    }
+
     @Override
     public long getMemory() {
         return memory;
     }
 
+    @Override
+    public long getOffHeapMemory() {
+        return offHeapMemory;
+    }
+
+    @Override
+    public long getMemoryGrowthRate() {
+        return memoryGrowthRate;
+    }
+
+    @Override
+    public long getAllocationRate() {
+        return allocationRate;
+    }
+
+    @Override
+    public long getMemoryBandwidth() {
+        return memoryBandwidth;
+    }
+
     @Override
     public long getDiskInput() {
         return diskInput;
@@ -151,6 +322,11 @@ final class SimpleFakeLoad extends AbstractFakeLoad {
         return diskOutput;
     }
 
+    @Override
+    public long getDiskIops() {
+        return diskIops;
+    }
+
     @Override
     public long getDuration() {
         return duration;
@@ -199,15 +375,27 @@ final class SimpleFakeLoad extends AbstractFakeLoad {
 
         if (duration != fakeLoad.duration) return false;
         if (cpu != fakeLoad.cpu) return false;
+        if (Double.compare(cpuCores, fakeLoad.cpuCores) != 0) return false;
         if (memory != fakeLoad.memory) return false;
+        if (offHeapMemory != fakeLoad.offHeapMemory) return false;
+        if (memoryGrowthRate != fakeLoad.memoryGrowthRate) return false;
+        if (allocationRate != fakeLoad.allocationRate) return false;
+        if (memoryBandwidth != fakeLoad.memoryBandwidth) return false;
         if (diskInput != fakeLoad.diskInput) return false;
+        if (diskIops != fakeLoad.diskIops) return false;
         if (getRepetitions() != fakeLoad.getRepetitions()) return false;
+        if (cpuKernel != fakeLoad.cpuKernel) return false;
+        if (!cpuDistribution.equals(fakeLoad.cpuDistribution)) return false;
+        if (cpuTargetMode != fakeLoad.cpuTargetMode) return false;
+        if (headroomPolicy != fakeLoad.headroomPolicy) return false;
         return unit == fakeLoad.unit;
     }
 
     @Override
     public int hashCode() {
-        return Objects.hash(duration, getRepetitions(), cpu, memory, diskInput, unit);
+        return Objects.hash(duration, getRepetitions(), cpu, cpuCores, memory, offHeapMemory, memoryGrowthRate,
+                allocationRate, memoryBandwidth, diskInput, diskIops, unit, cpuKernel, cpuDistribution,
+                cpuTargetMode, headroomPolicy);
     }
 
     @Override
@@ -216,9 +404,19 @@ final class SimpleFakeLoad extends AbstractFakeLoad {
                 "duration=" + duration +
                 ", unit=" + unit +
                 ", cpu=" + cpu +
+                ", cpuCores=" + cpuCores +
+                ", cpuKernel=" + cpuKernel +
+                ", cpuDistribution=" + cpuDistribution +
+                ", cpuTargetMode=" + cpuTargetMode +
+                ", headroomPolicy=" + headroomPolicy +
                 ", memory=" + memory +
+                ", offHeapMemory=" + offHeapMemory +
+                ", memoryGrowthRate=" + memoryGrowthRate +
+                ", allocationRate=" + allocationRate +
+                ", memoryBandwidth=" + memoryBandwidth +
                 ", diskInput=" + diskInput +
                 ", diskOutput=" + diskOutput +
+                ", diskIops=" + diskIops +
                 ", repetitions=" + getRepetitions() +
                 '}';
     }
@@ -232,4 +430,55 @@ final class SimpleFakeLoad extends AbstractFakeLoad {
         return new SerializationProxy(this);
     }
 
+
+    /**
+     * The mutable parameters of a {@code SimpleFakeLoad}, copied from an existing instance,
+     * so that each setter only needs to change the parameter it sets.
+     */
+    private static final class Copy {
+        private long duration;
+        private TimeUnit unit;
+        private int repetitions;
+        private int cpu;
+        private double cpuCores;
+        private long memory;
+        private long offHeapMemory;
+        private long memoryGrowthRate;
+        private long allocationRate;
+        private long memoryBandwidth;
+        private long diskInput;
+        private long diskOutput;
+        private long diskIops;
+        private CpuKernel cpuKernel = CpuKernel.FIBONACCI;
+        private CpuDistribution cpuDistribution = CpuDistribution.SPREAD;
+        private CpuTargetMode cpuTargetMode = CpuTargetMode.TOTAL;
+        private HeadroomPolicy headroomPolicy = HeadroomPolicy.REJECT;
+
+        private Copy(long duration, TimeUnit unit, int repetitions,
+                     int cpu, long memory, long diskInput, long diskOutput) {
+            this.duration = duration;
+            this.unit = unit;
+            this.repetitions = repetitions;
+            this.cpu = cpu;
+            this.memory = memory;
+            this.diskInput = diskInput;
+            this.diskOutput = diskOutput;
+        }
+
+        private Copy(SimpleFakeLoad load) {
+            this(load.duration, load.unit, load.getRepetitions(), load.cpu, load.memory, load.diskInput,
+                    load.diskOutput);
+            this.cpuCores = load.cpuCores;
+            this.offHeapMemory = load.offHeapMemory;
+            this.memoryGrowthRate = load.memoryGrowthRate;
+            this.allocationRate = load.allocationRate;
+            this.memoryBandwidth = load.memoryBandwidth;
+            this.diskIops = load.diskIops;
+            this.cpuKernel = load.cpuKernel;
+            this.cpuDistribution = load.cpuDistribution;
+            this.cpuTargetMode = load.cpuTargetMode;
+            this.headroomPolicy = load.headroomPolicy;
+        }
+    }
+
 }
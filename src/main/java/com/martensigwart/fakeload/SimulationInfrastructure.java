@@ -36,6 +36,7 @@ public interface SimulationInfrastructure {
      * by the specified {@link FakeLoad}
      * @param load the load by which the overall system load is decreased
      * @throws RuntimeException in case the specified decrease would cause an illegal (e.g. negative) system load
+     * @throws MemoryLoadClampedException if the memory load of the specified load was clamped to the headroom
      */
     void decreaseSystemLoadBy(FakeLoad load);
 
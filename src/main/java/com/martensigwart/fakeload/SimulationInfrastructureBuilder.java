@@ -0,0 +1,519 @@
+package com.martensigwart.fakeload;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import static com.martensigwart.fakeload.Preconditions.checkArgument;
+import static com.martensigwart.fakeload.Preconditions.checkNotNull;
+
+/**
+ * A builder for creating {@link DefaultSimulationInfrastructure} instances.
+ *
+ * <p>
+ * All parameters are optional. A builder without any parameters set creates the
+ * same infrastructure as used by {@link FakeLoadExecutors#newDefaultExecutor()}:
+ *
+ * <pre>
+ * {@code SimulationInfrastructure infrastructure = new SimulationInfrastructureBuilder()
+ *      .withCpuPeriod(10, TimeUnit.MILLISECONDS)
+ *      .withCpuCalibration(true)
+ *      .build();
+ * FakeLoadExecutor executor = new DefaultFakeLoadExecutor(infrastructure);
+ * }</pre>
+ *
+ * @since 1.8
+ * @see DefaultSimulationInfrastructure
+ * @see FakeLoadExecutors
+ * @author Marten Sigwart
+ */
+public final class SimulationInfrastructureBuilder {
+
+    private static final Logger log = LoggerFactory.getLogger(SimulationInfrastructureBuilder.class);
+    private static final String DISK_INPUT_FILE = "input.tmp";
+    private static final String DISK_OUTPUT_FILE = "output.tmp";
+    static final String DEFAULT_DISK_INPUT_PATH = System.getProperty("java.io.tmpdir") + "/" + DISK_INPUT_FILE;
+    static final String DEFAULT_DISK_OUTPUT_PATH = System.getProperty("java.io.tmpdir") + "/" + DISK_OUTPUT_FILE;
+
+    private int noOfCpuSimulators       = 0;        // one per available core
+    private long cpuPeriod              = CpuSimulator.DEFAULT_PERIOD;
+    private long cpuIdleTimeout         = DefaultSimulationInfrastructure.DEFAULT_CPU_IDLE_TIMEOUT;
+    private Set<CpuKernel> cpuCalibration = EnumSet.noneOf(CpuKernel.class);
+    private CpuController cpuController = null;
+    private CpuProbe cpuProbe           = null;
+    private CpuMeasurement cpuMeasurement = CpuMeasurement.SYSTEM;
+    private long samplingPeriod         = LoadController.DEFAULT_SAMPLING_PERIOD;
+    private int memoryChunkSize         = MemorySimulator.DEFAULT_CHUNK_SIZE;
+    private MemoryShape memoryShape     = MemoryShape.BYTE_ARRAYS;
+    private boolean memoryPageTouching  = false;
+    private double memoryRefreshRate    = 0.0;
+    private double memorySafetyMargin   = MemoryHeadroom.DEFAULT_SAFETY_MARGIN;
+    private AllocationProfile allocationProfile = AllocationProfile.DEFAULT;
+    private long workingSetSize         = MemoryAccessSimulator.DEFAULT_WORKING_SET_SIZE;
+    private MemoryKind workingSetKind   = MemoryKind.HEAP;
+    private AccessPattern accessPattern = AccessPattern.RANDOM;
+    private boolean accessWrites        = false;
+    private int noOfAccessThreads       = MemoryAccessSimulator.DEFAULT_NO_OF_THREADS;
+    private String diskInputPath        = DEFAULT_DISK_INPUT_PATH;
+    private String diskOutputPath       = DEFAULT_DISK_OUTPUT_PATH;
+    private long diskInputFileSize      = DiskInputFile.DEFAULT_SIZE;
+    private boolean directDiskIo        = false;
+    private int diskChunkSize           = IoPacer.DEFAULT_CHUNK_SIZE;
+    private int diskIopsBlockSize       = DiskIopsSimulator.DEFAULT_BLOCK_SIZE;
+    private int diskIopsQueueDepth      = DiskIopsSimulator.DEFAULT_QUEUE_DEPTH;
+    private boolean diskIopsWrites      = false;
+
+
+    /**
+     * Sets the number of CPU simulator threads. Defaults to the number of available cores
+     * as reported by the {@link CpuProbe}, rounded up.
+     *
+     * <p>
+     * Using more CPU simulators than available processors allows over-subscription, i.e.
+     * {@code FakeLoad}s may request more cores (see {@link FakeLoad#withCpuCores(double)})
+     * than the machine has, up to the number of CPU simulators.
+     *
+     * @param noOfCpuSimulators the number of CPU simulator threads
+     * @return this builder
+     */
+    public SimulationInfrastructureBuilder withCpuSimulators(int noOfCpuSimulators) {
+        checkArgument(noOfCpuSimulators > 0, "Number of CPU simulators must be positive but was %s", noOfCpuSimulators);
+        this.noOfCpuSimulators = noOfCpuSimulators;
+        return this;
+    }
+
+    /**
+     * Sets the duty cycle period of the CPU simulators. Defaults to 100 ms.
+     * @param period the duty cycle period (between 1 ms and 1 s)
+     * @param unit the time unit of the period
+     * @return this builder
+     * @see CpuSimulator
+     */
+    public SimulationInfrastructureBuilder withCpuPeriod(long period, TimeUnit unit) {
+        long periodNanos = unit.toNanos(period);
+        checkArgument(periodNanos >= CpuSimulator.MINIMUM_PERIOD && periodNanos <= CpuSimulator.MAXIMUM_PERIOD,
+                "Period must be between 1 ms and 1 s but was %s ns", periodNanos);
+        this.cpuPeriod = periodNanos;
+        return this;
+    }
+
+    /**
+     * Sets the time after which an idle CPU simulator releases its thread. Defaults to 10 s.
+     * Threads of CPU simulators are only created when there is CPU load to simulate. With the default
+     * {@link CpuDistribution#SPREAD}, every CPU simulator gets a share of any CPU load and therefore a thread,
+     * use {@link CpuDistribution#PACK} for only as many threads as cores are requested.
+     * @param timeout the idle timeout
+     * @param unit the time unit of the timeout
+     * @return this builder
+     */
+    public SimulationInfrastructureBuilder withCpuIdleTimeout(long timeout, TimeUnit unit) {
+        checkArgument(timeout >= 0, "Idle timeout must be nonnegative but was %s", timeout);
+        this.cpuIdleTimeout = unit.toMillis(timeout);
+        return this;
+    }
+
+    /**
+     * Enables or disables CPU calibration. When enabled, the CPU simulators are calibrated
+     * for the default {@link CpuKernel#FIBONACCI} kernel on creation of the infrastructure and run in open-loop mode.
+     * Calibration results are cached, so only the first calibration takes a while. Disabled by default.
+     * @param cpuCalibration whether the CPU simulators should be calibrated
+     * @return this builder
+     * @see #withCpuCalibration(CpuKernel...)
+     * @see CpuCalibrator
+     */
+    public SimulationInfrastructureBuilder withCpuCalibration(boolean cpuCalibration) {
+        return cpuCalibration ? withCpuCalibration(CpuKernel.FIBONACCI) : withCpuCalibration();
+    }
+
+    /**
+     * Enables CPU calibration for the specified kernels. The CPU simulators are calibrated for each
+     * of the kernels on creation of the infrastructure, taking about two seconds per kernel unless cached,
+     * and run in open-loop mode while executing one of them. Kernels not calibrated run in closed-loop mode.
+     * Calling this method without kernels disables CPU calibration.
+     * @param kernels the kernels to calibrate the CPU simulators for
+     * @return this builder
+     * @see CpuCalibrator
+     */
+    public SimulationInfrastructureBuilder withCpuCalibration(CpuKernel... kernels) {
+        Set<CpuKernel> cpuCalibration = EnumSet.noneOf(CpuKernel.class);
+        for (CpuKernel kernel : kernels) {
+            cpuCalibration.add(checkNotNull(kernel));
+        }
+        this.cpuCalibration = cpuCalibration;
+        return this;
+    }
+
+    /**
+     * Sets the controller used for controlling the actual CPU load and its sampling period.
+     * Defaults to a {@link PidCpuController} with a sampling period of 500 ms.
+     * @param cpuController the controller
+     * @param samplingPeriod the sampling period in milliseconds
+     * @return this builder
+     */
+    public SimulationInfrastructureBuilder withCpuController(CpuController cpuController, long samplingPeriod) {
+        checkArgument(samplingPeriod > 0, "Sampling period must be positive but was %s", samplingPeriod);
+        this.cpuController = checkNotNull(cpuController);
+        this.samplingPeriod = samplingPeriod;
+        return this;
+    }
+
+    /**
+     * Sets the probe used for sizing the CPU simulators and measuring the actual CPU load.
+     * Defaults to a {@link CgroupCpuProbe} if a cgroup filesystem is found at {@code /sys/fs/cgroup},
+     * e.g. inside a container, otherwise to an {@link OperatingSystemCpuProbe}.
+     * @param cpuProbe the probe
+     * @return this builder
+     */
+    public SimulationInfrastructureBuilder withCpuProbe(CpuProbe cpuProbe) {
+        this.cpuProbe = checkNotNull(cpuProbe);
+        return this;
+    }
+
+    /**
+     * Sets what the actual CPU load is measured for. Defaults to {@link CpuMeasurement#SYSTEM},
+     * i.e. the CPU load of the whole machine as measured by the {@link CpuProbe}.
+     * With {@link CpuMeasurement#SIMULATOR_THREADS} only the CPU time of the simulator threads is
+     * measured, so that the desired CPU load is reached independently of other processes on the host.
+     * @param cpuMeasurement the CPU measurement mode
+     * @return this builder
+     * @see SimulatorCpuProbe
+     */
+    public SimulationInfrastructureBuilder withCpuMeasurement(CpuMeasurement cpuMeasurement) {
+        this.cpuMeasurement = checkNotNull(cpuMeasurement);
+        return this;
+    }
+
+    /**
+     * Sets the size of the chunks in which memory is allocated and released. Defaults to 16 MB.
+     * @param chunkSize the chunk size (at most {@value MemorySimulator#MAXIMUM_CHUNK_SIZE} bytes)
+     * @param unit the memory unit of the chunk size
+     * @return this builder
+     * @see MemorySimulator
+     */
+    public SimulationInfrastructureBuilder withMemoryChunkSize(long chunkSize, MemoryUnit unit) {
+        long bytes = unit.toBytes(chunkSize);
+        checkArgument(bytes > 0 && bytes <= MemorySimulator.MAXIMUM_CHUNK_SIZE,
+                "Chunk size must be between 1 and %s bytes but was %s", MemorySimulator.MAXIMUM_CHUNK_SIZE, bytes);
+        this.memoryChunkSize = (int) bytes;
+        return this;
+    }
+
+    /**
+     * Sets the shape of the objects retained for simulating heap memory load, e.g. linked lists
+     * of small objects instead of byte arrays. Defaults to {@link MemoryShape#BYTE_ARRAYS}.
+     * Off-heap memory is always allocated as byte arrays.
+     * @param memoryShape the memory shape
+     * @return this builder
+     * @see MemoryShape
+     */
+    public SimulationInfrastructureBuilder withMemoryShape(MemoryShape memoryShape) {
+        this.memoryShape = checkNotNull(memoryShape);
+        return this;
+    }
+
+    /**
+     * Enables or disables page touching. When enabled, every page of newly allocated memory is written,
+     * so that the memory actually becomes resident. Disabled by default.
+     * @param pageTouching whether pages should be touched on allocation
+     * @return this builder
+     * @see MemorySimulator#setPageTouching(boolean)
+     */
+    public SimulationInfrastructureBuilder withMemoryPageTouching(boolean pageTouching) {
+        this.memoryPageTouching = pageTouching;
+        return this;
+    }
+
+    /**
+     * Sets the fraction of the allocated memory pages rewritten per second, which keeps them hot and dirty.
+     * Defaults to zero, i.e. pages are not rewritten.
+     * @param refreshRate the fraction of pages rewritten per second, e.g. 0.1 for 10% per second
+     * @return this builder
+     * @see MemorySimulator#setRefreshRate(double)
+     */
+    public SimulationInfrastructureBuilder withMemoryRefreshRate(double refreshRate) {
+        checkArgument(refreshRate >= 0, "Refresh rate must be nonnegative but was %s", refreshRate);
+        this.memoryRefreshRate = refreshRate;
+        return this;
+    }
+
+    /**
+     * Sets the fraction of the maximum heap size and of the maximum direct memory size that is kept free
+     * when admitting memory load. Defaults to {@value MemoryHeadroom#DEFAULT_SAFETY_MARGIN}.
+     * @param safetyMargin the safety margin, between 0 and 1
+     * @return this builder
+     * @see MemoryHeadroom
+     * @see FakeLoad#withHeadroomPolicy(HeadroomPolicy)
+     */
+    public SimulationInfrastructureBuilder withMemorySafetyMargin(double safetyMargin) {
+        checkArgument(safetyMargin >= 0 && safetyMargin < 1,
+                "Safety margin must be between 0 and 1 but was %s", safetyMargin);
+        this.memorySafetyMargin = safetyMargin;
+        return this;
+    }
+
+    /**
+     * Sets the sizes and lifetimes of the objects allocated for simulating an allocation rate.
+     * Defaults to {@link AllocationProfile#DEFAULT}.
+     * @param allocationProfile the allocation profile
+     * @return this builder
+     * @see FakeLoad#withAllocationRate(long, MemoryUnit)
+     */
+    public SimulationInfrastructureBuilder withAllocationProfile(AllocationProfile allocationProfile) {
+        this.allocationProfile = checkNotNull(allocationProfile);
+        return this;
+    }
+
+    /**
+     * Sets the working set accessed for simulating memory bandwidth.
+     * Defaults to {@value MemoryAccessSimulator#DEFAULT_WORKING_SET_SIZE} bytes on the heap.
+     * @param size the size of the working set
+     * @param unit the memory unit of the size
+     * @param kind the kind of memory the working set is allocated as
+     * @return this builder
+     * @see FakeLoad#withMemoryBandwidth(long, MemoryUnit)
+     */
+    public SimulationInfrastructureBuilder withMemoryWorkingSet(long size, MemoryUnit unit, MemoryKind kind) {
+        long bytes = unit.toBytes(size);
+        checkArgument(bytes >= MemoryAccessSimulator.CACHE_LINE_SIZE,
+                "Working set size must be at least %s bytes but was %s", MemoryAccessSimulator.CACHE_LINE_SIZE, bytes);
+        this.workingSetSize = bytes;
+        this.workingSetKind = checkNotNull(kind);
+        return this;
+    }
+
+    /**
+     * Sets how the working set is accessed for simulating memory bandwidth.
+     * Defaults to random reads.
+     * @param pattern the order in which cache lines are accessed
+     * @param writes whether accessed cache lines are also written
+     * @return this builder
+     * @see MemoryAccessSimulator
+     */
+    public SimulationInfrastructureBuilder withMemoryAccessPattern(AccessPattern pattern, boolean writes) {
+        this.accessPattern = checkNotNull(pattern);
+        this.accessWrites = writes;
+        return this;
+    }
+
+    /**
+     * Sets the number of threads the accesses for simulating memory bandwidth are spread over.
+     * Defaults to the number of available processors.
+     * @param noOfThreads the number of threads
+     * @return this builder
+     * @see MemoryAccessSimulator
+     */
+    public SimulationInfrastructureBuilder withMemoryAccessThreads(int noOfThreads) {
+        checkArgument(noOfThreads > 0, "Number of memory access threads must be positive but was %s", noOfThreads);
+        this.noOfAccessThreads = noOfThreads;
+        return this;
+    }
+
+    /**
+     * Sets the path of the file used for simulating disk input.
+     * Defaults to file "input.tmp" in the temporary directory.
+     * @param diskInputPath the file path
+     * @return this builder
+     */
+    public SimulationInfrastructureBuilder withDiskInputPath(String diskInputPath) {
+        this.diskInputPath = checkNotNull(diskInputPath);
+        return this;
+    }
+
+    /**
+     * Sets the size of the file used for simulating disk input. If the file does not exist or is smaller,
+     * it is created and filled with random data on first use. Defaults to 1 GB. Unless direct I/O is used
+     * (see {@link #withDirectDiskIo(boolean)}), the file should be at least twice as big as the available RAM
+     * to prevent caching.
+     * @param size the size of the file
+     * @param unit the memory unit of the size
+     * @return this builder
+     * @see DiskInputFile
+     */
+    public SimulationInfrastructureBuilder withDiskInputFileSize(long size, MemoryUnit unit) {
+        checkArgument(size > 0, "Disk input file size must be positive but was %s", size);
+        this.diskInputFileSize = checkNotNull(unit).toBytes(size);
+        return this;
+    }
+
+    /**
+     * Sets the path of the file used for simulating disk output.
+     * Defaults to file "output.tmp" in the temporary directory.
+     * @param diskOutputPath the file path
+     * @return this builder
+     */
+    public SimulationInfrastructureBuilder withDiskOutputPath(String diskOutputPath) {
+        this.diskOutputPath = checkNotNull(diskOutputPath);
+        return this;
+    }
+
+    /**
+     * Enables or disables direct I/O for simulating disk input and output. With direct I/O, files are read
+     * and written bypassing the page cache, so the disk input file does not need to be bigger than the
+     * available RAM. File systems not supporting direct I/O, e.g. tmpfs, fall back to buffered I/O
+     * with a warning. Requires Java 10 or later. Disabled by default.
+     * @param directDiskIo whether disk I/O is performed with direct I/O
+     * @return this builder
+     * @see DirectIo
+     */
+    public SimulationInfrastructureBuilder withDirectDiskIo(boolean directDiskIo) {
+        this.directDiskIo = directDiskIo;
+        return this;
+    }
+
+    /**
+     * Sets the size of the chunks in which disk input and output is performed. The bytes due per second
+     * are spread evenly over the second in chunks of this size, e.g. between 64 KB and 4 MB.
+     * Smaller chunks spread the I/O more evenly, larger chunks cost less CPU time per byte. Defaults to 1 MB.
+     * @param size the chunk size
+     * @param unit the memory unit of the chunk size
+     * @return this builder
+     */
+    public SimulationInfrastructureBuilder withDiskChunkSize(long size, MemoryUnit unit) {
+        long bytes = checkNotNull(unit).toBytes(size);
+        checkArgument(bytes > 0 && bytes <= Integer.MAX_VALUE,
+                "Disk chunk size must be between 1 and %s bytes but was %s", Integer.MAX_VALUE, bytes);
+        this.diskChunkSize = (int) bytes;
+        return this;
+    }
+
+    /**
+     * Sets how disk load in I/O operations per second is simulated: the size of the blocks read or written
+     * at random offsets of the disk input file, the maximum number of outstanding operations, and whether
+     * blocks are read or written. Defaults to reading 4 KB blocks at a queue depth of 1.
+     * @param blockSize the size of the blocks
+     * @param unit the memory unit of the block size
+     * @param queueDepth the maximum number of outstanding operations
+     * @param writes whether blocks are written instead of read
+     * @return this builder
+     * @see FakeLoad#withDiskIops(long)
+     * @see DiskIopsSimulator
+     */
+    public SimulationInfrastructureBuilder withDiskIops(long blockSize, MemoryUnit unit, int queueDepth,
+                                                        boolean writes) {
+        long bytes = checkNotNull(unit).toBytes(blockSize);
+        checkArgument(bytes > 0 && bytes <= Integer.MAX_VALUE,
+                "Disk IOPS block size must be between 1 and %s bytes but was %s", Integer.MAX_VALUE, bytes);
+        checkArgument(queueDepth > 0, "Disk IOPS queue depth must be positive but was %s", queueDepth);
+        this.diskIopsBlockSize = (int) bytes;
+        this.diskIopsQueueDepth = queueDepth;
+        this.diskIopsWrites = writes;
+        return this;
+    }
+
+
+    /**
+     * Creates the infrastructure.
+     * @return a new {@code DefaultSimulationInfrastructure} instance
+     */
+    public DefaultSimulationInfrastructure build() {
+        // Create DiskInput Simulator
+        DiskInputFile diskInputFile = new DiskInputFile(diskInputPath, diskInputFileSize);
+        DiskInputSimulator diskInputSimulator = new FileChannelDiskInputSimulator(diskInputFile,
+                FileChannelDiskInputSimulator.DEFAULT_BUFFER_SIZE, directDiskIo);
+
+        // Create DiskOutput Simulator
+        DiskOutputSimulator diskOutputSimulator = new FileChannelDiskOutputSimulator(diskOutputPath,
+                FileChannelDiskOutputSimulator.DEFAULT_BUFFER_SIZE, directDiskIo);
+        diskInputSimulator.setChunkSize(diskChunkSize);
+        diskOutputSimulator.setChunkSize(diskChunkSize);
+
+        // Create Disk IOPS Simulator, sharing the file with the DiskInput Simulator
+        DiskIopsSimulator diskIopsSimulator = new DiskIopsSimulator(diskInputFile, diskIopsBlockSize,
+                diskIopsQueueDepth, diskIopsWrites, directDiskIo);
+
+        // Create Memory Simulator
+        MemorySimulator memorySimulator = new MemorySimulator(MemoryKind.HEAP, memoryShape, memoryChunkSize);
+        MemorySimulator offHeapMemorySimulator = new MemorySimulator(MemoryKind.OFF_HEAP, memoryChunkSize);
+        for (MemorySimulator simulator : Arrays.asList(memorySimulator, offHeapMemorySimulator)) {
+            simulator.setPageTouching(memoryPageTouching);
+            simulator.setRefreshRate(memoryRefreshRate);
+        }
+
+        // Create CPU Simulators
+        CpuProbe probe = (cpuProbe != null) ? cpuProbe : detectCpuProbe();
+        double cores = probe.getAvailableCores();
+        int noOfCpuSimulators = (this.noOfCpuSimulators > 0) ? this.noOfCpuSimulators : (int) Math.ceil(cores);
+        List<CpuSimulator> cpuSimulators = new ArrayList<>();
+        for (int i = 0; i < noOfCpuSimulators; i++) {
+            cpuSimulators.add(new KernelCpuSimulator(CpuKernel.FIBONACCI, cpuPeriod, TimeUnit.NANOSECONDS));
+        }
+        if (!cpuCalibration.isEmpty()) {
+            calibrate(cpuSimulators);
+        }
+
+        // Inject dependencies for LoadController
+        LoadController controller = new LoadController(
+                new SystemLoad(cores, noOfCpuSimulators),
+                cpuSimulators, memorySimulator, offHeapMemorySimulator, new AllocationSimulator(allocationProfile),
+                new MemoryAccessSimulator(workingSetKind, workingSetSize, accessPattern, accessWrites,
+                        noOfAccessThreads),
+                diskInputSimulator, diskOutputSimulator, diskIopsSimulator,
+                (cpuController != null) ? cpuController : new PidCpuController(), samplingPeriod,
+                measurementProbe(probe, cpuSimulators), new MemoryHeadroom(memorySafetyMargin));
+
+        // Create thread pool, threads are created on demand and reclaimed when idle
+        ExecutorService executorService = new ThreadPoolExecutor(
+                0, Integer.MAX_VALUE,
+                cpuIdleTimeout, TimeUnit.MILLISECONDS,
+                new SynchronousQueue<>(),
+                new ThreadFactoryBuilder().setDaemon(true).build());
+
+        return new DefaultSimulationInfrastructure(executorService, controller, cpuIdleTimeout);
+    }
+
+    private static CpuProbe detectCpuProbe() {
+        if (CgroupCpuProbe.isAvailable(CgroupCpuProbe.DEFAULT_ROOT)) {
+            log.debug("Using cgroup CPU probe");
+            return new CgroupCpuProbe();
+        }
+        return new OperatingSystemCpuProbe();
+    }
+
+    private CpuProbe measurementProbe(CpuProbe probe, List<CpuSimulator> cpuSimulators) {
+        if (cpuMeasurement == CpuMeasurement.SIMULATOR_THREADS) {
+            if (ManagementFactory.getThreadMXBean().isCurrentThreadCpuTimeSupported()) {
+                return new SimulatorCpuProbe(cpuSimulators, probe);
+            }
+            log.warn("Thread CPU time measurement not supported, measuring system CPU load instead");
+        }
+        return probe;
+    }
+
+    private void calibrate(List<CpuSimulator> cpuSimulators) {
+        // measured under the same contention as the simulators calibrated
+        CpuCalibrator calibrator = new CpuCalibrator(cpuSimulators.size());
+        long expectedDuration = 0;
+        for (CpuKernel kernel : cpuCalibration) {
+            expectedDuration += calibrator.expectedDuration(
+                    () -> new KernelCpuSimulator(kernel, cpuPeriod, TimeUnit.NANOSECONDS));
+        }
+        if (expectedDuration > 0) {
+            log.info("Calibrating CPU simulation for kernels {}, this takes about {} ms in total...",
+                    cpuCalibration, expectedDuration);
+        }
+
+        try {
+            for (CpuKernel kernel : cpuCalibration) {
+                double iterationsPerMicrosecond = calibrator
+                        .calibrate(() -> new KernelCpuSimulator(kernel, cpuPeriod, TimeUnit.NANOSECONDS));
+                for (CpuSimulator cpuSimulator : cpuSimulators) {
+                    ((KernelCpuSimulator) cpuSimulator).setCalibration(kernel, iterationsPerMicrosecond);
+                }
+            }
+        } catch (InterruptedException e) {
+            log.warn("CPU calibration interrupted, using closed-loop mode for uncalibrated kernels");
+            Thread.currentThread().interrupt();
+        }
+    }
+
+}
@@ -0,0 +1,87 @@
+package com.martensigwart.fakeload;
+
+import javax.annotation.concurrent.GuardedBy;
+import javax.annotation.concurrent.ThreadSafe;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.LongSupplier;
+
+import static com.martensigwart.fakeload.Preconditions.checkNotNull;
+
+/**
+ * A {@link CpuProbe} measuring only the CPU time consumed by a set of {@link CpuSimulator}s.
+ *
+ * <p>
+ * Other probes measure the CPU load of the whole machine or container, so any other
+ * process running on the same host makes the {@link LoadController} back off. This probe instead
+ * sums up the CPU time of the simulator threads (see {@link CpuSimulator#getCpuTime()}, which reads the CPU time
+ * of the live simulator threads via {@link ThreadMXBean#getThreadCpuTime(long)}), so that the desired CPU load
+ * is reached independently of other processes.
+ * The CPU load is the CPU time used by the simulators between two calls of {@link #getCpuLoad()},
+ * relative to the available cores.
+ *
+ * <p>
+ * The available cores are taken from another {@code CpuProbe}, e.g. an {@link OperatingSystemCpuProbe}.
+ *
+ * @since 1.8
+ * @see CpuProbe
+ * @see CpuMeasurement#SIMULATOR_THREADS
+ * @author Marten Sigwart
+ */
+@ThreadSafe
+public final class SimulatorCpuProbe implements CpuProbe {
+
+    private final List<CpuSimulator> cpuSimulators;
+    private final CpuProbe coreProbe;
+    private final LongSupplier nanoClock;
+
+    @GuardedBy("this") private long lastCpuTime = -1L;
+    @GuardedBy("this") private long lastTime;
+
+
+    /**
+     * Creates a new {@code SimulatorCpuProbe}.
+     * @param cpuSimulators the simulators whose CPU time is measured
+     * @param coreProbe the probe providing the number of available cores
+     */
+    public SimulatorCpuProbe(List<? extends CpuSimulator> cpuSimulators, CpuProbe coreProbe) {
+        this(cpuSimulators, coreProbe, System::nanoTime);
+    }
+
+    SimulatorCpuProbe(List<? extends CpuSimulator> cpuSimulators, CpuProbe coreProbe, LongSupplier nanoClock) {
+        this.cpuSimulators = Collections.unmodifiableList(new ArrayList<>(checkNotNull(cpuSimulators)));
+        this.coreProbe = checkNotNull(coreProbe);
+        this.nanoClock = checkNotNull(nanoClock);
+    }
+
+    @Override
+    public double getAvailableCores() {
+        return coreProbe.getAvailableCores();
+    }
+
+    @Override
+    public synchronized double getCpuLoad() {
+        long cpuTime = 0L;
+        for (CpuSimulator cpuSimulator : cpuSimulators) {
+            cpuTime += cpuSimulator.getCpuTime();
+        }
+        long now = nanoClock.getAsLong();
+
+        double load = 0.0;
+        if (lastCpuTime >= 0 && now > lastTime) {
+            load = 100.0 * (cpuTime - lastCpuTime) / ((now - lastTime) * getAvailableCores());
+        }
+        lastCpuTime = cpuTime;
+        lastTime = now;
+        return Math.max(0.0, Math.min(100.0, load));
+    }
+
+    /**
+     * @return the probe providing the number of available cores
+     */
+    public CpuProbe getCoreProbe() {
+        return coreProbe;
+    }
+}
@@ -2,6 +2,11 @@ package com.martensigwart.fakeload;
 
 import javax.annotation.concurrent.GuardedBy;
 import javax.annotation.concurrent.ThreadSafe;
+import java.util.ArrayList;
+import java.util.List;
+
+import static com.martensigwart.fakeload.Preconditions.checkArgument;
+import static com.martensigwart.fakeload.Preconditions.checkNotNull;
 
 /**
  * Class representing system load.
@@ -10,32 +15,227 @@ import javax.annotation.concurrent.ThreadSafe;
  * The class is thread-safe and used within the {@link DefaultSimulationInfrastructure} to aggregate {@link FakeLoad}
  * objects that were submitted concurrently.
  *
+ * <p>
+ * CPU load specified in percent of the whole machine (see {@link FakeLoad#withCpu(int)}) and
+ * CPU load specified in cores (see {@link FakeLoad#withCpuCores(double)}) are kept separately.
+ * The number of cores of the machine is used to combine both into the total CPU load,
+ * which must not exceed 100% of the machine. If there are more CPU simulator threads than cores,
+ * the machine may be over-subscribed up to one core per thread.
+ *
+ * <p>
+ * In addition, the CPU load of every {@code FakeLoad} is distributed among the CPU simulator threads
+ * according to its {@link CpuDistribution} and aggregated per thread (see {@link #getCpuThreadLoads()}).
+ * The share of a {@code FakeLoad} is determined when it is added, taking into account the loads of the
+ * {@code FakeLoad}s already running, and is removed again when the {@code FakeLoad} is removed.
+ *
+ * <p>
+ * The part of the total CPU load stemming from {@code FakeLoad}s in {@link CpuTargetMode#TOTAL} mode
+ * is tracked separately (see {@link #getTotalModeCpu()}), so that it can be reduced by the baseline
+ * load of other processes.
+ *
+ * <p>
+ * While memory bandwidth is simulated, the working set accessed (see {@link #setWorkingSet(long, MemoryKind)})
+ * is held in memory and counted separately from the memory load of the {@code FakeLoad}s
+ * (see {@link #getWorkingSetMemory()} and {@link #getWorkingSetOffHeapMemory()}).
+ *
+ * <p>
+ * Every CPU simulator thread runs the {@link CpuKernel} of the {@code FakeLoad}s it has a share of
+ * (see {@link #getCpuThreadKernels()}). When {@code FakeLoad}s with different kernels share a thread,
+ * the kernel of the most recently started one is used on that thread.
+ *
  */
 @ThreadSafe
 public final class SystemLoad {
 
 
+    /**
+     * The number of CPU load units (see {@link CpuSimulator#LOAD_SCALE}) corresponding to one core
+     */
+    private static final long CORE = 100L * CpuSimulator.LOAD_SCALE;
+
+    private final double cores;
+    private final int noOfThreads;
+
     @GuardedBy("this") private long cpu;
+    @GuardedBy("this") private long cpuCores;
+    @GuardedBy("this") private long totalModeCpu;
     @GuardedBy("this") private long memory;
+    @GuardedBy("this") private long offHeapMemory;
+    @GuardedBy("this") private long allocationRate;
+    @GuardedBy("this") private long memoryBandwidth;
     @GuardedBy("this") private long diskInput;
     @GuardedBy("this") private long diskOutput;
+    @GuardedBy("this") private long diskIops;
+    @GuardedBy("this") private long workingSetSize;
+    @GuardedBy("this") private MemoryKind workingSetKind;
+    @GuardedBy("this") private final long[] cpuThreadLoads;
+    @GuardedBy("this") private final List<CpuAllocation> cpuAllocations;
 
 
     public SystemLoad() {
+        this(Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * @param noOfCores the number of cores of the machine, used to convert between CPU load in cores and in percent
+     */
+    public SystemLoad(int noOfCores) {
+        this(noOfCores, noOfCores);
+    }
+
+    /**
+     * @param cores the number of cores available, used to convert between CPU load in cores and in percent.
+     *              Might be fractional, e.g. inside a container limited by a CPU quota
+     * @param noOfThreads the number of CPU simulator threads the CPU load is distributed among
+     * @see CpuProbe#getAvailableCores()
+     */
+    public SystemLoad(double cores, int noOfThreads) {
+        checkArgument(cores > 0, "Number of cores must be positive but was %s", cores);
+        checkArgument(noOfThreads >= 0, "Number of threads must be nonnegative but was %s", noOfThreads);
+        this.cores = cores;
+        this.noOfThreads = noOfThreads;
         cpu     = 0L;
+        cpuCores = 0L;
+        totalModeCpu = 0L;
         memory  = 0L;
+        offHeapMemory = 0L;
+        allocationRate = 0L;
+        memoryBandwidth = 0L;
         diskInput = 0L;
         diskOutput = 0L;
+        diskIops = 0L;
+        workingSetSize = 0L;
+        workingSetKind = MemoryKind.HEAP;
+        cpuThreadLoads = new long[noOfThreads];
+        cpuAllocations = new ArrayList<>();
     }
 
     public synchronized long getCpu() {
         return cpu;
     }
 
+    /**
+     * @return the CPU load specified in cores
+     */
+    public synchronized double getCpuCores() {
+        return (double) cpuCores / CORE;
+    }
+
+    /**
+     * Returns the total CPU load, i.e. the CPU load specified in percent plus
+     * the CPU load specified in cores converted to percent of the machine.
+     * @return the total CPU load in percent of the machine
+     */
+    public synchronized double getTotalCpu() {
+        return cpu + 100.0 * cpuCores / (CORE * cores);
+    }
+
+    /**
+     * Returns the part of the total CPU load (see {@link #getTotalCpu()}) specified by
+     * {@code FakeLoad}s in {@link CpuTargetMode#TOTAL} mode.
+     * @return the CPU load in TOTAL mode in percent of the machine
+     */
+    public synchronized double getTotalModeCpu() {
+        return 100.0 * totalModeCpu / (CORE * cores);
+    }
+
+    /**
+     * Returns the desired CPU load of every CPU simulator thread.
+     * @return the CPU loads in units of {@link CpuSimulator#LOAD_SCALE}, one per thread
+     */
+    public synchronized long[] getCpuThreadLoads() {
+        return cpuThreadLoads.clone();
+    }
+
+    /**
+     * @return the number of cores available
+     */
+    public double getCores() {
+        return cores;
+    }
+
+    public int getNoOfThreads() {
+        return noOfThreads;
+    }
+
+    /**
+     * Returns the CPU kernel of every CPU simulator thread, i.e. the kernel of the most recently started
+     * {@code FakeLoad} with a share of the thread's CPU load.
+     * @return the CPU kernels, one per thread, {@link CpuKernel#FIBONACCI} for threads without CPU load
+     */
+    public synchronized CpuKernel[] getCpuThreadKernels() {
+        CpuKernel[] kernels = new CpuKernel[noOfThreads];
+        for (int i = 0; i < noOfThreads; i++) {
+            kernels[i] = CpuKernel.FIBONACCI;
+            for (int j = cpuAllocations.size() - 1; j >= 0; j--) {
+                if (cpuAllocations.get(j).shares[i] > 0) {
+                    kernels[i] = cpuAllocations.get(j).load.getCpuKernel();
+                    break;
+                }
+            }
+        }
+        return kernels;
+    }
+
+    /**
+     * @return the CPU kernel of the most recently started {@code FakeLoad} with a CPU load
+     */
+    public synchronized CpuKernel getCpuKernel() {
+        return cpuAllocations.isEmpty()
+                ? CpuKernel.FIBONACCI
+                : cpuAllocations.get(cpuAllocations.size() - 1).load.getCpuKernel();
+    }
+
     public synchronized long getMemory() {
         return memory;
     }
 
+    /**
+     * @return the memory load off the heap in bytes
+     */
+    public synchronized long getOffHeapMemory() {
+        return offHeapMemory;
+    }
+
+    /**
+     * @return the allocation rate in bytes per second
+     */
+    public synchronized long getAllocationRate() {
+        return allocationRate;
+    }
+
+    /**
+     * @return the memory bandwidth in bytes per second
+     */
+    public synchronized long getMemoryBandwidth() {
+        return memoryBandwidth;
+    }
+
+    /**
+     * Sets the working set accessed while memory bandwidth is simulated.
+     * @param size the size of the working set in bytes
+     * @param kind the kind of memory the working set is allocated as
+     */
+    public synchronized void setWorkingSet(long size, MemoryKind kind) {
+        checkArgument(size >= 0, "Working set size must be nonnegative but was %s", size);
+        this.workingSetSize = size;
+        this.workingSetKind = checkNotNull(kind);
+    }
+
+    /**
+     * @return the heap memory held by the working set in bytes, zero if no memory bandwidth is simulated
+     */
+    public synchronized long getWorkingSetMemory() {
+        return (memoryBandwidth > 0 && workingSetKind == MemoryKind.HEAP) ? workingSetSize : 0L;
+    }
+
+    /**
+     * @return the memory off the heap held by the working set in bytes, zero if no memory bandwidth is simulated
+     */
+    public synchronized long getWorkingSetOffHeapMemory() {
+        return (memoryBandwidth > 0 && workingSetKind == MemoryKind.OFF_HEAP) ? workingSetSize : 0L;
+    }
+
     public synchronized long getDiskInput() {
         return diskInput;
     }
@@ -44,13 +244,35 @@ public final class SystemLoad {
         return diskOutput;
     }
 
+    /**
+     * @return the disk load in I/O operations per second
+     */
+    public synchronized long getDiskIops() {
+        return diskIops;
+    }
+
     public synchronized void increaseBy(FakeLoad load) throws MaximumLoadExceededException {
         checkMaximumLoadNotExceeded(load);
 
         this.cpu    += load.getCpu();
+        this.cpuCores += toUnits(load.getCpuCores());
         this.memory += load.getMemory();
+        this.offHeapMemory += load.getOffHeapMemory();
+        this.allocationRate += load.getAllocationRate();
+        this.memoryBandwidth += load.getMemoryBandwidth();
         this.diskInput += load.getDiskInput();
         this.diskOutput += load.getDiskOutput();
+        this.diskIops += load.getDiskIops();
+        if (hasCpu(load)) {
+            long[] shares = load.getCpuDistribution().distribute(toUnits(load), cpuThreadLoads, CORE);
+            for (int i = 0; i < noOfThreads; i++) {
+                cpuThreadLoads[i] += shares[i];
+            }
+            cpuAllocations.add(new CpuAllocation(load, shares));
+            if (load.getCpuTargetMode() == CpuTargetMode.TOTAL) {
+                totalModeCpu += toUnits(load);
+            }
+        }
 
     }
 
@@ -59,16 +281,61 @@ public final class SystemLoad {
         checkNotBelowMinimumLoad(load);
 
         this.cpu -= load.getCpu();
+        this.cpuCores -= toUnits(load.getCpuCores());
         this.memory -= load.getMemory();
+        this.offHeapMemory -= load.getOffHeapMemory();
+        this.allocationRate -= load.getAllocationRate();
+        this.memoryBandwidth -= load.getMemoryBandwidth();
         this.diskInput -= load.getDiskInput();
         this.diskOutput -= load.getDiskOutput();
+        this.diskIops -= load.getDiskIops();
+        if (hasCpu(load)) {
+            for (int i = cpuAllocations.size() - 1; i >= 0; i--) {
+                CpuAllocation allocation = cpuAllocations.get(i);
+                if (allocation.load.equals(load)) {
+                    for (int j = 0; j < noOfThreads; j++) {
+                        cpuThreadLoads[j] -= allocation.shares[j];
+                    }
+                    cpuAllocations.remove(i);
+                    if (load.getCpuTargetMode() == CpuTargetMode.TOTAL) {
+                        totalModeCpu -= toUnits(load);
+                    }
+                    break;
+                }
+            }
+        }
+
+    }
+
+    private static long toUnits(double cores) {
+        return Math.round(cores * CORE);
+    }
+
+    private long toUnits(FakeLoad load) {
+        return Math.round(load.getCpu() * CpuSimulator.LOAD_SCALE * cores) + toUnits(load.getCpuCores());
+    }
 
+    private static boolean hasCpu(FakeLoad load) {
+        return load.getCpu() > 0 || load.getCpuCores() > 0;
     }
 
     private synchronized void checkMaximumLoadNotExceeded(FakeLoad load) throws MaximumLoadExceededException {
         if (this.cpu + load.getCpu() > 100)
             throw new MaximumLoadExceededException(String.format("Increase of %d would cause a CPU load of over 100%%", load.getCpu()));
 
+        double maximumCores = Math.max(cores, noOfThreads);
+        long units;
+        try {
+            units = Math.addExact(Math.addExact(Math.round(this.cpu * CpuSimulator.LOAD_SCALE * cores), this.cpuCores),
+                    toUnits(load));
+        } catch (ArithmeticException e) {
+            units = Long.MAX_VALUE;     // saturate, so that an overflowing load is not admitted
+        }
+        if (units > Math.round(CORE * maximumCores))
+            throw new MaximumLoadExceededException(String.format(
+                    "Increase of %d%% and %s cores would exceed the maximum of %s cores",
+                    load.getCpu(), load.getCpuCores(), maximumCores));
+
         // check other load limits
     }
 
@@ -79,11 +346,31 @@ public final class SystemLoad {
                     load.getCpu()));
         }
 
+        if (this.cpuCores - toUnits(load.getCpuCores()) < 0) {
+            throw new RuntimeException(String.format("Decrease of %s cores would cause a negative CPU load",
+                    load.getCpuCores()));
+        }
+
         if (this.memory - load.getMemory() < 0) {
             throw new RuntimeException(String.format("Decrease of %d would cause a negative memory load",
                     load.getMemory()));
         }
 
+        if (this.offHeapMemory - load.getOffHeapMemory() < 0) {
+            throw new RuntimeException(String.format("Decrease of %d would cause a negative off-heap memory load",
+                    load.getOffHeapMemory()));
+        }
+
+        if (this.allocationRate - load.getAllocationRate() < 0) {
+            throw new RuntimeException(String.format("Decrease of %d would cause a negative allocation rate",
+                    load.getAllocationRate()));
+        }
+
+        if (this.memoryBandwidth - load.getMemoryBandwidth() < 0) {
+            throw new RuntimeException(String.format("Decrease of %d would cause a negative memory bandwidth",
+                    load.getMemoryBandwidth()));
+        }
+
         if (this.diskInput - load.getDiskInput() < 0) {
             throw new RuntimeException(String.format("Decrease of %d would cause a negative disk input load",
                     load.getDiskInput()));
@@ -94,5 +381,24 @@ public final class SystemLoad {
                     load.getDiskOutput()));
         }
 
+        if (this.diskIops - load.getDiskIops() < 0) {
+            throw new RuntimeException(String.format("Decrease of %d would cause negative disk IOPS",
+                    load.getDiskIops()));
+        }
+
+    }
+
+
+    /**
+     * The shares of the CPU simulator threads assigned to a {@code FakeLoad}
+     */
+    private static final class CpuAllocation {
+        private final FakeLoad load;
+        private final long[] shares;
+
+        private CpuAllocation(FakeLoad load, long[] shares) {
+            this.load = load;
+            this.shares = shares;
+        }
     }
 }
@@ -0,0 +1,69 @@
+package com.martensigwart.fakeload;
+
+import java.lang.ref.WeakReference;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Kernel walking over a working set of a fixed size, see {@link CpuKernel#L1_CACHE},
+ * {@link CpuKernel#L2_CACHE} and {@link CpuKernel#LLC}.
+ *
+ * <p>
+ * The working set is read with a stride of one cache line, continuing where the last call stopped.
+ * Private working sets are allocated per instance, shared working sets are shared by all instances
+ * of the same size, as long as any of them is in use.
+ */
+final class WorkingSetKernel implements Kernel {
+
+    static final int CACHE_LINE = 64;
+    private static final int STRIDE = CACHE_LINE / Integer.BYTES;
+    private static final int ACCESSES = 256;
+
+    private static WeakReference<int[]> sharedWorkingSet = new WeakReference<>(null);
+
+    private final int[] workingSet;
+    private int cursor;
+
+    /**
+     * @param size the size of the working set in bytes
+     * @param shared whether the working set is shared with other instances
+     */
+    WorkingSetKernel(int size, boolean shared) {
+        this.workingSet = shared ? sharedWorkingSet(size) : newWorkingSet(size);
+        // start at a random cache line, so that instances sharing a working set are not in lockstep
+        this.cursor = ThreadLocalRandom.current().nextInt(workingSet.length / STRIDE) * STRIDE;
+    }
+
+    @Override
+    public long execute() {
+        int[] data = workingSet;
+        int c = cursor;
+        long sum = 0;
+        for (int i = 0; i < ACCESSES; i++) {
+            sum += data[c];
+            c += STRIDE;
+            if (c >= data.length) {
+                c = 0;
+            }
+        }
+        cursor = c;
+        return sum;
+    }
+
+    private static synchronized int[] sharedWorkingSet(int size) {
+        int[] workingSet = sharedWorkingSet.get();
+        if (workingSet == null || workingSet.length != size / Integer.BYTES) {
+            workingSet = newWorkingSet(size);
+            sharedWorkingSet = new WeakReference<>(workingSet);
+        }
+        return workingSet;
+    }
+
+    private static int[] newWorkingSet(int size) {
+        int[] workingSet = new int[Math.max(STRIDE, size / Integer.BYTES)];
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        for (int i = 0; i < workingSet.length; i++) {
+            workingSet[i] = random.nextInt();
+        }
+        return workingSet;
+    }
+}
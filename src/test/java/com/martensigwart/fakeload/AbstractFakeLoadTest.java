@@ -78,6 +78,18 @@ public abstract class AbstractFakeLoadTest {
         fakeload = fakeload.withCpu(120);
     }
 
+    @Test
+    public void testCpuCoresMethod1() {
+        fakeload = fakeload.withCpuCores(3.5);
+        assertEquals(3.5, fakeload.getCpuCores(), 0.0);
+        assertEquals(0, fakeload.getCpu());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testCpuCoresMethod2() {
+        fakeload = fakeload.withCpuCores(-1.5);
+    }
+
     @Test
     public void testMemoryLoadMethod1() {
         // Bytes
@@ -109,6 +121,69 @@ public abstract class AbstractFakeLoadTest {
     }
 
 
+    @Test
+    public void testOffHeapMemoryLoadMethod() {
+        fakeload = fakeload.withMemory(100, MemoryUnit.MB)
+                .withMemory(2, MemoryUnit.GB, MemoryKind.OFF_HEAP);
+        assertEquals(100L*1024*1024, fakeload.getMemory());
+        assertEquals(2L*1024*1024*1024, fakeload.getOffHeapMemory());
+
+        fakeload = fakeload.withMemory(200, MemoryUnit.MB, MemoryKind.HEAP);
+        assertEquals(200L*1024*1024, fakeload.getMemory());
+        assertEquals(2L*1024*1024*1024, fakeload.getOffHeapMemory());
+    }
+
+    @Test
+    public void testAllocationRateMethod() {
+        fakeload = fakeload.withAllocationRate(100, MemoryUnit.MB);
+        assertEquals(100L*1024*1024, fakeload.getAllocationRate());
+        assertEquals(0L, fakeload.getMemory());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testAllocationRateMethod2() {
+        fakeload = fakeload.withAllocationRate(-1, MemoryUnit.MB);
+    }
+
+    @Test
+    public void testMemoryBandwidthMethod() {
+        fakeload = fakeload.withMemoryBandwidth(2, MemoryUnit.GB);
+        assertEquals(2L*1024*1024*1024, fakeload.getMemoryBandwidth());
+        assertEquals(0L, fakeload.getAllocationRate());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testMemoryBandwidthMethod2() {
+        fakeload = fakeload.withMemoryBandwidth(-1, MemoryUnit.MB);
+    }
+
+    @Test
+    public void testDiskIopsMethod() {
+        fakeload = fakeload.withDiskIops(5000);
+        assertEquals(5000L, fakeload.getDiskIops());
+        assertEquals(0L, fakeload.getDiskInput());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testDiskIopsMethod2() {
+        fakeload = fakeload.withDiskIops(-1);
+    }
+
+    @Test
+    public void testMemoryGrowthMethod() {
+        fakeload = fakeload.withMemoryGrowth(60, MemoryUnit.MB, TimeUnit.MINUTES);
+        assertEquals(1024L*1024, fakeload.getMemoryGrowthRate());
+        assertEquals(0L, fakeload.getMemory());
+
+        fakeload = fakeload.withMemoryGrowth(1, MemoryUnit.KB, TimeUnit.DAYS);
+        assertEquals(1L, fakeload.getMemoryGrowthRate());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testMemoryGrowthMethod2() {
+        fakeload = fakeload.withMemoryGrowth(-1, MemoryUnit.MB, TimeUnit.MINUTES);
+    }
+
     @Test
     public void testAddLoadMethod() {
         FakeLoad child1 = fakeload.lasting(100, TimeUnit.MILLISECONDS).withCpu(20);
@@ -448,14 +523,15 @@ public abstract class AbstractFakeLoadTest {
         FakeLoad child2 = FakeLoads.create().lasting(200, TimeUnit.MILLISECONDS)
                 .withDiskInput(20, MemoryUnit.MB).withDiskOutput(1000, MemoryUnit.BYTES);
 
-        FakeLoad grandchild1 = FakeLoads.create().lasting(1, TimeUnit.MINUTES).withMemory(200, MemoryUnit.BYTES);
+        FakeLoad grandchild1 = FakeLoads.create().lasting(1, TimeUnit.MINUTES).withMemory(200, MemoryUnit.BYTES)
+                .withMemory(1, MemoryUnit.MB, MemoryKind.OFF_HEAP).withAllocationRate(10, MemoryUnit.MB);
         FakeLoad grandchild2 = FakeLoads.create().lasting(10, TimeUnit.SECONDS).withCpu(80);
 
         child1 = child1.addLoad(grandchild1).addLoad(grandchild2);
 
         FakeLoad out = FakeLoads.create().lasting(20, TimeUnit.SECONDS)
                 .withCpu(20).withMemory(300, MemoryUnit.MB)
-                .withDiskInput(100, MemoryUnit.KB).withDiskOutput(200, MemoryUnit.MB)
+                .withDiskInput(100, MemoryUnit.KB).withDiskOutput(200, MemoryUnit.MB).withDiskIops(500)
                 .addLoad(child1).addLoad(child2);
 
         try {
@@ -0,0 +1,73 @@
+package com.martensigwart.fakeload;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+import static org.junit.Assume.assumeTrue;
+
+/**
+ * Tests for class {@link AllocationSimulator}
+ */
+public class AllocationSimulatorTest {
+
+    private static final long RATE = 50L * 1024 * 1024;
+
+    private Thread thread;
+
+    @After
+    public void tearDown() throws InterruptedException {
+        if (thread != null) {
+            thread.interrupt();
+            thread.join(1000);
+            assertFalse(thread.isAlive());
+        }
+    }
+
+    @Test
+    public void testAchievedRate() throws InterruptedException {
+        assumeTrue(ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean
+                && ((com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean()).isThreadAllocatedMemorySupported());
+        AllocationSimulator simulator = new AllocationSimulator();
+        simulator.setLoad(RATE);
+        thread = new Thread(simulator);
+        thread.start();
+
+        Thread.sleep(2500);
+        double achieved = simulator.getAchievedRate();
+        assertTrue("Achieved rate was " + achieved, achieved > 0.7 * RATE && achieved < 1.5 * RATE);
+    }
+
+    @Test
+    public void testSurvivorsExpire() throws InterruptedException {
+        AllocationSimulator simulator = new AllocationSimulator(
+                AllocationProfile.of(1024, 1024, 1.0, 50, TimeUnit.MILLISECONDS));
+        simulator.setLoad(RATE);
+        thread = new Thread(simulator);
+        thread.start();
+
+        Thread.sleep(200);
+        assertFalse(simulator.waitConditionFulfilled());
+        simulator.setLoad(0);
+
+        // all survivors expire after a few mean lifetimes
+        long deadline = System.currentTimeMillis() + 5000;
+        while (!simulator.waitConditionFulfilled() && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertTrue(simulator.waitConditionFulfilled());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidSurvivalRatio() {
+        AllocationProfile.of(16, 1024, 1.5, 1, TimeUnit.SECONDS);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidObjectSizes() {
+        AllocationProfile.of(1024, 16, 0.1, 1, TimeUnit.SECONDS);
+    }
+}
@@ -0,0 +1,113 @@
+package com.martensigwart.fakeload;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests for class {@link CgroupCpuProbe} using a fake cgroup filesystem
+ */
+public class CgroupCpuProbeTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private Path root;
+    private long time;
+
+    @Before
+    public void setUp() {
+        root = folder.getRoot().toPath();
+        time = 0L;
+    }
+
+    @Test
+    public void testCgroupV2() throws IOException {
+        write("cgroup.controllers", "cpuset cpu io memory pids");
+        write("cpu.max", "150000 100000");
+        write("cpu.stat", "usage_usec 1000000\nuser_usec 800000\nsystem_usec 200000");
+        CgroupCpuProbe probe = newProbe(8);
+
+        assertEquals(1.5, probe.getAvailableCores(), 1e-9);
+        assertEquals(0.0, probe.getCpuLoad(), 0.0);
+
+        // 0.75 cores used during one second
+        time += TimeUnit.SECONDS.toNanos(1);
+        write("cpu.stat", "usage_usec 1750000\nuser_usec 1500000\nsystem_usec 250000");
+        assertEquals(50.0, probe.getCpuLoad(), 1e-9);
+    }
+
+    @Test
+    public void testCgroupV2WithoutQuota() throws IOException {
+        write("cgroup.controllers", "cpu");
+        write("cpu.max", "max 100000");
+        write("cpu.stat", "usage_usec 0");
+
+        assertEquals(8.0, newProbe(8).getAvailableCores(), 0.0);
+    }
+
+    @Test
+    public void testQuotaLimitedByProcessors() throws IOException {
+        write("cgroup.controllers", "cpu");
+        write("cpu.max", "400000 100000");
+        write("cpu.stat", "usage_usec 0");
+
+        assertEquals(2.0, newProbe(2).getAvailableCores(), 0.0);
+    }
+
+    @Test
+    public void testCgroupV1() throws IOException {
+        write("cpu,cpuacct/cpu.cfs_quota_us", "200000");
+        write("cpu,cpuacct/cpu.cfs_period_us", "100000");
+        write("cpu,cpuacct/cpuacct.usage", "5000000000");
+        CgroupCpuProbe probe = newProbe(8);
+
+        assertEquals(2.0, probe.getAvailableCores(), 0.0);
+        probe.getCpuLoad();
+
+        // 1 core used during half a second
+        time += TimeUnit.MILLISECONDS.toNanos(500);
+        write("cpu,cpuacct/cpuacct.usage", "5500000000");
+        assertEquals(50.0, probe.getCpuLoad(), 1e-9);
+    }
+
+    @Test
+    public void testCgroupV1WithoutQuota() throws IOException {
+        write("cpu/cpu.cfs_quota_us", "-1");
+        write("cpu/cpu.cfs_period_us", "100000");
+        write("cpuacct/cpuacct.usage", "0");
+
+        assertEquals(4.0, newProbe(4).getAvailableCores(), 0.0);
+    }
+
+    @Test
+    public void testNotAvailable() {
+        assertFalse(CgroupCpuProbe.isAvailable(root));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testCreationWithoutCgroup() {
+        new CgroupCpuProbe(root);
+    }
+
+
+    private CgroupCpuProbe newProbe(int availableProcessors) {
+        assertTrue(CgroupCpuProbe.isAvailable(root));
+        return new CgroupCpuProbe(root, () -> time, () -> availableProcessors);
+    }
+
+    private void write(String file, String content) throws IOException {
+        Path path = root.resolve(file);
+        Files.createDirectories(path.getParent());
+        Files.write(path, content.getBytes(StandardCharsets.UTF_8));
+    }
+}
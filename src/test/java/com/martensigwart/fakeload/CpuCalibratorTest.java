@@ -0,0 +1,72 @@
+package com.martensigwart.fakeload;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Properties;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests for class {@link CpuCalibrator}
+ */
+public class CpuCalibratorTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void testCalibrationIsCached() throws Exception {
+        Path cacheFile = folder.getRoot().toPath().resolve("calibration.properties");
+        CpuCalibrator calibrator = new CpuCalibrator(cacheFile, 1, 100);
+
+        double iterations = calibrator.calibrate(FibonacciCpuSimulator::new);
+        assertTrue(iterations > 0);
+        assertTrue(Files.exists(cacheFile));
+
+        long start = System.nanoTime();
+        assertEquals(iterations, calibrator.calibrate(FibonacciCpuSimulator::new), 0.0);
+        assertTrue("Cached calibration should not be measured again", System.nanoTime() - start < 100_000_000L);
+    }
+
+    @Test
+    public void testExpectedDurationIsZeroIfCached() throws Exception {
+        Path cacheFile = folder.getRoot().toPath().resolve("calibration.properties");
+        CpuCalibrator calibrator = new CpuCalibrator(cacheFile, 1, 50);
+
+        assertEquals(100L, calibrator.expectedDuration(FibonacciCpuSimulator::new));
+        calibrator.calibrate(FibonacciCpuSimulator::new);
+        assertEquals(0L, calibrator.expectedDuration(FibonacciCpuSimulator::new));
+        assertEquals(100L, calibrator.expectedDuration(() -> new KernelCpuSimulator(CpuKernel.BRANCH)));
+    }
+
+    @Test
+    public void testCacheKeyContainsSimulatorAndThreads() throws Exception {
+        Path cacheFile = folder.getRoot().toPath().resolve("calibration.properties");
+        new CpuCalibrator(cacheFile, 1, 50).calibrate(FibonacciCpuSimulator::new);
+
+        Properties properties = new Properties();
+        try (InputStream in = Files.newInputStream(cacheFile)) {
+            properties.load(in);
+        }
+        assertEquals(1, properties.size());
+        String key = properties.stringPropertyNames().iterator().next();
+        assertTrue(key.startsWith(FibonacciCpuSimulator.class.getName() + ".1."));
+    }
+
+    @Test
+    public void testInvalidCacheEntryIsMeasuredAgain() throws Exception {
+        Path cacheFile = folder.getRoot().toPath().resolve("calibration.properties");
+        CpuCalibrator calibrator = new CpuCalibrator(cacheFile, 1, 50);
+        calibrator.calibrate(FibonacciCpuSimulator::new);
+
+        String content = new String(Files.readAllBytes(cacheFile), "ISO-8859-1").replaceAll("=.*", "=invalid");
+        Files.write(cacheFile, content.getBytes("ISO-8859-1"));
+
+        assertTrue(calibrator.calibrate(FibonacciCpuSimulator::new) > 0);
+    }
+}
@@ -0,0 +1,51 @@
+package com.martensigwart.fakeload;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests for class {@link CpuDistribution}
+ */
+public class CpuDistributionTest {
+
+    private static final long CORE = 100 * CpuSimulator.LOAD_SCALE;
+
+    @Test
+    public void testSpread() {
+        long[] shares = CpuDistribution.SPREAD.distribute(10, new long[4], CORE);
+        assertArrayEquals(new long[] {3, 3, 2, 2}, shares);
+    }
+
+    @Test
+    public void testPack() {
+        long[] threadLoads = {CORE / 2, 0, 0, 0};
+        long[] shares = CpuDistribution.PACK.distribute(CORE, threadLoads, CORE);
+        assertArrayEquals(new long[] {CORE / 2, CORE / 2, 0, 0}, shares);
+    }
+
+    @Test
+    public void testPackBeyondCapacity() {
+        long[] threadLoads = {CORE, CORE};
+        long[] shares = CpuDistribution.PACK.distribute(2, threadLoads, CORE);
+        assertArrayEquals(new long[] {1, 1}, shares);
+    }
+
+    @Test
+    public void testWeighted() {
+        long[] shares = CpuDistribution.weighted(2, 1, 0, 0, 5).distribute(3 * CORE / 2, new long[4], CORE);
+        assertArrayEquals(new long[] {CORE, CORE / 2, 0, 0}, shares);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testWeightedWithoutPositiveWeight() {
+        CpuDistribution.weighted(0, 0);
+    }
+
+    @Test
+    public void testEquals() {
+        assertEquals(CpuDistribution.weighted(1, 0), CpuDistribution.weighted(1, 0));
+        assertNotEquals(CpuDistribution.weighted(1, 0), CpuDistribution.weighted(0, 1));
+        assertNotEquals(CpuDistribution.SPREAD, CpuDistribution.PACK);
+    }
+}
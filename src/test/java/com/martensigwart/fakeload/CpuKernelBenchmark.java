@@ -0,0 +1,207 @@
+package com.martensigwart.fakeload;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.profile.LinuxPerfNormProfiler;
+import org.openjdk.jmh.results.Result;
+import org.openjdk.jmh.results.RunResult;
+import org.openjdk.jmh.runner.ProfilersFailedException;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * JMH benchmark for the kernels defined in {@link CpuKernel}.
+ *
+ * <p>
+ * Measures the time of a single {@link Kernel#execute()} call per kernel. Run with the argument
+ * {@code verify}, the benchmark is run with the {@code perfnorm} profiler (Linux only), which normalizes
+ * hardware counters per operation, and the documented characteristics of the kernels are verified:
+ *
+ * <pre>
+ * java -cp &lt;test classpath&gt; com.martensigwart.fakeload.CpuKernelBenchmark verify
+ * </pre>
+ *
+ * Expected results per operation:
+ * <ul>
+ *     <li>FIBONACCI: no L1 misses, no branch misses, ~1 instruction per cycle or more</li>
+ *     <li>L1_CACHE: 256 loads, practically no L1-dcache-load-misses</li>
+ *     <li>L2_CACHE: 256 loads, most of them L1 misses, but few LLC misses</li>
+ *     <li>LLC: 256 loads, most of them L1 and L2 misses, but few LLC misses</li>
+ *     <li>DRAM: 16 loads, almost all of them LLC misses, very low instructions per cycle</li>
+ *     <li>FLOATING_POINT: 256 multiply-adds, executed as packed SIMD instructions,
+ *     i.e. in fewer than 256 instructions</li>
+ *     <li>BRANCH: 256 switch dispatches, a large fraction of them branch-misses</li>
+ *     <li>HASHING and COMPRESSION: high instruction count per operation, few cache misses</li>
+ * </ul>
+ *
+ * Counters not supported by the processor, e.g. inside a virtual machine, are reported as not verified.
+ * If {@code perf} is not available at all, the verification is skipped. Any other argument is passed
+ * on to JMH.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Thread)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CpuKernelBenchmark {
+
+    @Param
+    public CpuKernel kernel;
+
+    private Kernel instance;
+
+    @Setup
+    public void setUp() {
+        instance = kernel.newInstance();
+    }
+
+    @TearDown
+    public void tearDown() {
+        instance.close();
+    }
+
+    @Benchmark
+    public long execute() {
+        return instance.execute();
+    }
+
+    public static void main(String... args) throws RunnerException, IOException {
+        if (args.length == 1 && args[0].equals("verify")) {
+            verify();
+            return;
+        }
+        String[] options = new String[args.length + 1];
+        options[0] = CpuKernelBenchmark.class.getSimpleName();
+        System.arraycopy(args, 0, options, 1, args.length);
+        org.openjdk.jmh.Main.main(options);
+    }
+
+    /**
+     * Runs the benchmark with the {@code perfnorm} profiler and verifies the characteristics of every kernel.
+     * @throws AssertionError if a kernel does not show its documented characteristics
+     */
+    private static void verify() throws RunnerException {
+        Options options = new OptionsBuilder()
+                .include(CpuKernelBenchmark.class.getName())
+                .addProfiler(LinuxPerfNormProfiler.class)
+                .build();
+        Collection<RunResult> results;
+        try {
+            results = new Runner(options).run();
+        } catch (ProfilersFailedException e) {
+            System.out.println("perf is not available, kernel characteristics not verified: " + e.getMessage());
+            return;
+        }
+
+        List<String> violations = new ArrayList<>();
+        for (RunResult result : results) {
+            Verification verification = new Verification(
+                    CpuKernel.valueOf(result.getParams().getParam("kernel")), counters(result), violations);
+            verification.check();
+        }
+        if (!violations.isEmpty()) {
+            throw new AssertionError("Kernels do not show their documented characteristics:\n"
+                    + String.join("\n", violations));
+        }
+        System.out.println("All kernels show their documented characteristics");
+    }
+
+    /**
+     * Returns the hardware counters per operation, by event name without modifiers such as ":u".
+     */
+    private static Map<String, Double> counters(RunResult result) {
+        Map<String, Double> counters = new HashMap<>();
+        for (Map.Entry<String, Result> entry : result.getSecondaryResults().entrySet()) {
+            String event = entry.getKey().split(":")[0];
+            counters.put(event, entry.getValue().getScore());
+        }
+        return counters;
+    }
+
+
+    /**
+     * The expected hardware counters per operation of a kernel, as documented above.
+     */
+    private static final class Verification {
+        private final CpuKernel kernel;
+        private final Map<String, Double> counters;
+        private final List<String> violations;
+
+        private Verification(CpuKernel kernel, Map<String, Double> counters, List<String> violations) {
+            this.kernel = kernel;
+            this.counters = counters;
+            this.violations = violations;
+        }
+
+        private void check() {
+            double loads = counter("L1-dcache-loads");
+            double l1Misses = counter("L1-dcache-load-misses");
+            double llcMisses = counter("LLC-load-misses");
+            double branchMisses = counter("branch-misses");
+            double instructions = counter("instructions");
+            double ipc = instructions / counter("cycles");
+            switch (kernel) {
+                case FIBONACCI:
+                    expect("L1 misses", l1Misses, 0.0, 1.0);
+                    expect("branch misses", branchMisses, 0.0, 1.0);
+                    expect("instructions per cycle", ipc, 1.0, Double.MAX_VALUE);
+                    break;
+                case L1_CACHE:
+                    expect("loads", loads, 256.0, Double.MAX_VALUE);
+                    expect("L1 miss ratio", l1Misses / loads, 0.0, 0.05);
+                    break;
+                case L2_CACHE:
+                    expect("L1 misses", l1Misses, 128.0, Double.MAX_VALUE);
+                    expect("LLC misses", llcMisses, 0.0, 25.6);
+                    break;
+                case LLC:
+                    expect("L1 misses", l1Misses, 128.0, Double.MAX_VALUE);
+                    expect("LLC misses", llcMisses, 0.0, 64.0);
+                    break;
+                case DRAM:
+                    expect("LLC misses", llcMisses, 8.0, Double.MAX_VALUE);
+                    expect("instructions per cycle", ipc, 0.0, 0.5);
+                    break;
+                case FLOATING_POINT:
+                    expect("instructions", instructions, 0.0, 256.0);
+                    break;
+                case BRANCH:
+                    expect("branch misses", branchMisses, 64.0, Double.MAX_VALUE);
+                    break;
+                case HASHING:
+                case COMPRESSION:
+                    expect("instructions", instructions, 1000.0, Double.MAX_VALUE);
+                    expect("L1 miss ratio", l1Misses / loads, 0.0, 0.05);
+                    break;
+                default:
+                    violations.add(kernel + ": no documented characteristics");
+            }
+        }
+
+        private double counter(String event) {
+            Double value = counters.get(event);
+            return (value != null) ? value : Double.NaN;
+        }
+
+        private void expect(String description, double value, double min, double max) {
+            if (Double.isNaN(value)) {
+                System.out.printf("%s: %s not verified, counter not supported%n", kernel, description);
+            } else if (value < min || value > max) {
+                violations.add(String.format("%s: %s per operation was %.2f, expected between %.2f and %.2f",
+                        kernel, description, value, min, max));
+            } else {
+                System.out.printf("%s: %s per operation %.2f as expected%n", kernel, description, value);
+            }
+        }
+    }
+}
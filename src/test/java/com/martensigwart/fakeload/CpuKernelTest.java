@@ -0,0 +1,87 @@
+package com.martensigwart.fakeload;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests for {@link CpuKernel} and {@link KernelCpuSimulator}
+ */
+public class CpuKernelTest {
+
+    @Test
+    public void testAllKernelsExecute() {
+        for (CpuKernel cpuKernel : CpuKernel.values()) {
+            Kernel kernel = cpuKernel.newInstance();
+            try {
+                for (int i = 0; i < 100; i++) {
+                    kernel.execute();
+                }
+            } finally {
+                kernel.close();
+            }
+        }
+    }
+
+    @Test
+    public void testCalibrationPerKernel() {
+        KernelCpuSimulator simulator = new KernelCpuSimulator();
+        simulator.setCalibration(CpuKernel.FIBONACCI, 100.0);
+        simulator.setCalibration(CpuKernel.HASHING, 2.0);
+        assertEquals(100.0, simulator.getIterationsPerMicrosecond(), 0.0);
+
+        simulator.setKernel(CpuKernel.HASHING);
+        assertEquals(CpuKernel.HASHING, simulator.getKernel());
+        assertEquals(2.0, simulator.getIterationsPerMicrosecond(), 0.0);
+
+        // uncalibrated kernel falls back to closed-loop mode
+        simulator.setKernel(CpuKernel.BRANCH);
+        assertEquals(0.0, simulator.getIterationsPerMicrosecond(), 0.0);
+        simulator.simulateCpu(CpuSimulator.CHECK_INTERVAL);
+        simulator.cleanUp();
+    }
+
+    @Test
+    public void testMostRecentKernelIsUsed() throws MaximumLoadExceededException {
+        SystemLoad systemLoad = new SystemLoad();
+        FakeLoad hashing = FakeLoads.create().withCpu(20).withCpuKernel(CpuKernel.HASHING);
+        FakeLoad branch = FakeLoads.create().withCpu(20).withCpuKernel(CpuKernel.BRANCH);
+        FakeLoad memoryOnly = FakeLoads.create().withMemory(1, MemoryUnit.KB).withCpuKernel(CpuKernel.DRAM);
+
+        assertEquals(CpuKernel.FIBONACCI, systemLoad.getCpuKernel());
+        systemLoad.increaseBy(hashing);
+        systemLoad.increaseBy(branch);
+        systemLoad.increaseBy(memoryOnly);
+        assertEquals(CpuKernel.BRANCH, systemLoad.getCpuKernel());
+
+        systemLoad.decreaseBy(branch);
+        assertEquals(CpuKernel.HASHING, systemLoad.getCpuKernel());
+        systemLoad.decreaseBy(hashing);
+        assertEquals(CpuKernel.FIBONACCI, systemLoad.getCpuKernel());
+    }
+
+    @Test
+    public void testKernelsPerThread() throws MaximumLoadExceededException {
+        SystemLoad systemLoad = new SystemLoad(2, 2);
+        FakeLoad hashing = FakeLoads.create().withCpuCores(1.0).withCpuDistribution(CpuDistribution.PACK)
+                .withCpuKernel(CpuKernel.HASHING);
+        FakeLoad branch = FakeLoads.create().withCpuCores(0.5).withCpuDistribution(CpuDistribution.PACK)
+                .withCpuKernel(CpuKernel.BRANCH);
+        FakeLoad dram = FakeLoads.create().withCpuCores(0.2).withCpuKernel(CpuKernel.DRAM);
+
+        assertArrayEquals(new CpuKernel[] {CpuKernel.FIBONACCI, CpuKernel.FIBONACCI},
+                systemLoad.getCpuThreadKernels());
+        systemLoad.increaseBy(hashing);
+        systemLoad.increaseBy(branch);
+        assertArrayEquals(new CpuKernel[] {CpuKernel.HASHING, CpuKernel.BRANCH}, systemLoad.getCpuThreadKernels());
+
+        // a load spread over both threads shares them with the others
+        systemLoad.increaseBy(dram);
+        assertArrayEquals(new CpuKernel[] {CpuKernel.DRAM, CpuKernel.DRAM}, systemLoad.getCpuThreadKernels());
+        systemLoad.decreaseBy(dram);
+        assertArrayEquals(new CpuKernel[] {CpuKernel.HASHING, CpuKernel.BRANCH}, systemLoad.getCpuThreadKernels());
+
+        systemLoad.decreaseBy(hashing);
+        assertArrayEquals(new CpuKernel[] {CpuKernel.FIBONACCI, CpuKernel.BRANCH}, systemLoad.getCpuThreadKernels());
+    }
+}
@@ -0,0 +1,255 @@
+package com.martensigwart.fakeload;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.InputStreamReader;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+import static org.junit.Assume.assumeTrue;
+
+/**
+ * Tests for class {@link CpuSimulator}
+ */
+public class CpuSimulatorTest {
+
+    private static final ThreadMXBean threadMXBean = ManagementFactory.getThreadMXBean();
+
+    // a 10 GHz CPU performing one Fibonacci step per cycle
+    private static final double MAXIMUM_ITERATIONS_PER_MILLISECOND = 10_000_000.0;
+    // C2-compiled code is ~2 times faster than C1-compiled code, eliminated code is >1000 times faster
+    private static final double MAXIMUM_JIT_SPEEDUP = 4.0;
+
+    private Thread thread;
+
+    @After
+    public void tearDown() throws InterruptedException {
+        if (thread != null) {
+            thread.interrupt();
+            thread.join(1000);
+            assertFalse(thread.isAlive());
+        }
+    }
+
+    @Test
+    public void testFractionalLoad() throws InterruptedException {
+        CpuSimulator simulator = new FibonacciCpuSimulator(10, TimeUnit.MILLISECONDS);
+        simulator.setLoad(Math.round(25.5 * CpuSimulator.LOAD_SCALE));
+        assertEquals("25.50%", simulator.prettyFormat(simulator.getLoad()));
+
+        double utilization = measureUtilization(simulator, 2000);
+        assertEquals(0.255, utilization, 0.05);
+    }
+
+    @Test
+    public void testOpenLoopLoad() throws InterruptedException {
+        CpuSimulator simulator = new FibonacciCpuSimulator(10, TimeUnit.MILLISECONDS);
+        double iterationsPerMicrosecond = new CpuCalibrator().measure(FibonacciCpuSimulator::new);
+        simulator.setIterationsPerMicrosecond(iterationsPerMicrosecond);
+        simulator.setLoad(40 * CpuSimulator.LOAD_SCALE);
+
+        double utilization = measureUtilization(simulator, 2000);
+        assertEquals(0.4, utilization, 0.1);
+    }
+
+    @Test
+    public void testWorkIsNotEliminatedByJit() throws Exception {
+        // C1 does not eliminate the work, compare with the default tiered compilation ending in C2
+        double c1 = iterationsPerMillisecondInForkedJvm("-XX:TieredStopAtLevel=1");
+        double c2 = iterationsPerMillisecondInForkedJvm("-XX:+TieredCompilation");
+
+        // every Fibonacci step depends on the previous one, so a step takes at least one cycle
+        assertTrue("Work was eliminated, iterations/ms: " + c2, c2 < MAXIMUM_ITERATIONS_PER_MILLISECOND);
+        assertTrue("Work per ms changed from " + c1 + " (C1) to " + c2 + " (C2)", c2 / c1 < MAXIMUM_JIT_SPEEDUP);
+    }
+
+    @Test
+    public void testRunOnDemand() throws InterruptedException {
+        ExecutorService executor = Executors.newCachedThreadPool();
+        try {
+            CpuSimulator simulator = new FibonacciCpuSimulator(10, TimeUnit.MILLISECONDS);
+            simulator.runOnDemand(executor, 100);
+            assertFalse(simulator.isActive());
+
+            simulator.setLoad(10 * CpuSimulator.LOAD_SCALE);
+            assertTrue(simulator.isActive());
+
+            // thread is released after the idle timeout
+            simulator.setLoad(0);
+            Thread.sleep(500);
+            assertFalse(simulator.isActive());
+
+            // and started again on demand
+            simulator.setLoad(10 * CpuSimulator.LOAD_SCALE);
+            assertTrue(simulator.isActive());
+        } finally {
+            executor.shutdownNow();
+            assertTrue(executor.awaitTermination(1, TimeUnit.SECONDS));
+        }
+    }
+
+    @Test
+    public void testRunOnDemandAfterFailure() throws InterruptedException {
+        ExecutorService executor = Executors.newCachedThreadPool();
+        AtomicBoolean failing = new AtomicBoolean(true);
+        AtomicInteger cleanUps = new AtomicInteger();
+        try {
+            CpuSimulator simulator = new CpuSimulator(10, TimeUnit.MILLISECONDS) {
+                @Override
+                protected long simulateCpu() {
+                    if (failing.getAndSet(false)) {
+                        throw new IllegalStateException("Simulated failure");
+                    }
+                    return 0L;
+                }
+
+                @Override
+                protected void cleanUp() {
+                    cleanUps.incrementAndGet();
+                    super.cleanUp();
+                }
+            };
+            simulator.runOnDemand(executor, 100);
+            simulator.setLoad(10 * CpuSimulator.LOAD_SCALE);
+
+            // thread is released when the simulation fails
+            long deadline = System.currentTimeMillis() + 1000;
+            while (simulator.isActive() && System.currentTimeMillis() < deadline) {
+                Thread.sleep(10);
+            }
+            assertFalse(simulator.isActive());
+            assertEquals(1, cleanUps.get());
+
+            // and started again on demand
+            simulator.setLoad(20 * CpuSimulator.LOAD_SCALE);
+            assertTrue(simulator.isActive());
+        } finally {
+            executor.shutdownNow();
+            assertTrue(executor.awaitTermination(1, TimeUnit.SECONDS));
+        }
+    }
+
+    @Test
+    public void testCpuTime() throws InterruptedException {
+        assumeTrue(threadMXBean.isCurrentThreadCpuTimeSupported());
+        CpuSimulator simulator = new FibonacciCpuSimulator(10, TimeUnit.MILLISECONDS);
+        simulator.setLoad(50 * CpuSimulator.LOAD_SCALE);
+        thread = new Thread(simulator);
+        thread.start();
+
+        Thread.sleep(1000);
+        long cpuMillis = TimeUnit.NANOSECONDS.toMillis(simulator.getCpuTime());
+        assertTrue("CPU time was " + cpuMillis + " ms", cpuMillis > 250 && cpuMillis < 750);
+    }
+
+    @Test
+    public void testCpuTimeIsUpToDateWithinPeriod() throws InterruptedException {
+        assumeTrue(threadMXBean.isThreadCpuTimeSupported());
+        CpuSimulator simulator = new FibonacciCpuSimulator(1, TimeUnit.SECONDS);
+        simulator.setLoad(100 * CpuSimulator.LOAD_SCALE);
+        thread = new Thread(simulator);
+        thread.start();
+
+        // within the first period of one second
+        Thread.sleep(500);
+        long cpuMillis = TimeUnit.NANOSECONDS.toMillis(simulator.getCpuTime());
+        assertTrue("CPU time was " + cpuMillis + " ms", cpuMillis > 200);
+    }
+
+    @Test
+    public void testMaximumLoad() {
+        CpuSimulator simulator = new FibonacciCpuSimulator();
+        simulator.setLoad(Long.MAX_VALUE);
+        assertEquals(100 * CpuSimulator.LOAD_SCALE, simulator.getLoad());
+        assertTrue(simulator.isMaximumLoad());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testPeriodTooShort() {
+        new FibonacciCpuSimulator(500, TimeUnit.MICROSECONDS);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testPeriodTooLong() {
+        new FibonacciCpuSimulator(2, TimeUnit.SECONDS);
+    }
+
+
+    private double measureUtilization(CpuSimulator simulator, long millis) throws InterruptedException {
+        thread = new Thread(simulator);
+        thread.setDaemon(true);
+        thread.start();
+
+        // skip the first periods while the simulator warms up
+        Thread.sleep(200);
+        long startCpu = threadMXBean.getThreadCpuTime(thread.getId());
+        long start = System.nanoTime();
+        Thread.sleep(millis);
+        long cpu = threadMXBean.getThreadCpuTime(thread.getId()) - startCpu;
+        long wall = System.nanoTime() - start;
+        return (double) cpu / wall;
+    }
+
+    /**
+     * Measures the iterations per ms of a warmed up simulator in a JVM started with the given option.
+     */
+    private static double iterationsPerMillisecondInForkedJvm(String jvmOption) throws Exception {
+        String java = System.getProperty("java.home") + File.separator + "bin" + File.separator + "java";
+        Process process = new ProcessBuilder(java, jvmOption, "-cp", System.getProperty("java.class.path"),
+                JitTier.class.getName())
+                .redirectErrorStream(true)
+                .start();
+        String result = null;
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(process.getInputStream()))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.startsWith(JitTier.RESULT)) {
+                    result = line.substring(JitTier.RESULT.length());
+                }
+            }
+        }
+        assertEquals("Forked JVM failed", 0, process.waitFor());
+        assertNotNull("Forked JVM did not report a result", result);
+        return Double.parseDouble(result);
+    }
+
+    /**
+     * Entry point of the forked JVM, measuring the iterations per ms after the simulation has been compiled.
+     */
+    public static final class JitTier {
+        static final String RESULT = "iterations/ms: ";
+
+        public static void main(String[] args) {
+            CpuSimulator simulator = new FibonacciCpuSimulator();
+            // give the JIT compiler the chance to compile the simulation
+            iterationsPerMillisecond(simulator, 2000);
+            double iterationsPerMillisecond = iterationsPerMillisecond(simulator, 500);
+            if (simulator.getBlackhole().getSink() == 0L) {
+                System.exit(1);
+            }
+            System.out.println(RESULT + iterationsPerMillisecond);
+        }
+    }
+
+    private static double iterationsPerMillisecond(CpuSimulator simulator, long millis) {
+        long begin = System.nanoTime();
+        long end = begin + TimeUnit.MILLISECONDS.toNanos(millis);
+        long iterations = 0;
+        long now;
+        do {
+            simulator.simulateCpu(CpuSimulator.CHECK_INTERVAL);
+            iterations += CpuSimulator.CHECK_INTERVAL;
+        } while ((now = System.nanoTime()) - end < 0);
+        simulator.getBlackhole().flush();
+        return iterations / ((now - begin) / 1_000_000.0);
+    }
+}
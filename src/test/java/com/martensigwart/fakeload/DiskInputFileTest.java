@@ -0,0 +1,102 @@
+package com.martensigwart.fakeload;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.zip.Deflater;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests for class {@link DiskInputFile}
+ */
+public class DiskInputFileTest {
+
+    private static final int SIZE = 3 * DiskInputFile.FILL_CHUNK_SIZE + 123;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void testCreatesFileWithIncompressibleData() throws IOException {
+        File file = new File(folder.getRoot(), "dir/input");
+        DiskInputFile inputFile = new DiskInputFile(file.getPath(), SIZE);
+        assertEquals(0.0, inputFile.getProgress(), 0.0);
+
+        inputFile.provision();
+        assertEquals(SIZE, file.length());
+        assertEquals(1.0, inputFile.getProgress(), 0.0);
+
+        byte[] content = Files.readAllBytes(file.toPath());
+        byte[] tail = Arrays.copyOfRange(content, SIZE - 1024 * 1024, SIZE);
+        Deflater deflater = new Deflater(Deflater.BEST_COMPRESSION);
+        deflater.setInput(tail);
+        deflater.finish();
+        byte[] compressed = new byte[2 * tail.length];
+        int compressedLength = deflater.deflate(compressed);
+        deflater.end();
+        assertTrue("Compressed to " + compressedLength, compressedLength > 0.99 * tail.length);
+    }
+
+    @Test
+    public void testReusesLargeEnoughFile() throws IOException {
+        File file = folder.newFile("input");
+        byte[] content = new byte[SIZE + 1];
+        content[SIZE] = 42;
+        Files.write(file.toPath(), content);
+
+        DiskInputFile inputFile = new DiskInputFile(file.getPath(), SIZE);
+        inputFile.provision();
+        assertArrayEquals(content, Files.readAllBytes(file.toPath()));
+        assertEquals(1.0, inputFile.getProgress(), 0.0);
+    }
+
+    @Test
+    public void testFillsTooSmallFile() throws IOException {
+        File file = folder.newFile("input");
+        Files.write(file.toPath(), new byte[1024]);
+
+        new DiskInputFile(file.getPath(), SIZE).provision();
+        assertEquals(SIZE, file.length());
+        // the existing content is overwritten with random data
+        byte[] head = Arrays.copyOf(Files.readAllBytes(file.toPath()), 1024);
+        assertFalse(Arrays.equals(new byte[1024], head));
+    }
+
+    @Test
+    public void testDoesNotReuseInterruptedFill() throws IOException {
+        File file = new File(folder.getRoot(), "input");
+        File temp = new File(folder.getRoot(), "input" + DiskInputFile.TEMP_SUFFIX);
+        // left behind by a fill which was interrupted, at full length but mostly zeros
+        Files.write(temp.toPath(), new byte[SIZE]);
+
+        new DiskInputFile(file.getPath(), SIZE).provision();
+        assertFalse(temp.exists());
+        assertEquals(SIZE, file.length());
+        byte[] head = Arrays.copyOf(Files.readAllBytes(file.toPath()), 1024);
+        assertFalse(Arrays.equals(new byte[1024], head));
+    }
+
+    @Test
+    public void testSimulatorProvisionsFileOnFirstUse() throws IOException {
+        File file = new File(folder.getRoot(), "input");
+        FileChannelDiskInputSimulator simulator = new FileChannelDiskInputSimulator(
+                new DiskInputFile(file.getPath(), SIZE), FileChannelDiskInputSimulator.DEFAULT_BUFFER_SIZE, false);
+        try {
+            assertEquals(2L * SIZE, simulator.read(2L * SIZE));
+            assertEquals(SIZE, file.length());
+        } finally {
+            simulator.cleanUp();
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testSizeMustBePositive() {
+        new DiskInputFile("input", 0);
+    }
+}
@@ -0,0 +1,151 @@
+package com.martensigwart.fakeload;
+
+import org.junit.After;
+import org.junit.Assume;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests for class {@link DiskIopsSimulator}
+ */
+public class DiskIopsSimulatorTest {
+
+    private static final int BLOCK_SIZE = DiskIopsSimulator.DEFAULT_BLOCK_SIZE;
+    private static final long FILE_SIZE = 256L * BLOCK_SIZE;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private Thread thread;
+
+    @After
+    public void tearDown() throws InterruptedException {
+        if (thread != null) {
+            thread.interrupt();
+            thread.join(3000);
+            assertFalse(thread.isAlive());
+        }
+    }
+
+    @Test
+    public void testAchievesIopsAndMeasuresLatency() throws InterruptedException {
+        DiskInputFile file = new DiskInputFile(new File(folder.getRoot(), "input").getPath(), FILE_SIZE);
+        DiskIopsSimulator simulator = new DiskIopsSimulator(file, BLOCK_SIZE, 4, false, false);
+        start(simulator);
+
+        simulator.setLoad(200L);
+        Thread.sleep(3500);
+
+        assertEquals(200.0, simulator.getAchievedIops(), 30.0);
+        assertTrue(simulator.getMeanLatency() > 0L);
+        assertTrue(simulator.getMaxLatency() >= simulator.getMeanLatency());
+        assertEquals(1.0, file.getProgress(), 0.0);
+    }
+
+    @Test
+    public void testWritesRandomBlocksWithinFile() throws InterruptedException, IOException {
+        File input = new File(folder.getRoot(), "input");
+        DiskInputFile file = new DiskInputFile(input.getPath(), FILE_SIZE);
+        file.provision();
+        byte[] before = Files.readAllBytes(input.toPath());
+
+        DiskIopsSimulator simulator = new DiskIopsSimulator(file, BLOCK_SIZE, 2, true, false);
+        start(simulator);
+        simulator.setLoad(100L);
+        Thread.sleep(2500);
+        simulator.setLoad(0L);
+        thread.interrupt();
+        thread.join(3000);
+
+        assertEquals(FILE_SIZE, input.length());
+        byte[] after = Files.readAllBytes(input.toPath());
+        int changedBlocks = 0;
+        for (int block = 0; block < FILE_SIZE / BLOCK_SIZE; block++) {
+            for (int i = block * BLOCK_SIZE; i < (block + 1) * BLOCK_SIZE; i++) {
+                if (before[i] != after[i]) {
+                    changedBlocks++;
+                    break;
+                }
+            }
+        }
+        assertTrue("Changed blocks: " + changedBlocks, changedBlocks > 10);
+        assertTrue(simulator.getAchievedIops() > 0.0);
+    }
+
+    @Test
+    public void testQueueDepthLimitsOutstandingOperations() throws InterruptedException {
+        Assume.assumeTrue(DirectIo.isSupported());
+        DiskInputFile file = new DiskInputFile(new File(folder.getRoot(), "input").getPath(), FILE_SIZE);
+        DiskIopsSimulator simulator = new DiskIopsSimulator(file, BLOCK_SIZE, 1, true, true);
+        start(simulator);
+
+        // synchronous writes at a queue depth of 1 cannot achieve an arbitrary rate
+        simulator.setLoad(Long.MAX_VALUE / 2);
+        Thread.sleep(2500);
+
+        double achievedIops = simulator.getAchievedIops();
+        assertTrue(achievedIops > 0.0);
+        assertTrue(achievedIops <= TimeUnit.SECONDS.toNanos(1) / (double) simulator.getMeanLatency() * 1.5);
+    }
+
+    @Test
+    public void testWorkersTerminateWhenLoadDropsToZero() throws InterruptedException {
+        DiskInputFile file = new DiskInputFile(new File(folder.getRoot(), "input").getPath(), FILE_SIZE);
+        DiskIopsSimulator simulator = new DiskIopsSimulator(file, BLOCK_SIZE, 4, false, false);
+        start(simulator);
+
+        simulator.setLoad(100L);
+        Thread.sleep(1000);
+        assertEquals(4, workerCount());
+
+        simulator.setLoad(0L);
+        Thread.sleep(1000);
+        assertEquals(0, workerCount());
+        assertTrue(thread.isAlive());
+
+        // workers are started again with the next load
+        simulator.setLoad(100L);
+        Thread.sleep(1500);
+        assertEquals(4, workerCount());
+        assertTrue(simulator.getAchievedIops() > 0.0);
+    }
+
+    @Test
+    public void testZeroLoadIsIgnored() throws InterruptedException {
+        // the load may be reset between checking the wait condition and simulating the load
+        File input = new File(folder.getRoot(), "input");
+        DiskIopsSimulator simulator = new DiskIopsSimulator(new DiskInputFile(input.getPath(), FILE_SIZE),
+                BLOCK_SIZE, 1, false, false);
+        simulator.simulateLoad(0L);
+        assertFalse(input.exists());
+        simulator.cleanUp();
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testNonPositiveQueueDepth() {
+        new DiskIopsSimulator(new DiskInputFile("input", FILE_SIZE), BLOCK_SIZE, 0, false, false);
+    }
+
+    private static int workerCount() {
+        int count = 0;
+        for (Thread t : Thread.getAllStackTraces().keySet()) {
+            if (t.getName().startsWith("DiskIopsSim-worker-") && t.isAlive()) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    private void start(DiskIopsSimulator simulator) {
+        thread = new Thread(simulator);
+        thread.start();
+    }
+}
@@ -0,0 +1,281 @@
+package com.martensigwart.fakeload;
+
+import org.junit.After;
+import org.junit.Assume;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.lang.reflect.Field;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests for class {@link FileChannelDiskInputSimulator}
+ */
+public class FileChannelDiskInputSimulatorTest {
+
+    private static final int BUFFER_SIZE = FileChannelDiskInputSimulator.BUFFER_ALIGNMENT;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private FileChannelDiskInputSimulator simulator;
+
+    @After
+    public void tearDown() {
+        if (simulator != null) {
+            simulator.cleanUp();
+        }
+    }
+
+    @Test
+    public void testReadsAndStartsOverAtEndOfFile() throws IOException {
+        // the first byte of every block is the number of the block
+        byte[] content = new byte[3 * BUFFER_SIZE];
+        for (int block = 0; block < 3; block++) {
+            content[block * BUFFER_SIZE] = (byte) block;
+        }
+        File file = folder.newFile("input");
+        Files.write(file.toPath(), content);
+        simulator = new FileChannelDiskInputSimulator(file.getPath(), BUFFER_SIZE);
+
+        assertEquals(5L * BUFFER_SIZE, simulator.read(5L * BUFFER_SIZE));
+        assertEquals(1, simulator.getBuffer().get(0));
+        assertEquals(BUFFER_SIZE, simulator.getBuffer().limit());
+
+        assertEquals(BUFFER_SIZE / 2, simulator.read(BUFFER_SIZE / 2L));
+        assertEquals(2, simulator.getBuffer().get(0));
+        assertEquals(BUFFER_SIZE / 2, simulator.getBuffer().limit());
+
+        byte[] bytes = new byte[BUFFER_SIZE];
+        assertEquals(BUFFER_SIZE, simulator.read(bytes));
+        assertEquals(0, bytes[BUFFER_SIZE / 2]);
+    }
+
+    @Test
+    public void testShortReadIsContinued() throws Exception {
+        // every byte of a block is the number of the block plus one
+        byte[] content = new byte[3 * BUFFER_SIZE];
+        for (int i = 0; i < content.length; i++) {
+            content[i] = (byte) (i / BUFFER_SIZE + 1);
+        }
+        File file = folder.newFile("input");
+        Files.write(file.toPath(), content);
+        simulator = new FileChannelDiskInputSimulator(file.getPath(), BUFFER_SIZE);
+        simulator.read(BUFFER_SIZE);
+
+        // positional reads return at most 100 bytes, as may happen e.g. on network file systems
+        try (FileChannel delegate = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            FileChannel channel = new ShortReadChannel(delegate);
+            Field field = FileChannelDiskInputSimulator.class.getDeclaredField("channel");
+            field.setAccessible(true);
+            ((FileChannel) field.get(simulator)).close();
+            field.set(simulator, channel);
+
+            byte[] bytes = new byte[BUFFER_SIZE];
+            assertEquals(BUFFER_SIZE, simulator.read(bytes));
+            for (byte b : bytes) {
+                assertEquals(2, b);
+            }
+            assertEquals(BUFFER_SIZE, simulator.read(bytes));
+            assertEquals(3, bytes[BUFFER_SIZE - 1]);
+            assertEquals(BUFFER_SIZE, simulator.read(bytes));
+            assertEquals(1, bytes[0]);
+        }
+    }
+
+    @Test
+    public void testInterruptStopsSimulation() throws IOException {
+        File file = folder.newFile("input");
+        Files.write(file.toPath(), new byte[BUFFER_SIZE]);
+        simulator = new FileChannelDiskInputSimulator(file.getPath(), BUFFER_SIZE);
+        // reading on an interrupted thread closes the channel
+        Thread.currentThread().interrupt();
+        try {
+            simulator.simulateLoad(BUFFER_SIZE);
+            fail("Simulation was not interrupted");
+        } catch (InterruptedException e) {
+            // expected
+        } finally {
+            Thread.interrupted();
+        }
+    }
+
+    @Test
+    public void testDirectIoReadsAlignedBlocks() throws IOException {
+        Assume.assumeTrue(DirectIo.isSupported());
+        // the file ends with a partial block, which is skipped by aligned reads
+        byte[] content = new byte[2 * BUFFER_SIZE + BUFFER_SIZE / 2];
+        content[0] = 1;
+        content[2 * BUFFER_SIZE] = 2;
+        File file = folder.newFile("input");
+        Files.write(file.toPath(), content);
+        simulator = new FileChannelDiskInputSimulator(file.getPath(), BUFFER_SIZE, true);
+
+        assertEquals(4L * BUFFER_SIZE, simulator.read(4L * BUFFER_SIZE - 1));
+        byte[] bytes = new byte[3 * BUFFER_SIZE];
+        assertEquals(3 * BUFFER_SIZE, simulator.read(bytes));
+        assertEquals(1, bytes[0]);
+        assertEquals(0, bytes[BUFFER_SIZE]);
+        assertEquals(1, bytes[2 * BUFFER_SIZE]);
+    }
+
+    @Test
+    public void testBufferIsAlignedAndDirect() throws Exception {
+        Assume.assumeTrue(DirectMemory.isAlignmentSupported());
+        File file = folder.newFile("input");
+        Files.write(file.toPath(), new byte[BUFFER_SIZE]);
+        simulator = new FileChannelDiskInputSimulator(file.getPath(), 2 * BUFFER_SIZE);
+        simulator.read(BUFFER_SIZE);
+
+        ByteBuffer buffer = simulator.getBuffer();
+        assertTrue(buffer.isDirect());
+        assertEquals(2 * BUFFER_SIZE, buffer.capacity());
+        // ByteBuffer.alignmentOffset is only available on Java 9 and later
+        Object offset = ByteBuffer.class.getMethod("alignmentOffset", int.class, int.class)
+                .invoke(buffer, 0, FileChannelDiskInputSimulator.BUFFER_ALIGNMENT);
+        assertEquals(0, offset);
+    }
+
+    @Test(expected = FileNotFoundException.class)
+    public void testMissingFile() throws IOException {
+        simulator = new FileChannelDiskInputSimulator(new File(folder.getRoot(), "missing").getPath());
+        simulator.read(BUFFER_SIZE);
+    }
+
+    @Test(expected = IOException.class)
+    public void testEmptyFile() throws IOException {
+        simulator = new FileChannelDiskInputSimulator(folder.newFile("input").getPath());
+        simulator.read(BUFFER_SIZE);
+    }
+
+    @Test
+    public void testZeroLoadIsIgnored() throws InterruptedException {
+        // the load may be reset between checking the wait condition and simulating the load
+        File file = new File(folder.getRoot(), "missing");
+        simulator = new FileChannelDiskInputSimulator(file.getPath());
+        simulator.simulateLoad(0L);
+        assertNull(simulator.getBuffer());
+        assertFalse(file.exists());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testBufferSizeMustBeAligned() {
+        new FileChannelDiskInputSimulator("input", BUFFER_SIZE + 1);
+    }
+
+    /**
+     * A channel whose positional reads return at most 100 bytes, delegating everything else.
+     */
+    private static final class ShortReadChannel extends FileChannel {
+
+        private final FileChannel delegate;
+
+        ShortReadChannel(FileChannel delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public int read(ByteBuffer dst, long position) throws IOException {
+            ByteBuffer shortDst = dst.duplicate();
+            shortDst.limit(Math.min(dst.limit(), dst.position() + 100));
+            int n = delegate.read(shortDst, position);
+            dst.position(shortDst.position());
+            return n;
+        }
+
+        @Override
+        public long size() throws IOException {
+            return delegate.size();
+        }
+
+        @Override
+        public int read(ByteBuffer dst) throws IOException {
+            return delegate.read(dst);
+        }
+
+        @Override
+        public long read(ByteBuffer[] dsts, int offset, int length) throws IOException {
+            return delegate.read(dsts, offset, length);
+        }
+
+        @Override
+        public int write(ByteBuffer src) throws IOException {
+            return delegate.write(src);
+        }
+
+        @Override
+        public long write(ByteBuffer[] srcs, int offset, int length) throws IOException {
+            return delegate.write(srcs, offset, length);
+        }
+
+        @Override
+        public long position() throws IOException {
+            return delegate.position();
+        }
+
+        @Override
+        public FileChannel position(long newPosition) throws IOException {
+            delegate.position(newPosition);
+            return this;
+        }
+
+        @Override
+        public FileChannel truncate(long size) throws IOException {
+            delegate.truncate(size);
+            return this;
+        }
+
+        @Override
+        public void force(boolean metaData) throws IOException {
+            delegate.force(metaData);
+        }
+
+        @Override
+        public long transferTo(long position, long count, WritableByteChannel target) throws IOException {
+            return delegate.transferTo(position, count, target);
+        }
+
+        @Override
+        public long transferFrom(ReadableByteChannel src, long position, long count) throws IOException {
+            return delegate.transferFrom(src, position, count);
+        }
+
+        @Override
+        public int write(ByteBuffer src, long position) throws IOException {
+            return delegate.write(src, position);
+        }
+
+        @Override
+        public MappedByteBuffer map(MapMode mode, long position, long size) throws IOException {
+            return delegate.map(mode, position, size);
+        }
+
+        @Override
+        public FileLock lock(long position, long size, boolean shared) throws IOException {
+            return delegate.lock(position, size, shared);
+        }
+
+        @Override
+        public FileLock tryLock(long position, long size, boolean shared) throws IOException {
+            return delegate.tryLock(position, size, shared);
+        }
+
+        @Override
+        protected void implCloseChannel() {
+            // the delegate is closed by the test
+        }
+    }
+}
@@ -0,0 +1,116 @@
+package com.martensigwart.fakeload;
+
+import org.junit.Assume;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests for class {@link FileChannelDiskOutputSimulator} and direct I/O
+ */
+public class FileChannelDiskOutputSimulatorTest {
+
+    private static final int BUFFER_SIZE = FileChannelDiskOutputSimulator.BUFFER_ALIGNMENT;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void testWritesToBeginningOfFile() throws IOException {
+        File file = new File(folder.getRoot(), "dir/output");
+        FileChannelDiskOutputSimulator simulator =
+                new FileChannelDiskOutputSimulator(file.getPath(), BUFFER_SIZE, false);
+
+        assertEquals(3L * BUFFER_SIZE + 10, simulator.write(3L * BUFFER_SIZE + 10));
+        assertEquals(3L * BUFFER_SIZE + 10, file.length());
+        simulator.write(3L * BUFFER_SIZE + 10);
+        assertEquals(3L * BUFFER_SIZE + 10, file.length());
+
+        byte[] bytes = new byte[BUFFER_SIZE + 1];
+        bytes[BUFFER_SIZE] = 7;
+        simulator.write(bytes);
+        assertEquals(7, Files.readAllBytes(file.toPath())[BUFFER_SIZE]);
+
+        simulator.cleanUp();
+        assertFalse(file.exists());
+    }
+
+    @Test
+    public void testZeroLoadIsIgnored() throws InterruptedException {
+        // the load may be reset between checking the wait condition and simulating the load
+        File file = new File(folder.getRoot(), "output");
+        FileChannelDiskOutputSimulator simulator = new FileChannelDiskOutputSimulator(file.getPath());
+        simulator.simulateLoad(0L);
+        assertFalse(file.exists());
+        simulator.cleanUp();
+    }
+
+    @Test
+    public void testInterruptStopsSimulation() {
+        FileChannelDiskOutputSimulator simulator =
+                new FileChannelDiskOutputSimulator(new File(folder.getRoot(), "output").getPath());
+        // writing on an interrupted thread closes the channel
+        Thread.currentThread().interrupt();
+        try {
+            simulator.simulateLoad(BUFFER_SIZE);
+            fail("Simulation was not interrupted");
+        } catch (InterruptedException e) {
+            // expected
+        } finally {
+            Thread.interrupted();
+            simulator.cleanUp();
+        }
+    }
+
+    @Test
+    public void testDirectIoWritesAlignedBlocks() throws IOException {
+        Assume.assumeTrue(DirectIo.isSupported());
+        File file = folder.newFile("output");
+        FileChannelDiskOutputSimulator simulator =
+                new FileChannelDiskOutputSimulator(file.getPath(), 2 * BUFFER_SIZE, true);
+
+        // rounded up to full blocks
+        long written = simulator.write(3L * BUFFER_SIZE + 10);
+        assertEquals(0, written % BUFFER_SIZE);
+        assertTrue(written >= 4L * BUFFER_SIZE);
+        assertEquals(written, file.length());
+        simulator.cleanUp();
+    }
+
+    @Test
+    public void testDirectIoOnTmpfs() throws IOException {
+        // depending on the kernel, tmpfs rejects direct I/O, in which case buffered I/O is used
+        Path shm = Paths.get("/dev/shm");
+        Assume.assumeTrue(Files.isDirectory(shm) && Files.getFileStore(shm).type().equals("tmpfs"));
+        Path path = Files.createTempFile(shm, "fakeload", ".tmp");
+        try {
+            FileChannelDiskOutputSimulator simulator = new FileChannelDiskOutputSimulator(path.toString(),
+                    BUFFER_SIZE, true);
+            assertTrue(simulator.write(10L) >= 10L);
+            simulator.cleanUp();
+            assertFalse(Files.exists(path));
+        } finally {
+            Files.deleteIfExists(path);
+        }
+    }
+
+    @Test
+    public void testDirectIoOnRegularFileSystem() throws IOException {
+        Assume.assumeTrue(DirectIo.isSupported());
+        Path path = folder.newFile("file").toPath();
+        try (FileChannel channel = DirectIo.open(path, StandardOpenOption.READ)) {
+            Assume.assumeNotNull(channel);
+        }
+        assertEquals(0, DirectIo.blockSize(path) & (DirectIo.blockSize(path) - 1));
+    }
+}
@@ -0,0 +1,81 @@
+package com.martensigwart.fakeload;
+
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests for class {@link IoPacer}
+ */
+public class IoPacerTest {
+
+    private static final int MB = 1024 * 1024;
+
+    @Test
+    public void testSpreadsBytesEvenlyOverTime() throws InterruptedException {
+        IoPacer pacer = new IoPacer(MB);
+        long rate = 10L * MB;
+
+        long start = System.nanoTime();
+        long bytes = 0L;
+        long maxGap = 0L;
+        long last = start;
+        while (System.nanoTime() - start < TimeUnit.MILLISECONDS.toNanos(2500)) {
+            long chunk = pacer.acquire(rate);
+            assertEquals(MB, chunk);
+            long now = System.nanoTime();
+            if (bytes > 0) {
+                maxGap = Math.max(maxGap, now - last);
+            }
+            last = now;
+            pacer.complete(chunk);
+            bytes += chunk;
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+
+        // one chunk every 100 ms instead of all chunks at the beginning of each second
+        assertEquals(rate * seconds, bytes, 2.0 * MB);
+        assertTrue("Gap between chunks: " + maxGap, maxGap < TimeUnit.MILLISECONDS.toNanos(200));
+        assertTrue("Pacing error: " + pacer.getPacingError(), pacer.getPacingError() < 0.5);
+    }
+
+    @Test
+    public void testRateBelowChunkSize() throws InterruptedException {
+        IoPacer pacer = new IoPacer(MB);
+        assertEquals(1000L, pacer.acquire(1000L));
+        pacer.complete(1000L);
+
+        // next chunk is due one second later
+        long start = System.nanoTime();
+        assertEquals(1000L, pacer.acquire(1000L));
+        long waited = System.nanoTime() - start;
+        assertTrue("Waited: " + waited, waited > TimeUnit.MILLISECONDS.toNanos(900));
+    }
+
+    @Test
+    public void testWaitsAtMostOneSecond() throws InterruptedException {
+        IoPacer pacer = new IoPacer(MB);
+        pacer.acquire(10L);
+        pacer.complete(4096L);      // e.g. rounded up to a full block with direct I/O
+
+        long start = System.nanoTime();
+        pacer.acquire(10L);
+        long waited = System.nanoTime() - start;
+        assertTrue("Waited: " + waited, waited < TimeUnit.MILLISECONDS.toNanos(1500));
+    }
+
+    @Test
+    public void testChunkSize() {
+        IoPacer pacer = new IoPacer();
+        assertEquals(IoPacer.DEFAULT_CHUNK_SIZE, pacer.getChunkSize());
+        pacer.setChunkSize(64 * 1024);
+        assertEquals(64 * 1024, pacer.getChunkSize());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testNonPositiveChunkSize() {
+        new IoPacer(0);
+    }
+}
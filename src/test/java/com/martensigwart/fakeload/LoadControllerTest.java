@@ -1,14 +1,30 @@
 package com.martensigwart.fakeload;
 
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
 
 import static org.junit.Assert.*;
+import static org.junit.Assume.assumeTrue;
 
 /**
  * Tests for class {@link LoadController}
  */
 public class LoadControllerTest {
 
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
     @Test
     public void increaseSystemLoadBy() throws Exception {
 
@@ -19,4 +35,322 @@ public class LoadControllerTest {
 
     }
 
-}
\ No newline at end of file
+    @Test
+    public void testCpuCoresAreDistributedAmongSimulators() throws Exception {
+        List<CpuSimulator> cpuSimulators = new ArrayList<>();
+        cpuSimulators.add(new FibonacciCpuSimulator());
+        cpuSimulators.add(new FibonacciCpuSimulator());
+        LoadController controller = newController(new SystemLoad(4, 2), cpuSimulators);
+
+        // 1.5 cores on two simulators
+        FakeLoad load = FakeLoads.create().withCpuCores(1.5);
+        controller.increaseSystemLoadBy(load);
+        assertEquals(75 * CpuSimulator.LOAD_SCALE, cpuSimulators.get(0).getLoad());
+        assertEquals(75 * CpuSimulator.LOAD_SCALE, cpuSimulators.get(1).getLoad());
+
+        controller.decreaseSystemLoadBy(load);
+        assertEquals(0L, cpuSimulators.get(0).getLoad());
+        assertEquals(0L, cpuSimulators.get(1).getLoad());
+    }
+
+    @Test
+    public void testPackedCpuLoad() throws Exception {
+        List<CpuSimulator> cpuSimulators = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            cpuSimulators.add(new FibonacciCpuSimulator());
+        }
+        LoadController controller = newController(new SystemLoad(4, 4), cpuSimulators);
+
+        // 25% of four cores pinned to a single thread
+        controller.increaseSystemLoadBy(FakeLoads.create().withCpu(25).withCpuDistribution(CpuDistribution.PACK));
+        assertEquals(100 * CpuSimulator.LOAD_SCALE, cpuSimulators.get(0).getLoad());
+        assertEquals(0L, cpuSimulators.get(1).getLoad());
+        assertEquals(0L, cpuSimulators.get(2).getLoad());
+        assertEquals(0L, cpuSimulators.get(3).getLoad());
+    }
+
+    @Test
+    public void testTotalModeCompensatesBaselineLoad() throws Exception {
+        assertEquals(20.0, controlledSimulatorCpu(FakeLoads.create().withCpu(70)), 1e-9);
+        assertEquals(0.0, controlledSimulatorCpu(FakeLoads.create().withCpu(40)), 1e-9);
+    }
+
+    @Test
+    public void testAdditionalModeIgnoresBaselineLoad() throws Exception {
+        assertEquals(20.0, controlledSimulatorCpu(FakeLoads.create().withCpu(20)
+                .withCpuTargetMode(CpuTargetMode.ADDITIONAL)), 1e-9);
+        assertEquals(30.0, controlledSimulatorCpu(FakeLoads.create().withCpu(20)
+                .withCpuTargetMode(CpuTargetMode.ADDITIONAL), FakeLoads.create().withCpu(60)), 1e-9);
+    }
+
+    /**
+     * Runs a controller on a machine with a baseline load of 50% and returns
+     * the CPU load the simulator threads are supposed to produce for the specified loads.
+     */
+    private double controlledSimulatorCpu(FakeLoad... loads) throws Exception {
+        assumeTrue(ManagementFactory.getThreadMXBean().isCurrentThreadCpuTimeSupported());
+        CpuProbe systemProbe = new CpuProbe() {
+            @Override
+            public double getAvailableCores() {
+                return 2.0;
+            }
+
+            @Override
+            public double getCpuLoad() {
+                return 50.0;
+            }
+        };
+        BlockingQueue<Double> desiredLoads = new LinkedBlockingQueue<>();
+        CpuController recorder = new CpuController() {
+            @Override
+            public double control(double desiredLoad, double actualLoad, long timestamp) {
+                desiredLoads.add(desiredLoad);
+                return desiredLoad;
+            }
+
+            @Override
+            public void reset() {
+            }
+
+            @Override
+            public long getConvergenceTime() {
+                return -1L;
+            }
+
+            @Override
+            public double getSteadyStateError() {
+                return Double.NaN;
+            }
+        };
+
+        List<CpuSimulator> cpuSimulators = new ArrayList<>();
+        cpuSimulators.add(new FibonacciCpuSimulator());
+        cpuSimulators.add(new FibonacciCpuSimulator());
+        LoadController controller = newController(new SystemLoad(2, 2), cpuSimulators, new MemorySimulator(),
+                recorder, 10L, systemProbe, new MemoryHeadroom());
+
+        for (FakeLoad load : loads) {
+            controller.increaseSystemLoadBy(load);
+        }
+        Thread thread = new Thread(controller);
+        thread.start();
+        try {
+            Double desired = desiredLoads.poll(5, TimeUnit.SECONDS);
+            assertNotNull(desired);
+            return desired;
+        } finally {
+            thread.interrupt();
+            thread.join(1000);
+        }
+    }
+
+    @Test(expected = MaximumLoadExceededException.class)
+    public void testMemoryLoadExceedingHeadroomIsRejected() throws Exception {
+        LoadController controller = newController(new MemorySimulator());
+        controller.increaseSystemLoadBy(FakeLoads.create().withMemory(150, MemoryUnit.MB));
+    }
+
+    @Test
+    public void testMemoryLoadIsClampedToHeadroom() throws Exception {
+        LoadController controller = newController(new MemorySimulator());
+        FakeLoad load = FakeLoads.create().withMemory(150, MemoryUnit.MB)
+                .withMemory(10, MemoryUnit.MB, MemoryKind.OFF_HEAP)
+                .withHeadroomPolicy(HeadroomPolicy.CLAMP);
+
+        controller.increaseSystemLoadBy(load);
+        assertEquals(MemoryUnit.MB.toBytes(100), controller.getMemorySimulator().getLoad());
+        assertEquals(MemoryUnit.MB.toBytes(10), controller.getOffHeapMemorySimulator().getLoad());
+
+        try {
+            controller.decreaseSystemLoadBy(load);
+            fail("Clamping was not reported");
+        } catch (MemoryLoadClampedException e) {
+            assertTrue(e.getMessage(), e.getMessage().contains("150.00 MB"));
+        }
+        assertEquals(0L, controller.getMemorySimulator().getLoad());
+        assertEquals(0L, controller.getOffHeapMemorySimulator().getLoad());
+    }
+
+    @Test
+    public void testClampingFailsExecution() throws Exception {
+        LoadController controller = newController(new MemorySimulator());
+        SimulationInfrastructure infrastructure = new SimulationInfrastructure() {
+            @Override
+            public void increaseSystemLoadBy(FakeLoad load) throws MaximumLoadExceededException {
+                controller.increaseSystemLoadBy(load);
+            }
+
+            @Override
+            public void decreaseSystemLoadBy(FakeLoad load) {
+                controller.decreaseSystemLoadBy(load);
+            }
+
+            @Override
+            public void shutdown() {
+            }
+        };
+        FakeLoad load = FakeLoads.create().lasting(100, TimeUnit.MILLISECONDS).withMemory(150, MemoryUnit.MB)
+                .withHeadroomPolicy(HeadroomPolicy.CLAMP);
+
+        Future<Void> execution = new DefaultFakeLoadExecutor(infrastructure).executeAsync(load);
+        try {
+            execution.get();
+            fail("Clamping was not reported");
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof MemoryLoadClampedException);
+        }
+        assertEquals(0L, controller.getMemorySimulator().getLoad());
+    }
+
+    @Test
+    public void testMemoryLoadWaitsForHeadroom() throws Exception {
+        LoadController controller = newController(new MemorySimulator());
+        FakeLoad first = FakeLoads.create().withMemory(60, MemoryUnit.MB);
+        FakeLoad second = FakeLoads.create().withMemory(50, MemoryUnit.MB).withHeadroomPolicy(HeadroomPolicy.WAIT);
+        controller.increaseSystemLoadBy(first);
+
+        Thread thread = new Thread(() -> {
+            try {
+                controller.increaseSystemLoadBy(second);
+            } catch (MaximumLoadExceededException e) {
+                throw new RuntimeException(e);
+            }
+        });
+        thread.start();
+        Thread.sleep(3 * LoadController.HEADROOM_POLL_INTERVAL);
+        assertTrue(thread.isAlive());
+        assertEquals(MemoryUnit.MB.toBytes(60), controller.getMemorySimulator().getLoad());
+
+        controller.decreaseSystemLoadBy(first);
+        thread.join(1000);
+        assertFalse(thread.isAlive());
+        assertEquals(MemoryUnit.MB.toBytes(50), controller.getMemorySimulator().getLoad());
+    }
+
+    @Test(expected = MaximumLoadExceededException.class)
+    public void testMemoryLoadExceedingWholeHeadroomDoesNotWait() throws Exception {
+        LoadController controller = newController(new MemorySimulator());
+        controller.increaseSystemLoadBy(FakeLoads.create().withMemory(60, MemoryUnit.MB));
+        // does not fit even once the first load is removed
+        controller.increaseSystemLoadBy(FakeLoads.create().withMemory(150, MemoryUnit.MB)
+                .withHeadroomPolicy(HeadroomPolicy.WAIT));
+    }
+
+    @Test(expected = MaximumLoadExceededException.class)
+    public void testWorkingSetIsAdmittedAgainstHeadroom() throws Exception {
+        // the default working set of 256 MB exceeds the headroom of 100 MB
+        LoadController controller = newController(new MemorySimulator());
+        controller.increaseSystemLoadBy(FakeLoads.create().withMemoryBandwidth(10, MemoryUnit.MB));
+    }
+
+    @Test
+    public void testMemoryBandwidthIsDroppedIfWorkingSetDoesNotFit() throws Exception {
+        LoadController controller = newController(new MemorySimulator());
+        FakeLoad load = FakeLoads.create().withMemory(50, MemoryUnit.MB).withMemoryBandwidth(10, MemoryUnit.MB)
+                .withHeadroomPolicy(HeadroomPolicy.CLAMP);
+
+        controller.increaseSystemLoadBy(load);
+        assertEquals(MemoryUnit.MB.toBytes(50), controller.getMemorySimulator().getLoad());
+        assertEquals(0L, controller.getMemoryAccessSimulator().getLoad());
+        try {
+            controller.decreaseSystemLoadBy(load);
+            fail("Clamping was not reported");
+        } catch (MemoryLoadClampedException e) {
+            assertTrue(e.getMessage(), e.getMessage().contains("(10.00 MB)/s"));
+        }
+    }
+
+    @Test
+    public void testWorkingSetIsCountedOnceWhileMemoryBandwidthIsSimulated() throws Exception {
+        LoadController controller = newController(new MemorySimulator(), MemoryUnit.MB.toBytes(300));
+        FakeLoad bandwidth = FakeLoads.create().withMemoryBandwidth(10, MemoryUnit.MB);
+        FakeLoad bandwidthAndMemory = FakeLoads.create().withMemoryBandwidth(20, MemoryUnit.MB)
+                .withMemory(40, MemoryUnit.MB);
+        FakeLoad memory = FakeLoads.create().withMemory(60, MemoryUnit.MB);
+        controller.increaseSystemLoadBy(bandwidth);
+        // a further memory bandwidth load shares the working set of 256 MB
+        controller.increaseSystemLoadBy(bandwidthAndMemory);
+        assertEquals(MemoryUnit.MB.toBytes(30), controller.getMemoryAccessSimulator().getLoad());
+        try {
+            controller.increaseSystemLoadBy(memory);
+            fail("Working set was not counted");
+        } catch (MaximumLoadExceededException e) {
+            // expected
+        }
+
+        // the working set is released together with the memory bandwidth
+        controller.decreaseSystemLoadBy(bandwidth);
+        controller.decreaseSystemLoadBy(bandwidthAndMemory);
+        controller.increaseSystemLoadBy(memory);
+        assertEquals(MemoryUnit.MB.toBytes(60), controller.getMemorySimulator().getLoad());
+    }
+
+    @Test
+    public void testAllocationFailureIsReported() throws Exception {
+        // a single chunk larger than the heap cannot be allocated
+        assumeTrue(Runtime.getRuntime().maxMemory() < MemorySimulator.MAXIMUM_CHUNK_SIZE);
+        MemorySimulator memorySimulator =
+                new MemorySimulator(MemoryKind.HEAP, MemorySimulator.MAXIMUM_CHUNK_SIZE);
+        // headroom larger than the heap, so that the load is admitted
+        LoadController controller = newController(memorySimulator, 2L * MemorySimulator.MAXIMUM_CHUNK_SIZE);
+        FakeLoad load = FakeLoads.create().withMemory(MemorySimulator.MAXIMUM_CHUNK_SIZE, MemoryUnit.BYTES);
+
+        Thread thread = new Thread(memorySimulator);
+        thread.start();
+        try {
+            controller.increaseSystemLoadBy(load);
+            long deadline = System.currentTimeMillis() + 5000;
+            while (memorySimulator.getFailureCount() == 0 && System.currentTimeMillis() < deadline) {
+                Thread.sleep(10);
+            }
+            assertEquals(1, memorySimulator.getFailureCount());
+            try {
+                controller.decreaseSystemLoadBy(load);
+                fail("Allocation failure was not reported");
+            } catch (RuntimeException e) {
+                assertEquals(0L, memorySimulator.getLoad());
+            }
+        } finally {
+            thread.interrupt();
+            thread.join(1000);
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testThreadsMustMatchSimulators() throws Exception {
+        newController(new SystemLoad(4, 4), new ArrayList<>());
+    }
+
+    private LoadController newController(MemorySimulator memorySimulator) throws IOException {
+        return newController(memorySimulator, MemoryUnit.MB.toBytes(100));
+    }
+
+    /**
+     * Creates a controller admitting memory load against the specified heap and direct memory limit
+     */
+    private LoadController newController(MemorySimulator memorySimulator, long memoryLimit) throws IOException {
+        return newController(new SystemLoad(1, 0), new ArrayList<>(), memorySimulator, new PidCpuController(),
+                LoadController.DEFAULT_SAMPLING_PERIOD, new OperatingSystemCpuProbe(),
+                new MemoryHeadroom(0.0, () -> memoryLimit, () -> 0L, memoryLimit, () -> 0L));
+    }
+
+    private LoadController newController(SystemLoad systemLoad, List<CpuSimulator> cpuSimulators) throws IOException {
+        return newController(systemLoad, cpuSimulators, new MemorySimulator(), new PidCpuController(),
+                LoadController.DEFAULT_SAMPLING_PERIOD, new OperatingSystemCpuProbe(), new MemoryHeadroom());
+    }
+
+    private LoadController newController(SystemLoad systemLoad, List<CpuSimulator> cpuSimulators,
+                                         MemorySimulator memorySimulator, CpuController cpuController,
+                                         long samplingPeriod, CpuProbe cpuProbe, MemoryHeadroom memoryHeadroom)
+            throws IOException {
+        return new LoadController(systemLoad, cpuSimulators, memorySimulator,
+                new MemorySimulator(MemoryKind.OFF_HEAP, MemorySimulator.DEFAULT_CHUNK_SIZE),
+                new AllocationSimulator(), new MemoryAccessSimulator(),
+                new RandomAccessDiskInputSimulator(folder.newFile().getPath()),
+                new RandomAccessDiskOutputSimulator(folder.newFile().getPath()),
+                new DiskIopsSimulator(new DiskInputFile(folder.newFile().getPath(), DiskInputFile.DEFAULT_SIZE),
+                        DiskIopsSimulator.DEFAULT_BLOCK_SIZE, DiskIopsSimulator.DEFAULT_QUEUE_DEPTH, false, false),
+                cpuController, samplingPeriod, cpuProbe, memoryHeadroom);
+    }
+
+}
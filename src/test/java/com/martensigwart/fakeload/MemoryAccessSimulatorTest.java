@@ -0,0 +1,119 @@
+package com.martensigwart.fakeload;
+
+import org.junit.After;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests for class {@link MemoryAccessSimulator}
+ */
+public class MemoryAccessSimulatorTest {
+
+    private static final long BANDWIDTH = 64L * 1024 * 1024;
+    private static final long WORKING_SET = 4L * 1024 * 1024;
+
+    private Thread thread;
+
+    @After
+    public void tearDown() throws InterruptedException {
+        if (thread != null) {
+            thread.interrupt();
+            thread.join(1000);
+            assertFalse(thread.isAlive());
+        }
+    }
+
+    @Test
+    public void testAchievedBandwidth() throws InterruptedException {
+        for (AccessPattern pattern : AccessPattern.values()) {
+            MemoryAccessSimulator simulator = new MemoryAccessSimulator(MemoryKind.HEAP, WORKING_SET, pattern, false, 1);
+            start(simulator);
+            simulator.setLoad(BANDWIDTH);
+
+            Thread.sleep(2500);
+            double achieved = simulator.getAchievedBandwidth();
+            assertTrue(pattern + ": achieved bandwidth was " + achieved,
+                    achieved > 0.7 * BANDWIDTH && achieved < 1.3 * BANDWIDTH);
+            tearDown();
+        }
+    }
+
+    @Test
+    public void testAccessesAreSpreadOverThreads() throws InterruptedException {
+        MemoryAccessSimulator simulator =
+                new MemoryAccessSimulator(MemoryKind.HEAP, WORKING_SET, AccessPattern.RANDOM, true, 4);
+        start(simulator);
+        simulator.setLoad(BANDWIDTH);
+
+        Thread.sleep(2500);
+        assertEquals(4, workerCount());
+        double achieved = simulator.getAchievedBandwidth();
+        assertTrue("Achieved bandwidth was " + achieved, achieved > 0.7 * BANDWIDTH && achieved < 1.3 * BANDWIDTH);
+    }
+
+    @Test
+    public void testWorkersAndWorkingSetAreReleasedWithoutLoad() throws InterruptedException {
+        MemoryAccessSimulator simulator =
+                new MemoryAccessSimulator(MemoryKind.OFF_HEAP, WORKING_SET, AccessPattern.SEQUENTIAL, false, 2);
+        start(simulator);
+        simulator.setLoad(BANDWIDTH);
+        Thread.sleep(200);
+        assertEquals(WORKING_SET, simulator.getAllocatedBytes());
+        assertEquals(2, workerCount());
+
+        simulator.setLoad(0);
+        Thread.sleep(200);
+        assertEquals(0L, simulator.getAllocatedBytes());
+        assertEquals(0, workerCount());
+        assertTrue(thread.isAlive());
+
+        // allocated and started again with the next load
+        simulator.setLoad(BANDWIDTH);
+        Thread.sleep(200);
+        assertEquals(WORKING_SET, simulator.getAllocatedBytes());
+        assertEquals(2, workerCount());
+    }
+
+    @Test
+    public void testAccessesStopWithoutLoad() throws InterruptedException {
+        MemoryAccessSimulator simulator =
+                new MemoryAccessSimulator(MemoryKind.OFF_HEAP, WORKING_SET, AccessPattern.SEQUENTIAL, true, 2);
+        start(simulator);
+        simulator.setLoad(BANDWIDTH);
+        Thread.sleep(200);
+        assertTrue(simulator.getAccessedBytes() > 0);
+
+        simulator.setLoad(0);
+        Thread.sleep(100);
+        long accessed = simulator.getAccessedBytes();
+        Thread.sleep(200);
+        assertEquals(accessed, simulator.getAccessedBytes());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testWorkingSetMustHoldACacheLine() {
+        new MemoryAccessSimulator(MemoryKind.HEAP, MemoryAccessSimulator.CACHE_LINE_SIZE - 1,
+                AccessPattern.RANDOM, false, 1);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testNonPositiveNumberOfThreads() {
+        new MemoryAccessSimulator(MemoryKind.HEAP, WORKING_SET, AccessPattern.RANDOM, false, 0);
+    }
+
+    private static int workerCount() {
+        int count = 0;
+        for (Thread t : Thread.getAllStackTraces().keySet()) {
+            if (t.getName().startsWith("MemoryAccessSim-worker-") && t.isAlive()) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    private void start(MemoryAccessSimulator simulator) {
+        thread = new Thread(simulator);
+        thread.start();
+    }
+}
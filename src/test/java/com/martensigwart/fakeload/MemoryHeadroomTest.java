@@ -0,0 +1,42 @@
+package com.martensigwart.fakeload;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests for class {@link MemoryHeadroom}
+ */
+public class MemoryHeadroomTest {
+
+    @Test
+    public void testHeadroomExcludesApplicationUsageAndMargin() {
+        MemoryHeadroom headroom = new MemoryHeadroom(0.1, () -> 1000L, () -> 300L, 2000L, () -> 500L);
+
+        // 900 usable, 200 used by the application
+        assertEquals(700L, headroom.getHeapHeadroom(100L));
+        // 1800 usable, 500 used by the application
+        assertEquals(1300L, headroom.getDirectHeadroom(0L));
+    }
+
+    @Test
+    public void testHeadroomIsNeverNegative() {
+        MemoryHeadroom headroom = new MemoryHeadroom(0.5, () -> 1000L, () -> 800L, 1000L, () -> 1000L);
+        assertEquals(0L, headroom.getHeapHeadroom(0L));
+        assertEquals(0L, headroom.getDirectHeadroom(0L));
+    }
+
+    @Test
+    public void testPlatformHeadroom() {
+        MemoryHeadroom headroom = new MemoryHeadroom();
+        long heapHeadroom = headroom.getHeapHeadroom(0L);
+        assertTrue(heapHeadroom > 0);
+        assertTrue(heapHeadroom <= Runtime.getRuntime().maxMemory());
+        assertTrue(headroom.getDirectHeadroom(0L) > 0);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testSafetyMarginMustBeBelowOne() {
+        new MemoryHeadroom(1.0);
+    }
+}
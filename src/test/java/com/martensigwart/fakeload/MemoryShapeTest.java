@@ -0,0 +1,124 @@
+package com.martensigwart.fakeload;
+
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests for class {@link MemoryShape}
+ */
+public class MemoryShapeTest {
+
+    private static final int SIZE = 1024 * 1024;
+
+    @Test
+    public void testByteArrays() {
+        Object chunk = MemoryShape.BYTE_ARRAYS.allocate(SIZE);
+        assertTrue(chunk instanceof ByteBuffer);
+        assertEquals(SIZE, ((ByteBuffer) chunk).capacity());
+        assertTrue(MemoryShape.BYTE_ARRAYS.isByteArrays());
+    }
+
+    @Test
+    public void testSmallObjects() {
+        MemoryShape.Node[] nodes = (MemoryShape.Node[]) MemoryShape.SMALL_OBJECTS.allocate(SIZE);
+        assertEquals((SIZE - MemoryShape.ARRAY_HEADER_SIZE) / (MemoryShape.NODE_SIZE + MemoryShape.REFERENCE_SIZE),
+                nodes.length);
+        for (MemoryShape.Node node : nodes) {
+            assertNotNull(node);
+        }
+        assertFalse(MemoryShape.SMALL_OBJECTS.isByteArrays());
+    }
+
+    @Test
+    public void testLinkedList() {
+        MemoryShape.Node node = (MemoryShape.Node) MemoryShape.LINKED_LIST.allocate(SIZE);
+        int length = 0;
+        while (node != null) {
+            length++;
+            node = node.next;
+        }
+        assertEquals(SIZE / MemoryShape.NODE_SIZE, length);
+    }
+
+    @Test
+    public void testHashMap() {
+        @SuppressWarnings("unchecked")
+        Map<Long, Long> map = (Map<Long, Long>) MemoryShape.HASH_MAP.allocate(SIZE);
+        long estimatedSize = (long) map.size() * MemoryShape.MAP_ENTRY_SIZE;
+        assertTrue(estimatedSize <= SIZE);
+        assertTrue(estimatedSize >= SIZE * 8 / 10);
+    }
+
+    @Test
+    public void testTree() {
+        int fanOut = 4;
+        MemoryShape.TreeNode root = (MemoryShape.TreeNode) MemoryShape.tree(fanOut).allocate(SIZE);
+
+        int nodes = 0;
+        int innerNodes = 0;
+        Deque<MemoryShape.TreeNode> queue = new ArrayDeque<>();
+        queue.add(root);
+        while (!queue.isEmpty()) {
+            MemoryShape.TreeNode node = queue.poll();
+            nodes++;
+            if (node.children != null) {
+                innerNodes++;
+                assertEquals(fanOut, node.children.length);
+                for (MemoryShape.TreeNode child : node.children) {
+                    if (child != null) {
+                        queue.add(child);
+                    }
+                }
+            }
+        }
+        long estimatedSize = (long) nodes * MemoryShape.NODE_SIZE
+                + (long) innerNodes * (MemoryShape.ARRAY_HEADER_SIZE + fanOut * MemoryShape.REFERENCE_SIZE);
+        assertTrue(estimatedSize <= SIZE);
+        assertTrue(estimatedSize > SIZE - 2 * (MemoryShape.NODE_SIZE + MemoryShape.ARRAY_HEADER_SIZE + 4 * fanOut));
+    }
+
+    @Test
+    public void testTooSmallChunks() {
+        assertNull(MemoryShape.LINKED_LIST.allocate(MemoryShape.NODE_SIZE - 1));
+        assertNull(MemoryShape.TREE.allocate(MemoryShape.NODE_SIZE - 1));
+        assertEquals(0, ((MemoryShape.Node[]) MemoryShape.SMALL_OBJECTS.allocate(1)).length);
+    }
+
+    @Test
+    public void testSimulatorRetainsGraphs() throws InterruptedException {
+        MemorySimulator simulator = new MemorySimulator(MemoryKind.HEAP, MemoryShape.LINKED_LIST, SIZE);
+        Thread thread = new Thread(simulator);
+        thread.start();
+        try {
+            simulator.setLoad(3 * SIZE);
+            long deadline = System.currentTimeMillis() + 5000;
+            while (simulator.getActualLoad() != 3 * SIZE && System.currentTimeMillis() < deadline) {
+                Thread.sleep(10);
+            }
+            assertEquals(3 * SIZE, simulator.getActualLoad());
+
+            List<Object> chunks = simulator.getChunks();
+            assertEquals(3, chunks.size());
+            for (Object chunk : chunks) {
+                assertTrue(chunk instanceof MemoryShape.Node);
+            }
+        } finally {
+            thread.interrupt();
+            thread.join(1000);
+        }
+        assertFalse(thread.isAlive());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testFanOutMustBePositive() {
+        MemoryShape.tree(0);
+    }
+
+}
@@ -0,0 +1,187 @@
+package com.martensigwart.fakeload;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests for class {@link MemorySimulator}
+ */
+@RunWith(Parameterized.class)
+public class MemorySimulatorTest {
+
+    private static final int CHUNK_SIZE = 1024 * 1024;
+
+    @Parameterized.Parameters(name = "{0}")
+    public static Collection<Object[]> kinds() {
+        return Arrays.asList(new Object[][] {{MemoryKind.HEAP}, {MemoryKind.OFF_HEAP}});
+    }
+
+    @Parameterized.Parameter
+    public MemoryKind kind;
+
+    private MemorySimulator simulator;
+    private Thread thread;
+
+    @Before
+    public void setUp() {
+        simulator = new MemorySimulator(kind, CHUNK_SIZE);
+        thread = new Thread(simulator);
+        thread.start();
+    }
+
+    @After
+    public void tearDown() throws InterruptedException {
+        thread.interrupt();
+        thread.join(1000);
+        assertFalse(thread.isAlive());
+    }
+
+    @Test
+    public void testAllocatesInChunks() throws InterruptedException {
+        allocate(5 * CHUNK_SIZE + CHUNK_SIZE / 2);
+
+        List<ByteBuffer> chunks = buffers();
+        assertEquals(6, chunks.size());
+        for (int i = 0; i < 5; i++) {
+            assertEquals(CHUNK_SIZE, chunks.get(i).capacity());
+        }
+        assertEquals(CHUNK_SIZE / 2, chunks.get(5).capacity());
+        for (ByteBuffer chunk : chunks) {
+            assertEquals(kind == MemoryKind.OFF_HEAP, chunk.isDirect());
+        }
+    }
+
+    @Test
+    public void testOnlyDeltaIsAllocated() throws InterruptedException {
+        allocate(4 * CHUNK_SIZE);
+        List<Object> before = simulator.getChunks();
+
+        allocate(6 * CHUNK_SIZE + 100);
+        List<Object> after = simulator.getChunks();
+        assertEquals(7, after.size());
+        for (int i = 0; i < before.size(); i++) {
+            assertSame(before.get(i), after.get(i));
+        }
+
+        allocate(2 * CHUNK_SIZE);
+        List<Object> reduced = simulator.getChunks();
+        assertEquals(2, reduced.size());
+        assertSame(before.get(0), reduced.get(0));
+        assertSame(before.get(1), reduced.get(1));
+
+        allocate(0);
+        assertTrue(simulator.getChunks().isEmpty());
+    }
+
+    @Test
+    public void testPageTouching() throws InterruptedException {
+        simulator.setPageTouching(true);
+        allocate(2 * CHUNK_SIZE + 100);
+        assertPagesTouchedOnce();
+    }
+
+    @Test
+    public void testPagesAreNotTouchedByDefault() throws InterruptedException {
+        allocate(2 * CHUNK_SIZE + 100);
+        for (ByteBuffer chunk : buffers()) {
+            for (int i = 0; i < chunk.capacity(); i += ProcessMemory.PAGE_SIZE) {
+                assertEquals(0, chunk.get(i));
+            }
+        }
+    }
+
+    @Test
+    public void testPageTouchingInParallelBatches() throws InterruptedException {
+        // the first batch is touched in parallel as soon as it is allocated, the rest at the end
+        simulator.setPageTouching(true);
+        allocate(MemorySimulator.PARALLEL_TOUCH_THRESHOLD + CHUNK_SIZE + 100);
+        assertPagesTouchedOnce();
+    }
+
+    @Test
+    public void testPagesAreRefreshed() throws InterruptedException {
+        simulator.setRefreshRate(10.0);
+        allocate(CHUNK_SIZE);
+
+        // all pages are rewritten ten times per second
+        Thread.sleep(500);
+        ByteBuffer chunk = buffers().get(0);
+        for (int i = 0; i < chunk.capacity(); i += ProcessMemory.PAGE_SIZE) {
+            assertNotEquals(0, chunk.get(i));
+        }
+    }
+
+    @Test
+    public void testRampGrowsInWholeChunks() throws InterruptedException {
+        long load = 4 * CHUNK_SIZE + CHUNK_SIZE / 2;
+        simulator.addRamp(new MemoryRamp(load, 8L * CHUNK_SIZE, System.nanoTime()));
+        simulator.setLoad(load);
+
+        // about two chunks have grown after a quarter of a second
+        Thread.sleep(250);
+        long grown = simulator.getActualLoad();
+        assertTrue("Grown load was " + grown, grown >= CHUNK_SIZE && grown < load);
+        assertEquals(0, grown % CHUNK_SIZE);
+        assertTrue(simulator.isRamping());
+
+        allocate(load);
+        assertFalse(simulator.isRamping());
+        assertEquals(5, simulator.getChunks().size());
+    }
+
+    @Test
+    public void testRemovedRampIsAllocatedAtOnce() throws InterruptedException {
+        MemoryRamp ramp = new MemoryRamp(4 * CHUNK_SIZE, 1024, System.nanoTime());
+        simulator.addRamp(ramp);
+        simulator.setLoad(4 * CHUNK_SIZE);
+        Thread.sleep(100);
+        assertEquals(0L, simulator.getActualLoad());
+
+        simulator.removeRamp(ramp);
+        allocate(4 * CHUNK_SIZE);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testChunkSizeMustBePositive() {
+        new MemorySimulator(MemoryKind.HEAP, 0);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testOffHeapMemoryRequiresByteArrays() {
+        new MemorySimulator(MemoryKind.OFF_HEAP, MemoryShape.LINKED_LIST, CHUNK_SIZE);
+    }
+
+    private void assertPagesTouchedOnce() {
+        for (ByteBuffer chunk : buffers()) {
+            for (int i = 0; i < chunk.capacity(); i += ProcessMemory.PAGE_SIZE) {
+                assertEquals(1, chunk.get(i));
+            }
+        }
+    }
+
+    private List<ByteBuffer> buffers() {
+        List<ByteBuffer> buffers = new ArrayList<>();
+        simulator.getChunks().forEach(chunk -> buffers.add((ByteBuffer) chunk));
+        return buffers;
+    }
+
+    private void allocate(long load) throws InterruptedException {
+        simulator.setLoad(load);
+        long deadline = System.currentTimeMillis() + 5000;
+        while (simulator.getActualLoad() != load && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(load, simulator.getActualLoad());
+    }
+}
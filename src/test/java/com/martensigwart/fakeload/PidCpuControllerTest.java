@@ -0,0 +1,97 @@
+package com.martensigwart.fakeload;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests for class {@link PidCpuController}
+ */
+public class PidCpuControllerTest {
+
+    private static final long PERIOD = TimeUnit.MILLISECONDS.toNanos(LoadController.DEFAULT_SAMPLING_PERIOD);
+
+    private PidCpuController controller;
+
+    @Before
+    public void setUp() {
+        controller = new PidCpuController();
+    }
+
+    @Test
+    public void testConvergesWithBackgroundLoad() {
+        double background = 8.0;
+        double actual = simulate(50.0, background, 20);
+
+        assertEquals(50.0, actual, PidCpuController.CONVERGENCE_THRESHOLD);
+        assertTrue(controller.getConvergenceTime() >= 0);
+        assertTrue(controller.getConvergenceTime() <= TimeUnit.SECONDS.toMillis(5));
+        assertTrue(controller.getSteadyStateError() <= PidCpuController.CONVERGENCE_THRESHOLD);
+    }
+
+    @Test
+    public void testConvergenceIsMeasuredPerDesiredLoad() {
+        simulate(30.0, 5.0, 20);
+        assertTrue(controller.getConvergenceTime() >= 0);
+
+        controller.control(70.0, 35.0, 21 * PERIOD);
+        assertEquals(-1L, controller.getConvergenceTime());
+        assertTrue(Double.isNaN(controller.getSteadyStateError()));
+    }
+
+    @Test
+    public void testOutputIsLimited() {
+        assertEquals(100.0, controller.control(100.0, 0.0, 0L), 0.0);
+        assertEquals(0.0, controller.control(0.0, 100.0, PERIOD), 0.0);
+    }
+
+    @Test
+    public void testNoIntegralWindupWhileSaturated() {
+        // plant cannot go beyond 60% for a long time, e.g. because of other processes
+        long time = 0L;
+        for (int i = 0; i < 100; i++, time += PERIOD) {
+            controller.control(90.0, 60.0, time);
+        }
+
+        // output should settle on desired load quickly once the plant follows again
+        double output = 90.0;
+        for (int i = 0; i < 6; i++, time += PERIOD) {
+            output = controller.control(90.0, output, time);
+        }
+        assertEquals(90.0, output, PidCpuController.CONVERGENCE_THRESHOLD);
+    }
+
+    @Test
+    public void testReset() {
+        simulate(50.0, 10.0, 20);
+        controller.reset();
+
+        assertEquals(-1L, controller.getConvergenceTime());
+        assertTrue(Double.isNaN(controller.getSteadyStateError()));
+        // without integral the output equals the desired load plus the proportional term only
+        assertEquals(40.0, controller.control(40.0, 40.0, 0L), 0.0);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testNegativeGain() {
+        new PidCpuController(-1.0, 0.0, 0.0);
+    }
+
+
+    /**
+     * Simulates a plant whose actual load follows the commanded load
+     * with a delay of one sample plus some constant background load.
+     */
+    private double simulate(double desired, double background, int samples) {
+        double command = desired;
+        double actual = 0.0;
+        for (int i = 0; i < samples; i++) {
+            actual = command + background;
+            command = controller.control(desired, actual, i * PERIOD);
+        }
+        return actual;
+    }
+}
@@ -35,6 +35,21 @@ public class SimpleFakeLoadTest extends AbstractFakeLoadTest {
         FakeLoad f1 = new SimpleFakeLoad(-1L, TimeUnit.SECONDS);
     }
 
+    @Test(expected = IllegalArgumentException.class)
+    public void testInfiniteCpuCores() {
+        new SimpleFakeLoad().withCpuCores(Double.POSITIVE_INFINITY);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testNaNCpuCores() {
+        new SimpleFakeLoad().withCpuCores(Double.NaN);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testCpuCoresAboveMaximum() {
+        new SimpleFakeLoad().withCpuCores(SimpleFakeLoad.MAXIMUM_CPU_CORES + 1);
+    }
+
     @Test(expected = NullPointerException.class)
     public void testNullArgumentCreation() {
         FakeLoad f1 = new SimpleFakeLoad(20, null);
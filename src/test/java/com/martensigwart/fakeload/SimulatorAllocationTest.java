@@ -0,0 +1,159 @@
+package com.martensigwart.fakeload;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import org.junit.After;
+import org.junit.Assume;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests that the simulators, and their worker threads, do not allocate heap memory while simulating
+ * a steady load, except for the {@link AllocationSimulator}, whose purpose is to allocate.
+ *
+ * <p>
+ * When the first method of a class is compiled by C2, HotSpot resolves all string constants of the class
+ * on the thread requesting the compilation, which allocates once. Before measuring, the simulators
+ * are therefore run at high frequency, so that their hot methods are compiled during warm-up rather than
+ * within the measured window.
+ */
+public class SimulatorAllocationTest {
+
+    private static final long WARM_UP = 6000L;
+    private static final long SETTLE = 2000L;
+    private static final long WINDOW = 10000L;
+    private static final int CHUNK_SIZE = 64 * 1024;
+    private static final int MB = 1024 * 1024;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private final com.sun.management.ThreadMXBean threadMXBean =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+    private final Logger logger = (Logger) LoggerFactory.getLogger("com.martensigwart.fakeload");
+    private final List<Thread> threads = new ArrayList<>();
+    private Level level;
+
+    @Before
+    public void setUp() {
+        Assume.assumeTrue(threadMXBean.isThreadAllocatedMemorySupported());
+        threadMXBean.setThreadAllocatedMemoryEnabled(true);
+
+        // steady state is measured with trace and debug logging disabled, as in production
+        level = logger.getLevel();
+        logger.setLevel(Level.INFO);
+    }
+
+    @After
+    public void tearDown() throws InterruptedException {
+        for (Thread thread : threads) {
+            thread.interrupt();
+            thread.join(2000);
+            assertFalse(thread.isAlive());
+        }
+        logger.setLevel(level);
+    }
+
+    @Test
+    public void testSteadyStateIsAllocationFree() throws InterruptedException, IOException {
+        CpuSimulator cpuSimulator = new KernelCpuSimulator(CpuKernel.FIBONACCI, 1, TimeUnit.MILLISECONDS);
+        MemorySimulator memorySimulator = new MemorySimulator(MemoryKind.HEAP, MB);
+        memorySimulator.setPageTouching(true);
+        MemoryAccessSimulator memoryAccessSimulator =
+                new MemoryAccessSimulator(MemoryKind.HEAP, 4 * MB, AccessPattern.RANDOM, true, 2);
+        File input = folder.newFile("input");
+        try (RandomAccessFile file = new RandomAccessFile(input, "rw")) {
+            file.setLength(MB);     // end of file is reached during warm-up
+        }
+        DiskInputSimulator diskInputSimulator = new RandomAccessDiskInputSimulator(input.getPath());
+        DiskInputSimulator channelInputSimulator = new FileChannelDiskInputSimulator(input.getPath());
+        DiskOutputSimulator diskOutputSimulator =
+                new RandomAccessDiskOutputSimulator(new File(folder.getRoot(), "output").getPath());
+        DiskOutputSimulator channelOutputSimulator =
+                new FileChannelDiskOutputSimulator(new File(folder.getRoot(), "channelOutput").getPath());
+        DiskIopsSimulator diskIopsSimulator = new DiskIopsSimulator(
+                new DiskInputFile(input.getPath(), MB), DiskIopsSimulator.DEFAULT_BLOCK_SIZE, 4, false, false);
+        diskInputSimulator.setChunkSize(CHUNK_SIZE);
+        channelInputSimulator.setChunkSize(CHUNK_SIZE);
+        diskOutputSimulator.setChunkSize(CHUNK_SIZE);
+        channelOutputSimulator.setChunkSize(CHUNK_SIZE);
+
+        Map<AbstractLoadSimulator, Thread> simulators = new LinkedHashMap<>();
+        simulators.put(cpuSimulator, start(cpuSimulator));
+        simulators.put(memorySimulator, start(memorySimulator));
+        simulators.put(memoryAccessSimulator, start(memoryAccessSimulator));
+        simulators.put(diskInputSimulator, start(diskInputSimulator));
+        simulators.put(channelInputSimulator, start(channelInputSimulator));
+        simulators.put(diskOutputSimulator, start(diskOutputSimulator));
+        simulators.put(channelOutputSimulator, start(channelOutputSimulator));
+        simulators.put(diskIopsSimulator, start(diskIopsSimulator));
+
+        // warm-up: hot methods are called thousands of times per second
+        cpuSimulator.setLoad(20 * CpuSimulator.LOAD_SCALE);
+        memorySimulator.setRefreshRate(100.0);
+        memorySimulator.setLoad(4 * MB);
+        memoryAccessSimulator.setLoad(64L * MB);
+        diskInputSimulator.setLoad(64L * MB);
+        channelInputSimulator.setLoad(64L * MB);
+        diskOutputSimulator.setLoad(64L * MB);
+        channelOutputSimulator.setLoad(64L * MB);
+        diskIopsSimulator.setLoad(5000L);
+        Thread.sleep(WARM_UP);
+
+        // steady state
+        memorySimulator.setRefreshRate(1.0);
+        diskInputSimulator.setLoad(MB);
+        channelInputSimulator.setLoad(4L * MB);
+        diskOutputSimulator.setLoad(MB);
+        channelOutputSimulator.setLoad(MB);
+        diskIopsSimulator.setLoad(200L);
+        Thread.sleep(SETTLE);
+
+        // the worker threads of the simulators are measured as well
+        Map<String, Thread> measured = new LinkedHashMap<>();
+        simulators.forEach((simulator, thread) -> measured.put(simulator.getClass().getSimpleName(), thread));
+        for (Thread thread : Thread.getAllStackTraces().keySet()) {
+            if (thread.getName().startsWith("DiskIopsSim-worker-")
+                    || thread.getName().startsWith("MemoryAccessSim-worker-")) {
+                measured.put(thread.getName(), thread);
+            }
+        }
+        // four IOPS workers at a queue depth of four and two memory access workers
+        assertTrue(measured.size() >= simulators.size() + 4 + 2);
+
+        Map<String, Long> before = new LinkedHashMap<>();
+        measured.forEach((name, thread) -> before.put(name, allocatedBytes(thread)));
+        Thread.sleep(WINDOW);
+
+        for (Map.Entry<String, Thread> entry : measured.entrySet()) {
+            long allocated = allocatedBytes(entry.getValue()) - before.get(entry.getKey());
+            assertEquals(entry.getKey() + " allocated memory", 0L, allocated);
+        }
+    }
+
+    private Thread start(AbstractLoadSimulator simulator) {
+        Thread thread = new Thread(simulator);
+        thread.start();
+        threads.add(thread);
+        return thread;
+    }
+
+    private long allocatedBytes(Thread thread) {
+        return threadMXBean.getThreadAllocatedBytes(thread.getId());
+    }
+}
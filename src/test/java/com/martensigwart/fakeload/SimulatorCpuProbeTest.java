@@ -0,0 +1,74 @@
+package com.martensigwart.fakeload;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Tests for class {@link SimulatorCpuProbe}
+ */
+public class SimulatorCpuProbeTest {
+
+    private static final double DELTA = 1e-9;
+
+    private long time;
+    private FakeCpuSimulator first;
+    private FakeCpuSimulator second;
+    private SimulatorCpuProbe probe;
+
+    @Before
+    public void setUp() {
+        first = new FakeCpuSimulator();
+        second = new FakeCpuSimulator();
+        CpuProbe coreProbe = new CpuProbe() {
+            @Override
+            public double getAvailableCores() {
+                return 4.0;
+            }
+
+            @Override
+            public double getCpuLoad() {
+                return 100.0;
+            }
+        };
+        probe = new SimulatorCpuProbe(Arrays.asList(first, second), coreProbe, () -> time);
+    }
+
+    @Test
+    public void testAvailableCores() {
+        assertEquals(4.0, probe.getAvailableCores(), DELTA);
+    }
+
+    @Test
+    public void testCpuLoad() {
+        assertEquals(0.0, probe.getCpuLoad(), DELTA);
+
+        // 1.5 s of CPU time within 1 s on 4 cores
+        time += TimeUnit.SECONDS.toNanos(1);
+        first.cpuTime += TimeUnit.MILLISECONDS.toNanos(1000);
+        second.cpuTime += TimeUnit.MILLISECONDS.toNanos(500);
+        assertEquals(37.5, probe.getCpuLoad(), DELTA);
+
+        // system load of the core probe is ignored
+        time += TimeUnit.SECONDS.toNanos(1);
+        assertEquals(0.0, probe.getCpuLoad(), DELTA);
+    }
+
+    private static class FakeCpuSimulator extends CpuSimulator {
+        long cpuTime;
+
+        @Override
+        protected long simulateCpu() {
+            return 0L;
+        }
+
+        @Override
+        public long getCpuTime() {
+            return cpuTime;
+        }
+    }
+}
@@ -47,6 +47,88 @@ public class SingleThreadSystemLoadTest {
     }
 
 
+    @Test
+    public void testCpuCores() throws MaximumLoadExceededException {
+        systemLoad = new SystemLoad(8);
+        FakeLoad cores = FakeLoads.create().withCpuCores(1.5);
+        FakeLoad percent = FakeLoads.create().withCpu(25);
+
+        systemLoad.increaseBy(cores);
+        systemLoad.increaseBy(percent);
+        assertEquals(1.5, systemLoad.getCpuCores(), 0.0);
+        assertEquals(25, systemLoad.getCpu());
+        assertEquals(43.75, systemLoad.getTotalCpu(), 1e-9);
+
+        // 1.5 + 2 + 4.5 cores fit exactly
+        systemLoad.increaseBy(FakeLoads.create().withCpuCores(4.5));
+        assertEquals(100.0, systemLoad.getTotalCpu(), 1e-9);
+        try {
+            systemLoad.increaseBy(FakeLoads.create().withCpuCores(0.01));
+            fail("Expected MaximumLoadExceededException");
+        } catch (MaximumLoadExceededException e) {
+            assertEquals(6.0, systemLoad.getCpuCores(), 1e-9);
+        }
+
+        systemLoad.decreaseBy(FakeLoads.create().withCpuCores(4.5));
+        systemLoad.decreaseBy(percent);
+        systemLoad.decreaseBy(cores);
+        assertEquals(0.0, systemLoad.getTotalCpu(), 0.0);
+    }
+
+
+    @Test
+    public void testMaximumCpuCoresAreRejected() throws MaximumLoadExceededException {
+        systemLoad = new SystemLoad(8);
+        systemLoad.increaseBy(FakeLoads.create().withCpuCores(1.5));
+        try {
+            systemLoad.increaseBy(FakeLoads.create().withCpuCores(SimpleFakeLoad.MAXIMUM_CPU_CORES));
+            fail("Expected MaximumLoadExceededException");
+        } catch (MaximumLoadExceededException e) {
+            assertEquals(1.5, systemLoad.getCpuCores(), 0.0);
+        }
+    }
+
+
+    @Test
+    public void testCpuOversubscription() throws MaximumLoadExceededException {
+        systemLoad = new SystemLoad(2, 4);
+        systemLoad.increaseBy(FakeLoads.create().withCpuCores(4.0));
+        assertEquals(200.0, systemLoad.getTotalCpu(), 1e-9);
+        assertArrayEquals(new long[] {10000, 10000, 10000, 10000}, systemLoad.getCpuThreadLoads());
+    }
+
+    @Test
+    public void testTotalModeCpu() throws MaximumLoadExceededException {
+        systemLoad = new SystemLoad(4);
+        FakeLoad total = FakeLoads.create().withCpu(30);
+        FakeLoad additional = FakeLoads.create().withCpuCores(1.0).withCpuTargetMode(CpuTargetMode.ADDITIONAL);
+
+        systemLoad.increaseBy(total);
+        systemLoad.increaseBy(additional);
+        assertEquals(55.0, systemLoad.getTotalCpu(), 1e-9);
+        assertEquals(30.0, systemLoad.getTotalModeCpu(), 1e-9);
+
+        systemLoad.decreaseBy(total);
+        assertEquals(0.0, systemLoad.getTotalModeCpu(), 1e-9);
+    }
+
+    @Test
+    public void testCpuThreadLoads() throws MaximumLoadExceededException {
+        systemLoad = new SystemLoad(4);
+        FakeLoad spread = FakeLoads.create().withCpu(50);
+        FakeLoad pack = FakeLoads.create().withCpuCores(1.0).withCpuDistribution(CpuDistribution.PACK);
+
+        systemLoad.increaseBy(spread);
+        systemLoad.increaseBy(pack);
+        assertArrayEquals(new long[] {10000, 10000, 5000, 5000}, systemLoad.getCpuThreadLoads());
+
+        systemLoad.decreaseBy(spread);
+        assertArrayEquals(new long[] {5000, 5000, 0, 0}, systemLoad.getCpuThreadLoads());
+        systemLoad.decreaseBy(pack);
+        assertArrayEquals(new long[] {0, 0, 0, 0}, systemLoad.getCpuThreadLoads());
+    }
+
+
     @Test
     public void testMemory() {
         try {